@@ -86,14 +86,19 @@ class UPnPEventListenerTracker extends ServiceTracker {
                     );
                 }
 
+                // Copied once, only the service properties are replaced for every service
+                Dictionary dictionary = null;
+                if (!all) {
+                    dictionary = new Hashtable();
+                    for (Object key : Collections.list(descriptions.keys())) {
+                        dictionary.put(key, descriptions.get(key));
+                    }
+                }
+
                 for (UPnPServiceImpl service : services) {
                     boolean match = all;
 
                     if (!match) {
-                        Dictionary dictionary = new Hashtable();
-                        for (Object key : Collections.list(descriptions.keys())) {
-                            dictionary.put(key, descriptions.get(key));
-                        }
                         dictionary.put(UPnPService.ID, service.getId());
                         dictionary.put(UPnPService.TYPE, service.getType());
                         match = filter.match(dictionary);
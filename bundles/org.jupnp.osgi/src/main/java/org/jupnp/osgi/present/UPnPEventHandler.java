@@ -16,39 +16,35 @@ package org.jupnp.osgi.present;
 
 /*
  * UPnPEventHandler captures OSGi UPnP events. When handling a
- * event it compares all the registered UPnPEvent listeners
- * against the source of the event. If a listener matches the
- * source it will notify that listener.
+ * event it compares the registered UPnPEvent listeners which
+ * might be interested against the source of the event. If a
+ * listener matches the source it will notify that listener.
  */
 
-import java.util.Dictionary;
+import java.util.concurrent.Executor;
 
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
-import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
-import org.osgi.service.upnp.UPnPDevice;
 import org.osgi.service.upnp.UPnPEventListener;
-import org.osgi.service.upnp.UPnPService;
-import org.osgi.util.tracker.ServiceTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 class UPnPEventHandler implements EventHandler {
     private final Logger logger = LoggerFactory.getLogger(UPnPEventHandler.class);
-	private ServiceTracker tracker;
+	private UPnPEventListenerTracker tracker;
 	
-	public UPnPEventHandler(BundleContext context) {
+	public UPnPEventHandler(BundleContext context, Executor executor) {
 		String string = String.format("(%s=%s)", 
 			Constants.OBJECTCLASS , UPnPEventListener.class.getName()
 			);
 		try {
 			Filter filter = context.createFilter(string);
 			
-			tracker = new ServiceTracker(context, filter, null);
+			tracker = new UPnPEventListenerTracker(context, filter, executor);
 			tracker.open();
 		} catch (InvalidSyntaxException e) {
 			logger.error("Cannot create UPnPEventListener tracker.");
@@ -60,25 +56,8 @@ class UPnPEventHandler implements EventHandler {
 	public void handleEvent(Event event) {
 		logger.trace("ENTRY {}.{}: {}", this.getClass().getName(), "handleEvent", event);
 		
-		ServiceReference[] references = tracker.getServiceReferences();
-		if (references != null) {
-			for (ServiceReference reference : references) {
-				boolean matches = true;
-				Filter filter = (Filter) reference.getProperty(UPnPEventListener.UPNP_FILTER);
-				if (filter != null) {
-					matches = event.matches(filter);
-				}
-				
-				if (matches) {
-					UPnPEventListener listener = (UPnPEventListener) tracker.getService(reference);
-					listener.notifyUPnPEvent(
-						(String) event.getProperty(UPnPDevice.UDN),
-						(String) event.getProperty(UPnPService.ID),
-						(Dictionary) event.getProperty("upnp.events")
-						);
-				}
-			}
+		if (tracker != null) {
+			tracker.dispatch(event);
 		}
 	}
 }
-
@@ -12,33 +12,361 @@
  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
  */
 
+
 package org.jupnp.osgi.present;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jupnp.MonitoredThreadPoolExecutor;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
 import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.upnp.UPnPDevice;
+import org.osgi.service.upnp.UPnPEventListener;
+import org.osgi.service.upnp.UPnPService;
 import org.osgi.util.tracker.ServiceTracker;
-import org.osgi.util.tracker.ServiceTrackerCustomizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * For debugging purposes, ServiceTracker is sufficient in a production environment.
+ * Tracks the registered <code>UPnPEventListener</code>s and finds the listeners of an event.
+ * <p>
+ * Most listeners filter on a device UDN, service ID, device type or service type. The tracker keeps
+ * an index of the listeners by the value such a filter requires, rebuilt whenever a listener is
+ * added, modified or removed. An event is only matched against the filters of the listeners indexed
+ * under its own values, and of the listeners whose filter couldn't be indexed.
+ * </p>
+ * <p>
+ * Every listener is notified on the given executor, in the order of the events, so that a slow
+ * listener doesn't delay the others. If the executor rejects a delivery, the listener is notified
+ * on the thread which dispatches the event.
+ * </p>
  *
  * @author Bruce Green
  */
-class UPnPEventListenerTracker extends ServiceTracker  {
+class UPnPEventListenerTracker extends ServiceTracker {
 
     private final Logger log = LoggerFactory.getLogger(UPnPEventListenerTracker.class);
-	
-	public UPnPEventListenerTracker(BundleContext context, Filter filter, ServiceTrackerCustomizer customizer) {
+
+    // The filter attributes which are indexed, in the order of preference
+    static final String[] INDEXED_KEYS = {UPnPDevice.UDN, UPnPService.ID, UPnPDevice.TYPE, UPnPService.TYPE};
+
+    // Null to notify the listeners on the thread which dispatches the event
+    private final Executor executor;
+    private final Map<ServiceReference, Registration> registrations = new ConcurrentHashMap<ServiceReference, Registration>();
+    private volatile Index index = new Index(Collections.<Registration>emptyList());
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+	public UPnPEventListenerTracker(BundleContext context, Filter filter, Executor executor) {
 		super(context, filter, null);
+		this.executor = executor;
 	}
-	
+
 	@Override
 	public Object addingService(ServiceReference reference) {
 		log.trace("ENTRY {}.{}: {}", this.getClass().getName(), "addingService", reference);
 
-        return super.addingService(reference);
+        UPnPEventListener listener = (UPnPEventListener) super.addingService(reference);
+        if (listener != null) {
+            registrations.put(reference, new Registration(reference, new Delivery(listener)));
+            rebuildIndex();
+        }
+        return listener;
 	}
+
+    @Override
+    public void modifiedService(ServiceReference reference, Object service) {
+        log.trace("ENTRY {}.{}: {}", this.getClass().getName(), "modifiedService", reference);
+
+        // The filter might have changed, keep pending notifications of the listener
+        Registration registration = registrations.get(reference);
+        if (registration != null) {
+            registrations.put(reference, new Registration(reference, registration.delivery));
+            rebuildIndex();
+        }
+        super.modifiedService(reference, service);
+    }
+
+    @Override
+    public void removedService(ServiceReference reference, Object service) {
+        log.trace("ENTRY {}.{}: {}", this.getClass().getName(), "removedService", reference);
+
+        Registration registration = registrations.remove(reference);
+        if (registration != null) {
+            registration.delivery.close();
+            rebuildIndex();
+        }
+        super.removedService(reference, service);
+    }
+
+    /**
+     * Notifies the listeners whose filter matches the event.
+     *
+     * @return The number of notified listeners.
+     */
+    public int dispatch(Event event) {
+        Collection<Registration> candidates = index.getCandidates(event);
+        int notified = 0;
+        for (Registration registration : candidates) {
+            if (registration.filter == null || event.matches(registration.filter)) {
+                registration.delivery.enqueue(
+                    (String) event.getProperty(UPnPDevice.UDN),
+                    (String) event.getProperty(UPnPService.ID),
+                    (Dictionary) event.getProperty("upnp.events")
+                );
+                notified++;
+            }
+        }
+        return notified;
+    }
+
+    /**
+     * @return The number of deliveries the executor rejected, which ran on the dispatching thread.
+     */
+    long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    protected void rebuildIndex() {
+        synchronized (registrations) {
+            index = new Index(new ArrayList<Registration>(registrations.values()));
+        }
+    }
+
+    /**
+     * @return The attribute (as written in the filter) and value the filter requires, or <code>null</code>
+     *         if it can't be indexed.
+     */
+    static String[] getIndexKey(Filter filter) {
+        if (filter == null) return null;
+        String string = filter.toString();
+
+        List<String[]> terms = new ArrayList<String[]>();
+        if (string.startsWith("(&")) {
+            // Only the direct terms of a conjunction are required
+            int depth = 0;
+            int start = -1;
+            for (int i = 2; i < string.length() - 1; i++) {
+                char c = string.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '(') {
+                    if (depth++ == 0) start = i;
+                } else if (c == ')') {
+                    if (--depth == 0) {
+                        String[] term = getEqualityTerm(string.substring(start, i + 1));
+                        if (term != null) terms.add(term);
+                    }
+                }
+            }
+        } else {
+            String[] term = getEqualityTerm(string);
+            if (term != null) terms.add(term);
+        }
+
+        for (String key : INDEXED_KEYS) {
+            for (String[] term : terms) {
+                if (term[0].equalsIgnoreCase(key)) {
+                    return term;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The attribute and value of a simple <code>(attribute=value)</code> term, or <code>null</code>.
+     */
+    static String[] getEqualityTerm(String term) {
+        if (term.length() < 5 || term.charAt(0) != '(' || term.charAt(term.length() - 1) != ')') return null;
+        String content = term.substring(1, term.length() - 1);
+        int equals = content.indexOf('=');
+        if (equals <= 0) return null;
+        char operator = content.charAt(equals - 1);
+        if (operator == '~' || operator == '<' || operator == '>') return null;
+        String value = content.substring(equals + 1);
+        // Wildcards and escaped characters are left to the filter
+        if (value.length() == 0 || value.indexOf('*') != -1 || value.indexOf('\\') != -1
+            || value.indexOf('(') != -1 || value.indexOf(')') != -1) return null;
+        return new String[]{content.substring(0, equals).trim(), value};
+    }
+
+    /**
+     * An immutable snapshot of the listeners, by the value their filter requires.
+     */
+    static class Index {
+
+        final Map<String, Map<String, List<Registration>>> byKey = new HashMap<String, Map<String, List<Registration>>>();
+        final List<Registration> unindexed = new ArrayList<Registration>();
+
+        Index(List<Registration> registrations) {
+            for (Registration registration : registrations) {
+                if (registration.indexKey == null) {
+                    unindexed.add(registration);
+                    continue;
+                }
+                Map<String, List<Registration>> byValue = byKey.get(registration.indexKey[0]);
+                if (byValue == null) {
+                    byKey.put(registration.indexKey[0], byValue = new HashMap<String, List<Registration>>());
+                }
+                List<Registration> list = byValue.get(registration.indexKey[1]);
+                if (list == null) {
+                    byValue.put(registration.indexKey[1], list = new ArrayList<Registration>());
+                }
+                list.add(registration);
+            }
+        }
+
+        Collection<Registration> getCandidates(Event event) {
+            if (byKey.isEmpty()) return unindexed;
+            // A listener is only indexed once, but the event might have several values for a key
+            Set<Registration> candidates = new LinkedHashSet<Registration>(unindexed);
+            for (Map.Entry<String, Map<String, List<Registration>>> entry : byKey.entrySet()) {
+                Object property = getProperty(event, entry.getKey());
+                if (property instanceof String) {
+                    addCandidates(candidates, entry.getValue(), (String) property);
+                } else if (property instanceof String[]) {
+                    for (String value : (String[]) property) {
+                        addCandidates(candidates, entry.getValue(), value);
+                    }
+                }
+            }
+            return candidates;
+        }
+
+        Object getProperty(Event event, String name) {
+            Object property = event.getProperty(name);
+            if (property == null) {
+                // The filter might not use the same case for the attribute as the event
+                for (String propertyName : event.getPropertyNames()) {
+                    if (propertyName.equalsIgnoreCase(name)) {
+                        return event.getProperty(propertyName);
+                    }
+                }
+            }
+            return property;
+        }
+
+        void addCandidates(Set<Registration> candidates, Map<String, List<Registration>> byValue, String value) {
+            List<Registration> list = byValue.get(value);
+            if (list != null) {
+                candidates.addAll(list);
+            }
+        }
+    }
+
+    /**
+     * A tracked listener, with its filter and its queue of notifications.
+     */
+    class Registration {
+
+        final Filter filter;
+        final String[] indexKey;
+        final Delivery delivery;
+
+        Registration(ServiceReference reference, Delivery delivery) {
+            this.filter = (Filter) reference.getProperty(UPnPEventListener.UPNP_FILTER);
+            this.indexKey = getIndexKey(filter);
+            this.delivery = delivery;
+            if (filter != null && indexKey == null) {
+                log.trace("Listener filter can't be indexed, matching it against every event: {}", filter);
+            }
+        }
+    }
+
+    /**
+     * Notifies a listener on the executor, one notification after the other.
+     */
+    class Delivery implements Runnable, MonitoredThreadPoolExecutor.AbortWhenRejected {
+
+        final UPnPEventListener listener;
+        final Queue<Object[]> pending = new ConcurrentLinkedQueue<Object[]>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closed;
+
+        Delivery(UPnPEventListener listener) {
+            this.listener = listener;
+        }
+
+        void enqueue(String udn, String serviceId, Dictionary events) {
+            if (closed) return;
+            if (executor == null) {
+                deliver(udn, serviceId, events);
+                return;
+            }
+            pending.add(new Object[]{udn, serviceId, events});
+            if (scheduled.compareAndSet(false, true) && !schedule()) {
+                run();
+            }
+        }
+
+        /**
+         * @return <code>false</code> if the executor rejected the task, which must then be run by the caller.
+         */
+        boolean schedule() {
+            try {
+                executor.execute(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                if (rejectedCount.incrementAndGet() == 1) {
+                    log.warn("UPnPEventListener executor rejected delivery, delivering on the calling thread: {}",
+                            e.toString());
+                } else {
+                    log.debug("UPnPEventListener executor rejected delivery to: {}", listener);
+                }
+                return false;
+            }
+        }
+
+        @Override
+        public void run() {
+            // Keeps delivering on this thread while the executor rejects the next run
+            while (deliverPending() && !schedule()) {
+                // Next notifications
+            }
+        }
+
+        // Returns true if more notifications are waiting and the delivery is still scheduled
+        boolean deliverPending() {
+            try {
+                Object[] notification;
+                while (!closed && (notification = pending.poll()) != null) {
+                    deliver((String) notification[0], (String) notification[1], (Dictionary) notification[2]);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            // A notification might have been added after the loop, before the flag was cleared
+            return !closed && !pending.isEmpty() && scheduled.compareAndSet(false, true);
+        }
+
+        void deliver(String udn, String serviceId, Dictionary events) {
+            try {
+                listener.notifyUPnPEvent(udn, serviceId, events);
+            } catch (RuntimeException e) {
+                log.warn("UPnPEventListener failed handling event of {} {}: {}", udn, serviceId, e.toString());
+            }
+        }
+
+        void close() {
+            closed = true;
+            pending.clear();
+        }
+    }
 }
@@ -87,7 +87,7 @@ public class UPnPPresent {
         properties.put(EventConstants.EVENT_TOPIC, UPNP_EVENT_TOPIC);
         context.registerService(
                 EventHandler.class.getName(),
-                new UPnPEventHandler(context),
+                new UPnPEventHandler(context, upnpService.getConfiguration().getRegistryListenerExecutor()),
                 properties
         );
     }
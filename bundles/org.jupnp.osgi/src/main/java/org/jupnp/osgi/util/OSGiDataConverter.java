@@ -17,11 +17,11 @@ package org.jupnp.osgi.util;
 import org.osgi.service.upnp.UPnPLocalStateVariable;
 import org.osgi.service.upnp.UPnPStateVariable;
 import org.jupnp.model.types.Datatype;
+import org.jupnp.model.types.DateTimeDatatype;
 import org.jupnp.model.types.UnsignedVariableInteger;
 import org.jupnp.model.types.Datatype.Builtin;
 
 import java.net.URI;
-import java.text.SimpleDateFormat;
 import java.util.Base64;
 import java.util.Calendar;
 import java.util.Date;
@@ -32,11 +32,12 @@ import java.util.TimeZone;
  */
 public class OSGiDataConverter {
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-    private static final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-    private static final SimpleDateFormat dateTimeTZFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
-    private static final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
-    private static final SimpleDateFormat timeTZFormat = new SimpleDateFormat("HH:mm:ssZ");
+    // Thread-safe, these reuse a compiled format per thread
+    private static final DateTimeDatatype dateFormat = (DateTimeDatatype) Builtin.DATE.getDatatype();
+    private static final DateTimeDatatype dateTimeFormat = (DateTimeDatatype) Builtin.DATETIME.getDatatype();
+    private static final DateTimeDatatype dateTimeTZFormat = (DateTimeDatatype) Builtin.DATETIME_TZ.getDatatype();
+    private static final DateTimeDatatype timeFormat = (DateTimeDatatype) Builtin.TIME.getDatatype();
+    private static final DateTimeDatatype timeTZFormat = (DateTimeDatatype) Builtin.TIME_TZ.getDatatype();
 
     /*
 	 *  Integer              ui1, ui2, i1, i2, i4, int
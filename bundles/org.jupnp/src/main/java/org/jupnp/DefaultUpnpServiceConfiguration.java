@@ -14,13 +14,15 @@
 
 package org.jupnp;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +36,8 @@ import org.jupnp.model.message.UpnpHeaders;
 import org.jupnp.model.meta.RemoteDeviceIdentity;
 import org.jupnp.model.meta.RemoteService;
 import org.jupnp.model.types.ServiceType;
+import org.jupnp.protocol.SearchAdmissionControl;
+import org.jupnp.transport.DuplicateNotificationFilter;
 import org.jupnp.transport.impl.DatagramIOConfigurationImpl;
 import org.jupnp.transport.impl.DatagramIOImpl;
 import org.jupnp.transport.impl.DatagramProcessorImpl;
@@ -55,7 +59,6 @@ import org.jupnp.transport.spi.NetworkAddressFactory;
 import org.jupnp.transport.spi.SOAPActionProcessor;
 import org.jupnp.transport.spi.StreamClient;
 import org.jupnp.transport.spi.StreamServer;
-import org.jupnp.util.Exceptions;
 
 /**
  * Default configuration data of a typical UPnP stack.
@@ -68,12 +71,12 @@ import org.jupnp.util.Exceptions;
  * {@link org.jupnp.binding.xml}.
  * </p>
  * <p>
- * The thread <code>Executor</code> is an <code>Executors.newCachedThreadPool()</code> with
- * a custom {@link JUPnPThreadFactory} (it only sets a thread name).
- * </p>
- * <p>
- * Note that this pool is effectively unlimited, so the number of threads will
- * grow (and shrink) as needed - or restricted by your JVM.
+ * Each {@link ExecutionStage} is executed on its own bounded {@link MonitoredThreadPoolExecutor},
+ * threads will grow (and shrink) as needed up to the stage's pool size. Override
+ * {@link #getThreadPoolSize(ExecutionStage)}, {@link #getThreadQueueSize(ExecutionStage)},
+ * {@link #createRejectedExecutionHandler(ExecutionStage)} or
+ * {@link #createExecutorService(ExecutionStage)} to tune the stages. Live metrics of all
+ * stages are available through {@link #getExecutorStatistics()}.
  * </p>
  * <p>
  * The default {@link org.jupnp.model.Namespace} is configured without any
@@ -88,15 +91,14 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
     private Logger log = LoggerFactory.getLogger(DefaultUpnpServiceConfiguration.class);
 
-    /** we will use a core pool size of 1 as long as we allow to timeout core threads. */
-    final private static int CORE_THREAD_POOL_SIZE = 1;
     final private static int THREAD_POOL_SIZE = 200;
     final private static int THREAD_QUEUE_SIZE = 1000;
 
     final private int streamListenPort;
     final private int multicastResponsePort;
 
-    final private ExecutorService defaultExecutorService;
+    final private Map<ExecutionStage, ExecutorService> executorServices =
+            new EnumMap<ExecutionStage, ExecutorService>(ExecutionStage.class);
 
     final private DatagramProcessor datagramProcessor;
     final private SOAPActionProcessor soapActionProcessor;
@@ -134,7 +136,12 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         this.streamListenPort = streamListenPort;
         this.multicastResponsePort = multicastResponsePort;
 
-        defaultExecutorService = createDefaultExecutorService();
+        for (ExecutionStage stage : ExecutionStage.values()) {
+            executorServices.put(
+                    stage,
+                    stage == ExecutionStage.SYNC_PROTOCOL ? createDefaultExecutorService() : createExecutorService(stage)
+            );
+        }
 
         datagramProcessor = createDatagramProcessor();
         soapActionProcessor = createSOAPActionProcessor();
@@ -165,7 +172,7 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     public StreamClient createStreamClient() {
         return new JettyStreamClientImpl(
             new StreamClientConfigurationImpl(
-                getSyncProtocolExecutorService()
+                getExecutorService(ExecutionStage.STREAM_CLIENT)
             )
         );
     }
@@ -197,17 +204,17 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
     @Override
     public ExecutorService getMulticastReceiverExecutor() {
-        return getDefaultExecutorService();
+        return getExecutorService(ExecutionStage.MULTICAST_RECEIVER);
     }
 
     @Override
     public ExecutorService getDatagramIOExecutor() {
-        return getDefaultExecutorService();
+        return getExecutorService(ExecutionStage.DATAGRAM_IO);
     }
 
     @Override
     public ExecutorService getStreamServerExecutorService() {
-        return getDefaultExecutorService();
+        return getExecutorService(ExecutionStage.STREAM_SERVER);
     }
 
     @Override
@@ -259,6 +266,38 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         return 0;
     }
 
+    /**
+     * @return Defaults to zero, disabling the network monitor.
+     */
+    @Override
+    public int getNetworkMonitorIntervalMillis() {
+        return 0;
+    }
+
+    /**
+     * @return Defaults to {@link SearchAdmissionControl#DEFAULT_BURST_SIZE}.
+     */
+    @Override
+    public int getSearchRequestBurstSize() {
+        return SearchAdmissionControl.DEFAULT_BURST_SIZE;
+    }
+
+    /**
+     * @return Defaults to {@link SearchAdmissionControl#DEFAULT_REQUESTS_PER_MINUTE}.
+     */
+    @Override
+    public int getSearchRequestsPerMinute() {
+        return SearchAdmissionControl.DEFAULT_REQUESTS_PER_MINUTE;
+    }
+
+    /**
+     * @return Defaults to {@link DuplicateNotificationFilter#DEFAULT_WINDOW_MILLIS}.
+     */
+    @Override
+    public int getDuplicateNotificationWindowMillis() {
+        return DuplicateNotificationFilter.DEFAULT_WINDOW_MILLIS;
+    }
+
     @Override
     public Integer getRemoteDeviceMaxAgeSeconds() {
         return null;
@@ -266,12 +305,12 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
     @Override
     public ExecutorService getAsyncProtocolExecutor() {
-        return getDefaultExecutorService();
+        return getExecutorService(ExecutionStage.ASYNC_PROTOCOL);
     }
 
     @Override
     public ExecutorService getSyncProtocolExecutorService() {
-        return getDefaultExecutorService();
+        return getExecutorService(ExecutionStage.SYNC_PROTOCOL);
     }
 
     @Override
@@ -281,12 +320,17 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
     @Override
     public Executor getRegistryMaintainerExecutor() {
-        return getDefaultExecutorService();
+        return getExecutorService(ExecutionStage.REGISTRY_MAINTAINER);
+    }
+
+    @Override
+    public Executor getNetworkMonitorExecutor() {
+        return getExecutorService(ExecutionStage.NETWORK_MONITOR);
     }
 
     @Override
     public Executor getRegistryListenerExecutor() {
-        return getDefaultExecutorService();
+        return getExecutorService(ExecutionStage.REGISTRY_LISTENER);
     }
 
     @Override
@@ -296,8 +340,25 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
     @Override
     public void shutdown() {
-        log.trace("Shutting down default executor service");
-        getDefaultExecutorService().shutdownNow();
+        log.trace("Shutting down executor services");
+        for (ExecutorService executorService : executorServices.values()) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @return A snapshot of the live metrics of each execution stage which is run on a
+     *         {@link MonitoredThreadPoolExecutor}.
+     */
+    public Map<ExecutionStage, MonitoredThreadPoolExecutor.Statistics> getExecutorStatistics() {
+        Map<ExecutionStage, MonitoredThreadPoolExecutor.Statistics> statistics =
+                new EnumMap<ExecutionStage, MonitoredThreadPoolExecutor.Statistics>(ExecutionStage.class);
+        for (Map.Entry<ExecutionStage, ExecutorService> entry : executorServices.entrySet()) {
+            if (entry.getValue() instanceof MonitoredThreadPoolExecutor) {
+                statistics.put(entry.getKey(), ((MonitoredThreadPoolExecutor) entry.getValue()).getStatistics());
+            }
+        }
+        return Collections.unmodifiableMap(statistics);
     }
 
     protected NetworkAddressFactory createNetworkAddressFactory(int streamListenPort, int multicastResponsePort) {
@@ -328,15 +389,63 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         return new Namespace();
     }
 
+    /**
+     * @return The executor of the synchronous protocols, shared by all stages in earlier versions.
+     */
     protected ExecutorService getDefaultExecutorService() {
-        return defaultExecutorService;
+        return getExecutorService(ExecutionStage.SYNC_PROTOCOL);
     }
 
+    /**
+     * Creates the executor of the synchronous protocols, see {@link #getDefaultExecutorService()}.
+     *
+     * @return Defaults to {@link #createExecutorService(ExecutionStage)} of {@link ExecutionStage#SYNC_PROTOCOL}.
+     */
     protected ExecutorService createDefaultExecutorService() {
-        return new JUPnPExecutor();
+        return createExecutorService(ExecutionStage.SYNC_PROTOCOL);
+    }
+
+    protected ExecutorService getExecutorService(ExecutionStage stage) {
+        return executorServices.get(stage);
+    }
+
+    protected ExecutorService createExecutorService(ExecutionStage stage) {
+        return new MonitoredThreadPoolExecutor(
+                stage.getThreadNamePrefix(),
+                getThreadPoolSize(stage),
+                getThreadQueueSize(stage),
+                createRejectedExecutionHandler(stage)
+        );
+    }
+
+    /**
+     * @return Defaults to {@link ExecutionStage#getDefaultThreadPoolSize()}.
+     */
+    protected int getThreadPoolSize(ExecutionStage stage) {
+        return stage.getDefaultThreadPoolSize();
     }
 
-    public static class JUPnPExecutor extends ThreadPoolExecutor {
+    /**
+     * @return Defaults to {@link ExecutionStage#getDefaultThreadQueueSize()}.
+     */
+    protected int getThreadQueueSize(ExecutionStage stage) {
+        return stage.getDefaultThreadQueueSize();
+    }
+
+    /**
+     * @return Defaults to logging and discarding the rejected task.
+     */
+    protected RejectedExecutionHandler createRejectedExecutionHandler(ExecutionStage stage) {
+        return new MonitoredThreadPoolExecutor.DiscardAndLogPolicy();
+    }
+
+    /**
+     * A single bounded pool for all stages, as used by earlier versions.
+     *
+     * @deprecated Each stage has its own pool, see {@link #createExecutorService(ExecutionStage)}.
+     */
+    @Deprecated
+    public static class JUPnPExecutor extends MonitoredThreadPoolExecutor {
 
         public JUPnPExecutor() {
             this(new JUPnPThreadFactory(),
@@ -353,33 +462,12 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         }
 
         public JUPnPExecutor(ThreadFactory threadFactory, RejectedExecutionHandler rejectedHandler) {
-            // This is the same as Executors.newCachedThreadPool
-            super(CORE_THREAD_POOL_SIZE,
+            super("jupnp",
                   THREAD_POOL_SIZE,
-                  10L,
-                  TimeUnit.SECONDS,
                   new ArrayBlockingQueue<Runnable>(THREAD_QUEUE_SIZE),
                   threadFactory,
                   rejectedHandler
             );
-            allowCoreThreadTimeOut(true);
-        }
-
-        @Override
-        protected void afterExecute(Runnable runnable, Throwable throwable) {
-            super.afterExecute(runnable, throwable);
-            if (throwable != null) {
-                Throwable cause = Exceptions.unwrap(throwable);
-                if (cause instanceof InterruptedException) {
-                    // Ignore this, might happen when we shutdownNow() the executor. We can't
-                    // log at this point as the logging system might be stopped already (e.g.
-                    // if it's a CDI component).
-                    return;
-                }
-                // Log only
-                LoggerFactory.getLogger(DefaultUpnpServiceConfiguration.class).warn("Thread terminated " + runnable + " abruptly with exception: " + throwable);
-                LoggerFactory.getLogger(DefaultUpnpServiceConfiguration.class).warn("Root cause: " + cause);
-            }
         }
     }
 
@@ -388,9 +476,14 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
         protected final ThreadGroup group;
         protected final AtomicInteger threadNumber = new AtomicInteger(1);
-        protected final String namePrefix = "jupnp-";
+        protected final String namePrefix;
 
         public JUPnPThreadFactory() {
+            this("jupnp-");
+        }
+
+        public JUPnPThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
             SecurityManager s = System.getSecurityManager();
             group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
         }
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp;
+
+/**
+ * The roles of the UPnP stack which are executed on their own thread pool.
+ * <p>
+ * Separating these roles ensures that e.g. a flood of incoming M-SEARCH requests
+ * (asynchronous protocols) can not starve the processing of SOAP actions and GENA
+ * events (synchronous protocols) or the delivery of registry notifications.
+ * </p>
+ * <p>
+ * The listening background threads of the transport layer (multicast receivers,
+ * datagram I/O and stream servers) as well as the registry maintainer and network monitor
+ * are long running loops, their pools use a direct handoff without a queue. All other stages use a
+ * bounded queue.
+ * </p>
+ */
+public enum ExecutionStage {
+
+    MULTICAST_RECEIVER("upnp-multicast", 32, 0),
+    DATAGRAM_IO("upnp-datagram", 32, 0),
+    STREAM_SERVER("upnp-stream", 32, 0),
+    STREAM_CLIENT("upnp-client", 64, 1000),
+    SYNC_PROTOCOL("upnp-sync", 64, 1000),
+    ASYNC_PROTOCOL("upnp-async", 32, 1000),
+    REGISTRY_MAINTAINER("upnp-maintainer", 2, 0),
+    NETWORK_MONITOR("upnp-network", 1, 0),
+    REGISTRY_LISTENER("upnp-listener", 16, 1000);
+
+    private final String threadNamePrefix;
+    private final int defaultThreadPoolSize;
+    private final int defaultThreadQueueSize;
+
+    ExecutionStage(String threadNamePrefix, int defaultThreadPoolSize, int defaultThreadQueueSize) {
+        this.threadNamePrefix = threadNamePrefix;
+        this.defaultThreadPoolSize = defaultThreadPoolSize;
+        this.defaultThreadQueueSize = defaultThreadQueueSize;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public int getDefaultThreadPoolSize() {
+        return defaultThreadPoolSize;
+    }
+
+    /**
+     * @return The default capacity of the work queue, <code>0</code> for a direct handoff to a thread.
+     */
+    public int getDefaultThreadQueueSize() {
+        return defaultThreadQueueSize;
+    }
+
+}
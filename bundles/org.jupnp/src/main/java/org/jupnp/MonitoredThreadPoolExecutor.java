@@ -0,0 +1,300 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jupnp.util.Exceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded thread pool which collects live metrics of the tasks it executes.
+ * <p>
+ * Threads are created on demand up to the configured pool size, further tasks are put
+ * into a bounded FIFO queue (or handed off directly if the queue size is <code>0</code>),
+ * and rejected by the configured {@link RejectedExecutionHandler} when the queue is full.
+ * Idle threads are terminated after 10 seconds.
+ * </p>
+ * <p>
+ * Besides the counters already provided by {@link ThreadPoolExecutor}, this executor
+ * counts rejected tasks and keeps the execution times of the most recent tasks, so that
+ * percentiles of the task time can be reported, see {@link #getStatistics()}.
+ * </p>
+ */
+public class MonitoredThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private Logger log = LoggerFactory.getLogger(MonitoredThreadPoolExecutor.class);
+
+    /** The number of most recent task execution times which are kept for percentile calculation. */
+    final static int TASK_TIME_SAMPLES = 1024;
+
+    final private String name;
+
+    final private AtomicLong rejectedTaskCount = new AtomicLong();
+
+    final private AtomicLongArray taskTimeSamples = new AtomicLongArray(TASK_TIME_SAMPLES);
+    final private AtomicLong taskTimeSampleCount = new AtomicLong();
+
+    final private ThreadLocal<Long> taskStartTime = new ThreadLocal<Long>();
+
+    public MonitoredThreadPoolExecutor(String name, int threadPoolSize, int threadQueueSize) {
+        this(name, threadPoolSize, threadQueueSize, new DiscardAndLogPolicy());
+    }
+
+    public MonitoredThreadPoolExecutor(String name, int threadPoolSize, int threadQueueSize,
+                                       RejectedExecutionHandler rejectedHandler) {
+        this(name, threadPoolSize, createQueue(threadQueueSize),
+             new DefaultUpnpServiceConfiguration.JUPnPThreadFactory(name + "-"), rejectedHandler);
+    }
+
+    protected MonitoredThreadPoolExecutor(String name, int threadPoolSize, BlockingQueue<Runnable> workQueue,
+                                          ThreadFactory threadFactory, RejectedExecutionHandler rejectedHandler) {
+        // Core and maximum size are equal, so threads are added before tasks are queued
+        super(threadPoolSize, threadPoolSize, 10L, TimeUnit.SECONDS, workQueue, threadFactory,
+              new CountingRejectedExecutionHandler(rejectedHandler));
+        this.name = name;
+        allowCoreThreadTimeOut(true);
+    }
+
+    protected static BlockingQueue<Runnable> createQueue(int threadQueueSize) {
+        if (threadQueueSize < 0) {
+            throw new IllegalArgumentException("Thread queue size must not be negative: " + threadQueueSize);
+        }
+        return threadQueueSize == 0
+                ? new SynchronousQueue<Runnable>()
+                : new ArrayBlockingQueue<Runnable>(threadQueueSize);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount.get();
+    }
+
+    /**
+     * @param percentile A value between <code>0</code> (exclusive) and <code>100</code> (inclusive).
+     * @return The execution time in milliseconds which the given percentile of the most recent
+     *         tasks did not exceed, <code>0</code> if no task has been completed yet.
+     */
+    public double getTaskTimePercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in range (0, 100]: " + percentile);
+        }
+        int count = (int) Math.min(taskTimeSampleCount.get(), TASK_TIME_SAMPLES);
+        if (count == 0) {
+            return 0;
+        }
+        long[] samples = new long[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = taskTimeSamples.get(i);
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return samples[Math.max(index, 0)] / 1000000d;
+    }
+
+    /**
+     * @return A snapshot of the current metrics of this executor.
+     */
+    public Statistics getStatistics() {
+        return new Statistics(
+                name,
+                getPoolSize(),
+                getActiveCount(),
+                getQueue().size(),
+                getCompletedTaskCount(),
+                getRejectedTaskCount(),
+                getTaskTimePercentile(99)
+        );
+    }
+
+    /**
+     * Rejected tasks are always counted, the given handler is wrapped accordingly.
+     */
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        super.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(handler));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return ((CountingRejectedExecutionHandler) super.getRejectedExecutionHandler()).getDelegate();
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        super.beforeExecute(thread, runnable);
+        taskStartTime.set(System.nanoTime());
+    }
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable throwable) {
+        super.afterExecute(runnable, throwable);
+
+        Long start = taskStartTime.get();
+        if (start != null) {
+            taskStartTime.remove();
+            int index = (int) (taskTimeSampleCount.getAndIncrement() % TASK_TIME_SAMPLES);
+            taskTimeSamples.set(index, System.nanoTime() - start);
+        }
+
+        if (throwable != null) {
+            Throwable cause = Exceptions.unwrap(throwable);
+            if (cause instanceof InterruptedException) {
+                // Ignore this, might happen when we shutdownNow() the executor
+                return;
+            }
+            // Log only
+            log.warn("Thread terminated " + runnable + " abruptly with exception: " + throwable);
+            log.warn("Root cause: " + cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getStatistics().toString();
+    }
+
+    /**
+     * Immutable snapshot of the metrics of a {@link MonitoredThreadPoolExecutor}.
+     */
+    public static class Statistics {
+
+        final private String name;
+        final private int poolSize;
+        final private int activeCount;
+        final private int queuedCount;
+        final private long completedCount;
+        final private long rejectedCount;
+        final private double taskTimeP99;
+
+        public Statistics(String name, int poolSize, int activeCount, int queuedCount,
+                          long completedCount, long rejectedCount, double taskTimeP99) {
+            this.name = name;
+            this.poolSize = poolSize;
+            this.activeCount = activeCount;
+            this.queuedCount = queuedCount;
+            this.completedCount = completedCount;
+            this.rejectedCount = rejectedCount;
+            this.taskTimeP99 = taskTimeP99;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public int getQueuedCount() {
+            return queuedCount;
+        }
+
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        /**
+         * @return The 99th percentile of the most recent task execution times, in milliseconds.
+         */
+        public double getTaskTimeP99() {
+            return taskTimeP99;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + getClass().getSimpleName() + ") " + getName()
+                    + " pool: " + getPoolSize()
+                    + ", active: " + getActiveCount()
+                    + ", queued: " + getQueuedCount()
+                    + ", completed: " + getCompletedCount()
+                    + ", rejected: " + getRejectedCount()
+                    + ", p99: " + String.format("%.3f", getTaskTimeP99()) + "ms";
+        }
+    }
+
+    /**
+     * Implemented by tasks which must not be discarded silently, their caller handles the
+     * <code>RejectedExecutionException</code> thrown by {@link DiscardAndLogPolicy}.
+     */
+    public interface AbortWhenRejected {
+    }
+
+    /**
+     * The pool is bounded, logs and discards rejected tasks (rejections also happen during shutdown).
+     * Rejected {@link AbortWhenRejected} tasks are not discarded but aborted.
+     */
+    public static class DiscardAndLogPolicy extends ThreadPoolExecutor.DiscardPolicy {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+            if (runnable instanceof AbortWhenRejected) {
+                throw new RejectedExecutionException(
+                        "Thread pool rejected execution of " + runnable.getClass()
+                );
+            }
+            if (!threadPoolExecutor.isShutdown()) {
+                LoggerFactory.getLogger(MonitoredThreadPoolExecutor.class).warn(
+                        "Thread pool rejected execution of " + runnable.getClass()
+                );
+            }
+            super.rejectedExecution(runnable, threadPoolExecutor);
+        }
+    }
+
+    static class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+        final private RejectedExecutionHandler delegate;
+
+        CountingRejectedExecutionHandler(RejectedExecutionHandler delegate) {
+            if (delegate == null) {
+                throw new NullPointerException();
+            }
+            this.delegate = delegate;
+        }
+
+        RejectedExecutionHandler getDelegate() {
+            return delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+            ((MonitoredThreadPoolExecutor) threadPoolExecutor).rejectedTaskCount.incrementAndGet();
+            delegate.rejectedExecution(runnable, threadPoolExecutor);
+        }
+    }
+}
@@ -22,14 +22,18 @@ import org.jupnp.binding.xml.DeviceDescriptorBinder;
 import org.jupnp.binding.xml.RecoveringUDA10DeviceDescriptorBinderImpl;
 import org.jupnp.binding.xml.RecoveringUDA10ServiceDescriptorBinderSAXImpl;
 import org.jupnp.binding.xml.ServiceDescriptorBinder;
+import org.jupnp.binding.xml.SharedServiceDescriptorBinder;
 import org.jupnp.model.ModelUtil;
 import org.jupnp.model.Namespace;
 import org.jupnp.model.message.UpnpHeaders;
 import org.jupnp.model.meta.RemoteDeviceIdentity;
 import org.jupnp.model.meta.RemoteService;
 import org.jupnp.model.types.ServiceType;
+import org.jupnp.protocol.SearchAdmissionControl;
+import org.jupnp.transport.DuplicateNotificationFilter;
 import org.jupnp.transport.impl.DatagramIOConfigurationImpl;
 import org.jupnp.transport.impl.DatagramIOImpl;
+import org.jupnp.transport.impl.DatagramSendQueue;
 import org.jupnp.transport.impl.DatagramProcessorImpl;
 import org.jupnp.transport.impl.GENAEventProcessorImpl;
 import org.jupnp.transport.impl.MulticastReceiverConfigurationImpl;
@@ -68,8 +72,8 @@ import org.slf4j.LoggerFactory;
  * This configuration utilizes the SAX default descriptor binders found in {@link org.jupnp.binding.xml}.
  * </p>
  * <p>
- * The thread <code>Executor</code> is an <code>Executors.newCachedThreadPool()</code> with a custom
- * {@link QueueingThreadFactory}.
+ * The thread <code>Executor</code>s are bounded {@link PriorityThreadPoolExecutor}s, which queue
+ * SOAP and GENA processing ahead of SSDP discovery once all threads are busy.
  * </p>
  * <p>
  * The default {@link org.jupnp.model.Namespace} is configured without any base path or prefix.
@@ -87,9 +91,17 @@ public class OSGiUpnpServiceConfiguration implements UpnpServiceConfiguration {
     // configurable properties
     private int threadPoolSize = 20;
     private int asyncThreadPoolSize = 20;
+    private int threadQueueSize = 1000;
     private int multicastResponsePort;
     private int httpProxyPort = -1;
     private int streamListenPort = 8080;
+    private int networkMonitorInterval = 0;
+    private int searchRequestBurstSize = SearchAdmissionControl.DEFAULT_BURST_SIZE;
+    private int searchRequestsPerMinute = SearchAdmissionControl.DEFAULT_REQUESTS_PER_MINUTE;
+    private int duplicateNotificationWindow = DuplicateNotificationFilter.DEFAULT_WINDOW_MILLIS;
+    private int datagramSendQueueSize = DatagramSendQueue.DEFAULT_CAPACITY;
+    // Off by default, see SharedServiceDescriptorBinder
+    private int sharedServiceDescriptors = 0;
     private Namespace callbackURI = new Namespace("http://localhost/upnpcallback");
 
     private ExecutorService mainExecutorService;
@@ -203,7 +215,9 @@ public class OSGiUpnpServiceConfiguration implements UpnpServiceConfiguration {
     @Override
     @SuppressWarnings("rawtypes")
     public DatagramIO createDatagramIO(NetworkAddressFactory networkAddressFactory) {
-        return new DatagramIOImpl(new DatagramIOConfigurationImpl());
+        DatagramIOConfigurationImpl configuration = new DatagramIOConfigurationImpl();
+        configuration.setSendQueueSize(datagramSendQueueSize);
+        return new DatagramIOImpl(configuration);
     }
 
     @Override
@@ -296,6 +310,29 @@ public class OSGiUpnpServiceConfiguration implements UpnpServiceConfiguration {
         return 0;
     }
 
+    /**
+     * @return Defaults to zero, disabling the network monitor.
+     */
+    @Override
+    public int getNetworkMonitorIntervalMillis() {
+        return networkMonitorInterval;
+    }
+
+    @Override
+    public int getSearchRequestBurstSize() {
+        return searchRequestBurstSize;
+    }
+
+    @Override
+    public int getSearchRequestsPerMinute() {
+        return searchRequestsPerMinute;
+    }
+
+    @Override
+    public int getDuplicateNotificationWindowMillis() {
+        return duplicateNotificationWindow;
+    }
+
     @Override
     public Integer getRemoteDeviceMaxAgeSeconds() {
         return null;
@@ -321,6 +358,11 @@ public class OSGiUpnpServiceConfiguration implements UpnpServiceConfiguration {
         return getMainExecutorService();
     }
 
+    @Override
+    public Executor getNetworkMonitorExecutor() {
+        return getMainExecutorService();
+    }
+
     @Override
     public Executor getRegistryListenerExecutor() {
         return getMainExecutorService();
@@ -370,7 +412,11 @@ public class OSGiUpnpServiceConfiguration implements UpnpServiceConfiguration {
     }
 
     protected ServiceDescriptorBinder createServiceDescriptorBinderUDA10() {
-        return new RecoveringUDA10ServiceDescriptorBinderSAXImpl();
+        ServiceDescriptorBinder binder = new RecoveringUDA10ServiceDescriptorBinderSAXImpl();
+        if (sharedServiceDescriptors > 0) {
+            return new SharedServiceDescriptorBinder(binder, sharedServiceDescriptors);
+        }
+        return binder;
     }
 
     protected Namespace createNamespace() {
@@ -387,11 +433,11 @@ public class OSGiUpnpServiceConfiguration implements UpnpServiceConfiguration {
     }
 
     protected ExecutorService createMainExecutorService() {
-        return QueueingThreadPoolExecutor.createInstance("upnp-main", threadPoolSize);
+        return new PriorityThreadPoolExecutor("upnp-main", threadPoolSize, threadQueueSize);
     }
 
     private ExecutorService createAsyncProtocolExecutorService() {
-        return QueueingThreadPoolExecutor.createInstance("upnp-async", asyncThreadPoolSize);
+        return new PriorityThreadPoolExecutor("upnp-async", asyncThreadPoolSize, threadQueueSize);
     }
 
     private void createConfiguration(Map<String, Object> properties) throws ConfigurationException {
@@ -422,6 +468,17 @@ public class OSGiUpnpServiceConfiguration implements UpnpServiceConfiguration {
             asyncThreadPoolSize = (Integer) prop;
         }
 
+        prop = properties.get("threadQueueSize");
+        if (prop instanceof String) {
+            try {
+                threadQueueSize = Integer.valueOf((String) prop);
+            } catch (NumberFormatException e) {
+                log.error("Invalid value '{}' for threadQueueSize - using default value '{}'", prop, threadQueueSize);
+            }
+        } else if (prop instanceof Integer) {
+            threadQueueSize = (Integer) prop;
+        }
+
         prop = properties.get("multicastResponsePort");
         if (prop instanceof String) {
             try {
@@ -470,6 +527,78 @@ public class OSGiUpnpServiceConfiguration implements UpnpServiceConfiguration {
         } else if (prop instanceof Integer) {
             httpProxyPort = (Integer) prop;
         }
+
+        prop = properties.get("networkMonitorInterval");
+        if (prop instanceof String) {
+            try {
+                networkMonitorInterval = Integer.valueOf((String) prop);
+            } catch (NumberFormatException e) {
+                log.error("Invalid value '{}' for networkMonitorInterval - using default value '{}'", prop,
+                        networkMonitorInterval);
+            }
+        } else if (prop instanceof Integer) {
+            networkMonitorInterval = (Integer) prop;
+        }
+
+        prop = properties.get("searchRequestBurstSize");
+        if (prop instanceof String) {
+            try {
+                searchRequestBurstSize = Integer.valueOf((String) prop);
+            } catch (NumberFormatException e) {
+                log.error("Invalid value '{}' for searchRequestBurstSize - using default value '{}'", prop,
+                        searchRequestBurstSize);
+            }
+        } else if (prop instanceof Integer) {
+            searchRequestBurstSize = (Integer) prop;
+        }
+
+        prop = properties.get("searchRequestsPerMinute");
+        if (prop instanceof String) {
+            try {
+                searchRequestsPerMinute = Integer.valueOf((String) prop);
+            } catch (NumberFormatException e) {
+                log.error("Invalid value '{}' for searchRequestsPerMinute - using default value '{}'", prop,
+                        searchRequestsPerMinute);
+            }
+        } else if (prop instanceof Integer) {
+            searchRequestsPerMinute = (Integer) prop;
+        }
+
+        prop = properties.get("duplicateNotificationWindow");
+        if (prop instanceof String) {
+            try {
+                duplicateNotificationWindow = Integer.valueOf((String) prop);
+            } catch (NumberFormatException e) {
+                log.error("Invalid value '{}' for duplicateNotificationWindow - using default value '{}'", prop,
+                        duplicateNotificationWindow);
+            }
+        } else if (prop instanceof Integer) {
+            duplicateNotificationWindow = (Integer) prop;
+        }
+
+        prop = properties.get("datagramSendQueueSize");
+        if (prop instanceof String) {
+            try {
+                datagramSendQueueSize = Integer.valueOf((String) prop);
+            } catch (NumberFormatException e) {
+                log.error("Invalid value '{}' for datagramSendQueueSize - using default value '{}'", prop,
+                        datagramSendQueueSize);
+            }
+        } else if (prop instanceof Integer) {
+            datagramSendQueueSize = (Integer) prop;
+        }
+
+        prop = properties.get("sharedServiceDescriptors");
+        if (prop instanceof String) {
+            try {
+                sharedServiceDescriptors = Integer.valueOf((String) prop);
+            } catch (NumberFormatException e) {
+                log.error("Invalid value '{}' for sharedServiceDescriptors - using default value '{}'", prop,
+                        sharedServiceDescriptors);
+            }
+        } else if (prop instanceof Integer) {
+            sharedServiceDescriptors = (Integer) prop;
+        }
     }
 
 }
@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jupnp.controlpoint.ActionCallback;
+import org.jupnp.controlpoint.SubscriptionCallback;
+import org.jupnp.protocol.ReceivingAsync;
+import org.jupnp.protocol.ReceivingSync;
+import org.jupnp.protocol.RetrieveRemoteDescriptors;
+import org.jupnp.protocol.SendingAsync;
+import org.jupnp.protocol.SendingSync;
+import org.jupnp.transport.spi.UpnpStream;
+
+/**
+ * A bounded thread pool with priority lanes, a replacement for the {@link QueueingThreadPoolExecutor}.
+ * <p>
+ * Tasks are handed off directly to a new or idle thread as long as less than the
+ * configured number of threads are busy. Once all threads are busy, tasks are queued
+ * in one of three FIFO lanes, each bounded by the configured queue size. An idle
+ * thread always takes the next task from the highest non-empty lane, so that control
+ * and eventing (SOAP/GENA) is not delayed by a flood of discovery (SSDP) messages.
+ * There is no separate queue thread polling for idle threads, tasks are rejected
+ * with the configured {@link RejectedExecutionHandler} if their lane is full.
+ * </p>
+ * <p>
+ * The lane of a task is determined by {@link #getPriority(Runnable)}: tasks implementing
+ * {@link Prioritized} choose their own lane, synchronous protocols, HTTP streams and
+ * control point callbacks are {@link Priority#HIGH}, asynchronous discovery protocols
+ * and descriptor retrieval are {@link Priority#LOW}, all other tasks are
+ * {@link Priority#NORMAL}.
+ * </p>
+ */
+public class PriorityThreadPoolExecutor extends MonitoredThreadPoolExecutor {
+
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    /**
+     * Implemented by tasks which select their own priority lane.
+     */
+    public interface Prioritized {
+        Priority getPriority();
+    }
+
+    public PriorityThreadPoolExecutor(String name, int threadPoolSize, int threadQueueSize) {
+        this(name, threadPoolSize, threadQueueSize, new DiscardAndLogPolicy());
+    }
+
+    public PriorityThreadPoolExecutor(String name, int threadPoolSize, int threadQueueSize,
+                                      RejectedExecutionHandler rejectedHandler) {
+        super(name, threadPoolSize, new LaneQueue(threadQueueSize),
+              new DefaultUpnpServiceConfiguration.JUPnPThreadFactory(name + "-"), rejectedHandler);
+        getLaneQueue().executor = this;
+    }
+
+    /**
+     * @return The number of queued tasks in the given lane.
+     */
+    public int getQueuedTaskCount(Priority priority) {
+        return getLaneQueue().size(priority);
+    }
+
+    /**
+     * Override this method to customize the lane of tasks which are not {@link Prioritized}.
+     */
+    protected Priority getPriority(Runnable runnable) {
+        if (runnable instanceof Prioritized) {
+            return ((Prioritized) runnable).getPriority();
+        }
+        if (runnable instanceof UpnpStream
+                || runnable instanceof ReceivingSync
+                || runnable instanceof SendingSync
+                || runnable instanceof ActionCallback
+                || runnable instanceof SubscriptionCallback) {
+            return Priority.HIGH;
+        }
+        if (runnable instanceof ReceivingAsync
+                || runnable instanceof SendingAsync
+                || runnable instanceof RetrieveRemoteDescriptors) {
+            return Priority.LOW;
+        }
+        return Priority.NORMAL;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new PrioritizedFutureTask<T>(runnable, value, getPriority(runnable));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new PrioritizedFutureTask<T>(
+                callable,
+                callable instanceof Prioritized ? ((Prioritized) callable).getPriority() : Priority.NORMAL
+        );
+    }
+
+    private LaneQueue getLaneQueue() {
+        return (LaneQueue) getQueue();
+    }
+
+    static class PrioritizedFutureTask<T> extends FutureTask<T> implements Prioritized {
+
+        final private Priority priority;
+
+        PrioritizedFutureTask(Runnable runnable, T value, Priority priority) {
+            super(runnable, value);
+            this.priority = priority;
+        }
+
+        PrioritizedFutureTask(Callable<T> callable, Priority priority) {
+            super(callable);
+            this.priority = priority;
+        }
+
+        @Override
+        public Priority getPriority() {
+            return priority;
+        }
+    }
+
+    /**
+     * A blocking queue with one bounded FIFO lane per {@link Priority}.
+     */
+    static class LaneQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+        final private int capacity;
+        final private ArrayDeque<Runnable>[] lanes;
+        final private ReentrantLock lock = new ReentrantLock();
+        final private Condition notEmpty = lock.newCondition();
+
+        volatile private PriorityThreadPoolExecutor executor;
+
+        @SuppressWarnings("unchecked")
+        LaneQueue(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Thread queue size must be positive: " + capacity);
+            }
+            this.capacity = capacity;
+            this.lanes = new ArrayDeque[Priority.values().length];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new ArrayDeque<Runnable>();
+            }
+        }
+
+        protected ArrayDeque<Runnable> laneOf(Runnable runnable) {
+            Priority priority = executor != null ? executor.getPriority(runnable) : Priority.NORMAL;
+            return lanes[priority.ordinal()];
+        }
+
+        // Must be called while holding the lock
+        protected Runnable dequeue() {
+            for (ArrayDeque<Runnable> lane : lanes) {
+                Runnable runnable = lane.poll();
+                if (runnable != null)
+                    return runnable;
+            }
+            return null;
+        }
+
+        int size(Priority priority) {
+            lock.lock();
+            try {
+                return lanes[priority.ordinal()].size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            if (runnable == null)
+                throw new NullPointerException();
+            ArrayDeque<Runnable> lane = laneOf(runnable);
+            lock.lock();
+            try {
+                if (lane.size() >= capacity)
+                    return false;
+                lane.add(runnable);
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void put(Runnable runnable) throws InterruptedException {
+            // Only used by applications, the executor never blocks when queueing
+            while (!offer(runnable)) {
+                Thread.sleep(10);
+            }
+        }
+
+        @Override
+        public boolean offer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!offer(runnable)) {
+                if (System.nanoTime() >= deadline)
+                    return false;
+                Thread.sleep(10);
+            }
+            return true;
+        }
+
+        @Override
+        public Runnable poll() {
+            lock.lock();
+            try {
+                return dequeue();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                Runnable runnable;
+                while ((runnable = dequeue()) == null) {
+                    notEmpty.await();
+                }
+                return runnable;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            lock.lockInterruptibly();
+            try {
+                Runnable runnable;
+                while ((runnable = dequeue()) == null) {
+                    if (nanos <= 0)
+                        return null;
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                return runnable;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Runnable peek() {
+            lock.lock();
+            try {
+                for (ArrayDeque<Runnable> lane : lanes) {
+                    if (!lane.isEmpty())
+                        return lane.peek();
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            lock.lock();
+            try {
+                int size = 0;
+                for (ArrayDeque<Runnable> lane : lanes) {
+                    size += lane.size();
+                }
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int remainingCapacity() {
+            lock.lock();
+            try {
+                int remaining = 0;
+                for (ArrayDeque<Runnable> lane : lanes) {
+                    remaining += capacity - lane.size();
+                }
+                return remaining;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            lock.lock();
+            try {
+                for (ArrayDeque<Runnable> lane : lanes) {
+                    if (lane.remove(o))
+                        return true;
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == this)
+                throw new IllegalArgumentException();
+            lock.lock();
+            try {
+                int count = 0;
+                Runnable runnable;
+                while (count < maxElements && (runnable = dequeue()) != null) {
+                    c.add(runnable);
+                    count++;
+                }
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return An iterator over a snapshot of all queued tasks, in priority order.
+         */
+        @Override
+        public Iterator<Runnable> iterator() {
+            final List<Runnable> snapshot = new ArrayList<Runnable>();
+            lock.lock();
+            try {
+                for (ArrayDeque<Runnable> lane : lanes) {
+                    snapshot.addAll(lane);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return new Iterator<Runnable>() {
+                final Iterator<Runnable> it = snapshot.iterator();
+                Runnable last;
+
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Runnable next() {
+                    return last = it.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null)
+                        throw new IllegalStateException();
+                    LaneQueue.this.remove(last);
+                    last = null;
+                }
+            };
+        }
+    }
+}
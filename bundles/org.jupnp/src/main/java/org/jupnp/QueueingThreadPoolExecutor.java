@@ -52,6 +52,10 @@ import org.slf4j.LoggerFactory;
  * Please note that this implementation (with its partially hard-coded settings) is specifically targeted for use
  * on embedded devices without a high throughput. If you intend to use it for mass data processing on a server, you
  * should definitely tweak those settings.
+ * <p>
+ * Consider the {@link PriorityThreadPoolExecutor} instead, which bounds its queue, does not need a separate
+ * queue thread and prefers control and eventing tasks over discovery tasks.
+ * </p>
  *
  * @author Kai Kreuzer - Initial contribution and API
  *
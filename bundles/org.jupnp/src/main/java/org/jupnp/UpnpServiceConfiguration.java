@@ -160,6 +160,49 @@ public interface UpnpServiceConfiguration {
      */
     public int getAliveIntervalMillis();
 
+    /**
+     * Optional setting for watching the local network interfaces and addresses.
+     * <p>
+     * The router periodically rediscovers the usable network interfaces and addresses and
+     * only starts or stops the transports of interfaces and addresses which appeared or
+     * disappeared, instead of restarting all transports. Local devices are announced on
+     * new addresses.
+     * </p>
+     *
+     * @return The time in milliseconds between network checks, set to <code>0</code> to disable
+     */
+    public int getNetworkMonitorIntervalMillis();
+
+    /**
+     * Optional setting for limiting the received M-SEARCH requests which are answered.
+     * <p>
+     * Every combination of source address and search target can send this many searches
+     * at once, further searches are dropped until the bucket has been refilled at the rate
+     * of {@link #getSearchRequestsPerMinute()}.
+     * </p>
+     *
+     * @return The number of searches a source can send at once, set to <code>0</code> to disable rate limiting
+     */
+    public int getSearchRequestBurstSize();
+
+    /**
+     * @return The number of searches per minute a source can send after a burst, set to <code>0</code>
+     *         to disable rate limiting
+     * @see #getSearchRequestBurstSize()
+     */
+    public int getSearchRequestsPerMinute();
+
+    /**
+     * Optional setting for dropping repeated SSDP notifications of the same device.
+     * <p>
+     * Repeats of a processed notification within this window are dropped by the router
+     * before a protocol is created, see {@link org.jupnp.transport.DuplicateNotificationFilter}.
+     * </p>
+     *
+     * @return The window in milliseconds, set to <code>0</code> to process all notifications
+     */
+    public int getDuplicateNotificationWindowMillis();
+
     /**
      * Ignore the received event subscription timeout from remote control points.
      * <p>
@@ -243,7 +286,15 @@ public interface UpnpServiceConfiguration {
     public Executor getRegistryMaintainerExecutor();
 
     /**
-     * @return The executor which runs the notification threads of registry listeners.
+     * @return The executor which runs the background thread of the network monitor, see
+     *         {@link #getNetworkMonitorIntervalMillis()}.
+     */
+    public Executor getNetworkMonitorExecutor();
+
+    /**
+     * @return The executor which runs the notification threads of registry listeners. It must throw a
+     *         <code>RejectedExecutionException</code> instead of discarding a
+     *         {@link org.jupnp.MonitoredThreadPoolExecutor.AbortWhenRejected} task.
      */
     public Executor getRegistryListenerExecutor();
 
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the blocking protocols and transports of each {@link ExecutionStage} on virtual threads.
+ * <p>
+ * Every task is started on its own virtual thread, so thousands of concurrent control, eventing
+ * and descriptor retrieval requests only cost a few carrier threads. Virtual threads are
+ * available on Java 21 and newer, this configuration looks them up at runtime and falls back
+ * to the bounded thread pools of {@link DefaultUpnpServiceConfiguration} (with a warning) on
+ * older runtimes, see {@link #isVirtualThreadsSupported()}.
+ * </p>
+ * <p>
+ * Note that virtual threads are not bounded: the thread pool and queue sizes of the stages
+ * are ignored and {@link #getExecutorStatistics()} only reports stages which fell back to
+ * a thread pool.
+ * </p>
+ */
+public class VirtualThreadUpnpServiceConfiguration extends DefaultUpnpServiceConfiguration {
+
+    final private static Logger log = LoggerFactory.getLogger(VirtualThreadUpnpServiceConfiguration.class);
+
+    final private static Method THREAD_OF_VIRTUAL;
+    final private static Method BUILDER_NAME;
+    final private static Method BUILDER_FACTORY;
+    final private static Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = ofVirtual.getReturnType();
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (NoSuchMethodException ex) {
+            ofVirtual = null;
+        }
+        THREAD_OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    public VirtualThreadUpnpServiceConfiguration() {
+        super();
+    }
+
+    public VirtualThreadUpnpServiceConfiguration(int streamListenPort) {
+        super(streamListenPort);
+    }
+
+    public VirtualThreadUpnpServiceConfiguration(int streamListenPort, int multicastResponsePort) {
+        super(streamListenPort, multicastResponsePort);
+    }
+
+    /**
+     * @return <code>true</code> if the runtime supports virtual threads (Java 21 or newer).
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return THREAD_OF_VIRTUAL != null;
+    }
+
+    @Override
+    protected ExecutorService createExecutorService(ExecutionStage stage) {
+        if (!isVirtualThreadsSupported()) {
+            log.warn("Virtual threads are not supported by this runtime, using a thread pool for: " + stage);
+            return super.createExecutorService(stage);
+        }
+        try {
+            Object builder = THREAD_OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, stage.getThreadNamePrefix() + "-", 1L);
+            ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (Exception ex) {
+            log.warn("Can't create virtual thread executor, using a thread pool for: " + stage, ex);
+            return super.createExecutorService(stage);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.binding.xml;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jupnp.model.ValidationException;
+import org.jupnp.model.meta.Action;
+import org.jupnp.model.meta.ActionArgument;
+import org.jupnp.model.meta.RemoteService;
+import org.jupnp.model.meta.Service;
+import org.jupnp.model.meta.StateVariable;
+import org.jupnp.model.meta.StateVariableTypeDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+/**
+ * Shares the metadata of identical remote service descriptors between devices.
+ * <p>
+ * Many devices of the same model have the same service descriptors. This binder remembers the
+ * first service described from a descriptor, by its type and a digest of the descriptor XML. When
+ * the same descriptor is read again, it isn't parsed: the new service gets its own actions,
+ * arguments and state variables (they point back to their service), but these only hold the
+ * names, type details, allowed values and event details of the first service. All strings of a
+ * shared service are deduplicated.
+ * </p>
+ * <p>
+ * At most the given number of descriptors is remembered, further descriptors are parsed as usual.
+ * Local services and services described from a DOM are always handled by the wrapped binder.
+ * </p>
+ */
+public class SharedServiceDescriptorBinder implements ServiceDescriptorBinder {
+
+    final private static Logger log = LoggerFactory.getLogger(SharedServiceDescriptorBinder.class);
+
+    public static final int DEFAULT_MAX_SHARED_DESCRIPTORS = 256;
+
+    // Names, data types and allowed values of a few hundred service types
+    public static final int MAX_POOLED_STRINGS = 65536;
+
+    final protected ServiceDescriptorBinder binder;
+    final protected int maxSharedDescriptors;
+
+    final private Map<String, RemoteService> sharedServices = new ConcurrentHashMap<String, RemoteService>();
+    final private ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+    final private AtomicLong describedCount = new AtomicLong();
+    final private AtomicLong sharedCount = new AtomicLong();
+
+    public SharedServiceDescriptorBinder(ServiceDescriptorBinder binder) {
+        this(binder, DEFAULT_MAX_SHARED_DESCRIPTORS);
+    }
+
+    public SharedServiceDescriptorBinder(ServiceDescriptorBinder binder, int maxSharedDescriptors) {
+        this.binder = binder;
+        this.maxSharedDescriptors = maxSharedDescriptors;
+    }
+
+    public ServiceDescriptorBinder getBinder() {
+        return binder;
+    }
+
+    @Override
+    public <T extends Service> T describe(T undescribedService, String descriptorXml)
+            throws DescriptorBindingException, ValidationException {
+        if (!(undescribedService instanceof RemoteService) || descriptorXml == null || descriptorXml.length() == 0) {
+            return binder.describe(undescribedService, descriptorXml);
+        }
+        describedCount.incrementAndGet();
+
+        String key = undescribedService.getServiceType() + "/" + digest(descriptorXml);
+        RemoteService shared = sharedServices.get(key);
+        if (shared != null) {
+            log.trace("Sharing metadata of identical service descriptor: {}", shared);
+            sharedCount.incrementAndGet();
+            return (T) newInstance((RemoteService) undescribedService, shared, false);
+        }
+
+        T service = binder.describe(undescribedService, descriptorXml);
+        if (service == null || sharedServices.size() >= maxSharedDescriptors) {
+            return service;
+        }
+        // Rebuild with deduplicated strings, this instance is shared from now on
+        RemoteService canonical = newInstance((RemoteService) undescribedService, (RemoteService) service, true);
+        sharedServices.put(key, canonical);
+        return (T) canonical;
+    }
+
+    @Override
+    public <T extends Service> T describe(T undescribedService, Document dom)
+            throws DescriptorBindingException, ValidationException {
+        return binder.describe(undescribedService, dom);
+    }
+
+    @Override
+    public String generate(Service service) throws DescriptorBindingException {
+        return binder.generate(service);
+    }
+
+    @Override
+    public Document buildDOM(Service service) throws DescriptorBindingException {
+        return binder.buildDOM(service);
+    }
+
+    /**
+     * @return The number of remote service descriptors read through this binder.
+     */
+    public long getDescribedCount() {
+        return describedCount.get();
+    }
+
+    /**
+     * @return The number of remote services which share the metadata of an earlier service.
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    /**
+     * @return The number of different service descriptors which are remembered.
+     */
+    public int getSharedDescriptorCount() {
+        return sharedServices.size();
+    }
+
+    public int getPooledStringCount() {
+        return strings.size();
+    }
+
+    /**
+     * Forgets all remembered descriptors, services which already share metadata keep it.
+     */
+    public void clear() {
+        sharedServices.clear();
+        strings.clear();
+    }
+
+    /**
+     * Creates a service for the device of the given undescribed service, with the metadata of the given
+     * shared service.
+     *
+     * @param pool <code>true</code> if the metadata should be rebuilt with deduplicated strings.
+     */
+    protected RemoteService newInstance(RemoteService undescribedService, RemoteService shared, boolean pool)
+            throws ValidationException {
+        Action<RemoteService>[] actions = new Action[shared.getActions().length];
+        for (int i = 0; i < actions.length; i++) {
+            Action<RemoteService> action = shared.getActions()[i];
+            ActionArgument[] arguments = new ActionArgument[action.getArguments().length];
+            for (int j = 0; j < arguments.length; j++) {
+                ActionArgument argument = action.getArguments()[j];
+                arguments[j] = new ActionArgument(
+                    pool(argument.getName(), pool),
+                    pool ? pool(argument.getAliases()) : argument.getAliases(),
+                    pool(argument.getRelatedStateVariableName(), pool),
+                    argument.getDirection(),
+                    argument.isReturnValue()
+                );
+            }
+            actions[i] = new Action<RemoteService>(pool(action.getName(), pool), arguments);
+        }
+
+        StateVariable<RemoteService>[] stateVariables = new StateVariable[shared.getStateVariables().length];
+        for (int i = 0; i < stateVariables.length; i++) {
+            StateVariable<RemoteService> stateVariable = shared.getStateVariables()[i];
+            StateVariableTypeDetails typeDetails = stateVariable.getTypeDetails();
+            if (pool) {
+                typeDetails = new StateVariableTypeDetails(
+                    typeDetails.getDatatype(),
+                    pool(typeDetails.getDefaultValue(), true),
+                    pool(typeDetails.getAllowedValues()),
+                    typeDetails.getAllowedValueRange()
+                );
+            }
+            stateVariables[i] = new StateVariable<RemoteService>(
+                pool(stateVariable.getName(), pool), typeDetails, stateVariable.getEventDetails()
+            );
+        }
+
+        return undescribedService.getDevice().newInstance(
+            undescribedService.getServiceType(), undescribedService.getServiceId(),
+            undescribedService.getDescriptorURI(), undescribedService.getControlURI(),
+            undescribedService.getEventSubscriptionURI(),
+            actions, stateVariables
+        );
+    }
+
+    protected String pool(String s, boolean pool) {
+        if (!pool || s == null) return s;
+        String pooled = strings.get(s);
+        if (pooled != null) return pooled;
+        if (strings.size() >= MAX_POOLED_STRINGS) return s;
+        pooled = strings.putIfAbsent(s, s);
+        return pooled != null ? pooled : s;
+    }
+
+    protected String[] pool(String[] array) {
+        if (array == null) return null;
+        String[] pooled = new String[array.length];
+        for (int i = 0; i < array.length; i++) {
+            pooled[i] = pool(array[i], true);
+        }
+        return pooled;
+    }
+
+    protected String digest(String descriptorXml) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(descriptorXml.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform has SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") described: " + getDescribedCount()
+                + ", shared: " + getSharedCount()
+                + ", descriptors: " + getSharedDescriptorCount();
+    }
+}
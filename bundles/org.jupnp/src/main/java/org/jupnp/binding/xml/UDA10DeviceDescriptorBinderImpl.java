@@ -49,6 +49,7 @@ import org.jupnp.model.types.UDN;
 import org.jupnp.util.Exceptions;
 import org.jupnp.util.MimeType;
 import org.jupnp.util.SpecificationViolationReporter;
+import org.jupnp.xml.XMLComponentCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -86,8 +87,7 @@ public class UDA10DeviceDescriptorBinderImpl implements DeviceDescriptorBinder,
 
             // And by the way... try this with JAXB instead of manual DOM processing! And you thought it couldn't get worse....
 
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
+            DocumentBuilderFactory factory = XMLComponentCache.getDocumentBuilderFactory();
             DocumentBuilder documentBuilder = factory.newDocumentBuilder();
             documentBuilder.setErrorHandler(this);
 
@@ -399,8 +399,7 @@ public class UDA10DeviceDescriptorBinderImpl implements DeviceDescriptorBinder,
         try {
             log.trace("Generating DOM from device model: " + deviceModel);
 
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
+            DocumentBuilderFactory factory = XMLComponentCache.getDocumentBuilderFactory();
 
             Document d = factory.newDocumentBuilder().newDocument();
             generateRoot(namespace, deviceModel, d, info);
@@ -44,6 +44,7 @@ import org.jupnp.model.meta.StateVariableEventDetails;
 import org.jupnp.model.types.CustomDatatype;
 import org.jupnp.model.types.Datatype;
 import org.jupnp.util.SpecificationViolationReporter;
+import org.jupnp.xml.XMLComponentCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -73,8 +74,7 @@ public class UDA10ServiceDescriptorBinderImpl implements ServiceDescriptorBinder
         try {
             log.trace("Populating service from XML descriptor: " + undescribedService);
 
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
+            DocumentBuilderFactory factory = XMLComponentCache.getDocumentBuilderFactory();
             DocumentBuilder documentBuilder = factory.newDocumentBuilder();
             documentBuilder.setErrorHandler(this);
 
@@ -367,8 +367,7 @@ public class UDA10ServiceDescriptorBinderImpl implements ServiceDescriptorBinder
         try {
             log.trace("Generting XML descriptor from service model: " + service);
 
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
+            DocumentBuilderFactory factory = XMLComponentCache.getDocumentBuilderFactory();
 
             Document d = factory.newDocumentBuilder().newDocument();
             generateScpd(service, d);
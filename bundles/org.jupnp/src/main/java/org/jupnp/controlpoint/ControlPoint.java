@@ -17,6 +17,7 @@ package org.jupnp.controlpoint;
 import org.jupnp.UpnpServiceConfiguration;
 import org.jupnp.model.message.header.UpnpHeader;
 import org.jupnp.protocol.ProtocolFactory;
+import org.jupnp.protocol.SearchResponseAggregator;
 import org.jupnp.registry.Registry;
 
 import java.util.concurrent.Future;
@@ -36,6 +37,12 @@ public interface ControlPoint {
     public void search(UpnpHeader searchType);
     public void search(int mxSeconds);
     public void search(UpnpHeader searchType, int mxSeconds);
+
+    /**
+     * Searches the network, the callback is notified with the devices which responded
+     * when no more responses are expected.
+     */
+    public void search(UpnpHeader searchType, int mxSeconds, SearchResponseAggregator.Callback callback);
     public Future execute(ActionCallback callback);
     public void execute(SubscriptionCallback callback);
 
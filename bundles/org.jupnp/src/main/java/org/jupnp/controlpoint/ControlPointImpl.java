@@ -24,6 +24,7 @@ import org.jupnp.model.message.header.MXHeader;
 import org.jupnp.model.message.header.STAllHeader;
 import org.jupnp.model.message.header.UpnpHeader;
 import org.jupnp.protocol.ProtocolFactory;
+import org.jupnp.protocol.SearchResponseAggregator;
 import org.jupnp.registry.Registry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -91,6 +92,13 @@ public class ControlPointImpl implements ControlPoint {
         );
     }
 
+    public void search(UpnpHeader searchType, int mxSeconds, SearchResponseAggregator.Callback callback) {
+        log.trace("Sending asynchronous search with callback for: " + searchType.getString());
+        getConfiguration().getAsyncProtocolExecutor().execute(
+                getProtocolFactory().createSendingSearch(searchType, mxSeconds, callback)
+        );
+    }
+
     public void execute(ExecuteAction executeAction) {
         execute(executeAction.getCallback());
     }
@@ -15,9 +15,9 @@
 package org.jupnp.http;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -147,40 +147,56 @@ public class Headers implements Map<String, List<String>> {
         String k = normalize(key);
         List<String> l = map.get(k);
         if (l == null) {
-            l = new LinkedList<String>();
+            // Most headers have a single value
+            l = new ArrayList<String>(1);
             map.put(k, l);
         }
         l.add(value);
     }
 
     public void set(String key, String value) {
-        LinkedList<String> l = new LinkedList<String>();
+        List<String> l = new ArrayList<String>(1);
         l.add(value);
         put(key, l);
     }
 
+    public boolean isNormalizeHeaders() {
+        return normalizeHeaders;
+    }
+
     private String normalize(String key) {
-        String result=key;
-        
-        if (normalizeHeaders) {
-            if (key == null) return null;
-            if (key.length() == 0) return key;
-            char[] b;
-            b = key.toCharArray();
-            final int caseDiff = 'a' - 'A';//android optimization
-            
-            if (b[0] >= 'a' && b[0] <= 'z') {
-                b[0] = (char) (b[0] - caseDiff);
+        return normalizeHeaders ? normalizeName(key) : key;
+    }
+
+    /**
+     * @return The given header name with an upper case first character and all other characters
+     *         in lower case, e.g. <code>Cache-control</code>. The same instance if it already is.
+     */
+    public static String normalizeName(String key) {
+        if (key == null) return null;
+        int length = key.length();//android optimization
+        if (length == 0) return key;
+        final int caseDiff = 'a' - 'A';//android optimization
+
+        // Most keys are already normalized when they are looked up, don't allocate a copy
+        if (!(key.charAt(0) >= 'a' && key.charAt(0) <= 'z')) {
+            int i = 1;
+            while (i < length && !(key.charAt(i) >= 'A' && key.charAt(i) <= 'Z')) {
+                i++;
             }
-            int length = key.length();//android optimization
-            for (int i = 1; i < length;  i++) {
-                if (b[i] >= 'A' && b[i] <= 'Z') {
-                    b[i] = (char) (b[i] + caseDiff);
-                }
+            if (i == length) return key;
+        }
+
+        char[] b = key.toCharArray();
+        if (b[0] >= 'a' && b[0] <= 'z') {
+            b[0] = (char) (b[0] - caseDiff);
+        }
+        for (int i = 1; i < length;  i++) {
+            if (b[i] >= 'A' && b[i] <= 'Z') {
+                b[i] = (char) (b[i] + caseDiff);
             }
-            result = new String(b);
-        } 
-        return result;
+        }
+        return new String(b);
     }
     
     public static String readLine(ByteArrayInputStream is) {
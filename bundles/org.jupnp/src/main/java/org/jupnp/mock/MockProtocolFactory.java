@@ -14,7 +14,9 @@
 
 package org.jupnp.mock;
 
+import java.net.InetAddress;
 import java.net.URL;
+import java.util.Collection;
 
 import org.jupnp.UpnpService;
 import org.jupnp.model.action.ActionInvocation;
@@ -24,10 +26,13 @@ import org.jupnp.model.message.IncomingDatagramMessage;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.header.UpnpHeader;
 import org.jupnp.model.meta.LocalDevice;
+import org.jupnp.model.meta.RemoteDevice;
 import org.jupnp.protocol.ProtocolCreationException;
 import org.jupnp.protocol.ProtocolFactory;
 import org.jupnp.protocol.ReceivingAsync;
 import org.jupnp.protocol.ReceivingSync;
+import org.jupnp.protocol.RetrieveRemoteDescriptors;
+import org.jupnp.protocol.SearchResponseAggregator;
 import org.jupnp.protocol.async.SendingNotificationAlive;
 import org.jupnp.protocol.async.SendingNotificationByebye;
 import org.jupnp.protocol.async.SendingSearch;
@@ -57,11 +62,22 @@ public class MockProtocolFactory implements ProtocolFactory {
         return null;
     }
 
+    @Override
+    public RetrieveRemoteDescriptors createRetrieveRemoteDescriptors(RemoteDevice remoteDevice) {
+        return null;
+    }
+
     @Override
     public SendingNotificationAlive createSendingNotificationAlive(LocalDevice localDevice) {
         return null;
     }
 
+    @Override
+    public SendingNotificationAlive createSendingNotificationAlive(LocalDevice localDevice,
+                                                                   Collection<InetAddress> addresses) {
+        return null;
+    }
+
     @Override
     public SendingNotificationByebye createSendingNotificationByebye(LocalDevice localDevice) {
         return null;
@@ -72,6 +88,12 @@ public class MockProtocolFactory implements ProtocolFactory {
         return null;
     }
 
+    @Override
+    public SendingSearch createSendingSearch(UpnpHeader searchTarget, int mxSeconds,
+                                             SearchResponseAggregator.Callback callback) {
+        return null;
+    }
+
     @Override
     public SendingAction createSendingAction(ActionInvocation actionInvocation, URL controlURL) {
         return null;
@@ -22,6 +22,7 @@ import org.jupnp.model.message.header.UpnpHeader;
 import org.jupnp.model.meta.LocalDevice;
 import org.jupnp.protocol.ProtocolFactory;
 import org.jupnp.protocol.ProtocolFactoryImpl;
+import org.jupnp.protocol.SearchResponseAggregator;
 import org.jupnp.protocol.async.SendingNotificationAlive;
 import org.jupnp.protocol.async.SendingSearch;
 import org.jupnp.registry.Registry;
@@ -120,8 +121,9 @@ public class MockUpnpService implements UpnpService {
         }
 
         @Override
-        public SendingSearch createSendingSearch(UpnpHeader searchTarget, int mxSeconds) {
-            return new SendingSearch(getUpnpService(), searchTarget, mxSeconds) {
+        public SendingSearch createSendingSearch(UpnpHeader searchTarget, int mxSeconds,
+                                                 SearchResponseAggregator.Callback callback) {
+            return new SendingSearch(getUpnpService(), searchTarget, mxSeconds, getSearchResponseAggregator(), callback) {
                 @Override
                 public int getBulkIntervalMilliseconds() {
                     return 0; // Don't wait
@@ -24,6 +24,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.jupnp.DefaultUpnpServiceConfiguration;
+import org.jupnp.ExecutionStage;
 import org.jupnp.transport.impl.NetworkAddressFactoryImpl;
 import org.jupnp.transport.spi.NetworkAddressFactory;
 
@@ -93,6 +94,14 @@ public class MockUpnpServiceConfiguration extends DefaultUpnpServiceConfiguratio
         return getDefaultExecutorService();
     }
 
+    @Override
+    protected ExecutorService getExecutorService(ExecutionStage stage) {
+        if (isMultiThreaded()) {
+            return super.getExecutorService(stage);
+        }
+        return getDefaultExecutorService();
+    }
+
     @Override
     protected ExecutorService getDefaultExecutorService() {
         if (isMultiThreaded()) {
@@ -14,8 +14,10 @@
 
 package org.jupnp.model;
 
+import org.jupnp.model.types.AbstractBinaryDatatype;
 import org.jupnp.model.types.Datatype;
 import org.jupnp.model.types.InvalidValueException;
+import org.jupnp.model.types.NumericDatatype;
 import org.jupnp.util.SpecificationViolationReporter;
 
 /**
@@ -36,6 +38,8 @@ public class VariableValue {
      * with {@link org.jupnp.model.types.Datatype#valueOf(String)}. Any
      * other value will be checked, whether it matches the datatype and if its
      * string representation is valid in XML documents (unicode character test).
+     * The value of a binary datatype can also be a <code>ByteBuffer</code> or a
+     * {@link org.jupnp.model.message.StreamBody}, see {@link AbstractBinaryDatatype}.
      * </p>
      * <p>
      * Note that for performance reasons, validation of a non-string value
@@ -69,6 +73,13 @@ public class VariableValue {
         // most likely be caught by the metadata/annotation binder when the service is
         // created.
 
+        if (getDatatype() instanceof AbstractBinaryDatatype) {
+            if (!((AbstractBinaryDatatype) getDatatype()).isBinaryValue(getValue()))
+                throw new InvalidValueException("Invalid value for " + getDatatype() +": " + getValue());
+            // Encoded binary values are always valid XML, don't encode (or read) them here
+            return;
+        }
+
         if (!getDatatype().isValid(getValue()))
             throw new InvalidValueException("Invalid value for " + getDatatype() +": " + getValue());
         
@@ -83,6 +94,30 @@ public class VariableValue {
         return value;
     }
 
+    /**
+     * @return The value as a primitive, converted without a string if the datatype is a
+     *         {@link org.jupnp.model.types.NumericDatatype}.
+     * @throws NumberFormatException If the value is <code>null</code> or not a number.
+     */
+    public long getLongValue() throws NumberFormatException {
+        if (value != null && datatype instanceof NumericDatatype) {
+            return ((NumericDatatype) datatype).toLong(value);
+        }
+        return Long.parseLong(toString());
+    }
+
+    /**
+     * @return The value as a primitive, converted without a string if the datatype is a
+     *         {@link org.jupnp.model.types.NumericDatatype}.
+     * @throws NumberFormatException If the value is <code>null</code> or not a number.
+     */
+    public double getDoubleValue() throws NumberFormatException {
+        if (value != null && datatype instanceof NumericDatatype) {
+            return ((NumericDatatype) datatype).toDouble(value);
+        }
+        return Double.parseDouble(toString());
+    }
+
     protected void logInvalidXML(String s) {
         // Just display warnings. PS3 Media server sends null char in DIDL-Lite
         // http://www.w3.org/TR/2000/REC-xml-20001006#NT-Char
@@ -102,6 +137,10 @@ public class VariableValue {
 
     @Override
     public String toString() {
+        if (getValue() != null && !(getValue() instanceof byte[]) && getDatatype() instanceof AbstractBinaryDatatype) {
+            // A buffer or stream, the datatype's getString() only accepts arrays
+            return ((AbstractBinaryDatatype) getDatatype()).toEncodedString(getValue());
+        }
         return getDatatype().getString(getValue());
     }
 
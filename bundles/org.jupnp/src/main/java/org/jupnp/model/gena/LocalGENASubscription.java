@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.jupnp.internal.compat.java.beans.PropertyChangeEvent;
 import org.jupnp.internal.compat.java.beans.PropertyChangeListener;
@@ -63,6 +64,9 @@ public abstract class LocalGENASubscription extends GENASubscription<LocalServic
     final Map<String, Long> lastSentTimestamp = new HashMap();
     final Map<String, Long> lastSentNumericValue = new HashMap();
 
+    // Not a monitor, so that event moderation on a virtual thread does not pin its carrier thread
+    final protected ReentrantLock lock = new ReentrantLock();
+
     protected LocalGENASubscription(LocalService service, List<URL> callbackURLs) throws Exception {
         super(service);
         this.callbackURLs = callbackURLs;
@@ -90,7 +94,7 @@ public abstract class LocalGENASubscription extends GENASubscription<LocalServic
             // Preserve "last sent" state for future moderation
             lastSentTimestamp.put(value.getStateVariable().getName(), currentTime);
             if (value.getStateVariable().isModeratedNumericType()) {
-                lastSentNumericValue.put(value.getStateVariable().getName(), Long.valueOf(value.toString()));
+                lastSentNumericValue.put(value.getStateVariable().getName(), value.getLongValue());
             }
         }
 
@@ -99,70 +103,90 @@ public abstract class LocalGENASubscription extends GENASubscription<LocalServic
         this.callbackURLs = callbackURLs;
     }
 
-    synchronized public List<URL> getCallbackURLs() {
+    public List<URL> getCallbackURLs() {
         return callbackURLs;
     }
 
     /**
      * Adds a property change listener on the {@link org.jupnp.model.ServiceManager}.
      */
-    synchronized public void registerOnService() {
-        getService().getManager().getPropertyChangeSupport().addPropertyChangeListener(this);
+    public void registerOnService() {
+        lock.lock();
+        try {
+            getService().getManager().getPropertyChangeSupport().addPropertyChangeListener(this);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    synchronized public void establish() {
-        established();
+    public void establish() {
+        lock.lock();
+        try {
+            established();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Removes a property change listener on the {@link org.jupnp.model.ServiceManager}.
      */
-    synchronized public void end(CancelReason reason) {
+    public void end(CancelReason reason) {
+        lock.lock();
         try {
-            getService().getManager().getPropertyChangeSupport().removePropertyChangeListener(this);
-        } catch (Exception ex) {
-            log.warn("Removal of local service property change listener failed: " + Exceptions.unwrap(ex));
+            try {
+                getService().getManager().getPropertyChangeSupport().removePropertyChangeListener(this);
+            } catch (Exception ex) {
+                log.warn("Removal of local service property change listener failed: " + Exceptions.unwrap(ex));
+            }
+            ended(reason);
+        } finally {
+            lock.unlock();
         }
-        ended(reason);
     }
 
     /**
      * Moderates {@link org.jupnp.model.ServiceManager#EVENTED_STATE_VARIABLES} events and state variable
      * values, calls {@link #eventReceived()}.
      */
-    synchronized public void propertyChange(PropertyChangeEvent e) {
-        if (!e.getPropertyName().equals(ServiceManager.EVENTED_STATE_VARIABLES)) return;
+    public void propertyChange(PropertyChangeEvent e) {
+        lock.lock();
+        try {
+            if (!e.getPropertyName().equals(ServiceManager.EVENTED_STATE_VARIABLES)) return;
 
-        log.trace("Eventing triggered, getting state for subscription: " + getSubscriptionId());
+            log.trace("Eventing triggered, getting state for subscription: " + getSubscriptionId());
 
-        long currentTime = new Date().getTime();
+            long currentTime = new Date().getTime();
 
-        Collection<StateVariableValue> newValues = (Collection) e.getNewValue();
-        Set<String> excludedVariables = moderateStateVariables(currentTime, newValues);
+            Collection<StateVariableValue> newValues = (Collection) e.getNewValue();
+            Set<String> excludedVariables = moderateStateVariables(currentTime, newValues);
 
-        currentValues.clear();
-        for (StateVariableValue newValue : newValues) {
-            String name = newValue.getStateVariable().getName();
-            if (!excludedVariables.contains(name)) {
-                log.trace("Adding state variable value to current values of event: " + newValue.getStateVariable() + " = " + newValue);
-                currentValues.put(newValue.getStateVariable().getName(), newValue);
+            currentValues.clear();
+            for (StateVariableValue newValue : newValues) {
+                String name = newValue.getStateVariable().getName();
+                if (!excludedVariables.contains(name)) {
+                    log.trace("Adding state variable value to current values of event: " + newValue.getStateVariable() + " = " + newValue);
+                    currentValues.put(newValue.getStateVariable().getName(), newValue);
 
-                // Preserve "last sent" state for future moderation
-                lastSentTimestamp.put(name, currentTime);
-                if (newValue.getStateVariable().isModeratedNumericType()) {
-                    lastSentNumericValue.put(name, Long.valueOf(newValue.toString()));
+                    // Preserve "last sent" state for future moderation
+                    lastSentTimestamp.put(name, currentTime);
+                    if (newValue.getStateVariable().isModeratedNumericType()) {
+                        lastSentNumericValue.put(name, newValue.getLongValue());
+                    }
                 }
             }
-        }
 
-        if (currentValues.size() > 0) {
-            log.trace("Propagating new state variable values to subscription: " + this);
-            // TODO: I'm not happy with this design, this dispatches to a separate thread which _then_
-            // is supposed to lock and read the values off this instance. That obviously doesn't work
-            // so it's currently a hack in SendingEvent.java
-            eventReceived();
-        } else {
-            log.trace("No state variable values for event (all moderated out?), not triggering event");
+            if (currentValues.size() > 0) {
+                log.trace("Propagating new state variable values to subscription: " + this);
+                // TODO: I'm not happy with this design, this dispatches to a separate thread which _then_
+                // is supposed to lock and read the values off this instance. That obviously doesn't work
+                // so it's currently a hack in SendingEvent.java
+                eventReceived();
+            } else {
+                log.trace("No state variable values for event (all moderated out?), not triggering event");
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -173,75 +197,90 @@ public abstract class LocalGENASubscription extends GENASubscription<LocalServic
      * @param values The state variable values to moderate.
      * @return A collection of state variable values that although they might have changed, are excluded from the event.
      */
-    synchronized protected Set<String> moderateStateVariables(long currentTime, Collection<StateVariableValue> values) {
-
-        Set<String> excludedVariables = new HashSet();
+    protected Set<String> moderateStateVariables(long currentTime, Collection<StateVariableValue> values) {
+        lock.lock();
+        try {
 
-        // Moderate event variables that have a maximum rate or minimum delta
-        for (StateVariableValue stateVariableValue : values) {
+            Set<String> excludedVariables = new HashSet();
 
-            StateVariable stateVariable = stateVariableValue.getStateVariable();
-            String stateVariableName = stateVariableValue.getStateVariable().getName();
+            // Moderate event variables that have a maximum rate or minimum delta
+            for (StateVariableValue stateVariableValue : values) {
 
-            if (stateVariable.getEventDetails().getEventMaximumRateMilliseconds() == 0 &&
-                    stateVariable.getEventDetails().getEventMinimumDelta() == 0) {
-                log.trace("Variable is not moderated: " + stateVariable);
-                continue;
-            }
+                StateVariable stateVariable = stateVariableValue.getStateVariable();
+                String stateVariableName = stateVariableValue.getStateVariable().getName();
 
-            // That should actually never happen, because we always "send" it as the initial state/event
-            if (!lastSentTimestamp.containsKey(stateVariableName)) {
-                log.trace("Variable is moderated but was never sent before: " + stateVariable);
-                continue;
-            }
+                if (stateVariable.getEventDetails().getEventMaximumRateMilliseconds() == 0 &&
+                        stateVariable.getEventDetails().getEventMinimumDelta() == 0) {
+                    log.trace("Variable is not moderated: " + stateVariable);
+                    continue;
+                }
 
-            if (stateVariable.getEventDetails().getEventMaximumRateMilliseconds() > 0) {
-                long timestampLastSent = lastSentTimestamp.get(stateVariableName);
-                long timestampNextSend = timestampLastSent + (stateVariable.getEventDetails().getEventMaximumRateMilliseconds());
-                if (currentTime <= timestampNextSend) {
-                    log.trace("Excluding state variable with maximum rate: " + stateVariable);
-                    excludedVariables.add(stateVariableName);
+                // That should actually never happen, because we always "send" it as the initial state/event
+                if (!lastSentTimestamp.containsKey(stateVariableName)) {
+                    log.trace("Variable is moderated but was never sent before: " + stateVariable);
                     continue;
                 }
-            }
 
-            if (stateVariable.isModeratedNumericType() && lastSentNumericValue.get(stateVariableName) != null) {
+                if (stateVariable.getEventDetails().getEventMaximumRateMilliseconds() > 0) {
+                    long timestampLastSent = lastSentTimestamp.get(stateVariableName);
+                    long timestampNextSend = timestampLastSent + (stateVariable.getEventDetails().getEventMaximumRateMilliseconds());
+                    if (currentTime <= timestampNextSend) {
+                        log.trace("Excluding state variable with maximum rate: " + stateVariable);
+                        excludedVariables.add(stateVariableName);
+                        continue;
+                    }
+                }
 
-                long oldValue = Long.valueOf(lastSentNumericValue.get(stateVariableName));
-                long newValue = Long.valueOf(stateVariableValue.toString());
-                long minDelta = stateVariable.getEventDetails().getEventMinimumDelta();
+                if (stateVariable.isModeratedNumericType() && lastSentNumericValue.get(stateVariableName) != null) {
 
-                if (newValue > oldValue && newValue - oldValue < minDelta) {
-                    log.trace("Excluding state variable with minimum delta: " + stateVariable);
-                    excludedVariables.add(stateVariableName);
-                    continue;
-                }
+                    long oldValue = lastSentNumericValue.get(stateVariableName);
+                    long newValue = stateVariableValue.getLongValue();
+                    long minDelta = stateVariable.getEventDetails().getEventMinimumDelta();
+
+                    if (newValue > oldValue && newValue - oldValue < minDelta) {
+                        log.trace("Excluding state variable with minimum delta: " + stateVariable);
+                        excludedVariables.add(stateVariableName);
+                        continue;
+                    }
 
-                if (newValue < oldValue && oldValue - newValue < minDelta) {
-                    log.trace("Excluding state variable with minimum delta: " + stateVariable);
-                    excludedVariables.add(stateVariableName);
+                    if (newValue < oldValue && oldValue - newValue < minDelta) {
+                        log.trace("Excluding state variable with minimum delta: " + stateVariable);
+                        excludedVariables.add(stateVariableName);
+                    }
                 }
-            }
 
+            }
+            return excludedVariables;
+        } finally {
+            lock.unlock();
         }
-        return excludedVariables;
     }
 
-    synchronized public void incrementSequence() {
-        this.currentSequence.increment(true);
+    public void incrementSequence() {
+        lock.lock();
+        try {
+            this.currentSequence.increment(true);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * @param requestedDurationSeconds If <code>null</code> defaults to
      *                                 {@link org.jupnp.model.UserConstants#DEFAULT_SUBSCRIPTION_DURATION_SECONDS}
      */
-    synchronized public void setSubscriptionDuration(Integer requestedDurationSeconds) {
-        this.requestedDurationSeconds =
-                requestedDurationSeconds == null
-                        ? UserConstants.DEFAULT_SUBSCRIPTION_DURATION_SECONDS
-                        : requestedDurationSeconds;
-
-        setActualSubscriptionDurationSeconds(this.requestedDurationSeconds);
+    public void setSubscriptionDuration(Integer requestedDurationSeconds) {
+        lock.lock();
+        try {
+            this.requestedDurationSeconds =
+                    requestedDurationSeconds == null
+                            ? UserConstants.DEFAULT_SUBSCRIPTION_DURATION_SECONDS
+                            : requestedDurationSeconds;
+
+            setActualSubscriptionDurationSeconds(this.requestedDurationSeconds);
+        } finally {
+            lock.unlock();
+        }
     }
 
     public abstract void ended(CancelReason reason);
@@ -0,0 +1,361 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.model.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jupnp.util.io.IO;
+
+/**
+ * A message body which is written to (or read from) the connection in chunks, instead of being
+ * held in memory as a string or byte array.
+ * <p>
+ * The transports write a body with a known {@link #getContentLength()} with a
+ * <code>Content-Length</code> header, a body of unknown length with chunked transfer encoding.
+ * Use {@link UpnpMessage#setBody(StreamBody)} to set it on a message.
+ * </p>
+ * <p>
+ * Bodies backed by an array, buffers or a file can be written several times, a body backed by
+ * an <code>InputStream</code> can only be written once, see {@link #isRepeatable()}.
+ * </p>
+ */
+public abstract class StreamBody {
+
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * @return The number of bytes of this body, or <code>-1</code> if it is unknown.
+     */
+    public abstract long getContentLength();
+
+    /**
+     * @return A new stream of the content, must be closed by the caller.
+     */
+    public abstract InputStream openStream() throws IOException;
+
+    /**
+     * @return <code>true</code> if the content can be read more than once.
+     */
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * Copies the content to the given stream, without closing it.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        InputStream is = openStream();
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, n);
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Reads the whole content into memory, only call this if the body is known to be small.
+     */
+    public byte[] toBytes() throws IOException {
+        InputStream is = openStream();
+        try {
+            return IO.readBytes(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") content length: " + getContentLength();
+    }
+
+    public static StreamBody fromBytes(byte[] data) {
+        return new Bytes(data);
+    }
+
+    /**
+     * @param buffers The chunks of the content, their remaining bytes are written without
+     *                changing their positions.
+     */
+    public static StreamBody fromBuffers(List<ByteBuffer> buffers) {
+        return new Buffers(buffers);
+    }
+
+    public static StreamBody fromFile(File file) {
+        return new FileRegion(file, 0, -1);
+    }
+
+    /**
+     * @param offset The position of the first byte of the content in the file.
+     * @param length The number of bytes of the content.
+     */
+    public static StreamBody fromFile(File file, long offset, long length) {
+        return new FileRegion(file, offset, length);
+    }
+
+    /**
+     * @param contentLength The number of bytes which will be read from the stream,
+     *                      or <code>-1</code> if the stream should be read until its end.
+     */
+    public static StreamBody fromInputStream(InputStream inputStream, long contentLength) {
+        return new Input(inputStream, contentLength);
+    }
+
+    public static class Bytes extends StreamBody {
+
+        final private byte[] data;
+
+        public Bytes(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public long getContentLength() {
+            return data.length;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            outputStream.write(data);
+        }
+
+        @Override
+        public byte[] toBytes() {
+            return data;
+        }
+    }
+
+    public static class Buffers extends StreamBody {
+
+        final private List<ByteBuffer> buffers;
+        final private long contentLength;
+
+        public Buffers(List<ByteBuffer> buffers) {
+            List<ByteBuffer> list = new ArrayList<ByteBuffer>(buffers.size());
+            long length = 0;
+            for (ByteBuffer buffer : buffers) {
+                list.add(buffer.asReadOnlyBuffer());
+                length += buffer.remaining();
+            }
+            this.buffers = Collections.unmodifiableList(list);
+            this.contentLength = length;
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new InputStream() {
+                int index = 0;
+                ByteBuffer current = nextBuffer();
+
+                ByteBuffer nextBuffer() {
+                    while (index < buffers.size()) {
+                        ByteBuffer buffer = buffers.get(index++).duplicate();
+                        if (buffer.hasRemaining()) {
+                            return buffer;
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public int read() {
+                    if (current != null && !current.hasRemaining()) {
+                        current = nextBuffer();
+                    }
+                    return current != null ? current.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (len == 0) {
+                        return 0;
+                    }
+                    if (current != null && !current.hasRemaining()) {
+                        current = nextBuffer();
+                    }
+                    if (current == null) {
+                        return -1;
+                    }
+                    int n = Math.min(len, current.remaining());
+                    current.get(b, off, n);
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            WritableByteChannel channel = Channels.newChannel(outputStream);
+            for (ByteBuffer buffer : buffers) {
+                ByteBuffer chunk = buffer.duplicate();
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+        }
+    }
+
+    public static class FileRegion extends StreamBody {
+
+        final private File file;
+        final private long offset;
+        final private long length;
+
+        public FileRegion(File file, long offset, long length) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length >= 0 ? length : Math.max(file.length() - offset, 0);
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            FileInputStream is = new FileInputStream(file);
+            try {
+                is.getChannel().position(offset);
+            } catch (IOException ex) {
+                is.close();
+                throw ex;
+            }
+            return new LimitedInputStream(is, getContentLength());
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            FileInputStream is = new FileInputStream(file);
+            try {
+                FileChannel channel = is.getChannel();
+                WritableByteChannel target = Channels.newChannel(outputStream);
+                long position = offset;
+                long remaining = getContentLength();
+                while (remaining > 0) {
+                    long n = channel.transferTo(position, remaining, target);
+                    if (n <= 0) {
+                        throw new IOException("Unexpected end of file: " + file);
+                    }
+                    position += n;
+                    remaining -= n;
+                }
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    public static class Input extends StreamBody {
+
+        final private InputStream inputStream;
+        final private long contentLength;
+        private boolean consumed;
+
+        public Input(InputStream inputStream, long contentLength) {
+            this.inputStream = inputStream;
+            this.contentLength = contentLength;
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            if (consumed) {
+                throw new IOException("Stream body has already been consumed");
+            }
+            consumed = true;
+            return contentLength >= 0 ? new LimitedInputStream(inputStream, contentLength) : inputStream;
+        }
+    }
+
+    static class LimitedInputStream extends InputStream {
+
+        final private InputStream in;
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -68,6 +68,11 @@ public class StreamRequestMessage extends UpnpMessage<UpnpRequest> {
         super(new UpnpRequest(method, url), BodyType.BYTES, body);
     }
 
+
+    public StreamRequestMessage(UpnpRequest operation, StreamBody body) {
+        super(operation, BodyType.STREAM, body);
+    }
+
     public URI getUri() {
         return getOperation().getURI();
     }
@@ -74,4 +74,21 @@ public class StreamResponseMessage extends UpnpMessage<UpnpResponse> {
         this(body, new ContentTypeHeader(mimeType));
     }
 
+    public StreamResponseMessage(UpnpResponse operation, StreamBody body) {
+        super(operation, BodyType.STREAM, body);
+    }
+
+    public StreamResponseMessage(StreamBody body) {
+        super(new UpnpResponse(UpnpResponse.Status.OK), BodyType.STREAM, body);
+    }
+
+    public StreamResponseMessage(StreamBody body, ContentTypeHeader contentType) {
+        this(body);
+        getHeaders().add(UpnpHeader.Type.CONTENT_TYPE, contentType);
+    }
+
+    public StreamResponseMessage(StreamBody body, MimeType mimeType) {
+        this(body, new ContentTypeHeader(mimeType));
+    }
+
 }
\ No newline at end of file
@@ -15,8 +15,10 @@
 package org.jupnp.model.message;
 
 import java.io.ByteArrayInputStream;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,6 +29,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Provides UPnP header API in addition to plain multi-map HTTP header access.
+ * <p>
+ * The typed {@link UpnpHeader} instances are parsed per {@link UpnpHeader.Type}, when the
+ * type is first accessed. Changing a header only discards the parsed values of its own type,
+ * headers which are not UPnP headers are never parsed.
+ * </p>
  *
  * @author Christian Bauer
  * @author Jochen Hiller - Made logger non-static
@@ -35,7 +42,25 @@ public class UpnpHeaders extends Headers {
 
     private final Logger log = LoggerFactory.getLogger(UpnpHeaders.class);
 
-    protected Map<UpnpHeader.Type, List<UpnpHeader>> parsedHeaders;
+    private static final UpnpHeader.Type[] TYPES = UpnpHeader.Type.values();
+    private static final String[] NORMALIZED_NAMES = new String[TYPES.length];
+
+    static {
+        for (UpnpHeader.Type type : TYPES) {
+            NORMALIZED_NAMES[type.ordinal()] = normalizeName(type.getHttpName());
+        }
+    }
+
+    // Returned for a parsed type without (valid) headers
+    private static final List<UpnpHeader> NONE = Collections.emptyList();
+
+    // The parsed headers of the types parsed so far which have (valid) headers, see parseHeaders() to
+    // parse all types, set to null to discard all parsed headers
+    protected Map<UpnpHeader.Type, List<UpnpHeader>> parsedHeaders =
+            new EnumMap<UpnpHeader.Type, List<UpnpHeader>>(UpnpHeader.Type.class);
+
+    // Indexed by type ordinal, false if the type has not been parsed since it was changed
+    private boolean[] parsedTypes = new boolean[TYPES.length];
 
     public UpnpHeaders() {
     }
@@ -52,107 +77,151 @@ public class UpnpHeaders extends Headers {
         super(normalizeHeaders);
     }
 
+    /**
+     * Parses all UPnP headers, usually only the accessed types are parsed.
+     */
     protected void parseHeaders() {
-        // This runs as late as possible and only when necessary (getter called and map is dirty)
-        parsedHeaders = new LinkedHashMap();
         log.trace("Parsing all HTTP headers for known UPnP headers: " + size());
-        for (Entry<String, List<String>> entry : entrySet()) {
+        parsedHeaders = new EnumMap<UpnpHeader.Type, List<UpnpHeader>>(UpnpHeader.Type.class);
+        for (UpnpHeader.Type type : TYPES) {
+            parseHeader(type);
+            parsedTypes[type.ordinal()] = true;
+        }
+    }
 
-            if (entry.getKey() == null) continue; // Oh yes, the JDK has 'null' HTTP headers
+    protected List<UpnpHeader> getParsed(UpnpHeader.Type type) {
+        if (parsedHeaders == null) {
+            // Discarded by a subclass
+            parsedHeaders = new EnumMap<UpnpHeader.Type, List<UpnpHeader>>(UpnpHeader.Type.class);
+            Arrays.fill(parsedTypes, false);
+        }
+        if (!parsedTypes[type.ordinal()]) {
+            parseHeader(type);
+            parsedTypes[type.ordinal()] = true;
+        }
+        List<UpnpHeader> parsed = parsedHeaders.get(type);
+        return parsed != null ? parsed : NONE;
+    }
 
-            UpnpHeader.Type type = UpnpHeader.Type.getByHttpName(entry.getKey());
-            if (type == null) {
-                log.trace("Ignoring non-UPNP HTTP header: " + entry.getKey());
-                continue;
+    protected void parseHeader(UpnpHeader.Type type) {
+        // This runs as late as possible and only when necessary (getter called and type is dirty)
+        parsedHeaders.remove(type);
+        if (isNormalizeHeaders()) {
+            parseValues(type, super.get(NORMALIZED_NAMES[type.ordinal()]));
+        } else {
+            // Keys are not normalized, collect the values of all spellings
+            for (Entry<String, List<String>> entry : entrySet()) {
+                if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(type.getHttpName())) {
+                    parseValues(type, entry.getValue());
+                }
             }
+        }
+    }
 
-            for (String value : entry.getValue()) {
-                UpnpHeader upnpHeader = UpnpHeader.newInstance(type, value);
-                if (upnpHeader == null || upnpHeader.getValue() == null) {
-                    log.trace(
-                        "Ignoring known but irrelevant header (value violates the UDA specification?) '{}': {}", 
-                            type.getHttpName(), value);
-                } else {
-                    addParsedValue(type, upnpHeader);
-                }
+    protected void parseValues(UpnpHeader.Type type, List<String> values) {
+        if (values == null) {
+            return;
+        }
+        for (String value : values) {
+            UpnpHeader upnpHeader = UpnpHeader.newInstance(type, value);
+            if (upnpHeader == null || upnpHeader.getValue() == null) {
+                log.trace(
+                    "Ignoring known but irrelevant header (value violates the UDA specification?) '{}': {}",
+                        type.getHttpName(), value);
+            } else {
+                addParsedValue(type, upnpHeader);
             }
         }
     }
 
     protected void addParsedValue(UpnpHeader.Type type, UpnpHeader value) {
-        log.trace("Adding parsed header: " + value);
+        log.trace("Adding parsed header: {}", value);
         List<UpnpHeader> list = parsedHeaders.get(type);
         if (list == null) {
-            list = new LinkedList();
+            // Most headers have a single value
+            list = new ArrayList<UpnpHeader>(1);
             parsedHeaders.put(type, list);
         }
         list.add(value);
     }
 
+    protected void invalidate(String key) {
+        // Called by the super constructor before the fields have been initialized
+        if (parsedTypes == null) return;
+        UpnpHeader.Type type = UpnpHeader.Type.getByHttpName(key);
+        if (type != null) {
+            parsedTypes[type.ordinal()] = false;
+            if (parsedHeaders != null) {
+                parsedHeaders.remove(type);
+            }
+        }
+    }
+
     @Override
     public List<String> put(String key, List<String> values) {
-        parsedHeaders = null;
+        invalidate(key);
         return super.put(key, values);
     }
 
     @Override
     public void add(String key, String value) {
-        parsedHeaders = null;
+        invalidate(key);
         super.add(key, value);
     }
 
     @Override
     public List<String> remove(Object key) {
-        parsedHeaders = null;
+        if (key instanceof String) {
+            invalidate((String) key);
+        }
         return super.remove(key);
     }
 
     @Override
     public void clear() {
-        parsedHeaders = null;
+        if (parsedTypes != null) {
+            Arrays.fill(parsedTypes, false);
+        }
         super.clear();
     }
 
     public boolean containsKey(UpnpHeader.Type type) {
-        if (parsedHeaders == null) parseHeaders();
-        return parsedHeaders.containsKey(type);
+        return !getParsed(type).isEmpty();
     }
 
     public List<UpnpHeader> get(UpnpHeader.Type type) {
-        if (parsedHeaders == null) parseHeaders();
-        return parsedHeaders.get(type);
+        List<UpnpHeader> parsed = getParsed(type);
+        return parsed.isEmpty() ? null : parsed;
     }
 
     public void add(UpnpHeader.Type type, UpnpHeader value) {
+        // Parse the existing values first, the given header instance is kept
+        getParsed(type);
         super.add(type.getHttpName(), value.getString());
-        if (parsedHeaders != null)
-            addParsedValue(type, value);
+        addParsedValue(type, value);
     }
 
     public void remove(UpnpHeader.Type type) {
         super.remove(type.getHttpName());
-        if (parsedHeaders != null)
+        if (parsedHeaders != null) {
             parsedHeaders.remove(type);
+        }
+        // Without normalization other spellings might remain
+        parsedTypes[type.ordinal()] = isNormalizeHeaders() && parsedHeaders != null;
     }
 
     public UpnpHeader[] getAsArray(UpnpHeader.Type type) {
-        if (parsedHeaders == null) parseHeaders();
-        return parsedHeaders.get(type) != null
-                ? parsedHeaders.get(type).toArray(new UpnpHeader[parsedHeaders.get(type).size()])
-                : new UpnpHeader[0];
+        List<UpnpHeader> parsed = getParsed(type);
+        return parsed.toArray(new UpnpHeader[parsed.size()]);
     }
 
     public UpnpHeader getFirstHeader(UpnpHeader.Type type) {
-        return getAsArray(type).length > 0
-                ? getAsArray(type)[0]
-                : null;
+        List<UpnpHeader> parsed = getParsed(type);
+        return parsed.isEmpty() ? null : parsed.get(0);
     }
 
     public <H extends UpnpHeader> H getFirstHeader(UpnpHeader.Type type, Class<H> subtype) {
-        UpnpHeader[] headers = getAsArray(type);
-        if (headers.length == 0) return null;
-
-        for (UpnpHeader header : headers) {
+        for (UpnpHeader header : getParsed(type)) {
             if (subtype.isAssignableFrom(header.getClass())) {
                 return (H) header;
             }
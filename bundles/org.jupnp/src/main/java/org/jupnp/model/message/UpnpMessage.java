@@ -20,10 +20,12 @@ import org.jupnp.model.message.header.UpnpHeader;
 import java.io.UnsupportedEncodingException;
 
 /**
- * A non-streaming message, the interface between the transport layer and the protocols.
+ * A message, the interface between the transport layer and the protocols.
  * <p>
- * Defaults to UDA version 1.0 and a string body type. Message content is not streamed,
- * it is always read into memory and transported as a string or bytes message body.
+ * Defaults to UDA version 1.0 and a string body type. Message content is usually read into
+ * memory and transported as a string or bytes message body. Large content can be set as a
+ * {@link StreamBody}, which the transports write to the connection in chunks; reading such
+ * a body with {@link #getBodyString()} or {@link #getBodyBytes()} reads it into memory.
  * </p>
  * <p>
  * Subtypes of this class typically implement the integrity rules for individual UPnP
@@ -38,7 +40,7 @@ import java.io.UnsupportedEncodingException;
 public abstract class UpnpMessage<O extends UpnpOperation> {
 
     public static enum BodyType {
-        STRING, BYTES
+        STRING, BYTES, STREAM
     }
 
     private int udaMajorVersion = 1;
@@ -106,6 +108,14 @@ public abstract class UpnpMessage<O extends UpnpOperation> {
         this.body = body;
     }
 
+    /**
+     * Sets a body which is written in chunks by the transports, see {@link StreamBody}.
+     */
+    public void setBody(StreamBody streamBody) {
+        this.bodyType = BodyType.STREAM;
+        this.body = streamBody;
+    }
+
     public void setBodyCharacters(byte[] characterData) throws UnsupportedEncodingException {
         setBody(
                 UpnpMessage.BodyType.STRING,
@@ -142,7 +152,7 @@ public abstract class UpnpMessage<O extends UpnpOperation> {
                     }
                     return body;
                 } else {
-                    return new String((byte[]) getBody(), "UTF-8");
+                    return new String(getBodyBytes(), "UTF-8");
                 }
         } catch (Exception ex) {
             throw new RuntimeException(ex);
@@ -156,6 +166,8 @@ public abstract class UpnpMessage<O extends UpnpOperation> {
             }
             if(getBodyType().equals(BodyType.STRING)) {
                 return getBodyString().getBytes();
+            } else if(getBodyType().equals(BodyType.STREAM)) {
+                return ((StreamBody) getBody()).toBytes();
             } else {
                 return (byte[]) getBody();
             }
@@ -164,6 +176,20 @@ public abstract class UpnpMessage<O extends UpnpOperation> {
         }
     }
 
+    /**
+     * @return The body as a stream, without reading a {@link BodyType#STREAM} body into memory,
+     *         or <code>null</code> if this message has no body.
+     */
+    public StreamBody getBodyStream() {
+        if (!hasBody()) {
+            return null;
+        }
+        if (getBodyType().equals(BodyType.STREAM)) {
+            return (StreamBody) getBody();
+        }
+        return StreamBody.fromBytes(getBodyBytes());
+    }
+
     public O getOperation() {
         return operation;
     }
@@ -14,6 +14,9 @@
 
 package org.jupnp.model.message.control;
 
+import org.jupnp.model.message.StreamBody;
+import org.jupnp.model.message.UpnpMessage;
+
 /**
  * A narrowing interface for action request/response messages.
  *
@@ -26,5 +29,8 @@ public interface ActionMessage {
     public boolean isBodyNonEmptyString();
     public String getBodyString();
     public void setBody(String string);
+    public void setBody(StreamBody streamBody);
+    public UpnpMessage.BodyType getBodyType();
+    public Object getBody();
     
 }
@@ -18,10 +18,6 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
-import org.jupnp.util.Exceptions;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 /**
  * Transforms known and standardized UPnP/HTTP headers from/to string representation.
  * <p>
@@ -151,7 +147,7 @@ public abstract class UpnpHeader<T> {
      * This method iterates through all potential header subtype classes as declared in {@link Type}.
      * It creates a new instance of the subtype class and calls its {@link #setString(String)} method.
      * If no {@link org.jupnp.model.message.header.InvalidHeaderException} is thrown, the subtype
-     * instance is returned.
+     * instance is returned. Parsed values of previous calls might be reused, see {@link UpnpHeaderFactory}.
      * </p>
      *
      * @param type The type (or name) of the header.
@@ -159,28 +155,7 @@ public abstract class UpnpHeader<T> {
      * @return The best matching header subtype instance, or <code>null</code> if no subtype can be found.
      */
     public static UpnpHeader newInstance(UpnpHeader.Type type, String headerValue) {
-        final Logger log = LoggerFactory.getLogger(UpnpHeader.class);
-
-        // Try all the UPnP headers and see if one matches our value parsers
-        UpnpHeader upnpHeader = null;
-        for (int i = 0; i < type.getHeaderTypes().length && upnpHeader == null; i++) {
-            Class<? extends UpnpHeader> headerClass = type.getHeaderTypes()[i];
-            try {
-                log.trace("Trying to parse '{}' with class: {}", type, headerClass.getSimpleName());
-                upnpHeader = headerClass.newInstance();
-                if (headerValue != null) {
-                    upnpHeader.setString(headerValue);
-                }
-            } catch (InvalidHeaderException ex) {
-                log.trace("Invalid header value for tested type: {} - {}", headerClass.getSimpleName(), ex.getMessage());
-                upnpHeader = null;
-            } catch (Exception ex) {
-                log.error("Error instantiating header of type '" + type + "' with value: " + headerValue);
-                log.error("Exception root cause: ", Exceptions.unwrap(ex));
-            }
-
-        }
-        return upnpHeader;
+        return UpnpHeaderFactory.newInstance(type, headerValue);
     }
 
     @Override
@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.model.message.header;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jupnp.util.Exceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates {@link UpnpHeader} instances from header strings, see {@link UpnpHeader#newInstance(UpnpHeader.Type, String)}.
+ * <p>
+ * The header subtypes of each {@link UpnpHeader.Type} are instantiated through a static table of
+ * constructors instead of reflection. Subtypes which are not in the table (e.g. of a custom type)
+ * are still instantiated reflectively.
+ * </p>
+ * <p>
+ * The parsed values of headers with immutable values (e.g. {@link org.jupnp.model.types.UDN},
+ * {@link org.jupnp.model.types.ServiceType}, URLs) are cached by type and header string, so the
+ * <code>USN</code>, <code>NT</code> and <code>LOCATION</code> values repeated in every message of a
+ * device are only parsed once; a new header instance is returned for every call. Each type caches up
+ * to {@link #getCacheSize()} values and is cleared when it is full, set the size to <code>0</code> to
+ * disable the cache.
+ * </p>
+ */
+public class UpnpHeaderFactory {
+
+    final private static Logger log = LoggerFactory.getLogger(UpnpHeaderFactory.class);
+
+    public static final int DEFAULT_CACHE_SIZE = 512;
+
+    final private static Map<Class<? extends UpnpHeader>, Constructor<?>> CONSTRUCTORS =
+            new HashMap<Class<? extends UpnpHeader>, Constructor<?>>();
+
+    static {
+        register(new Constructor<USNRootDeviceHeader>(USNRootDeviceHeader.class, true) {
+            @Override
+            public USNRootDeviceHeader newInstance() {
+                return new USNRootDeviceHeader();
+            }
+        });
+        register(new Constructor<DeviceUSNHeader>(DeviceUSNHeader.class, true) {
+            @Override
+            public DeviceUSNHeader newInstance() {
+                return new DeviceUSNHeader();
+            }
+        });
+        register(new Constructor<ServiceUSNHeader>(ServiceUSNHeader.class, true) {
+            @Override
+            public ServiceUSNHeader newInstance() {
+                return new ServiceUSNHeader();
+            }
+        });
+        register(new Constructor<UDNHeader>(UDNHeader.class, true) {
+            @Override
+            public UDNHeader newInstance() {
+                return new UDNHeader();
+            }
+        });
+        register(new Constructor<RootDeviceHeader>(RootDeviceHeader.class, true) {
+            @Override
+            public RootDeviceHeader newInstance() {
+                return new RootDeviceHeader();
+            }
+        });
+        register(new Constructor<UDADeviceTypeHeader>(UDADeviceTypeHeader.class, true) {
+            @Override
+            public UDADeviceTypeHeader newInstance() {
+                return new UDADeviceTypeHeader();
+            }
+        });
+        register(new Constructor<UDAServiceTypeHeader>(UDAServiceTypeHeader.class, true) {
+            @Override
+            public UDAServiceTypeHeader newInstance() {
+                return new UDAServiceTypeHeader();
+            }
+        });
+        register(new Constructor<DeviceTypeHeader>(DeviceTypeHeader.class, true) {
+            @Override
+            public DeviceTypeHeader newInstance() {
+                return new DeviceTypeHeader();
+            }
+        });
+        register(new Constructor<ServiceTypeHeader>(ServiceTypeHeader.class, true) {
+            @Override
+            public ServiceTypeHeader newInstance() {
+                return new ServiceTypeHeader();
+            }
+        });
+        register(new Constructor<NTEventHeader>(NTEventHeader.class, true) {
+            @Override
+            public NTEventHeader newInstance() {
+                return new NTEventHeader();
+            }
+        });
+        register(new Constructor<NTSHeader>(NTSHeader.class, true) {
+            @Override
+            public NTSHeader newInstance() {
+                return new NTSHeader();
+            }
+        });
+        register(new Constructor<STAllHeader>(STAllHeader.class, true) {
+            @Override
+            public STAllHeader newInstance() {
+                return new STAllHeader();
+            }
+        });
+        register(new Constructor<LocationHeader>(LocationHeader.class, true) {
+            @Override
+            public LocationHeader newInstance() {
+                return new LocationHeader();
+            }
+        });
+        register(new Constructor<MaxAgeHeader>(MaxAgeHeader.class, true) {
+            @Override
+            public MaxAgeHeader newInstance() {
+                return new MaxAgeHeader();
+            }
+        });
+        register(new Constructor<EXTHeader>(EXTHeader.class, true) {
+            @Override
+            public EXTHeader newInstance() {
+                return new EXTHeader();
+            }
+        });
+        register(new Constructor<MXHeader>(MXHeader.class, true) {
+            @Override
+            public MXHeader newInstance() {
+                return new MXHeader();
+            }
+        });
+        register(new Constructor<TimeoutHeader>(TimeoutHeader.class, true) {
+            @Override
+            public TimeoutHeader newInstance() {
+                return new TimeoutHeader();
+            }
+        });
+        register(new Constructor<SubscriptionIdHeader>(SubscriptionIdHeader.class, true) {
+            @Override
+            public SubscriptionIdHeader newInstance() {
+                return new SubscriptionIdHeader();
+            }
+        });
+        register(new Constructor<HostHeader>(HostHeader.class, false) {
+            @Override
+            public HostHeader newInstance() {
+                return new HostHeader();
+            }
+        });
+        register(new Constructor<ServerHeader>(ServerHeader.class, false) {
+            @Override
+            public ServerHeader newInstance() {
+                return new ServerHeader();
+            }
+        });
+        register(new Constructor<UserAgentHeader>(UserAgentHeader.class, false) {
+            @Override
+            public UserAgentHeader newInstance() {
+                return new UserAgentHeader();
+            }
+        });
+        register(new Constructor<ContentTypeHeader>(ContentTypeHeader.class, false) {
+            @Override
+            public ContentTypeHeader newInstance() {
+                return new ContentTypeHeader();
+            }
+        });
+        register(new Constructor<MANHeader>(MANHeader.class, false) {
+            @Override
+            public MANHeader newInstance() {
+                return new MANHeader();
+            }
+        });
+        register(new Constructor<SoapActionHeader>(SoapActionHeader.class, false) {
+            @Override
+            public SoapActionHeader newInstance() {
+                return new SoapActionHeader();
+            }
+        });
+        register(new Constructor<CallbackHeader>(CallbackHeader.class, false) {
+            @Override
+            public CallbackHeader newInstance() {
+                return new CallbackHeader();
+            }
+        });
+        register(new Constructor<EventSequenceHeader>(EventSequenceHeader.class, false) {
+            @Override
+            public EventSequenceHeader newInstance() {
+                return new EventSequenceHeader();
+            }
+        });
+        register(new Constructor<RangeHeader>(RangeHeader.class, false) {
+            @Override
+            public RangeHeader newInstance() {
+                return new RangeHeader();
+            }
+        });
+        register(new Constructor<ContentRangeHeader>(ContentRangeHeader.class, false) {
+            @Override
+            public ContentRangeHeader newInstance() {
+                return new ContentRangeHeader();
+            }
+        });
+        register(new Constructor<PragmaHeader>(PragmaHeader.class, false) {
+            @Override
+            public PragmaHeader newInstance() {
+                return new PragmaHeader();
+            }
+        });
+        register(new Constructor<InterfaceMacHeader>(InterfaceMacHeader.class, false) {
+            @Override
+            public InterfaceMacHeader newInstance() {
+                return new InterfaceMacHeader();
+            }
+        });
+        register(new Constructor<AVClientInfoHeader>(AVClientInfoHeader.class, false) {
+            @Override
+            public AVClientInfoHeader newInstance() {
+                return new AVClientInfoHeader();
+            }
+        });
+    }
+
+    final private static Constructor<?>[][] CONSTRUCTORS_BY_TYPE;
+    final private static Map<String, Parsed>[] CACHES;
+
+    static {
+        UpnpHeader.Type[] types = UpnpHeader.Type.values();
+        CONSTRUCTORS_BY_TYPE = new Constructor<?>[types.length][];
+        CACHES = newCaches(types.length);
+        for (UpnpHeader.Type type : types) {
+            Class<? extends UpnpHeader>[] headerTypes = type.getHeaderTypes();
+            Constructor<?>[] constructors = new Constructor<?>[headerTypes.length];
+            for (int i = 0; i < headerTypes.length; i++) {
+                Constructor<?> constructor = CONSTRUCTORS.get(headerTypes[i]);
+                constructors[i] = constructor != null ? constructor : new ReflectiveConstructor(headerTypes[i]);
+            }
+            CONSTRUCTORS_BY_TYPE[type.ordinal()] = constructors;
+            CACHES[type.ordinal()] = new ConcurrentHashMap<String, Parsed>();
+        }
+    }
+
+    private static volatile int cacheSize = DEFAULT_CACHE_SIZE;
+
+    public static int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @param size The maximum number of parsed values cached per header type, <code>0</code> disables the cache.
+     */
+    public static void setCacheSize(int size) {
+        cacheSize = size;
+        clearCache();
+    }
+
+    public static void clearCache() {
+        for (Map<String, Parsed> cache : CACHES) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return The best matching header subtype instance, or <code>null</code> if no subtype can be found.
+     */
+    public static UpnpHeader newInstance(UpnpHeader.Type type, String headerValue) {
+        Map<String, Parsed> cache = CACHES[type.ordinal()];
+        int maxSize = cacheSize;
+        if (headerValue != null && maxSize > 0) {
+            Parsed parsed = cache.get(headerValue);
+            if (parsed != null) {
+                return parsed.newHeader();
+            }
+        }
+
+        // Try all the UPnP headers and see if one matches our value parsers
+        Constructor<?>[] constructors = CONSTRUCTORS_BY_TYPE[type.ordinal()];
+        UpnpHeader upnpHeader = null;
+        Constructor<?> constructor = null;
+        boolean failed = false;
+        for (int i = 0; i < constructors.length && upnpHeader == null; i++) {
+            constructor = constructors[i];
+            try {
+                log.trace("Trying to parse '{}' with class: {}", type, constructor.headerClass.getSimpleName());
+                upnpHeader = constructor.newInstance();
+                if (headerValue != null) {
+                    upnpHeader.setString(headerValue);
+                }
+            } catch (InvalidHeaderException ex) {
+                log.trace("Invalid header value for tested type: {} - {}", constructor.headerClass.getSimpleName(), ex.getMessage());
+                upnpHeader = null;
+            } catch (Exception ex) {
+                log.error("Error instantiating header of type '" + type + "' with value: " + headerValue);
+                log.error("Exception root cause: ", Exceptions.unwrap(ex));
+                failed = true;
+            }
+        }
+
+        if (headerValue != null && maxSize > 0 && !failed
+                && (upnpHeader == null || constructor.immutableValue)) {
+            if (cache.size() >= maxSize) {
+                cache.clear();
+            }
+            cache.put(headerValue, upnpHeader != null ? new Parsed(constructor, upnpHeader.getValue()) : Parsed.NONE);
+        }
+        return upnpHeader;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Parsed>[] newCaches(int length) {
+        return new Map[length];
+    }
+
+    private static void register(Constructor<?> constructor) {
+        CONSTRUCTORS.put(constructor.headerClass, constructor);
+    }
+
+    /**
+     * Instantiates a header subtype without reflection.
+     */
+    public static abstract class Constructor<H extends UpnpHeader> {
+
+        final protected Class<H> headerClass;
+        final protected boolean immutableValue;
+
+        /**
+         * @param immutableValue <code>true</code> if parsed values of this header can be shared by instances.
+         */
+        protected Constructor(Class<H> headerClass, boolean immutableValue) {
+            this.headerClass = headerClass;
+            this.immutableValue = immutableValue;
+        }
+
+        public abstract H newInstance() throws Exception;
+    }
+
+    static class ReflectiveConstructor extends Constructor<UpnpHeader> {
+
+        @SuppressWarnings("unchecked")
+        ReflectiveConstructor(Class<? extends UpnpHeader> headerClass) {
+            super((Class<UpnpHeader>) headerClass, false);
+        }
+
+        @Override
+        public UpnpHeader newInstance() throws Exception {
+            return headerClass.newInstance();
+        }
+    }
+
+    static class Parsed {
+
+        static final Parsed NONE = new Parsed(null, null);
+
+        final Constructor<?> constructor;
+        final Object value;
+
+        Parsed(Constructor<?> constructor, Object value) {
+            this.constructor = constructor;
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        UpnpHeader newHeader() {
+            if (constructor == null) {
+                return null;
+            }
+            try {
+                UpnpHeader header = constructor.newInstance();
+                header.setValue(value);
+                return header;
+            } catch (Exception ex) {
+                throw new RuntimeException("Can't instantiate header: " + constructor.headerClass, ex);
+            }
+        }
+    }
+}
@@ -18,8 +18,13 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.jupnp.model.Namespace;
 import org.jupnp.model.Validatable;
@@ -57,6 +62,9 @@ public abstract class Device<DI extends DeviceIdentity, D extends Device, S exte
     // Package mutable state
     private D parentDevice;
 
+    // Built on first access, the graph below this device doesn't change after construction
+    private volatile Index index;
+
     public Device(DI identity) throws ValidationException {
         this(identity, null, null, null, null, null);
     }
@@ -191,41 +199,110 @@ public abstract class Device<DI extends DeviceIdentity, D extends Device, S exte
 
     public abstract D findDevice(UDN udn);
 
+    /**
+     * @return All embedded devices of this device's subtree, and this device if it is not a root
+     *         device. The returned array is shared and must not be modified.
+     */
     public D[] findEmbeddedDevices() {
-        return toDeviceArray(findEmbeddedDevices((D) this));
+        Index index = getIndex();
+        return isRoot() ? index.embeddedDevices : index.devices;
     }
 
+    /**
+     * @return The devices of this subtree which implement the given type (or a later version of it).
+     *         The returned array is shared and must not be modified.
+     */
     public D[] findDevices(DeviceType deviceType) {
-        return toDeviceArray(find(deviceType, (D) this));
+        Index index = getIndex();
+        D[] match = null;
+        Collection<D> merged = null;
+        for (int i = 0; i < index.deviceTypes.length; i++) {
+            if (index.deviceTypes[i].implementsVersion(deviceType)) {
+                D[] devices = (D[]) index.devicesOfType[i];
+                if (match == null) {
+                    match = devices;
+                } else {
+                    if (merged == null) {
+                        merged = new ArrayList<D>(Arrays.asList(match));
+                    }
+                    merged.addAll(Arrays.asList(devices));
+                }
+            }
+        }
+        if (merged != null) return toDeviceArray(merged);
+        return match != null ? match : index.noDevices;
     }
 
+    /**
+     * @return The devices of this subtree with a service which implements the given type (or a later
+     *         version of it). The returned array is shared and must not be modified.
+     */
     public D[] findDevices(ServiceType serviceType) {
-        return toDeviceArray(find(serviceType, (D) this));
+        Index index = getIndex();
+        D[] match = null;
+        Collection<D> merged = null;
+        for (int i = 0; i < index.serviceTypes.length; i++) {
+            if (index.serviceTypes[i].implementsVersion(serviceType)) {
+                D[] devices = (D[]) index.devicesOfServiceType[i];
+                if (match == null) {
+                    match = devices;
+                } else {
+                    if (merged == null) {
+                        merged = new LinkedHashSet<D>(Arrays.asList(match));
+                    }
+                    merged.addAll(Arrays.asList(devices));
+                }
+            }
+        }
+        if (merged != null) return toDeviceArray(merged);
+        return match != null ? match : index.noDevices;
     }
 
+    /**
+     * @return The icons of all devices of this subtree. The returned array is shared and must
+     *         not be modified.
+     */
     public Icon[] findIcons() {
-        List<Icon> icons = new ArrayList();
-        if (hasIcons()) {
-            icons.addAll(Arrays.asList(getIcons()));
-        }
-        D[] embeddedDevices = findEmbeddedDevices();
-        for (D embeddedDevice : embeddedDevices) {
-            if (embeddedDevice.hasIcons()) {
-                icons.addAll(Arrays.asList(embeddedDevice.getIcons()));
-            }
-        }
-        return icons.toArray(new Icon[icons.size()]);
+        return getIndex().icons;
     }
 
+    /**
+     * @return The services of all devices of this subtree. The returned array is shared and must
+     *         not be modified.
+     */
     public S[] findServices() {
-        return toServiceArray(findServices(null, null, (D) this));
+        return getIndex().services;
     }
 
+    /**
+     * @return The services of this subtree which implement the given type (or a later version of it),
+     *         or all services if the type is <code>null</code>. The returned array is shared and must
+     *         not be modified.
+     */
     public S[] findServices(ServiceType serviceType) {
-        return toServiceArray(findServices(serviceType, null, (D) this));
+        Index index = getIndex();
+        if (serviceType == null) return index.services;
+        S[] match = null;
+        List<S> merged = null;
+        for (int i = 0; i < index.serviceTypes.length; i++) {
+            if (index.serviceTypes[i].implementsVersion(serviceType)) {
+                S[] services = (S[]) index.servicesOfType[i];
+                if (match == null) {
+                    match = services;
+                } else {
+                    if (merged == null) {
+                        merged = new ArrayList<S>(Arrays.asList(match));
+                    }
+                    merged.addAll(Arrays.asList(services));
+                }
+            }
+        }
+        if (merged != null) return toServiceArray(merged);
+        return match != null ? match : index.noServices;
     }
 
     protected D find(UDN udn, D current) {
+        if (current == this) return getIndex().devicesByUDN.get(udn);
         if (current.getIdentity().getUdn().equals(udn)) return current;
         if (current.hasEmbeddedDevices()) {
             for (D embeddedDevice : (D[]) current.getEmbeddedDevices()) {
@@ -294,23 +371,25 @@ public abstract class Device<DI extends DeviceIdentity, D extends Device, S exte
         return services;
     }
 
+    /**
+     * @return The service with the given identifier, or <code>null</code> if there is none or if
+     *         several devices of this subtree have a service with this identifier.
+     */
     public S findService(ServiceId serviceId) {
-        Collection<S> services = findServices(null, serviceId, (D) this);
-        return services.size() == 1 ? services.iterator().next() : null;
+        return getIndex().servicesById.get(serviceId);
     }
 
     public S findService(ServiceType serviceType) {
-        Collection<S> services = findServices(serviceType, null, (D) this);
-        return services.size() > 0 ? services.iterator().next() : null;
+        S[] services = findServices(serviceType);
+        return services.length > 0 ? services[0] : null;
     }
 
+    /**
+     * @return The distinct types of all services of this subtree. The returned array is shared and
+     *         must not be modified.
+     */
     public ServiceType[] findServiceTypes() {
-        Collection<S> services = findServices(null, null, (D) this);
-        Collection<ServiceType> col = new HashSet();
-        for (S service : services) {
-            col.add(service.getServiceType());
-        }
-        return col.toArray(new ServiceType[col.size()]);
+        return getIndex().serviceTypes;
     }
 
     private boolean isMatch(Service s, ServiceType serviceType, ServiceId serviceId) {
@@ -449,4 +528,130 @@ public abstract class Device<DI extends DeviceIdentity, D extends Device, S exte
     public String toString() {
         return "(" + getClass().getSimpleName() + ") Identity: " + getIdentity().toString() + ", Root: " + isRoot();
     }
+
+    protected Index getIndex() {
+        Index index = this.index;
+        if (index == null) {
+            // Concurrent callers might build it twice, that's harmless
+            this.index = index = new Index();
+        }
+        return index;
+    }
+
+    /**
+     * The flattened graph of this device and its embedded devices.
+     * <p>
+     * Lookups by type match compatible (later) versions, so the devices and services are grouped
+     * by their exact type, and the few distinct types of a device graph are scanned.
+     * </p>
+     */
+    protected class Index {
+
+        // This device and all embedded devices, depth-first
+        final protected D[] devices;
+        final protected D[] embeddedDevices;
+        final protected D[] noDevices;
+        final protected Map<UDN, D> devicesByUDN = new HashMap<UDN, D>();
+
+        final protected DeviceType[] deviceTypes;
+        final protected Object[] devicesOfType;
+
+        final protected S[] services;
+        final protected S[] noServices;
+        // Only identifiers which are unique in the graph
+        final protected Map<ServiceId, S> servicesById = new HashMap<ServiceId, S>();
+
+        final protected ServiceType[] serviceTypes;
+        final protected Object[] servicesOfType;
+        final protected Object[] devicesOfServiceType;
+
+        final protected Icon[] icons;
+
+        protected Index() {
+            List<D> devices = new ArrayList<D>();
+            collect((D) Device.this, devices);
+
+            Map<DeviceType, List<D>> devicesByType = new LinkedHashMap<DeviceType, List<D>>();
+            List<S> services = new ArrayList<S>();
+            Map<ServiceType, List<S>> servicesByType = new LinkedHashMap<ServiceType, List<S>>();
+            Set<ServiceId> duplicateIds = new HashSet<ServiceId>();
+            List<Icon> icons = new ArrayList<Icon>();
+
+            for (D device : devices) {
+                if (!devicesByUDN.containsKey(device.getIdentity().getUdn())) {
+                    devicesByUDN.put(device.getIdentity().getUdn(), device);
+                }
+                // Type might be null if we just discovered the device and it hasn't yet been hydrated
+                if (device.getType() != null) {
+                    List<D> ofType = devicesByType.get(device.getType());
+                    if (ofType == null) {
+                        devicesByType.put(device.getType(), ofType = new ArrayList<D>());
+                    }
+                    ofType.add(device);
+                }
+                if (device != Device.this && device.hasIcons()) {
+                    icons.addAll(Arrays.asList(device.getIcons()));
+                }
+                if (device.hasServices()) {
+                    for (S service : (S[]) device.getServices()) {
+                        if (service == null) continue;
+                        services.add(service);
+                        List<S> ofType = servicesByType.get(service.getServiceType());
+                        if (ofType == null) {
+                            servicesByType.put(service.getServiceType(), ofType = new ArrayList<S>());
+                        }
+                        ofType.add(service);
+                        if (servicesById.put(service.getServiceId(), service) != null) {
+                            duplicateIds.add(service.getServiceId());
+                        }
+                    }
+                }
+            }
+            for (ServiceId duplicateId : duplicateIds) {
+                servicesById.remove(duplicateId);
+            }
+
+            this.devices = toDeviceArray(devices);
+            this.embeddedDevices = toDeviceArray(devices.subList(1, devices.size()));
+            this.noDevices = toDeviceArray(new ArrayList<D>());
+            this.services = toServiceArray(services);
+            this.noServices = newServiceArray(0);
+
+            this.deviceTypes = devicesByType.keySet().toArray(new DeviceType[devicesByType.size()]);
+            this.devicesOfType = new Object[deviceTypes.length];
+            for (int i = 0; i < deviceTypes.length; i++) {
+                devicesOfType[i] = toDeviceArray(devicesByType.get(deviceTypes[i]));
+            }
+
+            this.serviceTypes = servicesByType.keySet().toArray(new ServiceType[servicesByType.size()]);
+            this.servicesOfType = new Object[serviceTypes.length];
+            this.devicesOfServiceType = new Object[serviceTypes.length];
+            for (int i = 0; i < serviceTypes.length; i++) {
+                List<S> ofType = servicesByType.get(serviceTypes[i]);
+                servicesOfType[i] = toServiceArray(ofType);
+                Set<D> owners = new LinkedHashSet<D>();
+                for (S service : ofType) {
+                    owners.add((D) service.getDevice());
+                }
+                devicesOfServiceType[i] = toDeviceArray(owners);
+            }
+
+            Icon[] ownIcons = getIcons();
+            if (ownIcons != null) {
+                icons.addAll(0, Arrays.asList(ownIcons));
+            }
+            this.icons = icons.toArray(new Icon[icons.size()]);
+        }
+
+        protected void collect(D device, List<D> devices) {
+            devices.add(device);
+            if (device.hasEmbeddedDevices()) {
+                for (D embeddedDevice : (D[]) device.getEmbeddedDevices()) {
+                    if (embeddedDevice != null) {
+                        collect(embeddedDevice, devices);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.model.meta;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Counts the metadata objects of a device graph, and how many of them are distinct instances.
+ * <p>
+ * The difference between the total and the distinct counts is the metadata which is shared between
+ * services, e.g. by a {@link org.jupnp.binding.xml.SharedServiceDescriptorBinder}. The estimated size
+ * is a rough approximation of the memory used by the distinct objects and strings.
+ * </p>
+ */
+public class ModelMemoryReport {
+
+    // Approximate sizes on a 64-bit JVM with compressed references
+    public static final int OBJECT_BYTES = 16;
+    public static final int REFERENCE_BYTES = 4;
+    public static final int STRING_BYTES = 40;
+
+    private int deviceCount;
+    private int serviceCount;
+    private int actionCount;
+    private int argumentCount;
+    private int stateVariableCount;
+    private int allowedValueCount;
+    private int stringCount;
+
+    final private Set<Object> distinctTypeDetails = newIdentitySet();
+    final private Set<Object> distinctAllowedValues = newIdentitySet();
+    final private Set<String> distinctStrings = (Set) newIdentitySet();
+    private long distinctStringChars;
+
+    /**
+     * @param devices Root devices, their embedded devices are included.
+     */
+    public static ModelMemoryReport of(Collection<? extends Device> devices) {
+        ModelMemoryReport report = new ModelMemoryReport();
+        for (Device device : devices) {
+            report.add(device);
+        }
+        return report;
+    }
+
+    protected void add(Device<?, ?, ?> device) {
+        deviceCount++;
+        if (device.getDetails() != null) {
+            addString(device.getDetails().getFriendlyName());
+            if (device.getDetails().getManufacturerDetails() != null) {
+                addString(device.getDetails().getManufacturerDetails().getManufacturer());
+            }
+            if (device.getDetails().getModelDetails() != null) {
+                addString(device.getDetails().getModelDetails().getModelName());
+                addString(device.getDetails().getModelDetails().getModelDescription());
+            }
+        }
+        if (device.hasServices()) {
+            for (Service<?, ?> service : device.getServices()) {
+                add(service);
+            }
+        }
+        if (device.hasEmbeddedDevices()) {
+            for (Device embeddedDevice : device.getEmbeddedDevices()) {
+                add(embeddedDevice);
+            }
+        }
+    }
+
+    protected void add(Service<?, ?> service) {
+        serviceCount++;
+        for (Action<?> action : service.getActions()) {
+            actionCount++;
+            addString(action.getName());
+            for (ActionArgument argument : action.getArguments()) {
+                argumentCount++;
+                addString(argument.getName());
+                addString(argument.getRelatedStateVariableName());
+            }
+        }
+        for (StateVariable<?> stateVariable : service.getStateVariables()) {
+            stateVariableCount++;
+            addString(stateVariable.getName());
+            StateVariableTypeDetails typeDetails = stateVariable.getTypeDetails();
+            if (distinctTypeDetails.add(typeDetails)) {
+                addString(typeDetails.getDefaultValue());
+            } else if (typeDetails.getDefaultValue() != null) {
+                stringCount++;
+            }
+            String[] allowedValues = typeDetails.getAllowedValues();
+            if (allowedValues != null) {
+                allowedValueCount += allowedValues.length;
+                if (distinctAllowedValues.add(allowedValues)) {
+                    for (String allowedValue : allowedValues) {
+                        addString(allowedValue);
+                    }
+                } else {
+                    stringCount += allowedValues.length;
+                }
+            }
+        }
+    }
+
+    protected void addString(String s) {
+        if (s == null) return;
+        stringCount++;
+        if (distinctStrings.add(s)) {
+            distinctStringChars += s.length();
+        }
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    public int getServiceCount() {
+        return serviceCount;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+
+    public int getStateVariableCount() {
+        return stateVariableCount;
+    }
+
+    public int getTypeDetailsCount() {
+        return stateVariableCount;
+    }
+
+    public int getDistinctTypeDetailsCount() {
+        return distinctTypeDetails.size();
+    }
+
+    public int getAllowedValueCount() {
+        return allowedValueCount;
+    }
+
+    public int getDistinctAllowedValueListCount() {
+        return distinctAllowedValues.size();
+    }
+
+    /**
+     * @return The number of references to names, descriptions and values.
+     */
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * @return The number of different string instances among {@link #getStringCount()}.
+     */
+    public int getDistinctStringCount() {
+        return distinctStrings.size();
+    }
+
+    /**
+     * @return The approximate number of bytes of the actions, arguments, state variables, their
+     *         distinct type details and distinct strings.
+     */
+    public long getEstimatedBytes() {
+        return (long) actionCount * (OBJECT_BYTES + 5 * REFERENCE_BYTES)
+                + (long) argumentCount * (OBJECT_BYTES + 6 * REFERENCE_BYTES)
+                + (long) stateVariableCount * (OBJECT_BYTES + 4 * REFERENCE_BYTES)
+                + (long) distinctTypeDetails.size() * (OBJECT_BYTES + 4 * REFERENCE_BYTES)
+                + (long) allowedValueCount * REFERENCE_BYTES
+                + (long) distinctStrings.size() * STRING_BYTES + distinctStringChars;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") devices: " + getDeviceCount()
+                + ", services: " + getServiceCount()
+                + ", actions: " + getActionCount()
+                + ", state variables: " + getStateVariableCount()
+                + ", distinct type details: " + getDistinctTypeDetailsCount()
+                + ", strings: " + getStringCount()
+                + ", distinct strings: " + getDistinctStringCount()
+                + ", estimated bytes: " + getEstimatedBytes();
+    }
+
+    protected static Set<Object> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.model.types;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Collections;
+
+import org.jupnp.model.message.StreamBody;
+
+/**
+ * Encodes and decodes binary values in chunks, without an intermediate string.
+ * <p>
+ * Besides a <code>byte[]</code>, a value of a binary datatype can be a <code>ByteBuffer</code>
+ * (its remaining bytes, the position isn't changed) or a {@link StreamBody}, e.g. backed by a file
+ * or an <code>InputStream</code>. Such values are read and encoded chunk by chunk while a message
+ * is written, see {@link #openEncodedStream(Object)}. Values read from a message are always
+ * decoded into a <code>byte[]</code>.
+ * </p>
+ */
+public abstract class AbstractBinaryDatatype extends AbstractDatatype<byte[]> {
+
+    // Bytes encoded at once, a multiple of three so that only the last chunk is padded
+    public static final int CHUNK_SIZE = 3 * 4096;
+
+    public Class<byte[]> getValueType() {
+        return byte[].class;
+    }
+
+    /**
+     * @return The number of characters of the encoded bytes.
+     */
+    public abstract long getEncodedLength(long byteCount);
+
+    /**
+     * Encodes the remaining bytes, which are a multiple of {@link #CHUNK_SIZE} unless it is the last chunk.
+     */
+    protected abstract void encode(ByteBuffer raw, CharBuffer encoded);
+
+    /**
+     * Encodes the remaining bytes, which are a multiple of {@link #CHUNK_SIZE} unless it is the last chunk.
+     */
+    protected abstract void encode(ByteBuffer raw, ByteBuffer encoded);
+
+    /**
+     * Decodes the characters into an array, without converting them to a string or bytes first.
+     */
+    public abstract byte[] decode(CharSequence s) throws InvalidValueException;
+
+    public byte[] valueOf(String s) throws InvalidValueException {
+        if (s.equals("")) return null;
+        return decode(s);
+    }
+
+    /**
+     * @return <code>true</code> if the value is <code>null</code>, a <code>byte[]</code>, a
+     *         <code>ByteBuffer</code> or a {@link StreamBody}.
+     */
+    public boolean isBinaryValue(Object value) {
+        return value == null
+                || value instanceof byte[]
+                || value instanceof ByteBuffer
+                || value instanceof StreamBody;
+    }
+
+    /**
+     * @return The number of bytes of the value, or <code>-1</code> if it is unknown.
+     */
+    public long getByteCount(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof ByteBuffer) {
+            return ((ByteBuffer) value).remaining();
+        } else if (value instanceof StreamBody) {
+            return ((StreamBody) value).getContentLength();
+        }
+        throw new IllegalArgumentException("Not a binary value: " + value.getClass());
+    }
+
+    /**
+     * @return The number of characters of the encoded value, or <code>-1</code> if it is unknown.
+     */
+    public long getEncodedValueLength(Object value) {
+        long byteCount = getByteCount(value);
+        return byteCount >= 0 ? getEncodedLength(byteCount) : -1;
+    }
+
+    /**
+     * Writes the encoded value in chunks, doesn't close the writer.
+     */
+    public void encode(Object value, Writer writer) throws IOException {
+        if (value == null) return;
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            CharBuffer chars = CharBuffer.allocate((int) getEncodedLength(Math.min(buffer.remaining(), CHUNK_SIZE)));
+            while (buffer.hasRemaining()) {
+                ByteBuffer chunk = buffer.slice();
+                chunk.limit(Math.min(chunk.remaining(), CHUNK_SIZE));
+                buffer.position(buffer.position() + chunk.remaining());
+                encode(chunk, chars);
+                writer.write(chars.array(), 0, chars.position());
+                chars.clear();
+            }
+            return;
+        }
+        InputStream is = openValueStream(value);
+        try {
+            byte[] raw = new byte[CHUNK_SIZE];
+            CharBuffer chars = CharBuffer.allocate((int) getEncodedLength(CHUNK_SIZE));
+            int n;
+            while ((n = readChunk(is, raw)) > 0) {
+                encode(ByteBuffer.wrap(raw, 0, n), chars);
+                writer.write(chars.array(), 0, chars.position());
+                chars.clear();
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * @return The encoded value, built without intermediate strings.
+     */
+    public String toEncodedString(Object value) throws InvalidValueException {
+        if (value == null) return "";
+        long length = getEncodedValueLength(value);
+        StringWriter writer = new StringWriter(length >= 0 && length < Integer.MAX_VALUE ? (int) length : 16);
+        try {
+            encode(value, writer);
+        } catch (IOException ex) {
+            throw new InvalidValueException("Can't read binary value: " + ex, ex);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * @return A stream of the encoded value as ASCII bytes, which reads and encodes
+     *         the value when it is consumed; must be closed by the caller.
+     */
+    public InputStream openEncodedStream(Object value) throws IOException {
+        return new EncodingInputStream(openValueStream(value));
+    }
+
+    protected InputStream openValueStream(Object value) throws IOException {
+        if (value == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        } else if (value instanceof byte[]) {
+            return new ByteArrayInputStream((byte[]) value);
+        } else if (value instanceof ByteBuffer) {
+            return StreamBody.fromBuffers(Collections.singletonList((ByteBuffer) value)).openStream();
+        } else if (value instanceof StreamBody) {
+            return ((StreamBody) value).openStream();
+        }
+        throw new IllegalArgumentException("Not a binary value: " + value.getClass());
+    }
+
+    // Fills the buffer unless the end of the stream is reached, so that only the last chunk is short
+    protected static int readChunk(InputStream is, byte[] buffer) throws IOException {
+        int total = 0;
+        int n;
+        while (total < buffer.length && (n = is.read(buffer, total, buffer.length - total)) != -1) {
+            total += n;
+        }
+        return total;
+    }
+
+    protected class EncodingInputStream extends InputStream {
+
+        final private InputStream source;
+        final private byte[] raw = new byte[CHUNK_SIZE];
+        final private ByteBuffer encoded = ByteBuffer.allocate((int) getEncodedLength(CHUNK_SIZE));
+
+        public EncodingInputStream(InputStream source) {
+            this.source = source;
+            encoded.flip();
+        }
+
+        protected boolean fill() throws IOException {
+            if (encoded.hasRemaining()) {
+                return true;
+            }
+            int n = readChunk(source, raw);
+            if (n == 0) {
+                return false;
+            }
+            encoded.clear();
+            encode(ByteBuffer.wrap(raw, 0, n), encoded);
+            encoded.flip();
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? encoded.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, encoded.remaining());
+            encoded.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
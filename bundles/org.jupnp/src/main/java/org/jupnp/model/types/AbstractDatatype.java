@@ -57,6 +57,53 @@ public abstract class AbstractDatatype<V> implements Datatype<V> {
         return value == null || getValueType().isAssignableFrom(value.getClass());
     }
 
+    /**
+     * Parses a decimal integer like <code>Long.parseLong()</code>, ignoring surrounding whitespace,
+     * without creating a string.
+     */
+    protected static long parseDecimal(CharSequence s) throws NumberFormatException {
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+        if (start == end) {
+            throw new NumberFormatException("Empty number: '" + s + "'");
+        }
+        boolean negative = false;
+        char first = s.charAt(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++start == end) {
+                throw new NumberFormatException("Not a number: '" + s + "'");
+            }
+        }
+        // Accumulate negatively, like Long.parseLong(), so that Long.MIN_VALUE can be parsed
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number: '" + s + "'");
+            }
+            if (result < limit / 10 || result * 10 < limit + digit) {
+                throw new NumberFormatException("Number out of range: '" + s + "'");
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * @return The double as a <code>long</code>, if it is a whole number.
+     */
+    protected static long toWholeNumber(double value) throws InvalidValueException {
+        long l = (long) value;
+        if (l != value) {
+            throw new InvalidValueException("Not a whole number: " + value);
+        }
+        return l;
+    }
+
     @Override
     public String toString() {
         return "(" + getClass().getSimpleName() + ")";
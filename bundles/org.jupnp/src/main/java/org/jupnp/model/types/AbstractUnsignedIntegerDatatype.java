@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.model.types;
+
+import org.jupnp.util.SpecificationViolationReporter;
+
+/**
+ * Converts unsigned integers from and to primitives, with the range of their {@link UnsignedVariableInteger.Bits}.
+ */
+public abstract class AbstractUnsignedIntegerDatatype<V extends UnsignedVariableInteger>
+        extends AbstractDatatype<V> implements NumericDatatype<V> {
+
+    public abstract UnsignedVariableInteger.Bits getBits();
+
+    public long parseLong(CharSequence s) throws InvalidValueException {
+        long value;
+        try {
+            value = parseDecimal(s);
+        } catch (NumberFormatException ex) {
+            throw new InvalidValueException("Can't convert string to number or not in range: " + s, ex);
+        }
+        if (value < 0) {
+            // Don't throw exception, just cut it, see UnsignedVariableInteger(String)
+            SpecificationViolationReporter.report("Invalid negative integer value '{}', assuming value 0!", s);
+            return 0;
+        }
+        if (value > getBits().getMaxValue()) {
+            throw new InvalidValueException("Can't convert string to number or not in range: " + s);
+        }
+        return value;
+    }
+
+    public double parseDouble(CharSequence s) throws InvalidValueException {
+        return parseLong(s);
+    }
+
+    public long toLong(V value) {
+        return value.longValue();
+    }
+
+    public double toDouble(V value) {
+        return value.longValue();
+    }
+
+    public String format(long value) throws InvalidValueException {
+        if (value < 0 || value > getBits().getMaxValue()) {
+            throw new InvalidValueException("Value must be between 0 and " + getBits().getMaxValue() + ": " + value);
+        }
+        return Long.toString(value);
+    }
+
+    public String format(double value) throws InvalidValueException {
+        return format(toWholeNumber(value));
+    }
+
+}
@@ -14,22 +14,36 @@
 
 package org.jupnp.model.types;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
 import org.jupnp.util.io.Base64Coder;
 
 /**
  * @author Christian Bauer
  */
-public class Base64Datatype extends AbstractDatatype<byte[]> {
+public class Base64Datatype extends AbstractBinaryDatatype {
 
     public Base64Datatype() {
     }
 
-    public Class<byte[]> getValueType() {
-        return byte[].class;
+    @Override
+    public long getEncodedLength(long byteCount) {
+        return (byteCount + 2) / 3 * 4;
+    }
+
+    @Override
+    protected void encode(ByteBuffer raw, CharBuffer encoded) {
+        Base64Coder.encode(raw, encoded);
     }
 
-    public byte[] valueOf(String s) throws InvalidValueException {
-        if (s.equals("")) return null;
+    @Override
+    protected void encode(ByteBuffer raw, ByteBuffer encoded) {
+        Base64Coder.encode(raw, encoded);
+    }
+
+    @Override
+    public byte[] decode(CharSequence s) throws InvalidValueException {
         try {
             return Base64Coder.decode(s);
         } catch (Exception ex) {
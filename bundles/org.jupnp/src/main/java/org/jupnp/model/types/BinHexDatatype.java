@@ -14,24 +14,38 @@
 
 package org.jupnp.model.types;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
 import org.jupnp.util.io.HexBin;
 
 /**
  * @author Christian Bauer
  */
-public class BinHexDatatype extends AbstractDatatype<byte[]> {
+public class BinHexDatatype extends AbstractBinaryDatatype {
 
     public BinHexDatatype() {
     }
 
-    public Class<byte[]> getValueType() {
-        return byte[].class;
+    @Override
+    public long getEncodedLength(long byteCount) {
+        return byteCount * 2;
+    }
+
+    @Override
+    protected void encode(ByteBuffer raw, CharBuffer encoded) {
+        HexBin.encode(raw, encoded);
     }
 
-    public byte[] valueOf(String s) throws InvalidValueException {
-        if (s.equals("")) return null;
+    @Override
+    protected void encode(ByteBuffer raw, ByteBuffer encoded) {
+        HexBin.encode(raw, encoded);
+    }
+
+    @Override
+    public byte[] decode(CharSequence s) throws InvalidValueException {
         try {
-            return HexBin.stringToBytes(s);
+            return HexBin.charsToBytes(s);
         } catch (Exception ex) {
             throw new InvalidValueException(ex.getMessage(), ex);
         }
@@ -47,4 +61,4 @@ public class BinHexDatatype extends AbstractDatatype<byte[]> {
         }
     }
 
-}
\ No newline at end of file
+}
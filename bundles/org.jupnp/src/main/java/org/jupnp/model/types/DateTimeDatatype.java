@@ -14,13 +14,20 @@
 
 package org.jupnp.model.types;
 
-import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
 
 /**
+ * Parses and formats the date and time datatypes.
+ * <p>
+ * <code>SimpleDateFormat</code> is expensive to create and not thread-safe, so every thread
+ * compiles the read and write formats of a datatype once and reuses them. The read formats
+ * are tried from the last to the first, the first match is taken.
+ * </p>
+ *
  * @author Christian Bauer
  */
 public class DateTimeDatatype extends AbstractDatatype<Calendar> {
@@ -28,6 +35,19 @@ public class DateTimeDatatype extends AbstractDatatype<Calendar> {
     protected String[] readFormats;
     protected String writeFormat;
 
+    // The write format is the last element, the read formats are in reverse order
+    final private ThreadLocal<SimpleDateFormat[]> formats = new ThreadLocal<SimpleDateFormat[]>() {
+        @Override
+        protected SimpleDateFormat[] initialValue() {
+            SimpleDateFormat[] formats = new SimpleDateFormat[readFormats.length + 1];
+            for (int i = 0; i < readFormats.length; i++) {
+                formats[i] = new SimpleDateFormat(readFormats[readFormats.length - 1 - i]);
+            }
+            formats[readFormats.length] = new SimpleDateFormat(writeFormat);
+            return formats;
+        }
+    };
+
     public DateTimeDatatype(String[] readFormats, String writeFormat) {
         this.readFormats = readFormats;
         this.writeFormat = writeFormat;
@@ -56,9 +76,17 @@ public class DateTimeDatatype extends AbstractDatatype<Calendar> {
     @Override
     public String getString(Calendar value) throws InvalidValueException {
         if (value == null) return "";
-        SimpleDateFormat sdt = new SimpleDateFormat(writeFormat);
+        return format(value.getTime());
+    }
+
+    /**
+     * Formats the given instant with the write format, in the time zone of this datatype.
+     */
+    public String format(Date value) {
+        SimpleDateFormat[] formats = this.formats.get();
+        SimpleDateFormat sdt = formats[formats.length - 1];
         sdt.setTimeZone(getTimeZone());
-        return sdt.format(value.getTime());
+        return sdt.format(value);
     }
 
     protected String normalizeTimeZone(String value) {
@@ -77,18 +105,21 @@ public class DateTimeDatatype extends AbstractDatatype<Calendar> {
 
         value = normalizeTimeZone(value);
 
-        Date d = null;
-        for (String format : formats) {
-            SimpleDateFormat sdt = new SimpleDateFormat(format);
-            sdt.setTimeZone(getTimeZone());
-            try {
-                d = sdt.parse(value);
-                // Continue, last match is the one we need
-            } catch (ParseException ex) {
-                // Just continue
+        // A less specific format also parses the beginning of a more specific value, and the
+        // last matching format is the one we need, so try them backwards and stop at the first
+        SimpleDateFormat[] compiled = formats == readFormats ? this.formats.get() : null;
+        TimeZone timeZone = getTimeZone();
+        for (int i = formats.length - 1; i >= 0; i--) {
+            SimpleDateFormat sdt = compiled != null
+                ? compiled[formats.length - 1 - i]
+                : new SimpleDateFormat(formats[i]);
+            sdt.setTimeZone(timeZone);
+            Date d = sdt.parse(value, new ParsePosition(0));
+            if (d != null) {
+                return d;
             }
         }
-        return d;
+        return null;
     }
 
     protected TimeZone getTimeZone() {
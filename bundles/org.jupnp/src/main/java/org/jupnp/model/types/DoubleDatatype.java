@@ -17,7 +17,7 @@ package org.jupnp.model.types;
 /**
  * @author Christian Bauer
  */
-public class DoubleDatatype extends AbstractDatatype<Double> {
+public class DoubleDatatype extends AbstractDatatype<Double> implements NumericDatatype<Double> {
 
     public DoubleDatatype() {
     }
@@ -36,4 +36,32 @@ public class DoubleDatatype extends AbstractDatatype<Double> {
         }
     }
 
+    public long parseLong(CharSequence s) throws InvalidValueException {
+        return (long) parseDouble(s);
+    }
+
+    public double parseDouble(CharSequence s) throws InvalidValueException {
+        try {
+            return Double.parseDouble(s.toString());
+        } catch (NumberFormatException ex) {
+            throw new InvalidValueException("Can't convert string to number: " + s, ex);
+        }
+    }
+
+    public long toLong(Double value) {
+        return value.longValue();
+    }
+
+    public double toDouble(Double value) {
+        return value;
+    }
+
+    public String format(long value) {
+        return format((double) value);
+    }
+
+    public String format(double value) {
+        return Double.toString(value);
+    }
+
 }
@@ -17,7 +17,7 @@ package org.jupnp.model.types;
 /**
  * @author Christian Bauer
  */
-public class FloatDatatype extends AbstractDatatype<Float> {
+public class FloatDatatype extends AbstractDatatype<Float> implements NumericDatatype<Float> {
 
     public FloatDatatype() {
     }
@@ -36,4 +36,32 @@ public class FloatDatatype extends AbstractDatatype<Float> {
         }
     }
 
+    public long parseLong(CharSequence s) throws InvalidValueException {
+        return (long) parseDouble(s);
+    }
+
+    public double parseDouble(CharSequence s) throws InvalidValueException {
+        try {
+            return Float.parseFloat(s.toString().trim());
+        } catch (NumberFormatException ex) {
+            throw new InvalidValueException("Can't convert string to number: " + s, ex);
+        }
+    }
+
+    public long toLong(Float value) {
+        return value.longValue();
+    }
+
+    public double toDouble(Float value) {
+        return value;
+    }
+
+    public String format(long value) {
+        return format((double) value);
+    }
+
+    public String format(double value) {
+        return Float.toString((float) value);
+    }
+
 }
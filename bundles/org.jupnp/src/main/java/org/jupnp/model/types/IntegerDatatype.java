@@ -19,7 +19,7 @@ package org.jupnp.model.types;
  *
  * @author Christian Bauer
  */
-public class IntegerDatatype extends AbstractDatatype<Integer> {
+public class IntegerDatatype extends AbstractDatatype<Integer> implements NumericDatatype<Integer> {
 
     private int byteSize;
 
@@ -53,6 +53,50 @@ public class IntegerDatatype extends AbstractDatatype<Integer> {
         }
     }
 
+    public long parseLong(CharSequence s) throws InvalidValueException {
+        long value;
+        try {
+            value = parseDecimal(s);
+        } catch (NumberFormatException ex) {
+            // See valueOf(String)
+            if ("NOT_IMPLEMENTED".contentEquals(s)) {
+                return getMaxValue();
+            }
+            throw new InvalidValueException("Can't convert string to number: " + s, ex);
+        }
+        if (!isValid(value)) {
+            throw new InvalidValueException("Not a " + getByteSize() + " byte(s) integer: " + s);
+        }
+        return value;
+    }
+
+    public double parseDouble(CharSequence s) throws InvalidValueException {
+        return parseLong(s);
+    }
+
+    public long toLong(Integer value) {
+        return value;
+    }
+
+    public double toDouble(Integer value) {
+        return value;
+    }
+
+    public String format(long value) throws InvalidValueException {
+        if (!isValid(value)) {
+            throw new InvalidValueException("Not a " + getByteSize() + " byte(s) integer: " + value);
+        }
+        return Long.toString(value);
+    }
+
+    public String format(double value) throws InvalidValueException {
+        return format(toWholeNumber(value));
+    }
+
+    protected boolean isValid(long value) {
+        return value >= getMinValue() && value <= getMaxValue();
+    }
+
     public boolean isValid(Integer value) {
         return value == null || (value >= getMinValue() && value <= getMaxValue());
     }
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.model.types;
+
+/**
+ * A datatype of numbers, which can be converted from and to primitives without boxing.
+ * <p>
+ * The primitive methods accept exactly the strings (and validate the range) as
+ * {@link #valueOf(String)}, but they don't create a value instance, and they don't convert
+ * a value to a string to get its number. Floating point values are truncated when read
+ * as a <code>long</code>.
+ * </p>
+ *
+ * @param <V> The Java type of the value handled by this datatype.
+ */
+public interface NumericDatatype<V> extends Datatype<V> {
+
+    /**
+     * @throws InvalidValueException If the string is empty, couldn't be parsed, or is out of range.
+     */
+    public long parseLong(CharSequence s) throws InvalidValueException;
+
+    /**
+     * @throws InvalidValueException If the string is empty, couldn't be parsed, or is out of range.
+     */
+    public double parseDouble(CharSequence s) throws InvalidValueException;
+
+    /**
+     * @param value A value of this datatype, not <code>null</code>.
+     */
+    public long toLong(V value);
+
+    /**
+     * @param value A value of this datatype, not <code>null</code>.
+     */
+    public double toDouble(V value);
+
+    /**
+     * @return The same string as {@link #getString(Object)} returns for this number.
+     * @throws InvalidValueException If the number is out of range for this datatype.
+     */
+    public String format(long value) throws InvalidValueException;
+
+    /**
+     * @return The same string as {@link #getString(Object)} returns for this number.
+     * @throws InvalidValueException If the number is out of range or not integral for this datatype.
+     */
+    public String format(double value) throws InvalidValueException;
+
+}
@@ -18,7 +18,7 @@ package org.jupnp.model.types;
  *
  * @author Christian Bauer
  */
-public class ShortDatatype extends AbstractDatatype<Short> {
+public class ShortDatatype extends AbstractDatatype<Short> implements NumericDatatype<Short> {
 
     @Override
     public boolean isHandlingJavaType(Class type) {
@@ -38,4 +38,40 @@ public class ShortDatatype extends AbstractDatatype<Short> {
         }
     }
 
+    public long parseLong(CharSequence s) throws InvalidValueException {
+        long value;
+        try {
+            value = parseDecimal(s);
+        } catch (NumberFormatException ex) {
+            throw new InvalidValueException("Can't convert string to number: " + s, ex);
+        }
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new InvalidValueException("Not a valid short: " + s);
+        }
+        return value;
+    }
+
+    public double parseDouble(CharSequence s) throws InvalidValueException {
+        return parseLong(s);
+    }
+
+    public long toLong(Short value) {
+        return value;
+    }
+
+    public double toDouble(Short value) {
+        return value;
+    }
+
+    public String format(long value) throws InvalidValueException {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new InvalidValueException("Not a valid short: " + value);
+        }
+        return Long.toString(value);
+    }
+
+    public String format(double value) throws InvalidValueException {
+        return format(toWholeNumber(value));
+    }
+
 }
@@ -17,7 +17,7 @@ package org.jupnp.model.types;
 /**
  * @author Christian Bauer
  */
-public class UnsignedIntegerFourBytesDatatype extends AbstractDatatype<UnsignedIntegerFourBytes> {
+public class UnsignedIntegerFourBytesDatatype extends AbstractUnsignedIntegerDatatype<UnsignedIntegerFourBytes> {
 
     public UnsignedIntegerFourBytes valueOf(String s) throws InvalidValueException {
         if (s.equals("")) return null;
@@ -28,4 +28,9 @@ public class UnsignedIntegerFourBytesDatatype extends AbstractDatatype<UnsignedI
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public UnsignedVariableInteger.Bits getBits() {
+        return UnsignedVariableInteger.Bits.THIRTYTWO;
+    }
+
+}
@@ -17,7 +17,7 @@ package org.jupnp.model.types;
 /**
  * @author Christian Bauer
  */
-public class UnsignedIntegerOneByteDatatype extends AbstractDatatype<UnsignedIntegerOneByte> {
+public class UnsignedIntegerOneByteDatatype extends AbstractUnsignedIntegerDatatype<UnsignedIntegerOneByte> {
 
     public UnsignedIntegerOneByte valueOf(String s) throws InvalidValueException {
         if (s.equals("")) return null;
@@ -28,4 +28,9 @@ public class UnsignedIntegerOneByteDatatype extends AbstractDatatype<UnsignedInt
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public UnsignedVariableInteger.Bits getBits() {
+        return UnsignedVariableInteger.Bits.EIGHT;
+    }
+
+}
@@ -17,7 +17,7 @@ package org.jupnp.model.types;
 /**
  * @author Christian Bauer
  */
-public class UnsignedIntegerTwoBytesDatatype extends AbstractDatatype<UnsignedIntegerTwoBytes> {
+public class UnsignedIntegerTwoBytesDatatype extends AbstractUnsignedIntegerDatatype<UnsignedIntegerTwoBytes> {
 
     public UnsignedIntegerTwoBytes valueOf(String s) throws InvalidValueException {
         if (s.equals("")) return null;
@@ -28,4 +28,9 @@ public class UnsignedIntegerTwoBytesDatatype extends AbstractDatatype<UnsignedIn
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public UnsignedVariableInteger.Bits getBits() {
+        return UnsignedVariableInteger.Bits.SIXTEEN;
+    }
+
+}
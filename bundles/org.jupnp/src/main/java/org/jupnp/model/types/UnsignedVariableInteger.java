@@ -71,6 +71,10 @@ public abstract class UnsignedVariableInteger {
         return value;
     }
 
+    public long longValue() {
+        return value;
+    }
+
     public void isInRange(long value) throws NumberFormatException {
         if (value < getMinValue() || value > getBits().getMaxValue()) {
             throw new NumberFormatException("Value must be between " + getMinValue() + " and " + getBits().getMaxValue() + ": " + value);
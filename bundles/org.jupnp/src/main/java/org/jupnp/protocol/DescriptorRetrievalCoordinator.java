@@ -0,0 +1,237 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.protocol;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinates the {@link RetrieveRemoteDescriptors} protocols of a UPnP stack.
+ * <p>
+ * Only one retrieval per descriptor URL is running at any time, further retrievals of the
+ * same URL are skipped while it is in flight. When a retrieval fails, the URL is remembered
+ * and further retrievals are skipped until an exponentially growing backoff time has passed,
+ * so that a broken device announcing itself every few seconds does not trigger a full
+ * HTTP request and parsing cycle each time. The number of concurrently running retrievals
+ * is limited, excess retrievals are skipped instead of blocking an executor thread, the device
+ * is described when it announces itself again.
+ * </p>
+ * <p>
+ * URLs are compared by their string representation, host names are never resolved.
+ * </p>
+ */
+public class DescriptorRetrievalCoordinator {
+
+    public static final int DEFAULT_MAX_CONCURRENT_RETRIEVALS = 16;
+    public static final int DEFAULT_INITIAL_BACKOFF_MILLIS = 10000;
+    public static final int DEFAULT_MAX_BACKOFF_MILLIS = 600000;
+
+    // Entries of failed URLs are purged when their backoff expired and there are more than this many
+    public static final int PURGE_THRESHOLD = 1000;
+
+    final private Semaphore permits;
+    final private long initialBackoffNanos;
+    final private long maxBackoffNanos;
+
+    final private ReentrantLock lock = new ReentrantLock();
+    final private Map<String, Retrieval> retrievals = new HashMap<String, Retrieval>();
+
+    final private AtomicLong failedCount = new AtomicLong();
+    final private AtomicLong skippedCount = new AtomicLong();
+
+    public DescriptorRetrievalCoordinator() {
+        this(DEFAULT_MAX_CONCURRENT_RETRIEVALS, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    public DescriptorRetrievalCoordinator(int maxConcurrentRetrievals, int initialBackoffMillis, int maxBackoffMillis) {
+        this.permits = new Semaphore(maxConcurrentRetrievals);
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+    }
+
+    /**
+     * Claims the retrieval of the given descriptor URL and a permit, without waiting.
+     * <p>
+     * Every successful call must be followed by a call of {@link #finish(URL, boolean)}.
+     * </p>
+     *
+     * @return <code>false</code> if the URL is already being retrieved, is backing off after a failure,
+     *         or the maximum number of retrievals is running.
+     */
+    public boolean start(URL descriptorURL) {
+        String key = descriptorURL.toString();
+        lock.lock();
+        try {
+            Retrieval retrieval = retrievals.get(key);
+            if (retrieval == null) {
+                retrieval = new Retrieval();
+                retrievals.put(key, retrieval);
+            } else if (retrieval.inFlight
+                    || (retrieval.failures > 0 && System.nanoTime() - retrieval.retryAfter < 0)) {
+                skippedCount.incrementAndGet();
+                return false;
+            }
+            retrieval.inFlight = true;
+        } finally {
+            lock.unlock();
+        }
+
+        if (!permits.tryAcquire()) {
+            finish(key, null);
+            skippedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases the permit and records the outcome of the retrieval of the given descriptor URL.
+     *
+     * @param success <code>false</code> if further retrievals of the URL should back off.
+     */
+    public void finish(URL descriptorURL, boolean success) {
+        permits.release();
+        finish(descriptorURL.toString(), success);
+    }
+
+    /**
+     * @return The number of consecutive failed retrievals of the given descriptor URL.
+     */
+    public int getFailures(URL descriptorURL) {
+        lock.lock();
+        try {
+            Retrieval retrieval = retrievals.get(descriptorURL.toString());
+            return retrieval != null ? retrieval.failures : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of descriptor URLs which are currently being retrieved.
+     */
+    public int getInFlightCount() {
+        lock.lock();
+        try {
+            int count = 0;
+            for (Retrieval retrieval : retrievals.values()) {
+                if (retrieval.inFlight) count++;
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of descriptor URLs which are not retrieved until their backoff time passed.
+     */
+    public int getBackingOffCount() {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            int count = 0;
+            for (Retrieval retrieval : retrievals.values()) {
+                if (!retrieval.inFlight && retrieval.failures > 0 && now - retrieval.retryAfter < 0) count++;
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The total number of failed retrievals.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return The total number of retrievals skipped because they were in flight, backing off,
+     *         or too many retrievals were running.
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    protected void finish(String key, Boolean success) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Retrieval retrieval = retrievals.get(key);
+            if (retrieval == null) {
+                return;
+            }
+            retrieval.inFlight = false;
+            if (success == null) {
+                // Not attempted, keep the previous state
+                if (retrieval.failures == 0) {
+                    retrievals.remove(key);
+                }
+            } else if (success) {
+                retrievals.remove(key);
+            } else {
+                failedCount.incrementAndGet();
+                retrieval.failures++;
+                retrieval.retryAfter = now + getBackoffNanos(retrieval.failures);
+                if (retrievals.size() > PURGE_THRESHOLD) {
+                    purge(now);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected long getBackoffNanos(int failures) {
+        long backoff = initialBackoffNanos;
+        for (int i = 1; i < failures && backoff < maxBackoffNanos; i++) {
+            backoff *= 2;
+        }
+        return Math.min(backoff, maxBackoffNanos);
+    }
+
+    // Must be called while holding the lock
+    protected void purge(long now) {
+        Iterator<Retrieval> it = retrievals.values().iterator();
+        while (it.hasNext()) {
+            Retrieval retrieval = it.next();
+            if (!retrieval.inFlight && now - retrieval.retryAfter >= 0) {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") in flight: " + getInFlightCount()
+                + ", backing off: " + getBackingOffCount()
+                + ", failed: " + getFailedCount()
+                + ", skipped: " + getSkippedCount();
+    }
+
+    static class Retrieval {
+        boolean inFlight;
+        int failures;
+        long retryAfter;
+    }
+}
@@ -22,6 +22,7 @@ import org.jupnp.model.message.IncomingDatagramMessage;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.header.UpnpHeader;
 import org.jupnp.model.meta.LocalDevice;
+import org.jupnp.model.meta.RemoteDevice;
 import org.jupnp.protocol.async.SendingNotificationAlive;
 import org.jupnp.protocol.async.SendingNotificationByebye;
 import org.jupnp.protocol.async.SendingSearch;
@@ -31,7 +32,9 @@ import org.jupnp.protocol.sync.SendingRenewal;
 import org.jupnp.protocol.sync.SendingSubscribe;
 import org.jupnp.protocol.sync.SendingUnsubscribe;
 
+import java.net.InetAddress;
 import java.net.URL;
+import java.util.Collection;
 
 /**
  * Factory for UPnP protocols, the core implementation of the UPnP specification.
@@ -76,11 +79,24 @@ public interface ProtocolFactory {
      */
     public ReceivingSync createReceivingSync(StreamRequestMessage requestMessage) throws ProtocolCreationException;
 
+    /**
+     * Called by the discovery protocols, creates a protocol for retrieving the descriptors
+     * of a discovered remote device.
+     */
+    public RetrieveRemoteDescriptors createRetrieveRemoteDescriptors(RemoteDevice remoteDevice);
+
     /**
      * Called by the {@link org.jupnp.registry.Registry}, creates a protocol for announcing local devices.
      */
     public SendingNotificationAlive createSendingNotificationAlive(LocalDevice localDevice);
 
+    /**
+     * Called by the {@link org.jupnp.transport.Router}, creates a protocol for announcing local devices
+     * only on the given local addresses, which became available after a network change.
+     */
+    public SendingNotificationAlive createSendingNotificationAlive(LocalDevice localDevice,
+                                                                   Collection<InetAddress> addresses);
+
     /**
      * Called by the {@link org.jupnp.registry.Registry}, creates a protocol for announcing local devices.
      */
@@ -91,6 +107,13 @@ public interface ProtocolFactory {
      */
     public SendingSearch createSendingSearch(UpnpHeader searchTarget, int mxSeconds);
 
+    /**
+     * Called by the {@link org.jupnp.controlpoint.ControlPoint}, creates a protocol for a multicast search
+     * which notifies the callback when no more responses are expected.
+     */
+    public SendingSearch createSendingSearch(UpnpHeader searchTarget, int mxSeconds,
+                                             SearchResponseAggregator.Callback callback);
+
     /**
      * Called by the {@link org.jupnp.controlpoint.ControlPoint}, creates a protocol for executing an action.
      */
@@ -14,8 +14,10 @@
 
 package org.jupnp.protocol;
 
+import java.net.InetAddress;
 import java.net.URI;
 import java.net.URL;
+import java.util.Collection;
 import java.util.List;
 
 import org.jupnp.UpnpService;
@@ -29,8 +31,14 @@ import org.jupnp.model.message.IncomingDatagramMessage;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.UpnpRequest;
 import org.jupnp.model.message.UpnpResponse;
+import org.jupnp.model.message.header.MXHeader;
 import org.jupnp.model.message.header.UpnpHeader;
 import org.jupnp.model.meta.LocalDevice;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.resource.Resource;
+import org.jupnp.model.resource.ServiceControlResource;
+import org.jupnp.model.resource.ServiceEventCallbackResource;
+import org.jupnp.model.resource.ServiceEventSubscriptionResource;
 import org.jupnp.model.types.InvalidValueException;
 import org.jupnp.model.types.NamedServiceType;
 import org.jupnp.model.types.NotificationSubtype;
@@ -65,20 +73,83 @@ public class ProtocolFactoryImpl implements ProtocolFactory {
     final private Logger log = LoggerFactory.getLogger(ProtocolFactory.class);
 
     protected final UpnpService upnpService;
+    protected final DescriptorRetrievalCoordinator descriptorRetrievalCoordinator;
+    protected final SearchAdmissionControl searchAdmissionControl;
+    protected final SearchResponseAggregator searchResponseAggregator;
+    protected final RemoteDeviceIdentityCache remoteDeviceIdentityCache;
 
     protected ProtocolFactoryImpl() {
         upnpService = null;
+        descriptorRetrievalCoordinator = createDescriptorRetrievalCoordinator();
+        searchAdmissionControl = createSearchAdmissionControl();
+        searchResponseAggregator = createSearchResponseAggregator();
+        remoteDeviceIdentityCache = createRemoteDeviceIdentityCache();
     }
 
     public ProtocolFactoryImpl(UpnpService upnpService) {
         log.trace("Creating ProtocolFactory: " + getClass().getName());
         this.upnpService = upnpService;
+        this.descriptorRetrievalCoordinator = createDescriptorRetrievalCoordinator();
+        this.searchAdmissionControl = createSearchAdmissionControl();
+        this.searchResponseAggregator = createSearchResponseAggregator();
+        this.remoteDeviceIdentityCache = createRemoteDeviceIdentityCache();
     }
 
     public UpnpService getUpnpService() {
         return upnpService;
     }
 
+    /**
+     * @return The coordinator of all remote descriptor retrievals, e.g. to observe failing devices.
+     */
+    public DescriptorRetrievalCoordinator getDescriptorRetrievalCoordinator() {
+        return descriptorRetrievalCoordinator;
+    }
+
+    protected DescriptorRetrievalCoordinator createDescriptorRetrievalCoordinator() {
+        return new DescriptorRetrievalCoordinator();
+    }
+
+    /**
+     * @return The admission control of received search requests, e.g. to observe dropped searches.
+     */
+    public SearchAdmissionControl getSearchAdmissionControl() {
+        return searchAdmissionControl;
+    }
+
+    protected SearchAdmissionControl createSearchAdmissionControl() {
+        UpnpServiceConfiguration config = upnpService != null ? upnpService.getConfiguration() : null;
+        if (config == null) {
+            return new SearchAdmissionControl();
+        }
+        return new SearchAdmissionControl(config.getSearchRequestBurstSize(), config.getSearchRequestsPerMinute());
+    }
+
+    /**
+     * @return The aggregator collapsing the responses to the searches of this control point.
+     */
+    public SearchResponseAggregator getSearchResponseAggregator() {
+        return searchResponseAggregator;
+    }
+
+    protected SearchResponseAggregator createSearchResponseAggregator() {
+        return new SearchResponseAggregator();
+    }
+
+    /**
+     * @return The cache of remote device identities of received announcements, or <code>null</code>.
+     */
+    public RemoteDeviceIdentityCache getRemoteDeviceIdentityCache() {
+        return remoteDeviceIdentityCache;
+    }
+
+    /**
+     * @return A cache of remote device identities, or <code>null</code> to parse every announcement.
+     */
+    protected RemoteDeviceIdentityCache createRemoteDeviceIdentityCache() {
+        return new RemoteDeviceIdentityCache();
+    }
+
     public ReceivingAsync createReceivingAsync(IncomingDatagramMessage message) throws ProtocolCreationException {
         log.trace("Creating protocol for incoming asynchronous: " + message);
 
@@ -104,15 +175,28 @@ public class ProtocolFactoryImpl implements ProtocolFactory {
     }
 
     protected ReceivingAsync createReceivingNotification(IncomingDatagramMessage<UpnpRequest> incomingRequest) {
-        return new ReceivingNotification(getUpnpService(), incomingRequest);
+        return new ReceivingNotification(getUpnpService(), incomingRequest, remoteDeviceIdentityCache);
     }
 
     protected ReceivingAsync createReceivingSearch(IncomingDatagramMessage<UpnpRequest> incomingRequest) {
-        return new ReceivingSearch(getUpnpService(), incomingRequest);
+        String searchTarget = incomingRequest.getHeaders().getFirstHeader(UpnpHeader.Type.ST.getHttpName());
+        MXHeader mx = incomingRequest.getHeaders().getFirstHeader(UpnpHeader.Type.MX, MXHeader.class);
+        if (!searchAdmissionControl.admit(
+                incomingRequest.getSourceAddress(), incomingRequest.getSourcePort(), searchTarget,
+                mx != null ? mx.getValue() : 0)) {
+            log.trace("Search request not admitted, dropping it: {}", incomingRequest);
+            return null;
+        }
+        return new ReceivingSearch(getUpnpService(), incomingRequest, searchAdmissionControl);
     }
 
     protected ReceivingAsync createReceivingSearchResponse(IncomingDatagramMessage<UpnpResponse> incomingResponse) {
-        return new ReceivingSearchResponse(getUpnpService(), incomingResponse);
+        if (!searchResponseAggregator.admit(incomingResponse)) {
+            log.trace("Device already processed in this search window, dropping response: {}", incomingResponse);
+            return null;
+        }
+        return new ReceivingSearchResponse(getUpnpService(), incomingResponse, remoteDeviceIdentityCache,
+                searchResponseAggregator);
     }
 
     // DO NOT USE THE PARSED/TYPED MSG HEADERS! THIS WOULD DEFEAT THE PURPOSE OF THIS OPTIMIZATION!
@@ -153,59 +237,101 @@ public class ProtocolFactoryImpl implements ProtocolFactory {
     public ReceivingSync createReceivingSync(StreamRequestMessage message) throws ProtocolCreationException {
         log.trace("Creating protocol for incoming synchronous: {}", message);
 
-        if (message.getOperation().getMethod().equals(UpnpRequest.Method.GET)) {
-
+        UpnpRequest.Method method = message.getOperation().getMethod();
+        if (method == UpnpRequest.Method.GET) {
+            // Retrieval can serve content which isn't a registered resource, see ReceivingRetrieval#onResourceNotFound
             return createReceivingRetrieval(message);
+        }
+
+        Resource resource = findResource(message);
+        if (resource == null) {
+            throw new UnroutableRequestException(
+                    "No resource found for: " + message, UpnpResponse.Status.NOT_FOUND
+            );
+        }
 
-        } else if (getUpnpService().getConfiguration().getNamespace().isControlPath(message.getUri())) {
+        if (resource instanceof ServiceControlResource) {
 
-            if (message.getOperation().getMethod().equals(UpnpRequest.Method.POST))
-                return createReceivingAction(message);
+            if (method == UpnpRequest.Method.POST)
+                return createReceivingAction(message, (ServiceControlResource) resource);
 
-        } else if (getUpnpService().getConfiguration().getNamespace().isEventSubscriptionPath(message.getUri())) {
+        } else if (resource instanceof ServiceEventSubscriptionResource) {
 
-            if (message.getOperation().getMethod().equals(UpnpRequest.Method.SUBSCRIBE)) {
-                return createReceivingSubscribe(message);
-            } else if (message.getOperation().getMethod().equals(UpnpRequest.Method.UNSUBSCRIBE)) {
-                return createReceivingUnsubscribe(message);
+            if (method == UpnpRequest.Method.SUBSCRIBE) {
+                return createReceivingSubscribe(message, (ServiceEventSubscriptionResource) resource);
+            } else if (method == UpnpRequest.Method.UNSUBSCRIBE) {
+                return createReceivingUnsubscribe(message, (ServiceEventSubscriptionResource) resource);
             }
 
-        } else if (getUpnpService().getConfiguration().getNamespace().isEventCallbackPath(message.getUri())) {
-
-            if (message.getOperation().getMethod().equals(UpnpRequest.Method.NOTIFY))
-                return createReceivingEvent(message);
-
-        } else {
-
-            // TODO: UPNP VIOLATION: Onkyo devices send event messages with trailing garbage characters
-            // /dev/9bb022aa-e922-aab9-682b-aa09e9b9e059/svc/upnp-org/RenderingControl/event/cb192%2e168%2e10%2e38
-            // TODO: UPNP VIOLATION: Yamaha does the same
-            // /dev/9ab0c000-f668-11de-9976-00a0de870fd4/svc/upnp-org/RenderingControl/event/cb><http://10.189.150.197:42082/dev/9ab0c000-f668-11de-9976-00a0de870fd4/svc/upnp-org/RenderingControl/event/cb
-            if (message.getUri().getPath().contains(Namespace.EVENTS + Namespace.CALLBACK_FILE)) {
-                log.warn("Fixing trailing garbage in event message path: " + message.getUri().getPath());
-                String invalid = message.getUri().toString();
-                message.setUri(URI.create(invalid.substring(0, invalid.indexOf(Namespace.CALLBACK_FILE)
-                        + Namespace.CALLBACK_FILE.length())));
-                if (getUpnpService().getConfiguration().getNamespace().isEventCallbackPath(message.getUri())
-                        && message.getOperation().getMethod().equals(UpnpRequest.Method.NOTIFY))
-                    return createReceivingEvent(message);
-            }
+        } else if (resource instanceof ServiceEventCallbackResource) {
+
+            if (method == UpnpRequest.Method.NOTIFY)
+                return createReceivingEvent(message, (ServiceEventCallbackResource) resource);
+
+        }
+
+        throw new UnroutableRequestException(
+                "Method not supported by resource " + resource + ": " + message, UpnpResponse.Status.METHOD_NOT_SUPPORTED
+        );
+    }
+
+    /**
+     * Looks up the registered resource addressed by a stream request, a single lookup in the
+     * registry's index of resource paths.
+     *
+     * @return The resource or <code>null</code> if the request doesn't address a resource.
+     * @throws ProtocolCreationException If the request URI is not a relative path and query.
+     */
+    protected Resource findResource(StreamRequestMessage message) throws ProtocolCreationException {
+        Resource resource;
+        try {
+            resource = getUpnpService().getRegistry().getResource(message.getUri());
+        } catch (IllegalArgumentException ex) {
+            throw new ProtocolCreationException("Invalid request URI: " + message, ex);
+        }
 
+        // TODO: UPNP VIOLATION: Onkyo devices send event messages with trailing garbage characters
+        // /dev/9bb022aa-e922-aab9-682b-aa09e9b9e059/svc/upnp-org/RenderingControl/event/cb192%2e168%2e10%2e38
+        // TODO: UPNP VIOLATION: Yamaha does the same
+        // /dev/9ab0c000-f668-11de-9976-00a0de870fd4/svc/upnp-org/RenderingControl/event/cb><http://10.189.150.197:42082/dev/9ab0c000-f668-11de-9976-00a0de870fd4/svc/upnp-org/RenderingControl/event/cb
+        if (resource == null
+                && message.getOperation().getMethod() == UpnpRequest.Method.NOTIFY
+                && message.getUri().getPath() != null
+                && message.getUri().getPath().contains(Namespace.EVENTS + Namespace.CALLBACK_FILE)
+                && !getUpnpService().getConfiguration().getNamespace().isEventCallbackPath(message.getUri())) {
+            log.warn("Fixing trailing garbage in event message path: " + message.getUri().getPath());
+            String invalid = message.getUri().toString();
+            message.setUri(URI.create(invalid.substring(0, invalid.indexOf(Namespace.CALLBACK_FILE)
+                    + Namespace.CALLBACK_FILE.length())));
+            resource = getUpnpService().getRegistry().getResource(message.getUri());
         }
+        return resource;
+    }
 
-        throw new ProtocolCreationException("Protocol for message type not found: " + message);
+    public RetrieveRemoteDescriptors createRetrieveRemoteDescriptors(RemoteDevice remoteDevice) {
+        return new RetrieveRemoteDescriptors(getUpnpService(), remoteDevice, getDescriptorRetrievalCoordinator());
     }
 
     public SendingNotificationAlive createSendingNotificationAlive(LocalDevice localDevice) {
         return new SendingNotificationAlive(getUpnpService(), localDevice);
     }
 
+    public SendingNotificationAlive createSendingNotificationAlive(LocalDevice localDevice,
+                                                                   Collection<InetAddress> addresses) {
+        return new SendingNotificationAlive(getUpnpService(), localDevice, addresses);
+    }
+
     public SendingNotificationByebye createSendingNotificationByebye(LocalDevice localDevice) {
         return new SendingNotificationByebye(getUpnpService(), localDevice);
     }
 
     public SendingSearch createSendingSearch(UpnpHeader searchTarget, int mxSeconds) {
-        return new SendingSearch(getUpnpService(), searchTarget, mxSeconds);
+        return createSendingSearch(searchTarget, mxSeconds, null);
+    }
+
+    public SendingSearch createSendingSearch(UpnpHeader searchTarget, int mxSeconds,
+                                             SearchResponseAggregator.Callback callback) {
+        return new SendingSearch(getUpnpService(), searchTarget, mxSeconds, searchResponseAggregator, callback);
     }
 
     public SendingAction createSendingAction(ActionInvocation actionInvocation, URL controlURL) {
@@ -240,19 +366,71 @@ public class ProtocolFactoryImpl implements ProtocolFactory {
         return new ReceivingRetrieval(getUpnpService(), message);
     }
 
+    /**
+     * @deprecated Not called by {@link #createReceivingSync(StreamRequestMessage)}, override
+     *             {@link #createReceivingAction(StreamRequestMessage, ServiceControlResource)}.
+     */
+    @Deprecated
     protected ReceivingAction createReceivingAction(StreamRequestMessage message) {
-        return new ReceivingAction(getUpnpService(), message);
+        return createReceivingAction(message, null);
     }
 
+    /**
+     * @param resource The resource found by {@link #findResource(StreamRequestMessage)}, passed
+     *                 to the protocol so it doesn't look it up again.
+     */
+    protected ReceivingAction createReceivingAction(StreamRequestMessage message, ServiceControlResource resource) {
+        return new ReceivingAction(getUpnpService(), message, resource);
+    }
+
+    /**
+     * @deprecated Not called by {@link #createReceivingSync(StreamRequestMessage)}, override
+     *             {@link #createReceivingSubscribe(StreamRequestMessage, ServiceEventSubscriptionResource)}.
+     */
+    @Deprecated
     protected ReceivingSubscribe createReceivingSubscribe(StreamRequestMessage message) {
-        return new ReceivingSubscribe(getUpnpService(), message);
+        return createReceivingSubscribe(message, null);
     }
 
+    /**
+     * @param resource The resource found by {@link #findResource(StreamRequestMessage)}, passed
+     *                 to the protocol so it doesn't look it up again.
+     */
+    protected ReceivingSubscribe createReceivingSubscribe(StreamRequestMessage message, ServiceEventSubscriptionResource resource) {
+        return new ReceivingSubscribe(getUpnpService(), message, resource);
+    }
+
+    /**
+     * @deprecated Not called by {@link #createReceivingSync(StreamRequestMessage)}, override
+     *             {@link #createReceivingUnsubscribe(StreamRequestMessage, ServiceEventSubscriptionResource)}.
+     */
+    @Deprecated
     protected ReceivingUnsubscribe createReceivingUnsubscribe(StreamRequestMessage message) {
-        return new ReceivingUnsubscribe(getUpnpService(), message);
+        return createReceivingUnsubscribe(message, null);
+    }
+
+    /**
+     * @param resource The resource found by {@link #findResource(StreamRequestMessage)}, passed
+     *                 to the protocol so it doesn't look it up again.
+     */
+    protected ReceivingUnsubscribe createReceivingUnsubscribe(StreamRequestMessage message, ServiceEventSubscriptionResource resource) {
+        return new ReceivingUnsubscribe(getUpnpService(), message, resource);
     }
 
+    /**
+     * @deprecated Not called by {@link #createReceivingSync(StreamRequestMessage)}, override
+     *             {@link #createReceivingEvent(StreamRequestMessage, ServiceEventCallbackResource)}.
+     */
+    @Deprecated
     protected ReceivingEvent createReceivingEvent(StreamRequestMessage message) {
-        return new ReceivingEvent(getUpnpService(), message);
+        return createReceivingEvent(message, null);
+    }
+
+    /**
+     * @param resource The resource found by {@link #findResource(StreamRequestMessage)}, passed
+     *                 to the protocol so it doesn't look it up again.
+     */
+    protected ReceivingEvent createReceivingEvent(StreamRequestMessage message, ServiceEventCallbackResource resource) {
+        return new ReceivingEvent(getUpnpService(), message, resource);
     }
 }
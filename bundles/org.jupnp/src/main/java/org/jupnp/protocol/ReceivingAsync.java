@@ -80,6 +80,13 @@ public abstract class ReceivingAsync<M extends UpnpMessage> implements Runnable
         }
     }
 
+    /**
+     * Called instead of <code>run()</code> if the executor rejected this protocol, releases what was
+     * claimed for it when it was created. By default does nothing.
+     */
+    public void rejected() {
+    }
+
     /**
      * Provides an opportunity to pause before executing the protocol.
      *
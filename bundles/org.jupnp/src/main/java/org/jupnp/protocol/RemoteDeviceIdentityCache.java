@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.protocol;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jupnp.model.message.IncomingDatagramMessage;
+import org.jupnp.model.message.discovery.IncomingNotificationRequest;
+import org.jupnp.model.message.discovery.IncomingSearchResponse;
+import org.jupnp.model.message.header.UpnpHeader;
+import org.jupnp.model.meta.RemoteDeviceIdentity;
+import org.jupnp.model.types.UDN;
+
+/**
+ * Returns the same {@link RemoteDeviceIdentity} for repeated announcements of a remote device.
+ * <p>
+ * A device repeats its <em>ALIVE</em> notifications and search responses with the same headers
+ * for every embedded device and service, and again every few minutes. Identities are cached by
+ * the raw <code>USN</code>, <code>LOCATION</code>, <code>CACHE-CONTROL</code> and interface MAC
+ * header strings and the local address, so a known announcement is not parsed and validated
+ * again; only the <code>USN</code> header is examined. Descriptor URLs are parsed once per
+ * <code>LOCATION</code> string, and all identities with the same location share the URL instance.
+ * </p>
+ * <p>
+ * Identities and URLs are only compared by their strings, host names are never resolved (as
+ * <code>URL#equals()</code> would). When the cache is full, it is cleared.
+ * </p>
+ */
+public class RemoteDeviceIdentityCache {
+
+    // Every device sends a few USNs (root, embedded devices, services) from a few addresses
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    final private int maxEntries;
+
+    final private ConcurrentMap<String, RemoteDeviceIdentity> identities = new ConcurrentHashMap<>();
+    final private ConcurrentMap<String, URL> descriptorURLs = new ConcurrentHashMap<>();
+
+    final private AtomicLong hitCount = new AtomicLong();
+    final private AtomicLong missCount = new AtomicLong();
+
+    public RemoteDeviceIdentityCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public RemoteDeviceIdentityCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return The identity of the announced device, or <code>null</code> if the notification has no UDN.
+     */
+    public RemoteDeviceIdentity get(IncomingNotificationRequest notificationRequest) {
+        String key = getKey("NOTIFY", notificationRequest);
+        RemoteDeviceIdentity identity = identities.get(key);
+        if (identity != null) {
+            hitCount.incrementAndGet();
+            return identity;
+        }
+        return put(
+            key,
+            notificationRequest,
+            notificationRequest.getUDN(),
+            notificationRequest.getMaxAge(),
+            notificationRequest.getInterfaceMacHeader()
+        );
+    }
+
+    /**
+     * @return The identity of the responding root device, or <code>null</code> if the response has no UDN.
+     */
+    public RemoteDeviceIdentity get(IncomingSearchResponse searchResponse) {
+        String key = getKey("RESPONSE", searchResponse);
+        RemoteDeviceIdentity identity = identities.get(key);
+        if (identity != null) {
+            hitCount.incrementAndGet();
+            return identity;
+        }
+        return put(
+            key,
+            searchResponse,
+            searchResponse.getRootDeviceUDN(),
+            searchResponse.getMaxAge(),
+            searchResponse.getInterfaceMacHeader()
+        );
+    }
+
+    /**
+     * @return The number of announcements which were answered from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of announcements which had to be parsed.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int getSize() {
+        return identities.size();
+    }
+
+    public void clear() {
+        identities.clear();
+        descriptorURLs.clear();
+    }
+
+    protected RemoteDeviceIdentity put(String key, IncomingDatagramMessage message,
+                                       UDN udn, Integer maxAgeSeconds, byte[] interfaceMacAddress) {
+        missCount.incrementAndGet();
+        if (udn == null) {
+            return null;
+        }
+        RemoteDeviceIdentity identity = new RemoteDeviceIdentity(
+            udn,
+            maxAgeSeconds,
+            getDescriptorURL(message.getHeaders().getFirstHeader(UpnpHeader.Type.LOCATION.getHttpName())),
+            interfaceMacAddress,
+            message.getLocalAddress()
+        );
+        if (identities.size() >= maxEntries) {
+            clear();
+        }
+        RemoteDeviceIdentity existing = identities.putIfAbsent(key, identity);
+        return existing != null ? existing : identity;
+    }
+
+    protected URL getDescriptorURL(String location) {
+        if (location == null) {
+            return null;
+        }
+        location = location.trim();
+        URL url = descriptorURLs.get(location);
+        if (url == null) {
+            try {
+                url = new URL(location);
+            } catch (MalformedURLException ex) {
+                // Like an invalid LOCATION header, which is ignored
+                return null;
+            }
+            URL existing = descriptorURLs.putIfAbsent(location, url);
+            if (existing != null) {
+                url = existing;
+            }
+        }
+        return url;
+    }
+
+    protected String getKey(String type, IncomingDatagramMessage message) {
+        InetAddress localAddress = message.getLocalAddress();
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(type)
+            .append('\n').append(message.getHeaders().getFirstHeader(UpnpHeader.Type.USN.getHttpName()))
+            .append('\n').append(message.getHeaders().getFirstHeader(UpnpHeader.Type.LOCATION.getHttpName()))
+            .append('\n').append(message.getHeaders().getFirstHeader(UpnpHeader.Type.MAX_AGE.getHttpName()))
+            .append('\n').append(message.getHeaders().getFirstHeader(UpnpHeader.Type.EXT_IFACE_MAC.getHttpName()))
+            .append('\n').append(localAddress != null ? localAddress.getHostAddress() : null);
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") size: " + getSize()
+                + ", hits: " + getHitCount()
+                + ", misses: " + getMissCount();
+    }
+}
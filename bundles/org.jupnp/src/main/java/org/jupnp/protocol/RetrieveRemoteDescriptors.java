@@ -35,7 +35,6 @@ import org.jupnp.model.meta.Icon;
 import org.jupnp.model.meta.RemoteDevice;
 import org.jupnp.model.meta.RemoteService;
 import org.jupnp.model.types.ServiceType;
-import org.jupnp.model.types.UDN;
 import org.jupnp.registry.RegistrationException;
 import org.jupnp.transport.RouterException;
 import org.jupnp.util.Exceptions;
@@ -59,6 +58,12 @@ import org.slf4j.LoggerFactory;
  * Any descriptor retrieval, parsing, or validation error of the metadata will abort this protocol
  * with a warning message in the log.
  * </p>
+ * <p>
+ * Retrievals created by the {@link ProtocolFactory} are coordinated by its
+ * {@link DescriptorRetrievalCoordinator}: a descriptor URL is only retrieved once at a time,
+ * retrievals of failing devices back off, and the number of concurrent retrievals is limited.
+ * Validation errors are only logged for the first failed retrieval of a device.
+ * </p>
  *
  * @author Christian Bauer
  * @author Kai Kreuzer - fixed service and embedded device processing
@@ -69,13 +74,23 @@ public class RetrieveRemoteDescriptors implements Runnable {
 
     private final UpnpService upnpService;
     private RemoteDevice rd;
+    private final DescriptorRetrievalCoordinator coordinator;
 
+    // Uncoordinated retrievals only skip a descriptor URL which is already being retrieved
     private static final Set<URL> activeRetrievals = new CopyOnWriteArraySet();
-    protected List<UDN> errorsAlreadyLogged = new ArrayList<UDN>();
 
+    /**
+     * Creates an uncoordinated retrieval, use {@link ProtocolFactory#createRetrieveRemoteDescriptors(RemoteDevice)}.
+     */
     public RetrieveRemoteDescriptors(UpnpService upnpService, RemoteDevice rd) {
+        this(upnpService, rd, null);
+    }
+
+    public RetrieveRemoteDescriptors(UpnpService upnpService, RemoteDevice rd,
+                                     DescriptorRetrievalCoordinator coordinator) {
         this.upnpService = upnpService;
         this.rd = rd;
+        this.coordinator = coordinator;
     }
 
     public UpnpService getUpnpService() {
@@ -88,31 +103,62 @@ public class RetrieveRemoteDescriptors implements Runnable {
 
         // Performance optimization, try to avoid concurrent GET requests for device descriptor,
         // if we retrieve it once, we have the hydrated device. There is no different outcome
-        // processing this several times concurrently.
+        // processing this several times concurrently. Also don't hammer broken devices.
 
-        if (activeRetrievals.contains(deviceURL)) {
+        if (coordinator != null) {
+            if (!coordinator.start(deviceURL)) {
+                log.trace("Exiting early, retrieval for URL in progress or backing off: " + deviceURL);
+                return;
+            }
+        } else if (!activeRetrievals.add(deviceURL)) {
             log.trace("Exiting early, active retrieval for URL already in progress: " + deviceURL);
             return;
         }
 
-        // Exit if it has been discovered already, could be we have been waiting in the executor queue too long
-        if (getUpnpService().getRegistry().getRemoteDevice(rd.getIdentity().getUdn(), true) != null) {
-            log.trace("Exiting early, already discovered: " + deviceURL);
-            return;
-        }
-
+        boolean success = false;
         try {
-            activeRetrievals.add(deviceURL);
+            // Exit if it has been discovered already, could be we have been waiting in the executor queue too long
+            if (isDiscovered()) {
+                log.trace("Exiting early, already discovered: " + deviceURL);
+                success = true;
+                return;
+            }
+
             describe();
+            success = isDescribed();
         } catch (RouterException ex) {
             log.warn("Descriptor retrieval failed: " + deviceURL,
                 ex
             );
         } finally {
-            activeRetrievals.remove(deviceURL);
+            if (coordinator != null) {
+                coordinator.finish(deviceURL, success);
+            } else {
+                activeRetrievals.remove(deviceURL);
+            }
         }
     }
 
+    protected boolean isDiscovered() {
+        return getUpnpService().getRegistry().getRemoteDevice(rd.getIdentity().getUdn(), true) != null;
+    }
+
+    /**
+     * @return <code>true</code> if the device is in the registry, it might have been announced as an
+     *         embedded device of the described root device.
+     */
+    protected boolean isDescribed() {
+        return getUpnpService().getRegistry().getRemoteDevice(rd.getIdentity().getUdn(), false) != null;
+    }
+
+    /**
+     * @return <code>true</code> if no retrieval of this device's descriptor failed before,
+     *         errors should be logged.
+     */
+    protected boolean isFirstFailure() {
+        return coordinator == null || coordinator.getFailures(rd.getIdentity().getDescriptorURL()) == 0;
+    }
+
     protected void describe() throws RouterException {
 
         // All of the following is a very expensive and time consuming procedure, thanks to the
@@ -206,8 +252,7 @@ public class RetrieveRemoteDescriptors implements Runnable {
             log.debug("Hydrating described device's services: " + describedDevice);
             RemoteDevice hydratedDevice = describeServices(describedDevice);
             if (hydratedDevice == null) {
-            	if(!errorsAlreadyLogged.contains(rd.getIdentity().getUdn())) {
-            		errorsAlreadyLogged.add(rd.getIdentity().getUdn());
+            	if(isFirstFailure()) {
             		log.warn("Device service description failed: " + rd);
             	}
                 if (notifiedStart) {
@@ -231,8 +276,7 @@ public class RetrieveRemoteDescriptors implements Runnable {
             }
         } catch (ValidationException ex) {
     		// Avoid error log spam each time device is discovered, errors are logged once per device.
-        	if(!errorsAlreadyLogged.contains(rd.getIdentity().getUdn())) {
-        		errorsAlreadyLogged.add(rd.getIdentity().getUdn());
+        	if(isFirstFailure()) {
         		log.warn("Could not validate device model: " + rd);
         		for (ValidationError validationError : ex.getErrors()) {
         			log.warn(validationError.toString());
@@ -0,0 +1,278 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.protocol;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jupnp.model.message.header.MXHeader;
+
+/**
+ * Decides which received M-SEARCH requests are answered, before a {@link org.jupnp.protocol.async.ReceivingSearch}
+ * protocol is created.
+ * <p>
+ * A search for <code>ssdp:all</code> is answered with a message for every local device, embedded device and
+ * service type, a control point sending searches in a loop can keep the executor and the uplink busy. Every
+ * combination of source address and search target gets a token bucket holding up to <code>burstSize</code>
+ * tokens, which is refilled with <code>requestsPerMinute</code> tokens per minute. A search without a token is
+ * dropped. A search identical to one of the same source address and port which is still waiting for its
+ * random <em>MX</em> delay is dropped as well, the pending search will send the same responses to the same
+ * socket. A search is no longer pending once its protocol finished, or after its <em>MX</em> delay plus
+ * {@link #RESPONSE_TIME_MILLIS} if it never finishes. Several control points on the same host search from different ports, their searches are all
+ * answered (but share the rate limit of their host).
+ * </p>
+ * <p>
+ * Only the raw source address, port and <code>ST</code> header string are examined, host names are never
+ * resolved.
+ * </p>
+ */
+public class SearchAdmissionControl {
+
+    public static final int DEFAULT_BURST_SIZE = 5;
+    public static final int DEFAULT_REQUESTS_PER_MINUTE = 60;
+
+    // The MX delay of a search is at most 120 seconds, see ReceivingSearch
+    public static final int MAX_MX_SECONDS = 120;
+
+    // A search is no longer considered pending after its MX delay plus this time to send its responses
+    public static final int RESPONSE_TIME_MILLIS = 10000;
+
+    // Full buckets and timed out pending searches are purged when there are more than this many
+    public static final int PURGE_THRESHOLD = 1000;
+
+    final private int burstSize;
+    final private long nanosPerToken;
+
+    final private ReentrantLock lock = new ReentrantLock();
+    final private Map<String, Bucket> buckets = new HashMap<String, Bucket>();
+    final private Map<String, Long> pendingSearches = new HashMap<String, Long>();
+
+    final private AtomicLong admittedCount = new AtomicLong();
+    final private AtomicLong coalescedCount = new AtomicLong();
+    final private AtomicLong rateLimitedCount = new AtomicLong();
+
+    public SearchAdmissionControl() {
+        this(DEFAULT_BURST_SIZE, DEFAULT_REQUESTS_PER_MINUTE);
+    }
+
+    /**
+     * @param burstSize         The number of searches a source can send at once, <code>0</code> disables
+     *                          rate limiting (identical pending searches are still coalesced).
+     * @param requestsPerMinute The number of searches per minute a source can send after a burst,
+     *                          <code>0</code> disables rate limiting.
+     */
+    public SearchAdmissionControl(int burstSize, int requestsPerMinute) {
+        boolean rateLimited = burstSize > 0 && requestsPerMinute > 0;
+        this.burstSize = rateLimited ? burstSize : 0;
+        this.nanosPerToken = rateLimited ? TimeUnit.MINUTES.toNanos(1) / requestsPerMinute : 0;
+    }
+
+    public boolean isRateLimited() {
+        return nanosPerToken > 0;
+    }
+
+    /**
+     * Claims a response to a search of the given source.
+     * <p>
+     * Every admitted search must be followed by a call of {@link #finish(InetAddress, int, String)}.
+     * </p>
+     *
+     * @param sourceAddress The sender of the search request.
+     * @param sourcePort    The port the search request has been sent from.
+     * @param searchTarget  The raw <code>ST</code> header string, searches without are always admitted.
+     * @return <code>false</code> if the search should be dropped.
+     */
+    public boolean admit(InetAddress sourceAddress, int sourcePort, String searchTarget) {
+        return admit(sourceAddress, sourcePort, searchTarget, MAX_MX_SECONDS);
+    }
+
+    /**
+     * Claims a response to a search of the given source.
+     * <p>
+     * Every admitted search must be followed by a call of {@link #finish(InetAddress, int, String)}.
+     * </p>
+     *
+     * @param sourceAddress The sender of the search request.
+     * @param sourcePort    The port the search request has been sent from.
+     * @param searchTarget  The raw <code>ST</code> header string, searches without are always admitted.
+     * @param mxSeconds     The <code>MX</code> header value of the search request, invalid values are
+     *                      replaced with the default as the {@link org.jupnp.protocol.async.ReceivingSearch} does.
+     * @return <code>false</code> if the search should be dropped.
+     */
+    public boolean admit(InetAddress sourceAddress, int sourcePort, String searchTarget, int mxSeconds) {
+        if (sourceAddress == null || searchTarget == null) {
+            admittedCount.incrementAndGet();
+            return true;
+        }
+        String pendingKey = getPendingKey(sourceAddress, sourcePort, searchTarget);
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Long pendingUntil = pendingSearches.get(pendingKey);
+            if (pendingUntil != null && pendingUntil - now > 0) {
+                coalescedCount.incrementAndGet();
+                return false;
+            }
+
+            if (isRateLimited()) {
+                String key = getKey(sourceAddress, searchTarget);
+                Bucket bucket = buckets.get(key);
+                if (bucket == null) {
+                    if (buckets.size() >= PURGE_THRESHOLD) {
+                        purge(now);
+                    }
+                    bucket = new Bucket(burstSize, now);
+                    buckets.put(key, bucket);
+                }
+                refill(bucket, now);
+                if (bucket.tokens < 1) {
+                    rateLimitedCount.incrementAndGet();
+                    return false;
+                }
+                bucket.tokens--;
+            }
+
+            if (pendingSearches.size() >= PURGE_THRESHOLD) {
+                purgePendingSearches(now);
+            }
+            pendingSearches.put(pendingKey, now + TimeUnit.MILLISECONDS.toNanos(getPendingTimeoutMillis(mxSeconds)));
+            admittedCount.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a search claimed with {@link #admit(InetAddress, int, String, int)}, after all responses have been
+     * sent or when its protocol was rejected.
+     */
+    public void finish(InetAddress sourceAddress, int sourcePort, String searchTarget) {
+        if (sourceAddress == null || searchTarget == null) {
+            return;
+        }
+        String pendingKey = getPendingKey(sourceAddress, sourcePort, searchTarget);
+        lock.lock();
+        try {
+            pendingSearches.remove(pendingKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The total number of admitted searches.
+     */
+    public long getAdmittedCount() {
+        return admittedCount.get();
+    }
+
+    /**
+     * @return The total number of searches dropped because an identical search was pending.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return The total number of searches dropped because their source exceeded the rate limit.
+     */
+    public long getRateLimitedCount() {
+        return rateLimitedCount.get();
+    }
+
+    /**
+     * @return The key of the rate limit bucket, shared by all ports of a host.
+     */
+    protected String getKey(InetAddress sourceAddress, String searchTarget) {
+        return sourceAddress.getHostAddress() + " " + searchTarget.trim();
+    }
+
+    /**
+     * @return The key of a pending search, identical searches from the same socket are coalesced.
+     */
+    protected String getPendingKey(InetAddress sourceAddress, int sourcePort, String searchTarget) {
+        return sourceAddress.getHostAddress() + ":" + sourcePort + " " + searchTarget.trim();
+    }
+
+    /**
+     * @return The time after which an admitted search is no longer pending, even if it did not finish.
+     */
+    protected long getPendingTimeoutMillis(int mxSeconds) {
+        if (mxSeconds > MAX_MX_SECONDS || mxSeconds <= 0) {
+            mxSeconds = MXHeader.DEFAULT_VALUE;
+        }
+        return TimeUnit.SECONDS.toMillis(mxSeconds) + RESPONSE_TIME_MILLIS;
+    }
+
+    protected void refill(Bucket bucket, long now) {
+        long elapsed = now - bucket.lastRefill;
+        if (elapsed < nanosPerToken) {
+            return;
+        }
+        long tokens = elapsed / nanosPerToken;
+        if (bucket.tokens + tokens >= burstSize) {
+            bucket.tokens = burstSize;
+            bucket.lastRefill = now;
+        } else {
+            bucket.tokens += tokens;
+            bucket.lastRefill += tokens * nanosPerToken;
+        }
+    }
+
+    // Must be called while holding the lock
+    protected void purge(long now) {
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket bucket = it.next();
+            refill(bucket, now);
+            if (bucket.tokens >= burstSize) {
+                it.remove();
+            }
+        }
+    }
+
+    // Must be called while holding the lock
+    protected void purgePendingSearches(long now) {
+        Iterator<Long> it = pendingSearches.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() - now <= 0) {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") admitted: " + getAdmittedCount()
+                + ", coalesced: " + getCoalescedCount()
+                + ", rate limited: " + getRateLimitedCount();
+    }
+
+    static class Bucket {
+        long tokens;
+        long lastRefill;
+
+        Bucket(long tokens, long lastRefill) {
+            this.tokens = tokens;
+            this.lastRefill = lastRefill;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.protocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jupnp.model.message.IncomingDatagramMessage;
+import org.jupnp.model.message.UpnpResponse;
+import org.jupnp.model.message.header.STAllHeader;
+import org.jupnp.model.message.header.UpnpHeader;
+import org.jupnp.model.types.UDN;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collapses the responses to the searches of a control point, before a
+ * {@link org.jupnp.protocol.async.ReceivingSearchResponse} protocol is created.
+ * <p>
+ * A device answers a search for <code>ssdp:all</code> with a message for its root device, every
+ * embedded device and every service type, and the search request is sent several times. The responses
+ * are grouped by the UDN in their <code>USN</code> header, which is the UDN of the root device or of an
+ * embedded device. A response belongs to every open search window with a matching search target, see
+ * {@link #matches(Window, String)}. Only the first valid response of every UDN in a window is processed:
+ * it updates the registry once and, for a new device, starts one retrieval of its descriptor. A response
+ * whose UDN has already been processed in all of its windows is dropped without creating a protocol, a
+ * task or a remote device; overlapping searches don't hide the devices answering each other. Responses
+ * received while no matching search window is open are not examined.
+ * </p>
+ * <p>
+ * An admitted response claims its UDN until its protocol {@link #confirm(IncomingDatagramMessage) confirms}
+ * that it is valid, responses with the same UDN are dropped for the rest of the window then. If the
+ * response is {@link #release(IncomingDatagramMessage) released} as invalid, or its protocol did not run
+ * within {@link #CLAIM_TIMEOUT_MILLIS}, the next response with the same UDN is admitted again.
+ * </p>
+ * <p>
+ * A window is opened by {@link org.jupnp.protocol.async.SendingSearch} and is open for the time it
+ * takes to send the search requests plus their <em>MX</em> delay. A window with a {@link Callback} is
+ * closed by a timer thread of this aggregator, no thread waits for the responses. When it is closed,
+ * the window knows the devices which responded to the search.
+ * </p>
+ * <p>
+ * Only the raw <code>USN</code> and <code>ST</code> header strings are examined, the headers of the
+ * message are not parsed.
+ * </p>
+ */
+public class SearchResponseAggregator {
+
+    private final Logger log = LoggerFactory.getLogger(SearchResponseAggregator.class);
+
+    /**
+     * Notified when a search window has been closed.
+     */
+    public interface Callback {
+
+        /**
+         * Called by the timer thread of the aggregator, or by the thread which executed the search
+         * if it failed; must not block.
+         */
+        void searchCompleted(Window window);
+    }
+
+    // Responses may arrive a little after the MX delay of the last search request
+    public static final int DEFAULT_GRACE_MILLIS = 1000;
+
+    // An admitted response which was neither confirmed nor released no longer blocks its UDN after this time
+    public static final int CLAIM_TIMEOUT_MILLIS = 1000;
+
+    // The timer thread ends when no window has been closed for this time
+    public static final int TIMER_KEEP_ALIVE_SECONDS = 10;
+
+    final private ReentrantLock lock = new ReentrantLock();
+    final private List<Window> windows = new ArrayList<Window>();
+    final private long claimTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(CLAIM_TIMEOUT_MILLIS);
+    final private ScheduledThreadPoolExecutor timer;
+
+    final private AtomicLong collapsedCount = new AtomicLong();
+
+    public SearchResponseAggregator() {
+        this.timer = createTimer();
+    }
+
+    /**
+     * Opens a search window, which is closed when the given time has passed or when
+     * {@link #close(Window)} is called.
+     *
+     * @param windowMillis The time responses to this search are expected.
+     */
+    public Window open(UpnpHeader searchTarget, long windowMillis) {
+        return open(searchTarget, windowMillis, null);
+    }
+
+    /**
+     * Opens a search window, which is closed by the timer when the given time has passed, or
+     * when {@link #close(Window)} is called.
+     *
+     * @param windowMillis The time responses to this search are expected.
+     * @param callback     Notified once when the window has been closed, can be <code>null</code>.
+     */
+    public Window open(UpnpHeader searchTarget, long windowMillis, Callback callback) {
+        final Window window = new Window(
+                searchTarget, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis), callback
+        );
+        lock.lock();
+        try {
+            removeExpired(System.nanoTime());
+            windows.add(window);
+        } finally {
+            lock.unlock();
+        }
+        if (callback != null) {
+            timer.schedule(new Runnable() {
+                public void run() {
+                    close(window);
+                }
+            }, windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return window;
+    }
+
+    /**
+     * Closes the given search window and notifies its callback; its responses are complete after this call.
+     */
+    public void close(Window window) {
+        lock.lock();
+        try {
+            windows.remove(window);
+            if (window.closed) {
+                return;
+            }
+            window.closed = true;
+        } finally {
+            lock.unlock();
+        }
+        if (window.callback != null) {
+            log.trace("Search completed: " + window);
+            try {
+                window.callback.searchCompleted(window);
+            } catch (RuntimeException ex) {
+                log.warn("Search completion callback failed: " + window, ex);
+            }
+        }
+    }
+
+    /**
+     * Claims the UDN of the given response, every admitted response must be followed by a call of
+     * {@link #confirm(IncomingDatagramMessage)} or {@link #release(IncomingDatagramMessage)}.
+     *
+     * @return <code>false</code> if a response with the same UDN has already been processed (or is being
+     *         processed) in all open search windows of the response, and this response should be dropped.
+     */
+    public boolean admit(IncomingDatagramMessage<UpnpResponse> response) {
+        String udn = getUDN(response);
+        if (udn == null) {
+            // Let the protocol deal with (and log) broken messages
+            return true;
+        }
+        String searchTarget = getSearchTarget(response);
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (windows.isEmpty() || removeExpired(now)) {
+                return true;
+            }
+            boolean matched = false;
+            boolean first = false;
+            for (Window window : windows) {
+                if (!matches(window, searchTarget)) {
+                    continue;
+                }
+                matched = true;
+                window.responseCount++;
+                if (window.isProcessed(udn, now)) {
+                    window.collapsedCount++;
+                } else {
+                    window.claims.put(udn, now + claimTimeoutNanos);
+                    first = true;
+                }
+            }
+            if (matched && !first) {
+                collapsedCount.incrementAndGet();
+                return false;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the UDN of a valid admitted response as processed in the open search windows of the response,
+     * until they have been closed.
+     */
+    public void confirm(IncomingDatagramMessage<UpnpResponse> response) {
+        String udn = getUDN(response);
+        if (udn == null) {
+            return;
+        }
+        String searchTarget = getSearchTarget(response);
+        lock.lock();
+        try {
+            if (windows.isEmpty() || removeExpired(System.nanoTime())) {
+                return;
+            }
+            for (Window window : windows) {
+                if (matches(window, searchTarget)) {
+                    window.claims.remove(udn);
+                    window.deviceUDNs.add(udn);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the UDN of an invalid admitted response, the next response with this UDN is admitted.
+     */
+    public void release(IncomingDatagramMessage<UpnpResponse> response) {
+        String udn = getUDN(response);
+        if (udn == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            for (Window window : windows) {
+                window.claims.remove(udn);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of search windows which are currently open.
+     */
+    public int getOpenWindowCount() {
+        lock.lock();
+        try {
+            return windows.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The total number of responses dropped because a response with their UDN was already processed.
+     */
+    public long getCollapsedCount() {
+        return collapsedCount.get();
+    }
+
+    /**
+     * @return <code>true</code> if a response with the given raw <code>ST</code> header string answers the
+     *         search of the window; a search for <code>ssdp:all</code> is answered by all responses.
+     */
+    protected boolean matches(Window window, String searchTarget) {
+        return window.getSearchTarget() instanceof STAllHeader
+                || (searchTarget != null && searchTarget.equals(window.getSearchTarget().getString()));
+    }
+
+    /**
+     * @return The UDN of the root or embedded device in the <code>USN</code> header, or <code>null</code>.
+     */
+    protected String getUDN(IncomingDatagramMessage<UpnpResponse> response) {
+        String usn = response.getHeaders().getFirstHeader(UpnpHeader.Type.USN.getHttpName());
+        if (usn == null) {
+            return null;
+        }
+        // The UDN is the part of the USN before the type, e.g. "uuid:...::upnp:rootdevice"
+        int separator = usn.indexOf("::");
+        return (separator != -1 ? usn.substring(0, separator) : usn).trim();
+    }
+
+    protected String getSearchTarget(IncomingDatagramMessage<UpnpResponse> response) {
+        String searchTarget = response.getHeaders().getFirstHeader(UpnpHeader.Type.ST.getHttpName());
+        return searchTarget != null ? searchTarget.trim() : null;
+    }
+
+    /**
+     * @return The executor closing the windows with a callback, its thread is only running while
+     *         such a window is open.
+     */
+    protected ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "jupnp-search-window-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timer.setKeepAliveTime(TIMER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        return timer;
+    }
+
+    // Must be called while holding the lock, returns true if no window is open anymore
+    protected boolean removeExpired(long now) {
+        Iterator<Window> it = windows.iterator();
+        while (it.hasNext()) {
+            if (now - it.next().deadline >= 0) {
+                it.remove();
+            }
+        }
+        return windows.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") open windows: " + getOpenWindowCount()
+                + ", collapsed: " + getCollapsedCount();
+    }
+
+    /**
+     * The responses received while a search was open.
+     * <p>
+     * The counters and UDNs are complete after the window has been closed.
+     * </p>
+     */
+    public static class Window {
+
+        final private UpnpHeader searchTarget;
+        final private long deadline;
+        final private Callback callback;
+
+        // Guarded by the lock of the aggregator
+        final private Set<String> deviceUDNs = new LinkedHashSet<String>();
+        // Device UDN to the end of the claim of its admitted response
+        final private Map<String, Long> claims = new HashMap<String, Long>();
+        private int responseCount;
+        private int collapsedCount;
+        private boolean closed;
+
+        protected Window(UpnpHeader searchTarget, long deadline, Callback callback) {
+            this.searchTarget = searchTarget;
+            this.deadline = deadline;
+            this.callback = callback;
+        }
+
+        public UpnpHeader getSearchTarget() {
+            return searchTarget;
+        }
+
+        /**
+         * @return The root and embedded devices which sent a valid response, in the order of their first
+         *         valid response.
+         */
+        public Set<UDN> getDeviceUDNs() {
+            Set<UDN> udns = new LinkedHashSet<UDN>();
+            for (String udn : deviceUDNs) {
+                udns.add(UDN.valueOf(udn));
+            }
+            return Collections.unmodifiableSet(udns);
+        }
+
+        public int getResponseCount() {
+            return responseCount;
+        }
+
+        /**
+         * @return The number of responses which were not processed for this window because a response with
+         *         their UDN was already processed.
+         */
+        public int getCollapsedCount() {
+            return collapsedCount;
+        }
+
+        protected boolean isProcessed(String udn, long now) {
+            if (deviceUDNs.contains(udn)) {
+                return true;
+            }
+            Long claimedUntil = claims.get(udn);
+            return claimedUntil != null && claimedUntil - now > 0;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + getClass().getSimpleName() + ") " + searchTarget.getString()
+                    + ", devices: " + deviceUDNs.size()
+                    + ", responses: " + responseCount
+                    + ", collapsed: " + collapsedCount;
+        }
+    }
+}
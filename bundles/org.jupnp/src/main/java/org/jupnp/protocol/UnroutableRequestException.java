@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.protocol;
+
+import org.jupnp.model.message.UpnpResponse;
+
+/**
+ * Thrown when a stream request doesn't address a known resource, or uses a method the resource
+ * doesn't support; the request is answered with the given status without creating a protocol.
+ * <p>
+ * This is an expected condition (e.g. a control point probing paths), the exception doesn't
+ * record a stack trace.
+ * </p>
+ */
+public class UnroutableRequestException extends ProtocolCreationException {
+
+    private static final long serialVersionUID = -2281958201845309741L;
+
+    final private UpnpResponse.Status responseStatus;
+
+    public UnroutableRequestException(String s, UpnpResponse.Status responseStatus) {
+        super(s);
+        this.responseStatus = responseStatus;
+    }
+
+    /**
+     * @return The status of the response, e.g. <em>404 Not Found</em> or <em>405 Method Not Supported</em>.
+     */
+    public UpnpResponse.Status getResponseStatus() {
+        return responseStatus;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
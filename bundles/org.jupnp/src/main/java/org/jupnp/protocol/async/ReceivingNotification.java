@@ -14,6 +14,7 @@
 
 package org.jupnp.protocol.async;
 
+import org.jupnp.MonitoredThreadPoolExecutor;
 import org.jupnp.UpnpService;
 import org.jupnp.model.ValidationError;
 import org.jupnp.model.ValidationException;
@@ -24,6 +25,7 @@ import org.jupnp.model.meta.RemoteDevice;
 import org.jupnp.model.meta.RemoteDeviceIdentity;
 import org.jupnp.model.types.UDN;
 import org.jupnp.protocol.ReceivingAsync;
+import org.jupnp.protocol.RemoteDeviceIdentityCache;
 import org.jupnp.protocol.RetrieveRemoteDescriptors;
 import org.jupnp.transport.RouterException;
 import org.slf4j.Logger;
@@ -68,23 +70,35 @@ import org.slf4j.LoggerFactory;
  *
  * @author Christian Bauer
  */
-public class ReceivingNotification extends ReceivingAsync<IncomingNotificationRequest> {
+public class ReceivingNotification extends ReceivingAsync<IncomingNotificationRequest>
+    implements MonitoredThreadPoolExecutor.AbortWhenRejected {
 
     private final Logger log = LoggerFactory.getLogger(ReceivingNotification.class);
 
+    final protected RemoteDeviceIdentityCache identityCache;
+
     public ReceivingNotification(UpnpService upnpService, IncomingDatagramMessage<UpnpRequest> inputMessage) {
+        this(upnpService, inputMessage, null);
+    }
+
+    /**
+     * @param identityCache Returns the identity of a known announcement without parsing it again,
+     *                      can be <code>null</code>.
+     */
+    public ReceivingNotification(UpnpService upnpService, IncomingDatagramMessage<UpnpRequest> inputMessage,
+                                 RemoteDeviceIdentityCache identityCache) {
         super(upnpService, new IncomingNotificationRequest(inputMessage));
+        this.identityCache = identityCache;
     }
 
     protected void execute() throws RouterException {
 
-        UDN udn = getInputMessage().getUDN();
-        if (udn == null) {
+        RemoteDeviceIdentity rdIdentity = createRemoteDeviceIdentity();
+        if (rdIdentity == null) {
             log.trace("Ignoring notification message without UDN: " + getInputMessage());
             return;
         }
-
-        RemoteDeviceIdentity rdIdentity = new RemoteDeviceIdentity(getInputMessage());
+        UDN udn = rdIdentity.getUdn();
         log.trace("Received device notification: " + rdIdentity);
 
         RemoteDevice rd;
@@ -119,9 +133,11 @@ public class ReceivingNotification extends ReceivingAsync<IncomingNotificationRe
 
             // Unfortunately, we always have to retrieve the descriptor because at this point we
             // have no idea if it's a root or embedded device
-            getUpnpService().getConfiguration().getAsyncProtocolExecutor().execute(
-                    new RetrieveRemoteDescriptors(getUpnpService(), rd)
-            );
+            RetrieveRemoteDescriptors retrieveRemoteDescriptors =
+                    getUpnpService().getProtocolFactory().createRetrieveRemoteDescriptors(rd);
+            if (retrieveRemoteDescriptors != null) {
+                getUpnpService().getConfiguration().getAsyncProtocolExecutor().execute(retrieveRemoteDescriptors);
+            }
 
         } else if (getInputMessage().isByeByeMessage()) {
 
@@ -137,5 +153,13 @@ public class ReceivingNotification extends ReceivingAsync<IncomingNotificationRe
 
     }
 
-
+    /**
+     * @return The identity of the announced device, or <code>null</code> if the message has no UDN.
+     */
+    protected RemoteDeviceIdentity createRemoteDeviceIdentity() {
+        if (identityCache != null) {
+            return identityCache.get(getInputMessage());
+        }
+        return getInputMessage().getUDN() != null ? new RemoteDeviceIdentity(getInputMessage()) : null;
+    }
 }
@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 
+import org.jupnp.MonitoredThreadPoolExecutor;
 import org.jupnp.UpnpService;
 import org.jupnp.model.DiscoveryOptions;
 import org.jupnp.model.Location;
@@ -44,6 +45,7 @@ import org.jupnp.model.types.DeviceType;
 import org.jupnp.model.types.ServiceType;
 import org.jupnp.model.types.UDN;
 import org.jupnp.protocol.ReceivingAsync;
+import org.jupnp.protocol.SearchAdmissionControl;
 import org.jupnp.transport.RouterException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,10 +61,16 @@ import org.slf4j.LoggerFactory;
  * required by the UPnP specification, depending on the search target and what
  * local devices and services are found in the {@link org.jupnp.registry.Registry}.
  * </p>
+ * <p>
+ * Searches are admitted by the {@link SearchAdmissionControl} of the protocol factory before
+ * this protocol is created, an identical search of the same source is dropped until this
+ * protocol completes or is rejected by the executor.
+ * </p>
  *
  * @author Christian Bauer
  */
-public class ReceivingSearch extends ReceivingAsync<IncomingSearchRequest> {
+public class ReceivingSearch extends ReceivingAsync<IncomingSearchRequest>
+    implements MonitoredThreadPoolExecutor.AbortWhenRejected {
 
     private final Logger log = LoggerFactory.getLogger(ReceivingSearch.class);
 
@@ -70,8 +78,44 @@ public class ReceivingSearch extends ReceivingAsync<IncomingSearchRequest> {
 
     final protected Random randomGenerator = new Random();
 
+    final protected SearchAdmissionControl admissionControl;
+
     public ReceivingSearch(UpnpService upnpService, IncomingDatagramMessage<UpnpRequest> inputMessage) {
+        this(upnpService, inputMessage, null);
+    }
+
+    /**
+     * @param admissionControl Released after the responses have been sent, the search must have
+     *                         been admitted by it, can be <code>null</code>.
+     */
+    public ReceivingSearch(UpnpService upnpService, IncomingDatagramMessage<UpnpRequest> inputMessage,
+                           SearchAdmissionControl admissionControl) {
         super(upnpService, new IncomingSearchRequest(inputMessage));
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void run() {
+        try {
+            super.run();
+        } finally {
+            finish();
+        }
+    }
+
+    @Override
+    public void rejected() {
+        finish();
+    }
+
+    protected void finish() {
+        if (admissionControl != null) {
+            admissionControl.finish(
+                getInputMessage().getSourceAddress(),
+                getInputMessage().getSourcePort(),
+                getInputMessage().getHeaders().getFirstHeader(UpnpHeader.Type.ST.getHttpName())
+            );
+        }
     }
 
     protected void execute() throws RouterException {
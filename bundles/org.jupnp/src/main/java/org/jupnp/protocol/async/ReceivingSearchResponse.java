@@ -24,7 +24,9 @@ import org.jupnp.model.meta.RemoteDevice;
 import org.jupnp.model.meta.RemoteDeviceIdentity;
 import org.jupnp.model.types.UDN;
 import org.jupnp.protocol.ReceivingAsync;
+import org.jupnp.protocol.RemoteDeviceIdentityCache;
 import org.jupnp.protocol.RetrieveRemoteDescriptors;
+import org.jupnp.protocol.SearchResponseAggregator;
 import org.jupnp.transport.RouterException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,29 +45,72 @@ public class ReceivingSearchResponse extends ReceivingAsync<IncomingSearchRespon
 
     private final Logger log = LoggerFactory.getLogger(ReceivingSearchResponse.class);
 
+    final protected RemoteDeviceIdentityCache identityCache;
+    final protected SearchResponseAggregator responseAggregator;
+
     public ReceivingSearchResponse(UpnpService upnpService, IncomingDatagramMessage<UpnpResponse> inputMessage) {
+        this(upnpService, inputMessage, null);
+    }
+
+    /**
+     * @param identityCache Returns the identity of a known announcement without parsing it again,
+     *                      can be <code>null</code>.
+     */
+    public ReceivingSearchResponse(UpnpService upnpService, IncomingDatagramMessage<UpnpResponse> inputMessage,
+                                   RemoteDeviceIdentityCache identityCache) {
+        this(upnpService, inputMessage, identityCache, null);
+    }
+
+    /**
+     * @param identityCache      Returns the identity of a known announcement without parsing it again,
+     *                           can be <code>null</code>.
+     * @param responseAggregator Admitted this response, is told if it was valid, can be <code>null</code>.
+     */
+    public ReceivingSearchResponse(UpnpService upnpService, IncomingDatagramMessage<UpnpResponse> inputMessage,
+                                   RemoteDeviceIdentityCache identityCache,
+                                   SearchResponseAggregator responseAggregator) {
         super(upnpService, new IncomingSearchResponse(inputMessage));
+        this.identityCache = identityCache;
+        this.responseAggregator = responseAggregator;
     }
 
     protected void execute() throws RouterException {
+        boolean valid = false;
+        try {
+            valid = processSearchResponse();
+        } finally {
+            if (responseAggregator != null) {
+                if (valid) {
+                    responseAggregator.confirm(getInputMessage());
+                } else {
+                    // Another response of this device may be valid
+                    responseAggregator.release(getInputMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the response was valid and the device is known or being retrieved.
+     */
+    protected boolean processSearchResponse() throws RouterException {
 
         if (!getInputMessage().isSearchResponseMessage()) {
             log.trace("Ignoring invalid search response message: " + getInputMessage());
-            return;
+            return false;
         }
 
-        UDN udn = getInputMessage().getRootDeviceUDN();
-        if (udn == null) {
+        RemoteDeviceIdentity rdIdentity = createRemoteDeviceIdentity();
+        if (rdIdentity == null) {
             log.trace("Ignoring search response message without UDN: " + getInputMessage());
-            return;
+            return false;
         }
-
-        RemoteDeviceIdentity rdIdentity = new RemoteDeviceIdentity(getInputMessage());
+        UDN udn = rdIdentity.getUdn();
         log.trace("Received device search response: " + rdIdentity);
 
         if (getUpnpService().getRegistry().update(rdIdentity)) {
             log.trace("Remote device was already known: " + udn);
-            return;
+            return true;
         }
 
         RemoteDevice rd;
@@ -76,25 +121,36 @@ public class ReceivingSearchResponse extends ReceivingAsync<IncomingSearchRespon
             for (ValidationError validationError : ex.getErrors()) {
                 log.warn(validationError.toString());
             }
-            return;
+            return false;
         }
 
         if (rdIdentity.getDescriptorURL() == null) {
             log.trace("Ignoring message without location URL header: " + getInputMessage());
-            return;
+            return false;
         }
 
         if (rdIdentity.getMaxAgeSeconds() == null) {
             log.trace("Ignoring message without max-age header: " + getInputMessage());
-            return;
+            return false;
         }
 
         // Unfortunately, we always have to retrieve the descriptor because at this point we
         // have no idea if it's a root or embedded device
-        getUpnpService().getConfiguration().getAsyncProtocolExecutor().execute(
-                new RetrieveRemoteDescriptors(getUpnpService(), rd)
-        );
-
+        RetrieveRemoteDescriptors retrieveRemoteDescriptors =
+                getUpnpService().getProtocolFactory().createRetrieveRemoteDescriptors(rd);
+        if (retrieveRemoteDescriptors != null) {
+            getUpnpService().getConfiguration().getAsyncProtocolExecutor().execute(retrieveRemoteDescriptors);
+        }
+        return true;
     }
 
+    /**
+     * @return The identity of the announced device, or <code>null</code> if the message has no UDN.
+     */
+    protected RemoteDeviceIdentity createRemoteDeviceIdentity() {
+        if (identityCache != null) {
+            return identityCache.get(getInputMessage());
+        }
+        return getInputMessage().getRootDeviceUDN() != null ? new RemoteDeviceIdentity(getInputMessage()) : null;
+    }
 }
@@ -14,7 +14,9 @@
 
 package org.jupnp.protocol.async;
 
+import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.jupnp.UpnpService;
@@ -39,6 +41,11 @@ import org.slf4j.LoggerFactory;
  * Sends all required (dozens) of messages three times, waits between 0 and 150
  * milliseconds between each bulk sending procedure.
  * </p>
+ * <p>
+ * If a collection of local addresses is given, only the descriptor locations of the
+ * stream servers bound to these addresses are announced, e.g. when new network
+ * addresses became available.
+ * </p>
  *
  * @author Christian Bauer
  */
@@ -47,16 +54,29 @@ public abstract class SendingNotification extends SendingAsync {
     final private Logger log = LoggerFactory.getLogger(SendingNotification.class);
 
     private LocalDevice device;
+    private Collection<InetAddress> addresses;
 
     public SendingNotification(UpnpService upnpService, LocalDevice device) {
+        this(upnpService, device, null);
+    }
+
+    public SendingNotification(UpnpService upnpService, LocalDevice device, Collection<InetAddress> addresses) {
         super(upnpService);
         this.device = device;
+        this.addresses = addresses;
     }
 
     public LocalDevice getDevice() {
         return device;
     }
 
+    /**
+     * @return The local addresses to announce, or <code>null</code> if all active stream servers are announced.
+     */
+    public Collection<InetAddress> getAddresses() {
+        return addresses;
+    }
+
     protected void execute() throws RouterException {
 
         List<NetworkAddress> activeStreamServers =
@@ -69,6 +89,9 @@ public abstract class SendingNotification extends SendingAsync {
         // Prepare it once, it's the same for each repetition
         List<Location> descriptorLocations = new ArrayList();
         for (NetworkAddress activeStreamServer : activeStreamServers) {
+            if (getAddresses() != null && !getAddresses().contains(activeStreamServer.getAddress())) {
+                continue;
+            }
             descriptorLocations.add(
                     new Location(
                             activeStreamServer,
@@ -77,6 +100,11 @@ public abstract class SendingNotification extends SendingAsync {
             );
         }
 
+        if (descriptorLocations.size() == 0) {
+            log.trace("Aborting notifications, no active stream servers on addresses: " + getAddresses());
+            return;
+        }
+
         for (int i = 0; i < getBulkRepeat(); i++) {
             try {
 
@@ -14,6 +14,9 @@
 
 package org.jupnp.protocol.async;
 
+import java.net.InetAddress;
+import java.util.Collection;
+
 import org.jupnp.UpnpService;
 import org.jupnp.model.meta.LocalDevice;
 import org.jupnp.model.types.NotificationSubtype;
@@ -34,6 +37,10 @@ public class SendingNotificationAlive extends SendingNotification {
         super(upnpService, device);
     }
 
+    public SendingNotificationAlive(UpnpService upnpService, LocalDevice device, Collection<InetAddress> addresses) {
+        super(upnpService, device, addresses);
+    }
+
     @Override
     protected void execute() throws RouterException {
         log.trace("Sending alive messages ("+getBulkRepeat()+" times) for: " + getDevice());
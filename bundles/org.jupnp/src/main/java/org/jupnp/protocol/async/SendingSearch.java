@@ -19,6 +19,7 @@ import org.jupnp.model.message.discovery.OutgoingSearchRequest;
 import org.jupnp.model.message.header.MXHeader;
 import org.jupnp.model.message.header.STAllHeader;
 import org.jupnp.model.message.header.UpnpHeader;
+import org.jupnp.protocol.SearchResponseAggregator;
 import org.jupnp.protocol.SendingAsync;
 import org.jupnp.transport.RouterException;
 import org.slf4j.Logger;
@@ -39,6 +40,8 @@ public class SendingSearch extends SendingAsync {
 
     private final UpnpHeader searchTarget;
     private final int mxSeconds;
+    private final SearchResponseAggregator responseAggregator;
+    private final SearchResponseAggregator.Callback callback;
 
     /**
      * Defaults to {@link org.jupnp.model.message.header.STAllHeader} and an MX of 3 seconds.
@@ -58,6 +61,17 @@ public class SendingSearch extends SendingAsync {
      * @param mxSeconds The time in seconds a host should wait before responding.
      */
     public SendingSearch(UpnpService upnpService, UpnpHeader searchTarget, int mxSeconds) {
+        this(upnpService, searchTarget, mxSeconds, null, null);
+    }
+
+    /**
+     * @param mxSeconds          The time in seconds a host should wait before responding.
+     * @param responseAggregator Collapses the responses received while this search is running, can be <code>null</code>.
+     * @param callback           Notified when no more responses to this search are expected, can be <code>null</code>.
+     *                           Requires an aggregator, which notifies it after this protocol completed.
+     */
+    public SendingSearch(UpnpService upnpService, UpnpHeader searchTarget, int mxSeconds,
+                         SearchResponseAggregator responseAggregator, SearchResponseAggregator.Callback callback) {
         super(upnpService);
 
         if (!UpnpHeader.Type.ST.isValidHeaderType(searchTarget.getClass())) {
@@ -67,6 +81,8 @@ public class SendingSearch extends SendingAsync {
         }
         this.searchTarget = searchTarget;
         this.mxSeconds = mxSeconds;
+        this.responseAggregator = responseAggregator;
+        this.callback = callback;
     }
 
     public UpnpHeader getSearchTarget() {
@@ -84,6 +100,24 @@ public class SendingSearch extends SendingAsync {
         OutgoingSearchRequest msg = new OutgoingSearchRequest(searchTarget, getMxSeconds());
         prepareOutgoingSearchRequest(msg);
 
+        // Without a callback the window is left open until it expires, with a callback it is closed by
+        // the aggregator's timer, this thread doesn't wait for the responses
+        SearchResponseAggregator.Window window = responseAggregator != null
+                ? responseAggregator.open(searchTarget, getResponseWindowMilliseconds(), callback)
+                : null;
+        boolean sent = false;
+        try {
+            sendSearchRequests(msg);
+            sent = true;
+        } finally {
+            // When sending failed, the callback is notified right away
+            if (!sent && window != null && callback != null) {
+                responseAggregator.close(window);
+            }
+        }
+    }
+
+    protected void sendSearchRequests(OutgoingSearchRequest msg) throws RouterException {
         for (int i = 0; i < getBulkRepeat(); i++) {
             try {
 
@@ -108,6 +142,15 @@ public class SendingSearch extends SendingAsync {
         return 500; // That should be plenty on an ethernet LAN
     }
 
+    /**
+     * @return The time responses to this search are expected, from sending the first search request.
+     */
+    public long getResponseWindowMilliseconds() {
+        return (long) getBulkRepeat() * getBulkIntervalMilliseconds()
+                + getMxSeconds() * 1000L
+                + SearchResponseAggregator.DEFAULT_GRACE_MILLIS;
+    }
+
     /**
      * Override this to edit the outgoing message, e.g. by adding headers.
      */
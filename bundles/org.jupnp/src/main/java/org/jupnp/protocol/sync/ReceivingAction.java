@@ -50,8 +50,20 @@ public class ReceivingAction extends ReceivingSync<StreamRequestMessage, StreamR
 
     private final Logger log = LoggerFactory.getLogger(ReceivingAction.class);
 
+    final protected ServiceControlResource resource;
+
     public ReceivingAction(UpnpService upnpService, StreamRequestMessage inputMessage) {
+        this(upnpService, inputMessage, null);
+    }
+
+    /**
+     * @param resource The resource addressed by the request if the protocol factory already found it,
+     *                 otherwise <code>null</code> and the resource is looked up when the protocol executes.
+     */
+    public ReceivingAction(UpnpService upnpService, StreamRequestMessage inputMessage,
+                           ServiceControlResource resource) {
         super(upnpService, inputMessage);
+        this.resource = resource;
     }
 
     protected StreamResponseMessage executeSync() throws RouterException{
@@ -73,7 +85,7 @@ public class ReceivingAction extends ReceivingSync<StreamRequestMessage, StreamR
                     .report("Received without Content-Type: {}", getInputMessage());
         }
 
-        ServiceControlResource resource =
+        ServiceControlResource resource = this.resource != null ? this.resource :
                 getUpnpService().getRegistry().getResource(
                         ServiceControlResource.class,
                         getInputMessage().getUri()
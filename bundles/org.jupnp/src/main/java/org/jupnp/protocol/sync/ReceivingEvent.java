@@ -43,8 +43,20 @@ public class ReceivingEvent extends ReceivingSync<StreamRequestMessage, Outgoing
 
     final private Logger log = LoggerFactory.getLogger(ReceivingEvent.class);
 
+    final protected ServiceEventCallbackResource resource;
+
     public ReceivingEvent(UpnpService upnpService, StreamRequestMessage inputMessage) {
+        this(upnpService, inputMessage, null);
+    }
+
+    /**
+     * @param resource The resource addressed by the request if the protocol factory already found it,
+     *                 otherwise <code>null</code> and the resource is looked up when the protocol executes.
+     */
+    public ReceivingEvent(UpnpService upnpService, StreamRequestMessage inputMessage,
+                          ServiceEventCallbackResource resource) {
         super(upnpService, inputMessage);
+        this.resource = resource;
     }
 
     protected OutgoingEventResponseMessage executeSync() throws RouterException{
@@ -55,7 +67,7 @@ public class ReceivingEvent extends ReceivingSync<StreamRequestMessage, Outgoing
             // return new StreamResponseMessage(new UpnpResponse(UpnpResponse.Status.UNSUPPORTED_MEDIA_TYPE));
         }
 
-        ServiceEventCallbackResource resource =
+        ServiceEventCallbackResource resource = this.resource != null ? this.resource :
                 getUpnpService().getRegistry().getResource(
                         ServiceEventCallbackResource.class,
                         getInputMessage().getUri()
@@ -57,15 +57,27 @@ public class ReceivingSubscribe extends ReceivingSync<StreamRequestMessage, Outg
 
     final private Logger log = LoggerFactory.getLogger(ReceivingSubscribe.class);
 
+    final protected ServiceEventSubscriptionResource resource;
+
     protected LocalGENASubscription subscription;
 
     public ReceivingSubscribe(UpnpService upnpService, StreamRequestMessage inputMessage) {
+        this(upnpService, inputMessage, null);
+    }
+
+    /**
+     * @param resource The resource addressed by the request if the protocol factory already found it,
+     *                 otherwise <code>null</code> and the resource is looked up when the protocol executes.
+     */
+    public ReceivingSubscribe(UpnpService upnpService, StreamRequestMessage inputMessage,
+                              ServiceEventSubscriptionResource resource) {
         super(upnpService, inputMessage);
+        this.resource = resource;
     }
 
     protected OutgoingSubscribeResponseMessage executeSync() throws RouterException {
 
-        ServiceEventSubscriptionResource resource =
+        ServiceEventSubscriptionResource resource = this.resource != null ? this.resource :
                 getUpnpService().getRegistry().getResource(
                         ServiceEventSubscriptionResource.class,
                         getInputMessage().getUri()
@@ -35,13 +35,25 @@ public class ReceivingUnsubscribe extends ReceivingSync<StreamRequestMessage, St
 
     final private Logger log = LoggerFactory.getLogger(ReceivingUnsubscribe.class);
 
+    final protected ServiceEventSubscriptionResource resource;
+
     public ReceivingUnsubscribe(UpnpService upnpService, StreamRequestMessage inputMessage) {
+        this(upnpService, inputMessage, null);
+    }
+
+    /**
+     * @param resource The resource addressed by the request if the protocol factory already found it,
+     *                 otherwise <code>null</code> and the resource is looked up when the protocol executes.
+     */
+    public ReceivingUnsubscribe(UpnpService upnpService, StreamRequestMessage inputMessage,
+                                ServiceEventSubscriptionResource resource) {
         super(upnpService, inputMessage);
+        this.resource = resource;
     }
 
     protected StreamResponseMessage executeSync() throws RouterException {
 
-        ServiceEventSubscriptionResource resource =
+        ServiceEventSubscriptionResource resource = this.resource != null ? this.resource :
                 getUpnpService().getRegistry().getResource(
                         ServiceEventSubscriptionResource.class,
                         getInputMessage().getUri()
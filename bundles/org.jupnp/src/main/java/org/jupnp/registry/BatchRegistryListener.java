@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.registry;
+
+import java.util.List;
+
+/**
+ * A registry listener which receives the changes of remote devices in batches.
+ * <p>
+ * Instead of calling the <code>remoteDevice*</code> methods of this listener, the registry collects the
+ * changes of remote devices which are waiting for delivery when the listener is called, and delivers them
+ * with one call of {@link #remoteDevicesChanged(Registry, List)}. Changes of local devices are still delivered
+ * with the regular callbacks, in the order in which they happened relative to the remote changes.
+ * </p>
+ */
+public interface BatchRegistryListener extends RegistryListener {
+
+    /**
+     * @param registry The jUPnP registry of all devices and services know to the local UPnP stack.
+     * @param changes  The changes of remote devices, in the order in which they happened.
+     */
+    public void remoteDevicesChanged(Registry registry, List<RegistryChange> changes);
+
+}
@@ -114,15 +114,7 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
         if (isAdvertised(localItem.getKey()))
              advertiseAlive(localDevice);
 
-        for (final RegistryListener listener : registry.getListeners()) {
-            registry.getConfiguration().getRegistryListenerExecutor().execute(
-                new Runnable() {
-                    public void run() {
-                        listener.localDeviceAdded(registry, localDevice);
-                    }
-                }
-            );
-        }
+        registry.getEventBus().localDeviceAdded(localDevice);
 
     }
 
@@ -181,15 +173,7 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
          		advertiseByebye(localDevice, !shuttingDown);
 
             if (!shuttingDown) {
-                for (final RegistryListener listener : registry.getListeners()) {
-                    registry.getConfiguration().getRegistryListenerExecutor().execute(
-                            new Runnable() {
-                                public void run() {
-                                    listener.localDeviceRemoved(registry, localDevice);
-                                }
-                            }
-                    );
-                }
+                registry.getEventBus().localDeviceRemoved(localDevice);
             }
 
             return true;
@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.registry;
+
+/**
+ * A registry listener which is only notified of material updates of remote devices.
+ * <p>
+ * Devices announce themselves again and again, usually with the same descriptor location, maximum
+ * age and on the same local network interface. Such an announcement only extends the expiration of
+ * the registered device, and a listener implementing this interface is not called for it. Its
+ * {@link #remoteDeviceUpdated(Registry, org.jupnp.model.meta.RemoteDevice)} method is only called when
+ * one of these values has changed. All other listeners are still called on every announcement.
+ * </p>
+ */
+public interface MaterialUpdateRegistryListener extends RegistryListener {
+
+}
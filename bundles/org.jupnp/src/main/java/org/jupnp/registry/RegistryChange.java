@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.registry;
+
+import org.jupnp.model.meta.Device;
+
+/**
+ * A change of the devices in the registry, as delivered to a {@link BatchRegistryListener}.
+ */
+public class RegistryChange {
+
+    public enum Type {
+        REMOTE_DISCOVERY_STARTED,
+        REMOTE_DISCOVERY_FAILED,
+        REMOTE_ADDED,
+        REMOTE_UPDATED,
+        REMOTE_REMOVED,
+        LOCAL_ADDED,
+        LOCAL_REMOVED;
+
+        public boolean isRemote() {
+            return this != LOCAL_ADDED && this != LOCAL_REMOVED;
+        }
+    }
+
+    final private Type type;
+    final private Device device;
+    final private Exception exception;
+
+    public RegistryChange(Type type, Device device) {
+        this(type, device, null);
+    }
+
+    public RegistryChange(Type type, Device device, Exception exception) {
+        this.type = type;
+        this.device = device;
+        this.exception = exception;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return A {@link org.jupnp.model.meta.RemoteDevice} for remote changes, a
+     *         {@link org.jupnp.model.meta.LocalDevice} otherwise.
+     */
+    public Device getDevice() {
+        return device;
+    }
+
+    /**
+     * @return The reason of a {@link Type#REMOTE_DISCOVERY_FAILED} change, may be <code>null</code>.
+     */
+    public Exception getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") " + getType() + ": " + getDevice();
+    }
+}
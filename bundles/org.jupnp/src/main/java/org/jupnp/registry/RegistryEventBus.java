@@ -0,0 +1,458 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.registry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jupnp.MonitoredThreadPoolExecutor;
+import org.jupnp.model.meta.Device;
+import org.jupnp.model.meta.LocalDevice;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.types.UDN;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers the device changes of the registry to its listeners.
+ * <p>
+ * Every listener has its own queue of changes, which are delivered in the order in which they happened
+ * by at most one task of the {@link org.jupnp.UpnpServiceConfiguration#getRegistryListenerExecutor()} at
+ * a time. A task delivers up to {@link #BATCH_SIZE} changes, so a discovery storm no longer creates a task
+ * per listener and change.
+ * </p>
+ * <p>
+ * Changes of a device which are still waiting for delivery are coalesced: repeated updates are delivered
+ * once, an update after an addition is dropped, and a removal cancels the addition it follows. A
+ * {@link BatchRegistryListener} receives the remote changes of a task with a single call.
+ * </p>
+ * <p>
+ * A listener which doesn't keep up is logged once its queue reaches {@link #SLOW_LISTENER_THRESHOLD}
+ * changes, see {@link #getMaxQueuedCount()}. If the executor rejects a task, e.g. because it is
+ * saturated or shut down, the changes are delivered on the calling thread, see {@link #getRejectedCount()}.
+ * </p>
+ */
+public class RegistryEventBus {
+
+    final private static Logger log = LoggerFactory.getLogger(RegistryEventBus.class);
+
+    public static final int BATCH_SIZE = 64;
+    public static final int SLOW_LISTENER_THRESHOLD = 1000;
+
+    final protected RegistryImpl registry;
+    final protected ConcurrentMap<RegistryListener, ListenerQueue> queues = new ConcurrentHashMap<>();
+
+    final private AtomicLong deliveredCount = new AtomicLong();
+    final private AtomicLong coalescedCount = new AtomicLong();
+    final private AtomicLong maxQueuedCount = new AtomicLong();
+    final private AtomicLong rejectedCount = new AtomicLong();
+
+    public RegistryEventBus(RegistryImpl registry) {
+        this.registry = registry;
+    }
+
+    public void remoteDeviceDiscoveryStarted(RemoteDevice device) {
+        post(new RegistryChange(RegistryChange.Type.REMOTE_DISCOVERY_STARTED, device), true);
+    }
+
+    public void remoteDeviceDiscoveryFailed(RemoteDevice device, Exception ex) {
+        post(new RegistryChange(RegistryChange.Type.REMOTE_DISCOVERY_FAILED, device, ex), true);
+    }
+
+    public void remoteDeviceAdded(RemoteDevice device) {
+        post(new RegistryChange(RegistryChange.Type.REMOTE_ADDED, device), true);
+    }
+
+    /**
+     * @param material <code>false</code> if only the expiration of the device was updated, which is not
+     *                 delivered to a {@link MaterialUpdateRegistryListener}.
+     */
+    public void remoteDeviceUpdated(RemoteDevice device, boolean material) {
+        post(new RegistryChange(RegistryChange.Type.REMOTE_UPDATED, device), material);
+    }
+
+    public void remoteDeviceRemoved(RemoteDevice device) {
+        post(new RegistryChange(RegistryChange.Type.REMOTE_REMOVED, device), true);
+    }
+
+    public void localDeviceAdded(LocalDevice device) {
+        post(new RegistryChange(RegistryChange.Type.LOCAL_ADDED, device), true);
+    }
+
+    public void localDeviceRemoved(LocalDevice device) {
+        post(new RegistryChange(RegistryChange.Type.LOCAL_REMOVED, device), true);
+    }
+
+    protected void post(RegistryChange change, boolean material) {
+        for (RegistryListener listener : registry.getListeners()) {
+            if (!material && listener instanceof MaterialUpdateRegistryListener) {
+                continue;
+            }
+            ListenerQueue queue = queues.get(listener);
+            if (queue == null) {
+                ListenerQueue newQueue = new ListenerQueue(listener);
+                queue = queues.putIfAbsent(listener, newQueue);
+                if (queue == null) {
+                    queue = newQueue;
+                }
+            }
+            queue.post(change);
+        }
+    }
+
+    /**
+     * Forgets the queue of a removed listener, changes which are already queued are still delivered.
+     */
+    public void remove(RegistryListener listener) {
+        queues.remove(listener);
+    }
+
+    /**
+     * @return The number of changes waiting for delivery to all listeners.
+     */
+    public int getQueuedCount() {
+        int count = 0;
+        for (ListenerQueue queue : queues.values()) {
+            count += queue.getQueuedCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of changes waiting for delivery to the given listener.
+     */
+    public int getQueuedCount(RegistryListener listener) {
+        ListenerQueue queue = queues.get(listener);
+        return queue != null ? queue.getQueuedCount() : 0;
+    }
+
+    /**
+     * @return The largest number of changes which have been waiting for delivery to a single listener.
+     */
+    public long getMaxQueuedCount() {
+        return maxQueuedCount.get();
+    }
+
+    /**
+     * @return The total number of changes delivered to listeners.
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * @return The total number of changes which were not delivered because they were coalesced.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return The total number of tasks rejected by the executor, which were run on the calling thread.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    protected void deliver(RegistryListener listener, RegistryChange change) {
+        Device device = change.getDevice();
+        switch (change.getType()) {
+            case REMOTE_DISCOVERY_STARTED:
+                listener.remoteDeviceDiscoveryStarted(registry, (RemoteDevice) device);
+                break;
+            case REMOTE_DISCOVERY_FAILED:
+                listener.remoteDeviceDiscoveryFailed(registry, (RemoteDevice) device, change.getException());
+                break;
+            case REMOTE_ADDED:
+                listener.remoteDeviceAdded(registry, (RemoteDevice) device);
+                break;
+            case REMOTE_UPDATED:
+                listener.remoteDeviceUpdated(registry, (RemoteDevice) device);
+                break;
+            case REMOTE_REMOVED:
+                listener.remoteDeviceRemoved(registry, (RemoteDevice) device);
+                break;
+            case LOCAL_ADDED:
+                listener.localDeviceAdded(registry, (LocalDevice) device);
+                break;
+            case LOCAL_REMOVED:
+                listener.localDeviceRemoved(registry, (LocalDevice) device);
+                break;
+        }
+    }
+
+    protected void deliver(RegistryListener listener, List<RegistryChange> changes) {
+        if (!(listener instanceof BatchRegistryListener)) {
+            for (RegistryChange change : changes) {
+                deliverSafely(listener, change);
+            }
+            return;
+        }
+        List<RegistryChange> remoteChanges = new ArrayList<>();
+        for (RegistryChange change : changes) {
+            if (change.getType().isRemote()) {
+                remoteChanges.add(change);
+            } else {
+                deliverBatch((BatchRegistryListener) listener, remoteChanges);
+                remoteChanges = new ArrayList<>();
+                deliverSafely(listener, change);
+            }
+        }
+        deliverBatch((BatchRegistryListener) listener, remoteChanges);
+    }
+
+    protected void deliverBatch(BatchRegistryListener listener, List<RegistryChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            listener.remoteDevicesChanged(registry, changes);
+        } catch (RuntimeException ex) {
+            log.warn("Registry listener failed on changes: " + listener, ex);
+        }
+        deliveredCount.addAndGet(changes.size());
+    }
+
+    protected void deliverSafely(RegistryListener listener, RegistryChange change) {
+        try {
+            deliver(listener, change);
+        } catch (RuntimeException ex) {
+            log.warn("Registry listener failed on " + change + ": " + listener, ex);
+        }
+        deliveredCount.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") queued: " + getQueuedCount()
+                + ", max queued: " + getMaxQueuedCount()
+                + ", delivered: " + getDeliveredCount()
+                + ", coalesced: " + getCoalescedCount()
+                + ", rejected: " + getRejectedCount();
+    }
+
+    /**
+     * A change waiting for delivery, linked to the previous waiting change of the same device.
+     */
+    static class Pending {
+
+        RegistryChange change;
+        final UDN udn;
+        final Pending previous;
+        boolean cancelled;
+        boolean dequeued;
+
+        Pending(RegistryChange change, UDN udn, Pending previous) {
+            this.change = change;
+            this.udn = udn;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * The changes waiting for delivery to a listener, executed as a task when there are any.
+     */
+    protected class ListenerQueue implements Runnable, MonitoredThreadPoolExecutor.AbortWhenRejected {
+
+        final private RegistryListener listener;
+        final private ReentrantLock lock = new ReentrantLock();
+        final private ArrayDeque<Pending> pending = new ArrayDeque<>();
+        // The latest waiting change of every device
+        final private Map<UDN, Pending> latest = new HashMap<>();
+        private int queuedCount;
+        private boolean scheduled;
+        private boolean warned;
+
+        protected ListenerQueue(RegistryListener listener) {
+            this.listener = listener;
+        }
+
+        public void post(RegistryChange change) {
+            UDN udn = change.getDevice().getIdentity().getUdn();
+            boolean schedule = false;
+            lock.lock();
+            try {
+                if (coalesce(change, udn)) {
+                    return;
+                }
+                Pending p = new Pending(change, udn, latest.get(udn));
+                latest.put(udn, p);
+                pending.add(p);
+                queuedCount++;
+                long max;
+                while (queuedCount > (max = maxQueuedCount.get()) && !maxQueuedCount.compareAndSet(max, queuedCount)) {
+                    // Retry
+                }
+                if (queuedCount >= SLOW_LISTENER_THRESHOLD && !warned) {
+                    warned = true;
+                    log.warn("Registry listener is slow, changes waiting for delivery: " + queuedCount + ", " + listener);
+                }
+                if (!scheduled) {
+                    scheduled = true;
+                    schedule = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (schedule && !schedule()) {
+                run();
+            }
+        }
+
+        /**
+         * @return <code>false</code> if the executor rejected the task, which must then be run by the caller.
+         */
+        protected boolean schedule() {
+            try {
+                registry.getConfiguration().getRegistryListenerExecutor().execute(this);
+                return true;
+            } catch (RejectedExecutionException ex) {
+                if (rejectedCount.incrementAndGet() == 1) {
+                    log.warn("Registry listener executor rejected delivery, delivering on the calling thread: " + ex);
+                } else {
+                    log.debug("Registry listener executor rejected delivery to: " + listener);
+                }
+                return false;
+            }
+        }
+
+        // Must be called while holding the lock, returns true if the change doesn't have to be queued
+        protected boolean coalesce(RegistryChange change, UDN udn) {
+            Pending last = latest.get(udn);
+            if (last == null) {
+                return false;
+            }
+            RegistryChange.Type lastType = last.change.getType();
+            switch (change.getType()) {
+                case REMOTE_UPDATED:
+                    if (lastType == RegistryChange.Type.REMOTE_UPDATED) {
+                        last.change = change;
+                        coalescedCount.incrementAndGet();
+                        return true;
+                    }
+                    if (lastType == RegistryChange.Type.REMOTE_ADDED) {
+                        coalescedCount.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                case REMOTE_REMOVED:
+                    return cancel(last, udn, RegistryChange.Type.REMOTE_ADDED);
+                case LOCAL_REMOVED:
+                    return cancel(last, udn, RegistryChange.Type.LOCAL_ADDED);
+                default:
+                    return false;
+            }
+        }
+
+        // Cancels the waiting updates of a removed device, and its addition if it is still waiting
+        protected boolean cancel(Pending last, UDN udn, RegistryChange.Type addedType) {
+            Pending p = last;
+            boolean added = false;
+            while (p != null && !p.dequeued) {
+                RegistryChange.Type type = p.change.getType();
+                if (type == RegistryChange.Type.REMOTE_UPDATED) {
+                    cancel(p);
+                } else if (type == addedType) {
+                    cancel(p);
+                    added = true;
+                    p = p.previous;
+                    break;
+                } else {
+                    break;
+                }
+                p = p.previous;
+            }
+            if (p != null && !p.dequeued) {
+                latest.put(udn, p);
+            } else {
+                latest.remove(udn);
+            }
+            if (added) {
+                coalescedCount.incrementAndGet();
+            }
+            return added;
+        }
+
+        protected void cancel(Pending p) {
+            p.cancelled = true;
+            queuedCount--;
+            coalescedCount.incrementAndGet();
+        }
+
+        public void run() {
+            // Keeps delivering on this thread while the executor rejects the next batch
+            while (deliverBatch() && !schedule()) {
+                // Next batch
+            }
+        }
+
+        // Returns true if more changes are waiting and the queue is still scheduled
+        protected boolean deliverBatch() {
+            List<RegistryChange> changes = new ArrayList<RegistryChange>();
+            lock.lock();
+            try {
+                Pending p;
+                while (changes.size() < BATCH_SIZE && (p = pending.poll()) != null) {
+                    p.dequeued = true;
+                    if (latest.get(p.udn) == p) {
+                        latest.remove(p.udn);
+                    }
+                    if (!p.cancelled) {
+                        queuedCount--;
+                        changes.add(p.change);
+                    }
+                }
+                if (queuedCount < SLOW_LISTENER_THRESHOLD / 2) {
+                    warned = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            boolean more;
+            try {
+                deliver(listener, changes);
+            } finally {
+                lock.lock();
+                try {
+                    // Give other listeners a chance before the next batch
+                    more = !pending.isEmpty();
+                    scheduled = more;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return more;
+        }
+
+        public int getQueuedCount() {
+            lock.lock();
+            try {
+                return queuedCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -18,10 +18,14 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.jupnp.UpnpService;
 import org.jupnp.UpnpServiceConfiguration;
@@ -45,6 +49,20 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Default implementation of {@link Registry}.
+ * <p>
+ * The state of the registry is guarded by explicit locks instead of the monitors of its collections, so
+ * that blocked threads do not pin the carrier thread of a virtual thread. Subclasses must use these locks,
+ * synchronizing on a collection no longer excludes the registry:
+ * </p>
+ * <ul>
+ * <li>{@link #registryListeners} - {@link #registryListenersLock}</li>
+ * <li>{@link #resourceItems} - {@link #resourceItemsLock}</li>
+ * <li>{@link #pendingExecutions} - {@link #pendingExecutionsLock}</li>
+ * <li>{@link #remoteItems} - {@link #remoteItemsLock}</li>
+ * <li>{@link #localItems} - {@link #localItemsLock}</li>
+ * <li>{@link #pendingSubscriptions} - {@link #pendingSubscriptionsMutex}</li>
+ * <li>the maintainer lifecycle - {@link #maintainerLock}</li>
+ * </ul>
  *
  * @author Christian Bauer
  */
@@ -54,9 +72,32 @@ public class RegistryImpl implements Registry {
 
     protected UpnpService upnpService;
     protected RegistryMaintainer registryMaintainer;
-    protected final Set<RemoteGENASubscription> pendingSubscriptionsLock = new HashSet();
+    protected final Set<RemoteGENASubscription> pendingSubscriptions = new HashSet();
+
+    /**
+     * @deprecated The same set as {@link #pendingSubscriptions}, which is no longer guarded by its monitor
+     *             but by {@link #pendingSubscriptionsMutex}.
+     */
+    @Deprecated
+    protected final Set<RemoteGENASubscription> pendingSubscriptionsLock = pendingSubscriptions;
+
+    protected final ReentrantLock pendingSubscriptionsMutex = new ReentrantLock();
+    protected final Condition pendingSubscriptionsChanged = pendingSubscriptionsMutex.newCondition();
+
+    /**
+     * @deprecated No longer used for synchronization, the maintainer lifecycle is guarded by {@link #maintainerLock}.
+     */
+    @Deprecated
     protected Object lock = new Object();
 
+    // See the class documentation for the state guarded by each lock
+    protected final ReentrantLock maintainerLock = new ReentrantLock();
+    protected final ReentrantLock registryListenersLock = new ReentrantLock();
+    protected final ReentrantLock resourceItemsLock = new ReentrantLock();
+    protected final ReentrantLock pendingExecutionsLock = new ReentrantLock();
+    protected final ReentrantLock remoteItemsLock = new ReentrantLock();
+    protected final ReentrantLock localItemsLock = new ReentrantLock();
+
     public RegistryImpl() {
     }
 
@@ -98,28 +139,44 @@ public class RegistryImpl implements Registry {
 
     protected final Set<RegistryListener> registryListeners = new HashSet();
     protected final Set<RegistryItem<URI, Resource>> resourceItems = new HashSet();
+
+    // Rebuilt whenever resources are added or removed, looked up without locking
+    protected volatile Map<URI, Resource> resourceIndex = Collections.emptyMap();
+    protected volatile boolean customResourceMatching;
     protected final List<Runnable> pendingExecutions = new ArrayList();
 
     protected final RemoteItems remoteItems = new RemoteItems(this);
     protected final LocalItems localItems = new LocalItems(this);
 
+    protected final RegistryEventBus eventBus = new RegistryEventBus(this);
+
     // #################################################################################################
 
     public void addListener(RegistryListener listener) {
-        synchronized(registryListeners) {
+        registryListenersLock.lock();
+        try {
             registryListeners.add(listener);
+        } finally {
+            registryListenersLock.unlock();
         }
     }
 
     public void removeListener(RegistryListener listener) {
-        synchronized(registryListeners) {
+        registryListenersLock.lock();
+        try {
             registryListeners.remove(listener);
+        } finally {
+            registryListenersLock.unlock();
         }
+        eventBus.remove(listener);
     }
 
     public Collection<RegistryListener> getListeners() {
-        synchronized(registryListeners) {
+        registryListenersLock.lock();
+        try {
             return Collections.unmodifiableCollection(registryListeners);
+        } finally {
+            registryListenersLock.unlock();
         }
     }
 
@@ -129,91 +186,111 @@ public class RegistryImpl implements Registry {
             log.trace("Not notifying listeners, already registered: " + device);
             return false;
         }
-        
-        for (final RegistryListener listener : getListeners()) {
-            getConfiguration().getRegistryListenerExecutor().execute(
-                    new Runnable() {
-                        public void run() {
-                            listener.remoteDeviceDiscoveryStarted(RegistryImpl.this, device);
-                        }
-                    }
-            );
-        }
-        
+
+        eventBus.remoteDeviceDiscoveryStarted(device);
         return true;
     }
 
     public void notifyDiscoveryFailure(final RemoteDevice device, final Exception ex) {
-        for (final RegistryListener listener : getListeners()) {
-            getConfiguration().getRegistryListenerExecutor().execute(
-                    new Runnable() {
-                        public void run() {
-                            listener.remoteDeviceDiscoveryFailed(RegistryImpl.this, device, ex);
-                        }
-                    }
-            );
-        }
+        eventBus.remoteDeviceDiscoveryFailed(device, ex);
+    }
+
+    /**
+     * @return The queues of the changes waiting for delivery to the listeners of this registry.
+     */
+    public RegistryEventBus getEventBus() {
+        return eventBus;
     }
 
     // #################################################################################################
 
     public void addDevice(LocalDevice localDevice) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             localItems.add(localDevice);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public void addDevice(LocalDevice localDevice, DiscoveryOptions options) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             localItems.add(localDevice, options);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public void setDiscoveryOptions(UDN udn, DiscoveryOptions options) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             localItems.setDiscoveryOptions(udn, options);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public DiscoveryOptions getDiscoveryOptions(UDN udn) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             return localItems.getDiscoveryOptions(udn);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public void addDevice(RemoteDevice remoteDevice) {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             remoteItems.add(remoteDevice);
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     public boolean update(RemoteDeviceIdentity rdIdentity) {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             return remoteItems.update(rdIdentity);
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     public boolean removeDevice(LocalDevice localDevice) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             return localItems.remove(localDevice);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public boolean removeDevice(RemoteDevice remoteDevice) {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             return remoteItems.remove(remoteDevice);
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     public void removeAllLocalDevices() {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             localItems.removeAll();
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public void removeAllRemoteDevices() {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             remoteItems.removeAll();
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
@@ -228,48 +305,72 @@ public class RegistryImpl implements Registry {
 
     public Device getDevice(UDN udn, boolean rootOnly) {
         Device device;
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             if ((device = localItems.get(udn, rootOnly)) != null) return device;
+        } finally {
+            localItemsLock.unlock();
         }
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             if ((device = remoteItems.get(udn, rootOnly)) != null) return device;
+        } finally {
+            remoteItemsLock.unlock();
         }
         
         return null;
     }
 
     public LocalDevice getLocalDevice(UDN udn, boolean rootOnly) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             return localItems.get(udn, rootOnly);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public RemoteDevice getRemoteDevice(UDN udn, boolean rootOnly) {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             return remoteItems.get(udn, rootOnly);
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     public Collection<LocalDevice> getLocalDevices() {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             return Collections.unmodifiableCollection(localItems.get());
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public Collection<RemoteDevice> getRemoteDevices() {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             return Collections.unmodifiableCollection(remoteItems.get());
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     public Collection<Device> getDevices() {
         Set all = new HashSet();
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             all.addAll(localItems.get());
+        } finally {
+            localItemsLock.unlock();
         }
         
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             all.addAll(remoteItems.get());
+        } finally {
+            remoteItemsLock.unlock();
         }
         
         return Collections.unmodifiableCollection(all);
@@ -278,12 +379,18 @@ public class RegistryImpl implements Registry {
     public Collection<Device> getDevices(DeviceType deviceType) {
         Collection<Device> devices = new HashSet();
 
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             devices.addAll(localItems.get(deviceType));
+        } finally {
+            localItemsLock.unlock();
         }
         
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             devices.addAll(remoteItems.get(deviceType));
+        } finally {
+            remoteItemsLock.unlock();
         }
 
         return Collections.unmodifiableCollection(devices);
@@ -292,12 +399,18 @@ public class RegistryImpl implements Registry {
     public Collection<Device> getDevices(ServiceType serviceType) {
         Collection<Device> devices = new HashSet();
 
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             devices.addAll(localItems.get(serviceType));
+        } finally {
+            localItemsLock.unlock();
         }
         
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             devices.addAll(remoteItems.get(serviceType));
+        } finally {
+            remoteItemsLock.unlock();
         }
 
         return Collections.unmodifiableCollection(devices);
@@ -318,35 +431,67 @@ public class RegistryImpl implements Registry {
             throw new IllegalArgumentException("Resource URI can not be absolute, only path and query:" + pathQuery);
         }
 
-        // Note: Uses field access on resourceItems for performance reasons
-
-        synchronized(resourceItems) {
-    		for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
-            	Resource resource = resourceItem.getItem();
-            	if (resource.matches(pathQuery)) {
-                    return resource;
-                }
-            }
+        Resource resource = findResource(pathQuery);
+        if (resource != null) {
+            return resource;
         }
 
         // TODO: UPNP VIOLATION: Fuppes on my ReadyNAS thinks it's a cool idea to add a slash at the end of the callback URI...
         // It also cuts off any query parameters in the callback URL - nice!
-        synchronized(resourceItems) {
-            if (pathQuery.getPath().endsWith("/")) {
-                URI pathQueryWithoutSlash = URI.create(pathQuery.toString().substring(0, pathQuery.toString().length() - 1));
-    
-     			for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
-                	Resource resource = resourceItem.getItem();
-                	if (resource.matches(pathQueryWithoutSlash)) {
-                        return resource;
-                    }
+        if (pathQuery.getPath() != null && pathQuery.getPath().endsWith("/")) {
+            URI pathQueryWithoutSlash = URI.create(pathQuery.toString().substring(0, pathQuery.toString().length() - 1));
+            return findResource(pathQueryWithoutSlash);
+        }
+
+        return null;
+    }
+
+    protected Resource findResource(URI pathQuery) {
+        // Resources matching their exact path and query are found in the index
+        Resource resource = resourceIndex.get(pathQuery);
+        if (resource != null || !customResourceMatching) {
+            return resource;
+        }
+
+        resourceItemsLock.lock();
+        try {
+            for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
+                if (resourceItem.getItem().matches(pathQuery)) {
+                    return resourceItem.getItem();
                 }
             }
+        } finally {
+            resourceItemsLock.unlock();
         }
-
         return null;
     }
 
+    /**
+     * Rebuilds the index of resources by path and query, must be called while holding the resource items lock.
+     */
+    protected void updateResourceIndex() {
+        Map<URI, Resource> index = new HashMap<URI, Resource>();
+        boolean customMatching = false;
+        for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
+            Resource resource = resourceItem.getItem();
+            if (hasCustomMatching(resource)) {
+                customMatching = true;
+            } else {
+                index.put(resource.getPathQuery(), resource);
+            }
+        }
+        resourceIndex = index;
+        customResourceMatching = customMatching;
+    }
+
+    protected boolean hasCustomMatching(Resource resource) {
+        try {
+            return resource.getClass().getMethod("matches", URI.class).getDeclaringClass() != Resource.class;
+        } catch (NoSuchMethodException ex) {
+            return true;
+        }
+    }
+
     public <T extends Resource> T getResource(Class<T> resourceType, URI pathQuery) throws IllegalArgumentException {
         Resource resource = getResource(pathQuery);
         if (resource != null && resourceType.isAssignableFrom(resource.getClass())) {
@@ -357,21 +502,27 @@ public class RegistryImpl implements Registry {
 
     public Collection<Resource> getResources() {
         Collection<Resource> s = new HashSet();
-        synchronized(resourceItems) {
+        resourceItemsLock.lock();
+        try {
             for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
                 s.add(resourceItem.getItem());
             }
+        } finally {
+            resourceItemsLock.unlock();
         }
         return s;
     }
 
     public <T extends Resource> Collection<T> getResources(Class<T> resourceType) {
         Collection<T> s = new HashSet();
-        synchronized(resourceItems) {
+        resourceItemsLock.lock();
+        try {
             for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
                 if (resourceType.isAssignableFrom(resourceItem.getItem().getClass()))
                     s.add((T) resourceItem.getItem());
             }
+        } finally {
+            resourceItemsLock.unlock();
         }
         return s;
     }
@@ -382,73 +533,111 @@ public class RegistryImpl implements Registry {
 
     public void addResource(Resource resource, int maxAgeSeconds) {
         RegistryItem resourceItem = new RegistryItem(resource.getPathQuery(), resource, maxAgeSeconds);
-        synchronized(resourceItems) {
+        resourceItemsLock.lock();
+        try {
             resourceItems.remove(resourceItem);
             resourceItems.add(resourceItem);
+            updateResourceIndex();
+        } finally {
+            resourceItemsLock.unlock();
         }
     }
 
     public boolean removeResource(Resource resource) {
-        synchronized(resourceItems) {
-            return resourceItems.remove(new RegistryItem(resource.getPathQuery()));
+        resourceItemsLock.lock();
+        try {
+            boolean removed = resourceItems.remove(new RegistryItem(resource.getPathQuery()));
+            if (removed) {
+                updateResourceIndex();
+            }
+            return removed;
+        } finally {
+            resourceItemsLock.unlock();
         }
     }
 
     // #################################################################################################
 
     public void addLocalSubscription(LocalGENASubscription subscription) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             localItems.addSubscription(subscription);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public LocalGENASubscription getLocalSubscription(String subscriptionId) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             return localItems.getSubscription(subscriptionId);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public boolean updateLocalSubscription(LocalGENASubscription subscription) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             return localItems.updateSubscription(subscription);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public boolean removeLocalSubscription(LocalGENASubscription subscription) {
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             return localItems.removeSubscription(subscription);
+        } finally {
+            localItemsLock.unlock();
         }
     }
 
     public void addRemoteSubscription(RemoteGENASubscription subscription) {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             remoteItems.addSubscription(subscription);
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     public RemoteGENASubscription getRemoteSubscription(String subscriptionId) {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             return remoteItems.getSubscription(subscriptionId);
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     public void updateRemoteSubscription(RemoteGENASubscription subscription) {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             remoteItems.updateSubscription(subscription);
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     public void removeRemoteSubscription(RemoteGENASubscription subscription) {
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             remoteItems.removeSubscription(subscription);
+        } finally {
+            remoteItemsLock.unlock();
         }
     }
 
     /* ############################################################################################################ */
 
    	public void advertiseLocalDevices() {
-       	 synchronized(localItems) {
+       	 localItemsLock.lock();
+       	 try {
        		localItems.advertiseLocalDevices();
+       	 } finally {
+       	     localItemsLock.unlock();
        	 }
    	}
 
@@ -458,64 +647,92 @@ public class RegistryImpl implements Registry {
     public void shutdown() {
         log.trace("Shutting down registry...");
 
-        synchronized(lock) {
+        maintainerLock.lock();
+        try {
             if (registryMaintainer != null)
                 registryMaintainer.stop();
+        } finally {
+            maintainerLock.unlock();
         }
         
         // Final cleanup run to flush out pending executions which might
         // not have been caught by the maintainer before it stopped
-        synchronized(pendingExecutions) {
+        pendingExecutionsLock.lock();
+        try {
             log.trace("Executing final pending operations on shutdown: {}", pendingExecutions.size());
             runPendingExecutions(false);
+        } finally {
+            pendingExecutionsLock.unlock();
         }
 
-        synchronized(registryListeners) {
+        registryListenersLock.lock();
+        try {
             for (RegistryListener listener : registryListeners) {
                 listener.beforeShutdown(this);
             }
+        } finally {
+            registryListenersLock.unlock();
         }
 
-        synchronized(resourceItems) {
+        resourceItemsLock.lock();
+        try {
             RegistryItem<URI, Resource>[] resources = resourceItems.toArray(new RegistryItem[resourceItems.size()]);
             for (RegistryItem<URI, Resource> resourceItem : resources) {
                 resourceItem.getItem().shutdown();
             }
+        } finally {
+            resourceItemsLock.unlock();
         }
 
         
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             remoteItems.shutdown();
+        } finally {
+            remoteItemsLock.unlock();
         }
         
-        synchronized(localItems) {
+        localItemsLock.lock();
+        try {
             localItems.shutdown();
+        } finally {
+            localItemsLock.unlock();
         }
 
-        synchronized(registryListeners) {
+        registryListenersLock.lock();
+        try {
             for (RegistryListener listener : registryListeners) {
                 listener.afterShutdown();
             }
+        } finally {
+            registryListenersLock.unlock();
         }
     }
 
     public void pause() {
-        synchronized(lock) {
+        maintainerLock.lock();
+        try {
             if (registryMaintainer != null) {
                 log.trace("Pausing registry maintenance");
                 runPendingExecutions(true);
                 registryMaintainer.stop();
                 registryMaintainer = null;
             }
+        } finally {
+            maintainerLock.unlock();
         }
     }
 
     public void resume() {
-        synchronized(lock) {
+        maintainerLock.lock();
+        try {
             if (registryMaintainer == null) {
                 log.trace("Resuming registry maintenance");
-                synchronized(remoteItems) {
+                remoteItemsLock.lock();
+                try {
                     remoteItems.resume();
+                } finally {
+                    remoteItemsLock.unlock();
                 }
                 
                 registryMaintainer = createRegistryMaintainer();
@@ -523,12 +740,17 @@ public class RegistryImpl implements Registry {
                     getConfiguration().getRegistryMaintainerExecutor().execute(registryMaintainer);
                 }
             }
+        } finally {
+            maintainerLock.unlock();
         }
     }
 
     public boolean isPaused() {
-        synchronized(lock) {
+        maintainerLock.lock();
+        try {
             return registryMaintainer == null;
+        } finally {
+            maintainerLock.unlock();
         }
     }
 
@@ -539,37 +761,54 @@ public class RegistryImpl implements Registry {
         log.trace("Maintaining registry...");
 
         // Remove expired resources
-        synchronized (resourceItems) {
+        resourceItemsLock.lock();
+        try {
+            boolean removed = false;
             Iterator<RegistryItem<URI, Resource>> it = resourceItems.iterator();
             while (it.hasNext()) {
                 RegistryItem<URI, Resource> item = it.next();
                 if (item.getExpirationDetails().hasExpired()) {
                     log.trace("Removing expired resource: " + item);
                     it.remove();
+                    removed = true;
                 }
             }
+            if (removed) {
+                updateResourceIndex();
+            }
             
             // Let each resource do its own maintenance
-            synchronized(pendingExecutions) {
+            pendingExecutionsLock.lock();
+            try {
                 for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
                     resourceItem.getItem().maintain(
                             pendingExecutions,
                             resourceItem.getExpirationDetails()
                     );
                 }
+            } finally {
+                pendingExecutionsLock.unlock();
             }
+        } finally {
+            resourceItemsLock.unlock();
         }
 
 
 
 
         // These add all their operations to the pendingExecutions queue
-        synchronized(remoteItems) {
+        remoteItemsLock.lock();
+        try {
             remoteItems.maintain();
+        } finally {
+            remoteItemsLock.unlock();
         }
         
-        synchronized (localItems) {
+        localItemsLock.lock();
+        try {
             localItems.maintain();
+        } finally {
+            localItemsLock.unlock();
         }
 
         // We now run the queue asynchronously so the maintenance thread can continue its loop undisturbed
@@ -577,13 +816,17 @@ public class RegistryImpl implements Registry {
     }
 
     void executeAsyncProtocol(Runnable runnable) {
-        synchronized (pendingExecutions) {
+        pendingExecutionsLock.lock();
+        try {
             pendingExecutions.add(runnable);
+        } finally {
+            pendingExecutionsLock.unlock();
         }
     }
 
     void runPendingExecutions(boolean async) {
-        synchronized (pendingExecutions) {
+        pendingExecutionsLock.lock();
+        try {
             log.trace("Executing pending operations: {}", pendingExecutions.size());
             for (Runnable pendingExecution : pendingExecutions) {
                 if (async)
@@ -594,6 +837,8 @@ public class RegistryImpl implements Registry {
             if (pendingExecutions.size() > 0) {
                 pendingExecutions.clear();
             }
+        } finally {
+            pendingExecutionsLock.unlock();
         }
     }
 
@@ -603,26 +848,35 @@ public class RegistryImpl implements Registry {
         if (log.isTraceEnabled()) {
             log.trace("====================================    REMOTE   ================================================");
 
-            synchronized(remoteItems) {
+            remoteItemsLock.lock();
+            try {
                 for (RemoteDevice remoteDevice : remoteItems.get()) {
                     log.trace(remoteDevice.toString());
                 }
+            } finally {
+                remoteItemsLock.unlock();
             }
 
             log.trace("====================================    LOCAL    ================================================");
 
-            synchronized(localItems) {
+            localItemsLock.lock();
+            try {
                 for (LocalDevice localDevice : localItems.get()) {
                     log.trace(localDevice.toString());
                 }
+            } finally {
+                localItemsLock.unlock();
             }
 
             log.trace("====================================  RESOURCES  ================================================");
 
-            synchronized(resourceItems) {
+            resourceItemsLock.lock();
+            try {
                 for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
                     log.trace(resourceItem.toString());
                 }
+            } finally {
+                resourceItemsLock.unlock();
             }
 
             log.trace("=================================================================================================");
@@ -630,39 +884,48 @@ public class RegistryImpl implements Registry {
         }
 
     }
-    
- 	@Override
-	public void registerPendingRemoteSubscription(RemoteGENASubscription subscription) {
-		synchronized (pendingSubscriptionsLock) {
-            pendingSubscriptionsLock.add(subscription);
+
+    @Override
+    public void registerPendingRemoteSubscription(RemoteGENASubscription subscription) {
+        pendingSubscriptionsMutex.lock();
+        try {
+            pendingSubscriptions.add(subscription);
+        } finally {
+            pendingSubscriptionsMutex.unlock();
         }
-	}
-	
-	@Override
-	public void unregisterPendingRemoteSubscription(RemoteGENASubscription subscription) {
-        synchronized (pendingSubscriptionsLock) {
-            if(pendingSubscriptionsLock.remove(subscription)) {
-                pendingSubscriptionsLock.notifyAll();
+    }
+
+    @Override
+    public void unregisterPendingRemoteSubscription(RemoteGENASubscription subscription) {
+        pendingSubscriptionsMutex.lock();
+        try {
+            if (pendingSubscriptions.remove(subscription)) {
+                pendingSubscriptionsChanged.signalAll();
             }
+        } finally {
+            pendingSubscriptionsMutex.unlock();
         }
-	}
+    }
 
     @Override
     public RemoteGENASubscription getWaitRemoteSubscription(String subscriptionId) {
-        synchronized (pendingSubscriptionsLock) {
+        pendingSubscriptionsMutex.lock();
+        try {
             do {
                 RemoteGENASubscription subscription = getRemoteSubscription(subscriptionId);
                 if (subscription != null) {
                     return subscription;
                 }
-                if (!pendingSubscriptionsLock.isEmpty()) {
+                if (!pendingSubscriptions.isEmpty()) {
                     try {
                         log.trace("Subscription not found, waiting for pending subscription procedure to terminate." );
-                        pendingSubscriptionsLock.wait();
+                        pendingSubscriptionsChanged.await();
                     } catch (InterruptedException e) {
                     }
                 }
-            } while (!pendingSubscriptionsLock.isEmpty());
+            } while (!pendingSubscriptions.isEmpty());
+        } finally {
+            pendingSubscriptionsMutex.unlock();
         }
         return null;
     }
@@ -24,7 +24,9 @@ import org.jupnp.model.meta.RemoteDevice;
  * discovered on your UPnP network, or when it is updated, or when it disappears.
  * </p>
  * <p>
- * Implementations will be called concurrently by several threads, they should be thread-safe.
+ * The device changes are delivered to a listener in the order in which they happened, one at a
+ * time, but not always by the same thread; implementations should be thread-safe. Changes which
+ * are still waiting for delivery may be coalesced, see {@link RegistryEventBus}.
  * </p>
  * <p>
  * Listener methods are called in a separate thread, so you can execute
@@ -14,6 +14,7 @@
 
 package org.jupnp.registry;
 
+import java.net.InetAddress;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -43,6 +44,10 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
 
     private Logger log = LoggerFactory.getLogger(Registry.class);
 
+    // The registered items of root devices, and the last announcement of every root and embedded device
+    final private Map<UDN, RegistryItem<UDN, RemoteDevice>> rootItems = new HashMap<>();
+    final private Map<UDN, Announcement> announcements = new HashMap<>();
+
     RemoteItems(RegistryImpl registry) {
         super(registry);
     }
@@ -81,7 +86,7 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
         }
 
         // Override the device's maximum age if configured (systems without multicast support)
-        RegistryItem item = new RegistryItem(
+        RegistryItem<UDN, RemoteDevice> item = new RegistryItem<UDN, RemoteDevice>(
                 device.getIdentity().getUdn(),
                 device,
                 registry.getConfiguration().getRemoteDeviceMaxAgeSeconds() != null
@@ -92,6 +97,15 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
                          + item.getExpirationDetails().getMaxAgeSeconds() + " seconds expiration: " + device);
         getDeviceItems().add(item);
 
+        rootItems.put(item.getKey(), item);
+        announcements.put(item.getKey(), new Announcement(item.getKey(), device.getIdentity()));
+        for (RemoteDevice embeddedDevice : device.findEmbeddedDevices()) {
+            announcements.put(
+                    embeddedDevice.getIdentity().getUdn(),
+                    new Announcement(item.getKey(), embeddedDevice.getIdentity())
+            );
+        }
+
         if (log.isTraceEnabled()) {
             StringBuilder sb = new StringBuilder();
             sb.append("\n");
@@ -105,18 +119,21 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
 
         // Only notify the listeners when the device is fully usable
         log.trace("Completely hydrated remote device graph available, calling listeners: " + device);
-        for (final RegistryListener listener : registry.getListeners()) {
-            registry.getConfiguration().getRegistryListenerExecutor().execute(
-                    new Runnable() {
-                        public void run() {
-                            listener.remoteDeviceAdded(registry, device);
-                        }
-                    }
-            );
-        }
+        registry.getEventBus().remoteDeviceAdded(device);
 
     }
 
+    /**
+     * Updates the expiration timestamp of the registered device with the given UDN.
+     * <p>
+     * If the device announced the same descriptor location, maximum age and local interface the last
+     * time, only the expiration timestamp of its root device is updated, and
+     * {@link MaterialUpdateRegistryListener}s are not notified. Otherwise the registered item is
+     * replaced and all listeners are notified.
+     * </p>
+     *
+     * @return <code>true</code> if a device with the given UDN is registered.
+     */
     boolean update(RemoteDeviceIdentity rdIdentity) {
 
         for (LocalDevice localDevice : registry.getLocalDevices()) {
@@ -126,6 +143,13 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
             }
         }
 
+        RegistryItem<UDN, RemoteDevice> refreshedItem = refresh(rdIdentity);
+        if (refreshedItem != null) {
+            log.trace("Refreshed expiration of unchanged: " + refreshedItem.getItem());
+            registry.getEventBus().remoteDeviceUpdated(refreshedItem.getItem(), false);
+            return true;
+        }
+
         RemoteDevice registeredRemoteDevice = get(rdIdentity.getUdn(), false);
                   
         if (registeredRemoteDevice != null) {
@@ -135,7 +159,9 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
             if (remoteDeviceIdentity != null) {
                 URL descriptorUrl = rdIdentity.getDescriptorURL(); 
                 URL remoteDescriptorUrl = remoteDeviceIdentity.getDescriptorURL();
-                if (descriptorUrl != null & remoteDescriptorUrl != null && !descriptorUrl.getHost().equals(remoteDescriptorUrl.getHost())) {
+                // Announcements of a known location share the URL instance, see RemoteDeviceIdentityCache
+                if (descriptorUrl != null && remoteDescriptorUrl != null && descriptorUrl != remoteDescriptorUrl
+                        && !descriptorUrl.getHost().equals(remoteDescriptorUrl.getHost())) {
                     log.trace("IP adress has changed - removing the registered device");
                     remove(registeredRemoteDevice);
                     return false;
@@ -160,16 +186,11 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
             getDeviceItems().remove(item);
             getDeviceItems().add(item);
 
+            rootItems.put(item.getKey(), item);
+            announcements.put(rdIdentity.getUdn(), new Announcement(item.getKey(), rdIdentity));
+
             log.trace("Remote device updated, calling listeners: " + registeredRemoteDevice);
-            for (final RegistryListener listener : registry.getListeners()) {
-                registry.getConfiguration().getRegistryListenerExecutor().execute(
-                        new Runnable() {
-                            public void run() {
-                                listener.remoteDeviceUpdated(registry, item.getItem());
-                            }
-                        }
-                );
-            }
+            registry.getEventBus().remoteDeviceUpdated(item.getItem(), true);
 
             return true;
 
@@ -225,20 +246,18 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
 
             // Only notify listeners if we are NOT in the process of shutting down the registry
             if (!shuttingDown) {
-                for (final RegistryListener listener : registry.getListeners()) {
-                    registry.getConfiguration().getRegistryListenerExecutor().execute(
-                            new Runnable() {
-                                public void run() {
-                                    listener.remoteDeviceRemoved(registry, registeredDevice);
-                                }
-                            }
-                    );
-                }
+                registry.getEventBus().remoteDeviceRemoved(registeredDevice);
             }
 
             // Finally, remove the device from the registry
             getDeviceItems().remove(new RegistryItem(registeredDevice.getIdentity().getUdn()));
 
+            rootItems.remove(registeredDevice.getIdentity().getUdn());
+            announcements.remove(registeredDevice.getIdentity().getUdn());
+            for (RemoteDevice embeddedDevice : registeredDevice.findEmbeddedDevices()) {
+                announcements.remove(embeddedDevice.getIdentity().getUdn());
+            }
+
             return true;
         }
 
@@ -325,9 +344,56 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
 
     /* ############################################################################################################ */
 
+    /**
+     * Updates the expiration timestamp of the registered root device if the announcement didn't change.
+     *
+     * @return The refreshed item, or <code>null</code> if the device is unknown or the announcement changed.
+     */
+    protected RegistryItem<UDN, RemoteDevice> refresh(RemoteDeviceIdentity rdIdentity) {
+        Announcement announcement = announcements.get(rdIdentity.getUdn());
+        if (announcement == null || !announcement.matches(rdIdentity)) {
+            return null;
+        }
+        RegistryItem<UDN, RemoteDevice> item = rootItems.get(announcement.rootUDN);
+        Integer maxAgeSeconds = registry.getConfiguration().getRemoteDeviceMaxAgeSeconds() != null
+                ? registry.getConfiguration().getRemoteDeviceMaxAgeSeconds()
+                : rdIdentity.getMaxAgeSeconds();
+        if (item == null || maxAgeSeconds == null
+                || item.getExpirationDetails().getMaxAgeSeconds() != maxAgeSeconds) {
+            return null;
+        }
+        item.getExpirationDetails().stampLastRefresh();
+        return item;
+    }
+
     protected void renewOutgoingSubscription(final RemoteGENASubscription subscription) {
         registry.executeAsyncProtocol(
                 registry.getProtocolFactory().createSendingRenewal(subscription)
         );
     }
+
+    /**
+     * The values of an announcement which, when repeated, only extend the expiration of a device.
+     */
+    static class Announcement {
+
+        final private UDN rootUDN;
+        final private URL descriptorURL;
+        final private InetAddress localAddress;
+
+        Announcement(UDN rootUDN, RemoteDeviceIdentity identity) {
+            this.rootUDN = rootUDN;
+            this.descriptorURL = identity.getDescriptorURL();
+            this.localAddress = identity.getDiscoveredOnLocalAddress();
+        }
+
+        boolean matches(RemoteDeviceIdentity identity) {
+            URL url = identity.getDescriptorURL();
+            // Not URL.equals(), it resolves host names
+            boolean sameURL = url == descriptorURL
+                    || (url != null && descriptorURL != null && url.toString().equals(descriptorURL.toString()));
+            InetAddress address = identity.getDiscoveredOnLocalAddress();
+            return sameURL && (address == null ? localAddress == null : address.equals(localAddress));
+        }
+    }
 }
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.transport;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jupnp.model.message.IncomingDatagramMessage;
+import org.jupnp.model.message.UpnpRequest;
+import org.jupnp.model.message.header.UpnpHeader;
+
+/**
+ * Recognizes repeated SSDP <em>NOTIFY</em> messages of the same device before a protocol is created.
+ * <p>
+ * A device sends a notification for its root device, every embedded device and every service
+ * type, and repeats them several times (see
+ * {@link org.jupnp.protocol.async.SendingNotification#getBulkRepeat()}). Only the first notification
+ * with the same UDN, <code>LOCATION</code>, <code>NTS</code> and <code>BOOTID.UPNP.ORG</code> within
+ * the configured window is processed: it refreshes the expiration of the device in the registry
+ * (or starts the retrieval of its descriptor), the repeats are dropped without creating a protocol,
+ * a task or a remote device. A notification is only recorded once the router accepted it, if it
+ * was not processed its repeats are not dropped either.
+ * </p>
+ * <p>
+ * Only the raw header strings are examined and the filter does not lock, it is safe to call it
+ * concurrently from all receiving threads. A notification with a different <code>NTS</code>, e.g.
+ * an <em>ALIVE</em> directly following a <em>BYEBYE</em>, is never suppressed.
+ * </p>
+ */
+public class DuplicateNotificationFilter {
+
+    public static final int DEFAULT_WINDOW_MILLIS = 2000;
+
+    // Stale entries are purged when the number of tracked devices exceeds this size
+    public static final int PURGE_THRESHOLD = 1000;
+
+    public static final String BOOTID_HEADER = "BOOTID.UPNP.ORG";
+
+    final private long windowNanos;
+    final private Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    final private AtomicLong receivedCount = new AtomicLong();
+    final private AtomicLong suppressedCount = new AtomicLong();
+
+    public DuplicateNotificationFilter() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    public DuplicateNotificationFilter(int windowMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    /**
+     * Does not record the message, call {@link #accepted(IncomingDatagramMessage)} once it has been
+     * handed to a protocol.
+     *
+     * @return <code>true</code> if the message is a repeated notification which should be dropped.
+     */
+    public boolean isDuplicate(IncomingDatagramMessage msg) {
+        String key = getKey(msg);
+        if (key == null) {
+            return false;
+        }
+        receivedCount.incrementAndGet();
+
+        Entry entry = entries.get(key);
+        if (entry != null
+                && entry.nts.equals(getNTS(msg))
+                && System.nanoTime() - entry.timestamp < windowNanos) {
+            suppressedCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a notification which is processed, its repeats within the window are duplicates.
+     */
+    public void accepted(IncomingDatagramMessage msg) {
+        String key = getKey(msg);
+        if (key == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.put(key, new Entry(getNTS(msg), now));
+        if (entries.size() > PURGE_THRESHOLD) {
+            purge(now);
+        }
+    }
+
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    /**
+     * @return The UDN, <code>LOCATION</code> and <code>BOOTID.UPNP.ORG</code> of a notification, or
+     *         <code>null</code> if the message is not a notification or misses its USN or NTS.
+     */
+    protected String getKey(IncomingDatagramMessage msg) {
+        if (!(msg.getOperation() instanceof UpnpRequest)
+                || ((UpnpRequest) msg.getOperation()).getMethod() != UpnpRequest.Method.NOTIFY) {
+            return null;
+        }
+
+        String usn = msg.getHeaders().getFirstHeader(UpnpHeader.Type.USN.getHttpName());
+        if (usn == null || getNTS(msg) == null) {
+            // Let the protocol deal with (and log) broken messages
+            return null;
+        }
+
+        // The UDN is the part of the USN before the type, e.g. "uuid:...::upnp:rootdevice"
+        int separator = usn.indexOf("::");
+        String udn = separator != -1 ? usn.substring(0, separator) : usn;
+        return udn.trim()
+                + " " + msg.getHeaders().getFirstHeader(UpnpHeader.Type.LOCATION.getHttpName())
+                + " " + msg.getHeaders().getFirstHeader(BOOTID_HEADER);
+    }
+
+    protected String getNTS(IncomingDatagramMessage msg) {
+        return msg.getHeaders().getFirstHeader(UpnpHeader.Type.NTS.getHttpName());
+    }
+
+    protected void purge(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().timestamp >= windowNanos) {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") received: " + getReceivedCount()
+                + ", suppressed: " + getSuppressedCount();
+    }
+
+    static class Entry {
+
+        final String nts;
+        final long timestamp;
+
+        Entry(String nts, long timestamp) {
+            this.nts = nts;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs periodically and calls {@link org.jupnp.transport.RouterImpl#updateNetwork()}.
+ */
+public class NetworkMonitor implements Runnable {
+
+    private Logger log = LoggerFactory.getLogger(NetworkMonitor.class);
+
+    final private RouterImpl router;
+    final private int sleepIntervalMillis;
+
+    private volatile boolean stopped = false;
+
+    public NetworkMonitor(RouterImpl router, int sleepIntervalMillis) {
+        this.router = router;
+        this.sleepIntervalMillis = sleepIntervalMillis;
+    }
+
+    public void stop() {
+        log.trace("Setting stopped status on thread");
+        stopped = true;
+    }
+
+    public void run() {
+        log.trace("Running network monitor loop every milliseconds: " + sleepIntervalMillis);
+        while (!stopped) {
+
+            try {
+                Thread.sleep(sleepIntervalMillis);
+                if (!stopped) {
+                    router.updateNetwork();
+                }
+            } catch (InterruptedException ex) {
+                stopped = true;
+            } catch (RouterException ex) {
+                log.warn("Updating network transports failed: " + ex);
+            } catch (Exception ex) {
+                // Keep monitoring, the next run might succeed
+                log.warn("Unexpected failure updating network transports: " + ex, ex);
+            }
+
+        }
+        log.trace("Stopped status on thread received, ending network monitor loop");
+    }
+
+}
@@ -21,9 +21,12 @@ import java.net.NetworkInterface;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -34,9 +37,11 @@ import org.jupnp.model.message.IncomingDatagramMessage;
 import org.jupnp.model.message.OutgoingDatagramMessage;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.StreamResponseMessage;
+import org.jupnp.model.meta.LocalDevice;
 import org.jupnp.protocol.ProtocolCreationException;
 import org.jupnp.protocol.ProtocolFactory;
 import org.jupnp.protocol.ReceivingAsync;
+import org.jupnp.protocol.async.SendingNotificationAlive;
 import org.jupnp.transport.spi.DatagramIO;
 import org.jupnp.transport.spi.InitializationException;
 import org.jupnp.transport.spi.MulticastReceiver;
@@ -54,6 +59,11 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Initializes and starts listening for data on the network when enabled.
  * </p>
+ * <p>
+ * If the configuration enables a {@link NetworkMonitor}, network interfaces and addresses
+ * are rediscovered periodically and only the transports of interfaces and addresses which
+ * appeared or disappeared are started or stopped, see {@link #updateNetwork()}.
+ * </p>
  *
  * @author Christian Bauer
  * @author Kai Kreuzer - added multicast response port
@@ -76,6 +86,9 @@ public class RouterImpl implements Router {
     protected final Map<NetworkInterface, MulticastReceiver> multicastReceivers = new HashMap();
     protected final Map<InetAddress, DatagramIO> datagramIOs = new HashMap();
     protected final Map<InetAddress, StreamServer> streamServers = new HashMap();
+    protected NetworkMonitor networkMonitor;
+
+    protected DuplicateNotificationFilter duplicateNotificationFilter;
 
     protected RouterImpl() {
     }
@@ -87,6 +100,7 @@ public class RouterImpl implements Router {
     public RouterImpl(UpnpServiceConfiguration configuration, ProtocolFactory protocolFactory) {
         this.configuration = configuration;
         this.protocolFactory = protocolFactory;
+        this.duplicateNotificationFilter = createDuplicateNotificationFilter();
     }
 
     public boolean enable(EnableRouter event) throws RouterException {
@@ -105,6 +119,21 @@ public class RouterImpl implements Router {
         return protocolFactory;
     }
 
+    /**
+     * @return The filter dropping repeated notifications, or <code>null</code> if disabled.
+     */
+    public DuplicateNotificationFilter getDuplicateNotificationFilter() {
+        return duplicateNotificationFilter;
+    }
+
+    /**
+     * @return A filter with the configured window, or <code>null</code> if the window is zero.
+     */
+    protected DuplicateNotificationFilter createDuplicateNotificationFilter() {
+        int windowMillis = getConfiguration().getDuplicateNotificationWindowMillis();
+        return windowMillis > 0 ? new DuplicateNotificationFilter(windowMillis) : null;
+    }
+
     /**
      * Initializes listening services: First an instance of {@link org.jupnp.transport.spi.MulticastReceiver}
      * is bound to each network interface. Then an instance of {@link org.jupnp.transport.spi.DatagramIO} and
@@ -134,6 +163,8 @@ public class RouterImpl implements Router {
                     // Start the HTTP client last, we don't even have to try if there is no network
                     streamClient = getConfiguration().createStreamClient();
 
+                    startNetworkMonitor();
+
                     enabled = true;
                     return true;
                 } catch (InitializationException ex) {
@@ -153,6 +184,12 @@ public class RouterImpl implements Router {
             if (enabled) {
                 log.debug("Disabling network services...");
 
+                if (networkMonitor != null) {
+                    log.debug("Stopping network monitor");
+                    networkMonitor.stop();
+                    networkMonitor = null;
+                }
+
                 if (streamClient != null) {
                     log.debug("Stopping stream client connection management/pool");
                     streamClient.stop();
@@ -207,6 +244,54 @@ public class RouterImpl implements Router {
         }
     }
 
+    /**
+     * Rediscovers the network interfaces and addresses and updates the running transports.
+     * <p>
+     * Transports of network interfaces and addresses which are no longer usable are stopped,
+     * transports for new interfaces and addresses are initialized and started. All other
+     * transports keep running, without dropping their traffic. Local devices are then
+     * announced on the new addresses, see {@link #advertiseLocalDevices(List)}.
+     * </p>
+     *
+     * @return <code>true</code> if the network changed and transports have been updated.
+     */
+    public boolean updateNetwork() throws RouterException {
+        List<InetAddress> startedAddresses;
+        lock(writeLock);
+        try {
+            if (!enabled) {
+                return false;
+            }
+            try {
+                if (!networkAddressFactory.refresh()) {
+                    log.trace("Network has not changed");
+                    return false;
+                }
+                log.info("Network changed, updating transports");
+
+                stopRemovedTransports();
+
+                startInterfaceBasedTransports(networkAddressFactory.getNetworkInterfaces());
+                startedAddresses = startAddressBasedTransports(networkAddressFactory.getBindAddresses());
+
+                if (!networkAddressFactory.hasUsableNetwork()) {
+                    log.warn("No usable network interface and/or addresses available after network change");
+                }
+            } catch (InitializationException ex) {
+                log.warn("Updating network transports failed: " + ex);
+                log.warn("Cause: " + Exceptions.unwrap(ex));
+                return false;
+            }
+        } finally {
+            unlock(writeLock);
+        }
+
+        if (!startedAddresses.isEmpty()) {
+            advertiseLocalDevices(startedAddresses);
+        }
+        return true;
+    }
+
     public List<NetworkAddress> getActiveStreamServers(InetAddress preferredAddress) throws RouterException {
         lock(readLock);
         try {
@@ -251,6 +336,12 @@ public class RouterImpl implements Router {
      * datagrams in the protocol factory and e.g. completely disable discovery or only
      * allow notification message from some known services we'd like to work with.
      * </p>
+     * <p>
+     * Repeated notifications of the same device are dropped before the protocol is created,
+     * see {@link DuplicateNotificationFilter}. A notification is only recorded by the filter
+     * once its protocol has been queued, a rejected notification is processed when it is repeated.
+     * A protocol rejected by the executor is told so with {@link ReceivingAsync#rejected()}.
+     * </p>
      *
      * @param msg The received datagram message.
      */
@@ -259,6 +350,10 @@ public class RouterImpl implements Router {
             log.debug("Router disabled, ignoring incoming message: " + msg);
             return;
         }
+        if (duplicateNotificationFilter != null && duplicateNotificationFilter.isDuplicate(msg)) {
+            log.trace("Ignoring repeated notification: " + msg);
+            return;
+        }
         try {
             ReceivingAsync protocol = getProtocolFactory().createReceivingAsync(msg);
             if (protocol == null) {
@@ -266,7 +361,16 @@ public class RouterImpl implements Router {
                 return;
             }
             log.debug("Received asynchronous message: " + msg);
-            getConfiguration().getAsyncProtocolExecutor().execute(protocol);
+            try {
+                getConfiguration().getAsyncProtocolExecutor().execute(protocol);
+            } catch (RejectedExecutionException ex) {
+                log.warn("Async protocol executor rejected received message: " + msg);
+                protocol.rejected();
+                return;
+            }
+            if (duplicateNotificationFilter != null) {
+                duplicateNotificationFilter.accepted(msg);
+            }
         } catch (ProtocolCreationException ex) {
             log.warn("Handling received datagram failed - " + Exceptions.unwrap(ex).toString());
         }
@@ -366,9 +470,24 @@ public class RouterImpl implements Router {
         }
     }
 
-    protected void startInterfaceBasedTransports(Iterator<NetworkInterface> interfaces) throws InitializationException {
+    /**
+     * Initializes and starts the transports of the given network interfaces, interfaces with
+     * running transports are skipped.
+     *
+     * @return The network interfaces whose transports have been started.
+     */
+    protected List<NetworkInterface> startInterfaceBasedTransports(Iterator<NetworkInterface> interfaces) throws InitializationException {
+        Set<String> runningInterfaces = new HashSet<String>();
+        for (NetworkInterface networkInterface : multicastReceivers.keySet()) {
+            runningInterfaces.add(networkInterface.getName());
+        }
+
+        List<NetworkInterface> startedInterfaces = new ArrayList<NetworkInterface>();
         while (interfaces.hasNext()) {
             NetworkInterface networkInterface = interfaces.next();
+            if (runningInterfaces.contains(networkInterface.getName())) {
+                continue;
+            }
 
             // We only have the MulticastReceiver as an interface-based transport
             MulticastReceiver multicastReceiver = getConfiguration().createMulticastReceiver(networkAddressFactory);
@@ -385,6 +504,7 @@ public class RouterImpl implements Router {
                     );
 
                     multicastReceivers.put(networkInterface, multicastReceiver);
+                    startedInterfaces.add(networkInterface);
                 } catch (InitializationException ex) {
                     /* TODO: What are some recoverable exceptions for this?
                     log.warn(
@@ -402,15 +522,27 @@ public class RouterImpl implements Router {
             }
         }
 
-        for (Map.Entry<NetworkInterface, MulticastReceiver> entry : multicastReceivers.entrySet()) {
-            log.debug("Starting multicast receiver on interface: " + entry.getKey().getDisplayName());
-            getConfiguration().getMulticastReceiverExecutor().execute(entry.getValue());
+        for (NetworkInterface networkInterface : startedInterfaces) {
+            log.debug("Starting multicast receiver on interface: " + networkInterface.getDisplayName());
+            getConfiguration().getMulticastReceiverExecutor().execute(multicastReceivers.get(networkInterface));
         }
+        return startedInterfaces;
     }
 
-    protected void startAddressBasedTransports(Iterator<InetAddress> addresses) throws InitializationException {
+    /**
+     * Initializes and starts the transports of the given addresses, addresses with running
+     * transports are skipped.
+     *
+     * @return The addresses whose transports have been started.
+     */
+    protected List<InetAddress> startAddressBasedTransports(Iterator<InetAddress> addresses) throws InitializationException {
+        List<InetAddress> startedAddresses = new ArrayList<InetAddress>();
         while (addresses.hasNext()) {
             InetAddress address = addresses.next();
+            if (streamServers.containsKey(address) || datagramIOs.containsKey(address)) {
+                continue;
+            }
+            startedAddresses.add(address);
 
             // HTTP servers
             StreamServer streamServer = getConfiguration().createStreamServer(networkAddressFactory);
@@ -429,6 +561,7 @@ public class RouterImpl implements Router {
                             log.debug("Initialization exception root cause", cause);
                         log.warn("Removing unusable address: " + address);
                         addresses.remove();
+                        startedAddresses.remove(address);
                         continue; // Don't try anything else with this address
                     }
                     throw ex;
@@ -461,14 +594,95 @@ public class RouterImpl implements Router {
             }
         }
 
-        for (Map.Entry<InetAddress, StreamServer> entry : streamServers.entrySet()) {
-            log.debug("Starting stream server on address: " + entry.getKey());
-            getConfiguration().getStreamServerExecutorService().execute(entry.getValue());
+        for (InetAddress address : startedAddresses) {
+            StreamServer streamServer = streamServers.get(address);
+            if (streamServer != null) {
+                log.debug("Starting stream server on address: " + address);
+                getConfiguration().getStreamServerExecutorService().execute(streamServer);
+            }
+        }
+
+        for (InetAddress address : startedAddresses) {
+            DatagramIO datagramIO = datagramIOs.get(address);
+            if (datagramIO != null) {
+                log.debug("Starting datagram I/O on address: " + address);
+                getConfiguration().getDatagramIOExecutor().execute(datagramIO);
+            }
         }
+        return startedAddresses;
+    }
+
+    /**
+     * Stops the transports of network interfaces and addresses which are no longer provided
+     * by the network address factory.
+     */
+    protected void stopRemovedTransports() {
+        Set<String> interfaceNames = new HashSet<String>();
+        Iterator<NetworkInterface> interfaces = networkAddressFactory.getNetworkInterfaces();
+        while (interfaces.hasNext()) {
+            interfaceNames.add(interfaces.next().getName());
+        }
+        Set<InetAddress> addresses = new HashSet<InetAddress>();
+        Iterator<InetAddress> bindAddresses = networkAddressFactory.getBindAddresses();
+        while (bindAddresses.hasNext()) {
+            addresses.add(bindAddresses.next());
+        }
+
+        Iterator<Map.Entry<InetAddress, StreamServer>> streamServerIt = streamServers.entrySet().iterator();
+        while (streamServerIt.hasNext()) {
+            Map.Entry<InetAddress, StreamServer> entry = streamServerIt.next();
+            if (!addresses.contains(entry.getKey())) {
+                log.debug("Stopping stream server on removed address: " + entry.getKey());
+                entry.getValue().stop();
+                streamServerIt.remove();
+            }
+        }
+
+        Iterator<Map.Entry<NetworkInterface, MulticastReceiver>> multicastReceiverIt =
+            multicastReceivers.entrySet().iterator();
+        while (multicastReceiverIt.hasNext()) {
+            Map.Entry<NetworkInterface, MulticastReceiver> entry = multicastReceiverIt.next();
+            if (!interfaceNames.contains(entry.getKey().getName())) {
+                log.debug("Stopping multicast receiver on removed interface: " + entry.getKey().getDisplayName());
+                entry.getValue().stop();
+                multicastReceiverIt.remove();
+            }
+        }
+
+        Iterator<Map.Entry<InetAddress, DatagramIO>> datagramIOIt = datagramIOs.entrySet().iterator();
+        while (datagramIOIt.hasNext()) {
+            Map.Entry<InetAddress, DatagramIO> entry = datagramIOIt.next();
+            if (!addresses.contains(entry.getKey())) {
+                log.debug("Stopping datagram I/O on removed address: " + entry.getKey());
+                entry.getValue().stop();
+                datagramIOIt.remove();
+            }
+        }
+    }
+
+    /**
+     * Announces all local devices on the given new addresses.
+     */
+    protected void advertiseLocalDevices(List<InetAddress> addresses) {
+        if (getProtocolFactory() == null || getProtocolFactory().getUpnpService() == null) {
+            return;
+        }
+        for (LocalDevice localDevice : getProtocolFactory().getUpnpService().getRegistry().getLocalDevices()) {
+            SendingNotificationAlive protocol =
+                getProtocolFactory().createSendingNotificationAlive(localDevice, addresses);
+            if (protocol != null) {
+                log.debug("Advertising local device on new addresses " + addresses + ": " + localDevice);
+                getConfiguration().getAsyncProtocolExecutor().execute(protocol);
+            }
+        }
+    }
 
-        for (Map.Entry<InetAddress, DatagramIO> entry : datagramIOs.entrySet()) {
-            log.debug("Starting datagram I/O on address: " + entry.getKey());
-            getConfiguration().getDatagramIOExecutor().execute(entry.getValue());
+    protected void startNetworkMonitor() {
+        int intervalMillis = getConfiguration().getNetworkMonitorIntervalMillis();
+        if (intervalMillis > 0) {
+            log.debug("Starting network monitor, checking network every milliseconds: " + intervalMillis);
+            networkMonitor = new NetworkMonitor(this, intervalMillis);
+            getConfiguration().getNetworkMonitorExecutor().execute(networkMonitor);
         }
     }
 
@@ -25,6 +25,7 @@ public class DatagramIOConfigurationImpl implements DatagramIOConfiguration {
 
     private int timeToLive = 4;
     private int maxDatagramBytes = 640;
+    private int sendQueueSize = DatagramSendQueue.DEFAULT_CAPACITY;
 
     /**
      * Defaults to TTL of '4' and maximum datagram size of 640 bytes (512 per UDA 1.0, 128 byte header).
@@ -52,4 +53,16 @@ public class DatagramIOConfigurationImpl implements DatagramIOConfiguration {
     public void setMaxDatagramBytes(int maxDatagramBytes) {
         this.maxDatagramBytes = maxDatagramBytes;
     }
+
+    /**
+     * @return The maximum number of datagrams waiting to be sent, <code>0</code> sends
+     *         datagrams on the calling thread. Defaults to {@link DatagramSendQueue#DEFAULT_CAPACITY}.
+     */
+    public int getSendQueueSize() {
+        return sendQueueSize;
+    }
+
+    public void setSendQueueSize(int sendQueueSize) {
+        this.sendQueueSize = sendQueueSize;
+    }
 }
\ No newline at end of file
@@ -36,8 +36,16 @@ import org.slf4j.LoggerFactory;
  * datagrams with a configuration time-to-live requires a <code>MulticastSocket</code>.
  * </p>
  * <p>
- * Thread-safety is guaranteed through synchronization of methods of this service and
- * by the thread-safe underlying socket.
+ * Thread-safety is guaranteed through synchronization of the initialization and shutdown
+ * methods of this service and by the thread-safe underlying socket. Sending does not
+ * acquire a monitor, messages are serialized on the calling thread and handed to the
+ * socket concurrently, so that callers on virtual threads do not pin their carrier thread.
+ * </p>
+ * <p>
+ * Unless disabled with {@link DatagramIOConfigurationImpl#setSendQueueSize(int)}, serialized
+ * datagrams are appended to a bounded {@link DatagramSendQueue} and written by a task on the
+ * {@link org.jupnp.UpnpServiceConfiguration#getDatagramIOExecutor()}, the calling protocol never
+ * waits for the socket.
  * </p>
  * 
  * @author Christian Bauer
@@ -57,13 +65,17 @@ public class DatagramIOImpl implements DatagramIO<DatagramIOConfigurationImpl> {
 
      */
 
+    // Time queued datagrams are still sent after the service was stopped
+    public static final int STOP_TIMEOUT_MILLIS = 1000;
+
     final protected DatagramIOConfigurationImpl configuration;
 
     protected Router router;
     protected DatagramProcessor datagramProcessor;
 
     protected InetSocketAddress localAddress;
-    protected MulticastSocket socket; // For sending unicast & multicast, and reveiving unicast
+    volatile protected MulticastSocket socket; // For sending unicast & multicast, and reveiving unicast
+    volatile protected DatagramSendQueue sendQueue;
 
     public DatagramIOImpl(DatagramIOConfigurationImpl configuration) {
         this.configuration = configuration;
@@ -91,9 +103,40 @@ public class DatagramIOImpl implements DatagramIO<DatagramIOConfigurationImpl> {
         } catch (Exception ex) {
             throw new InitializationException("Could not initialize " + getClass().getSimpleName() + ": " + ex);
         }
+
+        if (configuration.getSendQueueSize() > 0) {
+            DatagramSendQueue queue = createSendQueue(configuration.getSendQueueSize());
+            if (queue.start(router.getConfiguration().getDatagramIOExecutor())) {
+                sendQueue = queue;
+            } else {
+                log.warn("Datagram I/O executor rejected the send queue writer, sending on the calling thread: "
+                        + localAddress);
+            }
+        }
+    }
+
+    /**
+     * @return The queue of outgoing datagrams, or <code>null</code> if datagrams are sent on the calling thread.
+     */
+    public DatagramSendQueue getSendQueue() {
+        return sendQueue;
+    }
+
+    protected DatagramSendQueue createSendQueue(int capacity) {
+        return new DatagramSendQueue(capacity) {
+            @Override
+            protected void transmit(DatagramPacket packet) {
+                sendPacket(packet);
+            }
+        };
     }
 
     synchronized public void stop() {
+        if (sendQueue != null) {
+            // Byebye notifications are queued right before shutdown
+            sendQueue.stop(STOP_TIMEOUT_MILLIS);
+            log.debug("Stopped datagram send queue: " + sendQueue);
+        }
         if (socket != null && !socket.isClosed()) {
             socket.close();
         }
@@ -139,7 +182,7 @@ public class DatagramIOImpl implements DatagramIO<DatagramIOConfigurationImpl> {
         }
     }
 
-    synchronized public void send(OutgoingDatagramMessage message) {
+    public void send(OutgoingDatagramMessage message) {
         log.debug("Sending message from address: " + localAddress);
 
         DatagramPacket packet = datagramProcessor.write(message);
@@ -149,9 +192,18 @@ public class DatagramIOImpl implements DatagramIO<DatagramIOConfigurationImpl> {
         send(packet);
     }
 
-    synchronized public void send(DatagramPacket datagram) {
+    public void send(DatagramPacket datagram) {
+        DatagramSendQueue queue = sendQueue;
+        if (queue != null) {
+            queue.offer(datagram);
+        } else {
+            sendPacket(datagram);
+        }
+    }
+
+    protected void sendPacket(DatagramPacket datagram) {
         log.debug("Sending message from address: " + localAddress);
-            
+
         try {
             socket.send(datagram);
         } catch (SocketException ex) {
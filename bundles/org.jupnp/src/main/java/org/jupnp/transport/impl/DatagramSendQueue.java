@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.transport.impl;
+
+import java.net.DatagramPacket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jupnp.MonitoredThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded queue of outgoing datagrams, written to the socket by a single writer task.
+ * <p>
+ * Protocol threads only append a packet to a lock-free queue and return, they never wait for
+ * the socket. The writer drains the queue in batches and parks when it is empty. When the
+ * queue is full, e.g. because a search for <code>ssdp:all</code> is answered with hundreds of
+ * messages, further packets are dropped and counted; SSDP is unreliable and every message is
+ * sent several times anyway. Dropped packets are logged at most once every
+ * {@link #DROP_LOG_INTERVAL_MILLIS}.
+ * </p>
+ * <p>
+ * When the queue is stopped, packets which are already queued (e.g. <em>BYEBYE</em>
+ * notifications sent before shutdown) are still written, for at most the given time.
+ * </p>
+ */
+public abstract class DatagramSendQueue implements Runnable, MonitoredThreadPoolExecutor.AbortWhenRejected {
+
+    final private static Logger log = LoggerFactory.getLogger(DatagramSendQueue.class);
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    // Packets written before the writer checks whether it should stop
+    public static final int BATCH_SIZE = 64;
+
+    public static final int DROP_LOG_INTERVAL_MILLIS = 10000;
+
+    final private int capacity;
+    final private Queue<DatagramPacket> queue = new ConcurrentLinkedQueue<DatagramPacket>();
+    final private AtomicInteger size = new AtomicInteger();
+
+    final private AtomicLong sentCount = new AtomicLong();
+    final private AtomicLong droppedCount = new AtomicLong();
+    final private long dropLogIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DROP_LOG_INTERVAL_MILLIS);
+    final private AtomicLong lastDropLog = new AtomicLong(System.nanoTime() - dropLogIntervalNanos);
+
+    final private CountDownLatch finished = new CountDownLatch(1);
+    private volatile Thread writer;
+    private volatile boolean waiting;
+    private volatile boolean running = true;
+
+    public DatagramSendQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DatagramSendQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Writes the packet to the socket, called by the writer thread only.
+     */
+    protected abstract void transmit(DatagramPacket packet);
+
+    /**
+     * Starts the writer, must be called once. The writer occupies a thread of the executor until
+     * the queue is stopped.
+     *
+     * @return <code>false</code> if the executor rejected the writer, the queue is stopped and
+     *         the caller has to send datagrams itself.
+     */
+    public boolean start(Executor executor) {
+        try {
+            executor.execute(this);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            running = false;
+            while (drain() > 0) {
+                // Nobody else will write the packets queued before
+            }
+            finished.countDown();
+            return false;
+        }
+    }
+
+    /**
+     * Appends the packet without blocking.
+     *
+     * @return <code>false</code> if the queue is full or stopped, and the packet was dropped.
+     */
+    public boolean offer(DatagramPacket packet) {
+        boolean accepted = false;
+        if (running) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+            } else {
+                accepted = true;
+            }
+        }
+        if (!accepted) {
+            long dropped = droppedCount.incrementAndGet();
+            long now = System.nanoTime();
+            long last = lastDropLog.get();
+            if (now - last >= dropLogIntervalNanos && lastDropLog.compareAndSet(last, now)) {
+                log.warn("Datagram send queue full or stopped, dropping packets, total dropped: {}", dropped);
+            } else {
+                log.trace("Dropping datagram to: {}", packet.getAddress());
+            }
+            return false;
+        }
+        queue.offer(packet);
+        Thread thread = writer;
+        if (waiting && thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting packets and waits until the queued packets have been written.
+     */
+    public void stop(long timeoutMillis) {
+        running = false;
+        Thread thread = writer;
+        if (thread == Thread.currentThread()) {
+            return;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        boolean done = false;
+        try {
+            done = finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (!done) {
+            log.debug("Datagram writer didn't finish in time, abandoning queued packets: " + size.get());
+            thread = writer;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    public void run() {
+        writer = Thread.currentThread();
+        try {
+            while (true) {
+                int written = drain();
+                if (written == 0) {
+                    if (!running) {
+                        break;
+                    }
+                    waiting = true;
+                    // Check again, a producer might have missed the flag
+                    if (queue.isEmpty() && running) {
+                        LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+                    }
+                    waiting = false;
+                    if (Thread.interrupted() && !running) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            // The thread belongs to the executor, it must not be interrupted by stop() anymore
+            writer = null;
+            finished.countDown();
+        }
+    }
+
+    protected int drain() {
+        int written = 0;
+        DatagramPacket packet;
+        while (written < BATCH_SIZE && (packet = queue.poll()) != null) {
+            size.decrementAndGet();
+            try {
+                transmit(packet);
+                sentCount.incrementAndGet();
+            } catch (RuntimeException ex) {
+                log.warn("Sending datagram failed: " + ex, ex);
+            }
+            written++;
+        }
+        return written;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of packets waiting to be written.
+     */
+    public int getQueuedCount() {
+        return size.get();
+    }
+
+    /**
+     * @return The total number of packets handed to the socket.
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return The total number of packets dropped because the queue was full or stopped.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") queued: " + getQueuedCount()
+                + ", sent: " + getSentCount()
+                + ", dropped: " + getDroppedCount();
+    }
+}
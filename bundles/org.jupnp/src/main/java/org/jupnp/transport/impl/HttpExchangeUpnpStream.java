@@ -23,6 +23,7 @@ import java.util.Locale;
 import com.sun.net.httpserver.HttpExchange;
 
 import org.jupnp.model.message.Connection;
+import org.jupnp.model.message.StreamBody;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.StreamResponseMessage;
 import org.jupnp.model.message.UpnpHeaders;
@@ -128,18 +129,22 @@ public abstract class HttpExchangeUpnpStream extends UpnpStream {
                 );
 
                 // Body
-                byte[] responseBodyBytes = responseMessage.hasBody() ? responseMessage.getBodyBytes() : null;
-                int contentLength = responseBodyBytes != null ? responseBodyBytes.length : -1;
+                StreamBody responseBody = responseMessage.hasBody() ? responseMessage.getBodyStream() : null;
+                long contentLength = responseBody != null ? responseBody.getContentLength() : 0;
 
                 log.trace("Sending HTTP response message: {} with content length: {}", responseMessage, contentLength);
-                getHttpExchange().sendResponseHeaders(responseMessage.getOperation().getStatusCode(), contentLength);
+                // The HttpExchange expects -1 for no body and 0 for chunked transfer encoding of a body of unknown length
+                getHttpExchange().sendResponseHeaders(
+                        responseMessage.getOperation().getStatusCode(),
+                        contentLength == 0 ? -1 : (contentLength < 0 ? 0 : contentLength)
+                );
 
-                if (contentLength > 0) {
+                if (contentLength != 0) {
                     log.trace("Response message has body, writing bytes to stream...");
                     OutputStream os = null;
                     try {
                         os = getHttpExchange().getResponseBody();
-                        IO.writeBytes(os, responseBodyBytes);
+                        responseBody.writeTo(os);
                         os.flush();
                     } finally {
                         if (os != null)
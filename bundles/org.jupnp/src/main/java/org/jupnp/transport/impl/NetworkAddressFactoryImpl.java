@@ -27,8 +27,10 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import org.jupnp.model.Constants;
@@ -45,6 +47,12 @@ import org.slf4j.LoggerFactory;
  * This implementation has been tested on Windows XP, Windows Vista, Mac OS X 10.8,
  * and whatever kernel ships in Ubuntu 9.04. This implementation does not support IPv6.
  * </p>
+ * <p>
+ * The addresses, prefix lengths, broadcast and MAC addresses of the usable interfaces are
+ * cached in an immutable {@link NetworkTopology}, which is rebuilt whenever an interface or
+ * bind address is removed or the network is refreshed. Lookups done for every received datagram and every search are
+ * therefore lock-free map hits.
+ * </p>
  *
  * @author Christian Bauer
  * @author Kai Kreuzer - added multicast response port
@@ -65,6 +73,8 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
     final protected List<NetworkInterface> networkInterfaces = new ArrayList<NetworkInterface>();
     final protected List<InetAddress> bindAddresses = new ArrayList<InetAddress>();
 
+    volatile protected NetworkTopology topology;
+
     protected int streamListenPort;
     protected int multicastResponsePort;
 
@@ -93,6 +103,7 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
 
         discoverNetworkInterfaces();
         discoverBindAddresses();
+        updateTopology();
 
         if ((networkInterfaces.size() == 0 || bindAddresses.size() == 0)) {
             log.warn("No usable network interface or addresses found");
@@ -157,6 +168,7 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
                 synchronized (networkInterfaces) {
                     networkInterfaces.remove(index);
                 }
+                updateTopology();
             }
         };
     }
@@ -168,6 +180,7 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
                 synchronized (bindAddresses) {
                     bindAddresses.remove(index);
                 }
+                updateTopology();
             }
         };
     }
@@ -176,7 +189,46 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
         return networkInterfaces.size() > 0 && bindAddresses.size() > 0;
     }
 
+    synchronized public boolean refresh() throws InitializationException {
+        NetworkTopology previousTopology = getTopology();
+
+        // Discover with the same (overridable) methods as on startup, readers wait until discovery
+        // completed and if it fails the current interfaces and addresses remain
+        synchronized (networkInterfaces) {
+            synchronized (bindAddresses) {
+                List<NetworkInterface> previousInterfaces = new ArrayList<NetworkInterface>(networkInterfaces);
+                List<InetAddress> previousAddresses = new ArrayList<InetAddress>(bindAddresses);
+                networkInterfaces.clear();
+                bindAddresses.clear();
+                boolean discovered = false;
+                try {
+                    discoverNetworkInterfaces();
+                    discoverBindAddresses();
+                    discovered = true;
+                } finally {
+                    if (!discovered) {
+                        networkInterfaces.clear();
+                        networkInterfaces.addAll(previousInterfaces);
+                        bindAddresses.clear();
+                        bindAddresses.addAll(previousAddresses);
+                    }
+                }
+            }
+        }
+        updateTopology();
+
+        boolean changed = !getTopology().isSameNetwork(previousTopology);
+        if (changed) {
+            log.debug("Network changed, discovered: " + getTopology());
+        }
+        return changed;
+    }
+
     public byte[] getHardwareAddress(InetAddress inetAddress) {
+        NetworkTopology.Address address = getTopology().getAddress(inetAddress);
+        if (address != null) {
+            return address.getHardwareAddress();
+        }
         try {
             NetworkInterface iface = NetworkInterface.getByInetAddress(inetAddress);
             return iface != null ? iface.getHardwareAddress() : null;
@@ -193,30 +245,17 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
     }
 
     public InetAddress getBroadcastAddress(InetAddress inetAddress) {
-        synchronized (networkInterfaces) {
-            for (NetworkInterface iface : networkInterfaces) {
-                for (InterfaceAddress interfaceAddress : getInterfaceAddresses(iface)) {
-                    if (interfaceAddress != null && interfaceAddress.getAddress().equals(inetAddress)) {
-                        return interfaceAddress.getBroadcast();
-                    }
-                }
-            }
-        }
-        return null;
+        NetworkTopology.Address address = getTopology().getAddress(inetAddress);
+        return address != null ? address.getBroadcast() : null;
     }
 
     public Short getAddressNetworkPrefixLength(InetAddress inetAddress) {
-        synchronized (networkInterfaces) {
-            for (NetworkInterface iface : networkInterfaces) {
-                for (InterfaceAddress interfaceAddress : getInterfaceAddresses(iface)) {
-                    if (interfaceAddress != null && interfaceAddress.getAddress().equals(inetAddress)) {
-                        short prefix = interfaceAddress.getNetworkPrefixLength();
-                        if(prefix > 0 && prefix < 32) return prefix; // some network cards return -1
-                        return null;
-                    }
-                }
-            }
+        NetworkTopology.Address address = getTopology().getAddress(inetAddress);
+        if (address == null) {
+            return null;
         }
+        short prefix = address.getNetworkPrefixLength();
+        if(prefix > 0 && prefix < 32) return prefix; // some network cards return -1
         return null;
     }
 
@@ -236,7 +275,11 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
         log.trace("Could not find local bind address in same subnet as: " + remoteAddress.getHostAddress());
 
         // Next, just take the given interface (which is really totally random) and get the first address that we like
-        for (InetAddress interfaceAddress: getInetAddresses(networkInterface)) {
+        List<InetAddress> inetAddresses = getTopology().getInetAddresses(networkInterface);
+        if (inetAddresses == null) {
+            inetAddresses = getInetAddresses(networkInterface);
+        }
+        for (InetAddress interfaceAddress: inetAddresses) {
             if (isIPv6 && interfaceAddress instanceof Inet6Address)
                 return interfaceAddress;
             if (!isIPv6 && interfaceAddress instanceof Inet4Address)
@@ -254,28 +297,62 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
     }
 
     protected InetAddress getBindAddressInSubnetOf(InetAddress inetAddress) {
-        synchronized (networkInterfaces) {
-            for (NetworkInterface iface : networkInterfaces) {
-                for (InterfaceAddress ifaceAddress : getInterfaceAddresses(iface)) {
+        byte[] ip = inetAddress.getAddress();
+        for (NetworkTopology.Address bindAddress : getTopology().getBindAddresses()) {
+            if (isInSubnet(ip, bindAddress.getRawAddress(), bindAddress.getNetworkPrefixLength())) {
+                return bindAddress.getInetAddress();
+            }
+        }
+        return null;
+    }
 
-                    synchronized (bindAddresses) {
-                        if (ifaceAddress == null || !bindAddresses.contains(ifaceAddress.getAddress())) {
-                            continue;
-                        }
-                    }
+    /**
+     * @return The current snapshot of the usable interfaces and addresses.
+     */
+    public NetworkTopology getTopology() {
+        return topology;
+    }
 
-                    if (isInSubnet(
-                            inetAddress.getAddress(),
-                            ifaceAddress.getAddress().getAddress(),
-                            ifaceAddress.getNetworkPrefixLength())
-                            ) {
-                        return ifaceAddress.getAddress();
-                    }
+    /**
+     * Rebuilds the {@link NetworkTopology} snapshot from the current usable network interfaces
+     * and bind addresses, must be called whenever these change.
+     */
+    protected void updateTopology() {
+        List<NetworkTopology.Address> addresses = new ArrayList<NetworkTopology.Address>();
+        Map<String, List<InetAddress>> interfaceAddresses = new LinkedHashMap<String, List<InetAddress>>();
+        List<NetworkInterface> ifaces;
+        synchronized (networkInterfaces) {
+            ifaces = new ArrayList<NetworkInterface>(networkInterfaces);
+        }
+        Set<InetAddress> binds;
+        synchronized (bindAddresses) {
+            binds = new HashSet<InetAddress>(bindAddresses);
+        }
+        for (NetworkInterface iface : ifaces) {
+            byte[] hardwareAddress = null;
+            try {
+                hardwareAddress = iface.getHardwareAddress();
+            } catch (Throwable ex) {
+                // Same platform issues as NetworkInterface.getByInetAddress(), see getHardwareAddress()
+                log.warn("Cannot get hardware address of: " + iface.getDisplayName(), ex);
+            }
+            for (InterfaceAddress interfaceAddress : getInterfaceAddresses(iface)) {
+                if (interfaceAddress == null || interfaceAddress.getAddress() == null) {
+                    continue;
                 }
-
+                addresses.add(new NetworkTopology.Address(
+                        iface,
+                        interfaceAddress.getAddress(),
+                        interfaceAddress.getNetworkPrefixLength(),
+                        interfaceAddress.getBroadcast(),
+                        hardwareAddress,
+                        binds.contains(interfaceAddress.getAddress())
+                ));
             }
+            interfaceAddresses.put(iface.getName(), getInetAddresses(iface));
         }
-        return null;
+        topology = new NetworkTopology(addresses, interfaceAddresses);
+        log.trace("Updated network topology: " + topology);
     }
 
     protected boolean isInSubnet(byte[] ip, byte[] network, short prefix) {
@@ -302,6 +379,13 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
     }
 
     protected void discoverNetworkInterfaces() throws InitializationException {
+        discoverNetworkInterfaces(networkInterfaces);
+    }
+
+    /**
+     * Adds all usable network interfaces to the given list.
+     */
+    protected void discoverNetworkInterfaces(List<NetworkInterface> networkInterfaces) throws InitializationException {
         try {
 
             Enumeration<NetworkInterface> interfaceEnumeration = NetworkInterface.getNetworkInterfaces();
@@ -401,6 +485,15 @@ public class NetworkAddressFactoryImpl implements NetworkAddressFactory {
     }
 
     protected void discoverBindAddresses() throws InitializationException {
+        discoverBindAddresses(networkInterfaces, bindAddresses);
+    }
+
+    /**
+     * Adds all usable addresses of the given network interfaces to the given list, interfaces
+     * without usable addresses are removed from their list.
+     */
+    protected void discoverBindAddresses(List<NetworkInterface> networkInterfaces,
+                                         List<InetAddress> bindAddresses) throws InitializationException {
         try {
 
             synchronized (networkInterfaces) {
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.transport.impl;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the usable network interfaces and their addresses.
+ * <p>
+ * The {@link NetworkAddressFactoryImpl} builds a new snapshot whenever its interfaces
+ * or bind addresses change, all lookups done while sending and receiving messages are
+ * map hits on the current snapshot, without locking and without system calls.
+ * </p>
+ */
+public class NetworkTopology {
+
+    final private Map<InetAddress, Address> addresses;
+    final private Map<String, List<InetAddress>> interfaceAddresses;
+    final private List<Address> bindAddresses;
+
+    public NetworkTopology(List<Address> addresses, Map<String, List<InetAddress>> interfaceAddresses) {
+        Map<InetAddress, Address> addressMap = new HashMap<InetAddress, Address>();
+        List<Address> bindAddressList = new ArrayList<Address>();
+        for (Address address : addresses) {
+            if (!addressMap.containsKey(address.getInetAddress())) {
+                addressMap.put(address.getInetAddress(), address);
+            }
+            if (address.isBindAddress()) {
+                bindAddressList.add(address);
+            }
+        }
+        Map<String, List<InetAddress>> interfaceAddressMap = new LinkedHashMap<String, List<InetAddress>>();
+        for (Map.Entry<String, List<InetAddress>> entry : interfaceAddresses.entrySet()) {
+            interfaceAddressMap.put(
+                    entry.getKey(),
+                    Collections.unmodifiableList(new ArrayList<InetAddress>(entry.getValue()))
+            );
+        }
+        this.addresses = Collections.unmodifiableMap(addressMap);
+        this.interfaceAddresses = Collections.unmodifiableMap(interfaceAddressMap);
+        this.bindAddresses = Collections.unmodifiableList(bindAddressList);
+    }
+
+    /**
+     * @return The address of a usable interface, or <code>null</code> if the address is unknown.
+     */
+    public Address getAddress(InetAddress inetAddress) {
+        return inetAddress != null ? addresses.get(inetAddress) : null;
+    }
+
+    /**
+     * @return All addresses of a usable interface, or <code>null</code> if the interface is unknown.
+     */
+    public List<InetAddress> getInetAddresses(NetworkInterface networkInterface) {
+        return interfaceAddresses.get(networkInterface.getName());
+    }
+
+    /**
+     * @return The names of all usable interfaces.
+     */
+    public List<String> getInterfaceNames() {
+        return new ArrayList<String>(interfaceAddresses.keySet());
+    }
+
+    /**
+     * @return The bind addresses, in the order of their interfaces, used to find a local address in
+     *         the same subnet as a remote address.
+     */
+    public List<Address> getBindAddresses() {
+        return bindAddresses;
+    }
+
+    /**
+     * @return <code>true</code> if the given snapshot has the same interfaces and bind addresses
+     *         with the same network prefix lengths.
+     */
+    public boolean isSameNetwork(NetworkTopology other) {
+        if (other == null
+                || !interfaceAddresses.keySet().equals(other.interfaceAddresses.keySet())
+                || bindAddresses.size() != other.bindAddresses.size()) {
+            return false;
+        }
+        for (Address bindAddress : bindAddresses) {
+            Address otherAddress = other.getAddress(bindAddress.getInetAddress());
+            if (otherAddress == null
+                    || !otherAddress.isBindAddress()
+                    || otherAddress.getNetworkPrefixLength() != bindAddress.getNetworkPrefixLength()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") interfaces: " + interfaceAddresses.keySet()
+                + ", bind addresses: " + bindAddresses.size();
+    }
+
+    /**
+     * The precomputed properties of an address on a local network interface.
+     */
+    public static class Address {
+
+        final private NetworkInterface networkInterface;
+        final private InetAddress inetAddress;
+        final private byte[] rawAddress;
+        final private short networkPrefixLength;
+        final private InetAddress broadcast;
+        final private byte[] hardwareAddress;
+        final private boolean bindAddress;
+
+        public Address(NetworkInterface networkInterface, InetAddress inetAddress, short networkPrefixLength,
+                       InetAddress broadcast, byte[] hardwareAddress, boolean bindAddress) {
+            this.networkInterface = networkInterface;
+            this.inetAddress = inetAddress;
+            this.rawAddress = inetAddress.getAddress();
+            this.networkPrefixLength = networkPrefixLength;
+            this.broadcast = broadcast;
+            this.hardwareAddress = hardwareAddress;
+            this.bindAddress = bindAddress;
+        }
+
+        public NetworkInterface getNetworkInterface() {
+            return networkInterface;
+        }
+
+        public InetAddress getInetAddress() {
+            return inetAddress;
+        }
+
+        /**
+         * @return The raw address bytes, must not be modified.
+         */
+        public byte[] getRawAddress() {
+            return rawAddress;
+        }
+
+        /**
+         * @return The network prefix length as reported by the interface, might be invalid (e.g. <code>-1</code>).
+         */
+        public short getNetworkPrefixLength() {
+            return networkPrefixLength;
+        }
+
+        public InetAddress getBroadcast() {
+            return broadcast;
+        }
+
+        /**
+         * @return A copy of the MAC address of the interface, or <code>null</code>.
+         */
+        public byte[] getHardwareAddress() {
+            return hardwareAddress != null ? hardwareAddress.clone() : null;
+        }
+
+        public boolean isBindAddress() {
+            return bindAddress;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + getClass().getSimpleName() + ") " + networkInterface.getName()
+                    + " " + inetAddress.getHostAddress() + "/" + networkPrefixLength;
+        }
+    }
+}
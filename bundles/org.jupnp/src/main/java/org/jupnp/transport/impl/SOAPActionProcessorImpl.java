@@ -18,16 +18,19 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 import org.jupnp.model.Constants;
 import org.jupnp.model.UnsupportedDataException;
 import org.jupnp.model.XMLUtil;
 import org.jupnp.model.action.ActionArgumentValue;
 import org.jupnp.model.action.ActionException;
 import org.jupnp.model.action.ActionInvocation;
+import org.jupnp.model.message.UpnpMessage;
 import org.jupnp.model.message.control.ActionMessage;
 import org.jupnp.model.message.control.ActionRequestMessage;
 import org.jupnp.model.message.control.ActionResponseMessage;
 import org.jupnp.model.meta.ActionArgument;
+import org.jupnp.model.types.AbstractBinaryDatatype;
 import org.jupnp.model.types.ErrorCode;
 import org.jupnp.model.types.InvalidValueException;
 import org.jupnp.transport.spi.SOAPActionProcessor;
@@ -51,6 +54,12 @@ import org.xml.sax.SAXParseException;
 public class SOAPActionProcessorImpl extends PooledXmlProcessor implements SOAPActionProcessor, ErrorHandler {
 
     private Logger log = LoggerFactory.getLogger(SOAPActionProcessor.class);
+
+    // Binary argument values of this size (in bytes) and larger are streamed
+    public static final int STREAMED_ARGUMENT_THRESHOLD = 16384;
+
+    // Marks the element text of a streamed argument value in the serialized document
+    final private String streamMarker = "jupnp-streamed-" + UUID.randomUUID() + "-";
     
 
     
@@ -71,7 +80,7 @@ public class SOAPActionProcessorImpl extends PooledXmlProcessor implements SOAPA
             
             if (log.isTraceEnabled()) {
                 log.trace("===================================== SOAP BODY BEGIN ============================================");
-                log.trace(requestMessage.getBodyString());
+                log.trace(getTraceBody(requestMessage));
                 log.trace("-===================================== SOAP BODY END ============================================");
             }
 
@@ -96,7 +105,7 @@ public class SOAPActionProcessorImpl extends PooledXmlProcessor implements SOAPA
             
             if (log.isTraceEnabled()) {
                 log.trace("===================================== SOAP BODY BEGIN ============================================");
-                log.trace(responseMessage.getBodyString());
+                log.trace(getTraceBody(responseMessage));
                 log.trace("-===================================== SOAP BODY END ============================================");
             }
 
@@ -170,7 +179,7 @@ public class SOAPActionProcessorImpl extends PooledXmlProcessor implements SOAPA
 
         Element actionRequestElement = writeActionRequestElement(d, bodyElement, message, actionInvocation);
         writeActionInputArguments(d, actionRequestElement, actionInvocation);
-        message.setBody(toString(d));
+        setBody(message, toString(d), getValues(actionInvocation.getAction().getInputArguments(), actionInvocation, true));
 
     }
 
@@ -181,7 +190,7 @@ public class SOAPActionProcessorImpl extends PooledXmlProcessor implements SOAPA
 
         Element actionResponseElement = writeActionResponseElement(d, bodyElement, message, actionInvocation);
         writeActionOutputArguments(d, actionResponseElement, actionInvocation);
-        message.setBody(toString(d));
+        setBody(message, toString(d), getValues(actionInvocation.getAction().getOutputArguments(), actionInvocation, false));
     }
 
     protected ActionException readBodyFailure(Document d, Element bodyElement) throws Exception {
@@ -333,9 +342,11 @@ public class SOAPActionProcessorImpl extends PooledXmlProcessor implements SOAPA
                                              Element actionRequestElement,
                                              ActionInvocation actionInvocation) {
 
-        for (ActionArgument argument : actionInvocation.getAction().getInputArguments()) {
+        ActionArgument[] arguments = actionInvocation.getAction().getInputArguments();
+        for (int i = 0; i < arguments.length; i++) {
+            ActionArgument argument = arguments[i];
             log.trace("Writing action input argument: " + argument.getName());
-            String value = actionInvocation.getInput(argument) != null ? actionInvocation.getInput(argument).toString() : "";
+            String value = getArgumentText(i, actionInvocation.getInput(argument));
             XMLUtil.appendNewElement(d, actionRequestElement, argument.getName(), value);
         }
     }
@@ -356,9 +367,11 @@ public class SOAPActionProcessorImpl extends PooledXmlProcessor implements SOAPA
                                               Element actionResponseElement,
                                               ActionInvocation actionInvocation) {
 
-        for (ActionArgument argument : actionInvocation.getAction().getOutputArguments()) {
+        ActionArgument[] arguments = actionInvocation.getAction().getOutputArguments();
+        for (int i = 0; i < arguments.length; i++) {
+            ActionArgument argument = arguments[i];
             log.trace("Writing action output argument: " + argument.getName());
-            String value = actionInvocation.getOutput(argument) != null ? actionInvocation.getOutput(argument).toString() : "";
+            String value = getArgumentText(i, actionInvocation.getOutput(argument));
             XMLUtil.appendNewElement(d, actionResponseElement, argument.getName(), value);
         }
     }
@@ -499,6 +512,78 @@ public class SOAPActionProcessorImpl extends PooledXmlProcessor implements SOAPA
         return output;
     }
 
+    /**
+     * @return The text of the argument element, or a marker if the value is streamed.
+     */
+    protected String getArgumentText(int index, ActionArgumentValue value) {
+        if (value == null) {
+            return "";
+        }
+        return isStreamed(value) ? streamMarker + index + "-" : value.toString();
+    }
+
+    /**
+     * Binary values which are not an array, or which are larger than {@link #STREAMED_ARGUMENT_THRESHOLD},
+     * are not written into the document. The message body is then a {@link SOAPStreamBody}, which
+     * encodes them when the transport writes the message.
+     */
+    protected boolean isStreamed(ActionArgumentValue value) {
+        if (value == null || value.getValue() == null || !(value.getDatatype() instanceof AbstractBinaryDatatype)) {
+            return false;
+        }
+        if (!(value.getValue() instanceof byte[])) {
+            return true;
+        }
+        return ((byte[]) value.getValue()).length >= STREAMED_ARGUMENT_THRESHOLD;
+    }
+
+    protected ActionArgumentValue[] getValues(ActionArgument[] arguments, ActionInvocation actionInvocation, boolean input) {
+        ActionArgumentValue[] values = new ActionArgumentValue[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            values[i] = input ? actionInvocation.getInput(arguments[i]) : actionInvocation.getOutput(arguments[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Sets the serialized document as the message body, replacing the markers of
+     * streamed argument values.
+     */
+    protected void setBody(ActionMessage message, String document, ActionArgumentValue[] values) {
+        List<Object> segments = null;
+        int start = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (!isStreamed(values[i])) {
+                continue;
+            }
+            String marker = streamMarker + i + "-";
+            int index = document.indexOf(marker, start);
+            if (index == -1) {
+                // Not written by a subclass
+                continue;
+            }
+            if (segments == null) {
+                segments = new ArrayList<Object>();
+            }
+            segments.add(document.substring(start, index));
+            segments.add(values[i]);
+            start = index + marker.length();
+        }
+        if (segments == null) {
+            message.setBody(document);
+        } else {
+            segments.add(document.substring(start));
+            message.setBody(new SOAPStreamBody(segments));
+        }
+    }
+
+    protected String getTraceBody(ActionMessage message) {
+        // Don't consume a stream
+        return message.getBodyType().equals(UpnpMessage.BodyType.STREAM)
+                ? String.valueOf(message.getBody())
+                : message.getBodyString();
+    }
+
     protected String getUnprefixedNodeName(Node node) {
         return node.getPrefix() != null
                 ? node.getNodeName().substring(node.getPrefix().length() + 1)
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.transport.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jupnp.model.action.ActionArgumentValue;
+import org.jupnp.model.message.StreamBody;
+import org.jupnp.model.types.AbstractBinaryDatatype;
+
+/**
+ * A SOAP message body with binary argument values, which are encoded while the body is written.
+ * <p>
+ * The body consists of serialized parts of the SOAP document and the values of the streamed
+ * arguments in between, see {@link SOAPActionProcessorImpl#isStreamed(ActionArgumentValue)}.
+ * The encoded text of a value is never held in memory as a whole.
+ * </p>
+ */
+public class SOAPStreamBody extends StreamBody {
+
+    // Document parts as UTF-8 bytes and argument values
+    final private List<Object> segments;
+
+    /**
+     * @param segments Strings and {@link ActionArgumentValue}s of a binary datatype, in document order.
+     */
+    public SOAPStreamBody(List<Object> segments) {
+        List<Object> list = new ArrayList<Object>(segments.size());
+        for (Object segment : segments) {
+            if (segment instanceof String) {
+                list.add(((String) segment).getBytes(StandardCharsets.UTF_8));
+            } else if (segment instanceof ActionArgumentValue
+                    && ((ActionArgumentValue) segment).getDatatype() instanceof AbstractBinaryDatatype) {
+                list.add(segment);
+            } else {
+                throw new IllegalArgumentException("Not a string or binary argument value: " + segment);
+            }
+        }
+        this.segments = Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public long getContentLength() {
+        long length = 0;
+        for (Object segment : segments) {
+            if (segment instanceof byte[]) {
+                length += ((byte[]) segment).length;
+            } else {
+                ActionArgumentValue value = (ActionArgumentValue) segment;
+                long encodedLength =
+                    ((AbstractBinaryDatatype) value.getDatatype()).getEncodedValueLength(value.getValue());
+                if (encodedLength < 0) {
+                    return -1;
+                }
+                length += encodedLength;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        for (Object segment : segments) {
+            if (segment instanceof ActionArgumentValue) {
+                Object value = ((ActionArgumentValue) segment).getValue();
+                if (value instanceof StreamBody && !((StreamBody) value).isRepeatable()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        List<InputStream> streams = new ArrayList<InputStream>(segments.size());
+        try {
+            for (Object segment : segments) {
+                if (segment instanceof byte[]) {
+                    streams.add(new ByteArrayInputStream((byte[]) segment));
+                } else {
+                    ActionArgumentValue value = (ActionArgumentValue) segment;
+                    streams.add(((AbstractBinaryDatatype) value.getDatatype()).openEncodedStream(value.getValue()));
+                }
+            }
+        } catch (IOException ex) {
+            for (InputStream stream : streams) {
+                stream.close();
+            }
+            throw ex;
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+}
@@ -26,6 +26,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.jupnp.model.message.Connection;
+import org.jupnp.model.message.StreamBody;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.StreamResponseMessage;
 import org.jupnp.model.message.UpnpHeaders;
@@ -172,6 +173,11 @@ public abstract class ServletUpnpStream extends UpnpStream {
         getResponse().setDateHeader("Date", System.currentTimeMillis());
 
         // Body
+        if (responseMessage.hasBody() && responseMessage.getBodyType().equals(UpnpMessage.BodyType.STREAM)) {
+            writeResponseBody(responseMessage.getBodyStream());
+            return;
+        }
+
         byte[] responseBodyBytes = responseMessage.hasBody() ? responseMessage.getBodyBytes() : null;
         int contentLength = responseBodyBytes != null ? responseBodyBytes.length : -1;
 
@@ -182,6 +188,21 @@ public abstract class ServletUpnpStream extends UpnpStream {
         }
     }
 
+    protected void writeResponseBody(StreamBody body) throws IOException {
+        long contentLength = body.getContentLength();
+        if (contentLength == 0) {
+            return;
+        }
+        if (contentLength > 0 && contentLength <= Integer.MAX_VALUE) {
+            getResponse().setContentLength((int) contentLength);
+        } else if (contentLength > 0) {
+            getResponse().setHeader("Content-Length", Long.toString(contentLength));
+        }
+        // Without a content length the container uses chunked transfer encoding
+        log.trace("Response message has stream body, writing chunks to stream...");
+        body.writeTo(getResponse().getOutputStream());
+    }
+
     abstract protected Connection createConnection();
 
     abstract protected HttpServletRequest getRequest();
@@ -28,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.jupnp.model.ModelUtil;
+import org.jupnp.model.message.StreamBody;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.StreamResponseMessage;
 import org.jupnp.model.message.UpnpHeaders;
@@ -238,6 +239,15 @@ public class StreamClientImpl implements StreamClient {
             IO.writeUTF8(urlConnection.getOutputStream(), requestMessage.getBodyString());
         } else if (requestMessage.getBodyType().equals(UpnpMessage.BodyType.BYTES)) {
             IO.writeBytes(urlConnection.getOutputStream(), requestMessage.getBodyBytes());
+        } else if (requestMessage.getBodyType().equals(UpnpMessage.BodyType.STREAM)) {
+            // Don't let the connection buffer the whole body to compute its length
+            StreamBody body = requestMessage.getBodyStream();
+            if (body.getContentLength() >= 0) {
+                urlConnection.setFixedLengthStreamingMode(body.getContentLength());
+            } else {
+                urlConnection.setChunkedStreamingMode(StreamBody.BUFFER_SIZE);
+            }
+            body.writeTo(urlConnection.getOutputStream());
         }
         urlConnection.getOutputStream().flush();
     }
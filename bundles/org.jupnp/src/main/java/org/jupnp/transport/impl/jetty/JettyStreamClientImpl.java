@@ -16,6 +16,7 @@ package org.jupnp.transport.impl.jetty;
 
 import static org.eclipse.jetty.http.HttpHeader.CONNECTION;
 
+import java.io.IOException;
 import java.util.concurrent.Callable;
 
 import org.eclipse.jetty.client.HttpClient;
@@ -23,10 +24,12 @@ import org.eclipse.jetty.client.api.ContentProvider;
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.client.util.InputStreamContentProvider;
 import org.eclipse.jetty.client.util.StringContentProvider;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpVersion;
 
+import org.jupnp.model.message.StreamBody;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.StreamResponseMessage;
 import org.jupnp.model.message.UpnpHeaders;
@@ -218,6 +221,14 @@ public class JettyStreamClientImpl extends AbstractStreamClient<StreamClientConf
 
             final String charset = upnpMessage.getContentTypeCharset();
             return new StringContentProvider(upnpMessage.getBodyString(), charset != null ? charset : "UTF-8");
+        } else if (upnpMessage.getBodyType().equals(UpnpMessage.BodyType.STREAM)) {
+            log.trace("Preparing HTTP request entity as stream");
+
+            try {
+                return new StreamBodyContentProvider(upnpMessage.getBodyStream());
+            } catch (IOException ex) {
+                throw new RuntimeException("Can't open stream body: " + ex, ex);
+            }
         } else {
             log.trace("Preparing HTTP request entity as byte[]");
 
@@ -225,4 +236,27 @@ public class JettyStreamClientImpl extends AbstractStreamClient<StreamClientConf
         }
     }
 
+    /**
+     * Sends a {@link StreamBody} in chunks, with a content length if it is known.
+     */
+    protected static class StreamBodyContentProvider extends InputStreamContentProvider implements ContentProvider.Typed {
+
+        final private long contentLength;
+
+        public StreamBodyContentProvider(StreamBody body) throws IOException {
+            super(body.openStream(), StreamBody.BUFFER_SIZE);
+            this.contentLength = body.getContentLength();
+        }
+
+        @Override
+        public long getLength() {
+            return contentLength;
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/octet-stream";
+        }
+    }
+
 }
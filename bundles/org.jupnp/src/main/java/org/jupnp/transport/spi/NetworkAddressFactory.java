@@ -74,6 +74,19 @@ public interface NetworkAddressFactory {
      */
     public boolean hasUsableNetwork();
 
+    /**
+     * Discovers the usable network interfaces and bind addresses again, e.g. after interfaces
+     * went up or down or addresses changed.
+     * <p>
+     * The caller has to compare {@link #getNetworkInterfaces()} and {@link #getBindAddresses()}
+     * with its running transports to find out which interfaces and addresses changed.
+     * </p>
+     *
+     * @return <code>true</code> if the usable interfaces or bind addresses changed.
+     * @throws InitializationException If the local network interfaces could not be analyzed.
+     */
+    public boolean refresh() throws InitializationException;
+
     /**
      * @return The network prefix length of this address or <code>null</code>.
      */
@@ -20,6 +20,7 @@ import org.jupnp.model.message.UpnpResponse;
 import org.jupnp.protocol.ProtocolCreationException;
 import org.jupnp.protocol.ProtocolFactory;
 import org.jupnp.protocol.ReceivingSync;
+import org.jupnp.protocol.UnroutableRequestException;
 import org.jupnp.util.Exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +72,12 @@ public abstract class UpnpStream implements Runnable {
         try {
             // Try to get a protocol implementation that matches the request message
             syncProtocol = getProtocolFactory().createReceivingSync(requestMsg);
+        } catch (UnroutableRequestException ex) {
+            log.trace("Not processing stream request - {}", ex.getMessage());
+            // A null response is sent as 404 by the transport
+            return ex.getResponseStatus() == UpnpResponse.Status.NOT_FOUND
+                    ? null
+                    : new StreamResponseMessage(ex.getResponseStatus());
         } catch (ProtocolCreationException ex) {
             log.warn("Processing stream request failed - " + Exceptions.unwrap(ex).toString());
             return new StreamResponseMessage(UpnpResponse.Status.NOT_IMPLEMENTED);
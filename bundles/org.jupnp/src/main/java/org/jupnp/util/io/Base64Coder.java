@@ -2096,5 +2096,76 @@ public class Base64Coder
             throw new RuntimeException(ex);
         }
     }
+
+    /**
+     * Decodes Base64 characters into an array of the decoded length, without converting them to
+     * bytes first. White space is ignored, the data is not decompressed.
+     *
+     * @param s the characters to decode
+     * @return the decoded data
+     * @throws java.io.IOException If bogus characters exist in the source data
+     */
+    public static byte[] decode(CharSequence s) throws IOException {
+        if (s == null) {
+            throw new NullPointerException("Input characters were null.");
+        }
+        int significant = 0;
+        int padding = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            byte sbiDecode = c < 128 ? _STANDARD_DECODABET[c] : -9;
+            if (sbiDecode < WHITE_SPACE_ENC) {
+                throw new IOException(String.format(
+                    "Bad Base64 input character decimal %d in array position %d", (int) c, i));
+            }
+            if (sbiDecode >= EQUALS_SIGN_ENC) {
+                significant++;
+                if (c == EQUALS_SIGN) padding++;
+            }
+        }
+        if (significant == 0) {
+            return new byte[0];
+        } else if (significant < 4) {
+            throw new IOException(
+                "Base64-encoded string must have at least four characters, but length specified was " + significant);
+        }
+
+        // Exact length of well-formed data
+        byte[] out = new byte[significant / 4 * 3 - (padding > 2 ? 0 : padding)];
+        int outPosn = 0;
+        byte[] b4 = new byte[4];
+        byte[] b3 = new byte[3];
+        int b4Posn = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (_STANDARD_DECODABET[c] >= EQUALS_SIGN_ENC) {
+                b4[b4Posn++] = (byte) c;
+                if (b4Posn > 3) {
+                    int len = b4[2] == EQUALS_SIGN ? 1 : b4[3] == EQUALS_SIGN ? 2 : 3;
+                    if (outPosn + len > out.length) {
+                        // Stray padding after the data, ignored like decode(byte[]) does
+                        byte[] larger = new byte[significant / 4 * 3];
+                        System.arraycopy(out, 0, larger, 0, outPosn);
+                        out = larger;
+                    }
+                    if (outPosn + 3 <= out.length) {
+                        outPosn += decode4to3(b4, 0, out, outPosn, NO_OPTIONS);
+                    } else {
+                        // The padded last quartet, decode4to3() needs room for three bytes
+                        outPosn += decode4to3(b4, 0, b3, 0, NO_OPTIONS);
+                        System.arraycopy(b3, 0, out, outPosn - len, len);
+                    }
+                    b4Posn = 0;
+                    if (c == EQUALS_SIGN) break;
+                }
+            }
+        }
+        if (outPosn < out.length) {
+            byte[] shorter = new byte[outPosn];
+            System.arraycopy(out, 0, shorter, 0, outPosn);
+            return shorter;
+        }
+        return out;
+    }
     
 }   // end class Base64
@@ -27,6 +27,8 @@
 package org.jupnp.util.io;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 
 /**
  * format validation
@@ -156,6 +158,54 @@ public final class HexBin {
         return decodedData;
     }
 
+    /**
+     * Encodes the remaining bytes of <code>raw</code>, writing two characters per byte
+     * to <code>encoded</code>.
+     */
+    static public void encode(ByteBuffer raw, CharBuffer encoded) {
+        while (raw.hasRemaining()) {
+            byte b = raw.get();
+            encoded.put((char) lookUpHexAlphabet[(b >> 4) & 0xf]);
+            encoded.put((char) lookUpHexAlphabet[b & 0xf]);
+        }
+    }
+
+    /**
+     * Encodes the remaining bytes of <code>raw</code>, writing two characters per byte
+     * to <code>encoded</code>.
+     */
+    static public void encode(ByteBuffer raw, ByteBuffer encoded) {
+        while (raw.hasRemaining()) {
+            byte b = raw.get();
+            encoded.put(lookUpHexAlphabet[(b >> 4) & 0xf]);
+            encoded.put(lookUpHexAlphabet[b & 0xf]);
+        }
+    }
+
+    /**
+     * Decodes hex characters without converting them to bytes first.
+     *
+     * @return The decoded data, or <code>null</code> if the characters are not valid hex data.
+     */
+    static public byte[] charsToBytes(CharSequence hexEncoded) {
+        if (hexEncoded == null)
+            return null;
+        int lengthData = hexEncoded.length();
+        if (lengthData % 2 != 0)
+            return null;
+
+        byte[] decodedData = new byte[lengthData / 2];
+        for (int i = 0; i < decodedData.length; i++) {
+            char high = hexEncoded.charAt(i * 2);
+            char low = hexEncoded.charAt(i * 2 + 1);
+            if (high >= BASELENGTH || low >= BASELENGTH || hexNumberTable[high] == -1 || hexNumberTable[low] == -1) {
+                return null;
+            }
+            decodedData[i] = (byte) ((hexNumberTable[high] << 4) | hexNumberTable[low]);
+        }
+        return decodedData;
+    }
+
     /**
      * Decodes Hex data into octects
      *
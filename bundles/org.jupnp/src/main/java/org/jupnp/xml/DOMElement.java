@@ -259,9 +259,9 @@ public abstract class DOMElement<CHILD extends DOMElement, PARENT extends DOMEle
         try {
             //System.out.println("#### XPATH: " + expr + " CONTEXT: " + context.getAttributes().getNamedItem("id") + " EXPECTING: " + result);
             if (result == null) {
-                return xpath.evaluate(expr, context);
+                return XMLComponentCache.getXPathExpression(xpath, expr).evaluate(context);
             }
-            return xpath.evaluate(expr, context, result);
+            return XMLComponentCache.getXPathExpression(xpath, expr).evaluate(context, result);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
@@ -23,11 +23,9 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.URI;
 import java.net.URL;
-import java.util.HashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.XMLConstants;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
@@ -42,7 +40,6 @@ import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathFactory;
@@ -68,6 +65,10 @@ import org.xml.sax.SAXParseException;
  * <p>
  * NOTE: This class is not thread-safe because JAXP factories are not thread-safe!
  * </p>
+ * <p>
+ * Compiled schemas, XPath expressions and transformers are shared with other parsers, see
+ * {@link XMLComponentCache}.
+ * </p>
  *
  * @author Christian Bauer
  */
@@ -81,6 +82,10 @@ public abstract class DOMParser<D extends DOM> implements ErrorHandler, EntityRe
     protected Source[] schemaSources;
     protected Schema schema;
 
+    // Created once for every parser instance, see createFactory()
+    protected DocumentBuilderFactory factory;
+    protected DocumentBuilderFactory validatingFactory;
+
     public DOMParser() {
         this(null);
     }
@@ -92,26 +97,8 @@ public abstract class DOMParser<D extends DOM> implements ErrorHandler, EntityRe
     public Schema getSchema() {
 
         if (schema == null) {
-            // Lazy initialization
-            // TODO: http://stackoverflow.com/questions/3129934/schemafactory-doesnt-support-w3c-xml-schema-in-platform-level-8
-            try {
-                SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-
-                schemaFactory.setResourceResolver(new CatalogResourceResolver(
-                        new HashMap<URI, URL>() {{
-                            put(DOM.XML_SCHEMA_NAMESPACE, XML_SCHEMA_RESOURCE);
-                        }}
-                ));
-
-                if (schemaSources != null) {
-                    schema = schemaFactory.newSchema(schemaSources);
-                } else {
-                    schema = schemaFactory.newSchema();
-                }
-
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
-            }
+            // Lazy initialization, shared by all parsers with the same schema sources
+            schema = XMLComponentCache.getSchema(schemaSources);
         }
         return schema;
     }
@@ -161,9 +148,22 @@ public abstract class DOMParser<D extends DOM> implements ErrorHandler, EntityRe
         return factory;
     }
 
+    protected DocumentBuilderFactory getFactory(boolean validating) throws ParserException {
+        if (validating) {
+            if (validatingFactory == null) {
+                validatingFactory = createFactory(true);
+            }
+            return validatingFactory;
+        }
+        if (factory == null) {
+            factory = createFactory(false);
+        }
+        return factory;
+    }
+
     public Transformer createTransformer(String method, int indent, boolean standalone) throws ParserException {
         try {
-            TransformerFactory transFactory = TransformerFactory.newInstance();
+            TransformerFactory transFactory = XMLComponentCache.getTransformerFactory();
 
             if (indent > 0) {
                 try {
@@ -198,7 +198,7 @@ public abstract class DOMParser<D extends DOM> implements ErrorHandler, EntityRe
 
     public D createDocument() {
         try {
-            return createDOM(createFactory(false).newDocumentBuilder().newDocument());
+            return createDOM(getFactory(false).newDocumentBuilder().newDocument());
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
@@ -252,7 +252,7 @@ public abstract class DOMParser<D extends DOM> implements ErrorHandler, EntityRe
     public D parse(InputSource source, boolean validate) throws ParserException {
         try {
 
-            DocumentBuilder parser = createFactory(validate).newDocumentBuilder();
+            DocumentBuilder parser = getFactory(validate).newDocumentBuilder();
 
             parser.setEntityResolver(this);
 
@@ -303,8 +303,11 @@ public abstract class DOMParser<D extends DOM> implements ErrorHandler, EntityRe
 
     // =================================================================================================
 
+    /**
+     * @return The shared factory of the calling thread, see {@link XMLComponentCache}.
+     */
     public XPathFactory createXPathFactory() {
-        return XPathFactory.newInstance();
+        return XMLComponentCache.getXPathFactory();
     }
 
     public XPath createXPath(NamespaceContext nsContext) {
@@ -330,7 +333,7 @@ public abstract class DOMParser<D extends DOM> implements ErrorHandler, EntityRe
     public Object getXPathResult(Node context, XPath xpath, String expr, QName result) {
         try {
             log.trace("Evaluating xpath query: " + expr);
-            return xpath.evaluate(expr, context, result);
+            return XMLComponentCache.getXPathExpression(xpath, expr).evaluate(context, result);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
@@ -365,13 +368,18 @@ public abstract class DOMParser<D extends DOM> implements ErrorHandler, EntityRe
 
     public String print(Source source, int indent, boolean standalone) throws ParserException {
         try {
-            Transformer transformer = createTransformer("xml", indent, standalone);
-            transformer.setOutputProperty(OutputKeys.ENCODING, "utf-8");
+            String key = getClass().getName() + " xml " + indent + " " + standalone;
+            Transformer transformer = XMLComponentCache.pollTransformer(key);
+            if (transformer == null) {
+                transformer = createTransformer("xml", indent, standalone);
+                transformer.setOutputProperty(OutputKeys.ENCODING, "utf-8");
+            }
 
             StringWriter out = new StringWriter();
             transformer.transform(source, new StreamResult(out));
             out.flush();
 
+            XMLComponentCache.releaseTransformer(key, transformer);
             return out.toString();
 
         } catch (Exception e) {
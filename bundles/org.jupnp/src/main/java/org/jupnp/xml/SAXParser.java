@@ -16,13 +16,9 @@ package org.jupnp.xml;
 
 import java.net.URI;
 import java.net.URL;
-import java.util.HashMap;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Source;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +31,6 @@ import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
-import org.xml.sax.helpers.XMLReaderFactory;
 
 /**
  * @author Christian Bauer
@@ -68,12 +63,11 @@ public class SAXParser {
             final XMLReader xmlReader;
             if (getSchemaSources() != null) {
                 // Jump through all the hoops and create a validating reader
-                final SAXParserFactory factory = SAXParserFactory.newInstance();
-                factory.setNamespaceAware(true);
-                factory.setSchema(createSchema(getSchemaSources()));
-                xmlReader = factory.newSAXParser().getXMLReader();
+                xmlReader = XMLComponentCache.getSAXParserFactory(createSchema(getSchemaSources()))
+                        .newSAXParser().getXMLReader();
             } else {
-                xmlReader = XMLReaderFactory.createXMLReader();
+                // Not XMLReaderFactory, it looks up the implementation every time
+                xmlReader = XMLComponentCache.getSAXParserFactory().newSAXParser().getXMLReader();
             }
             xmlReader.setErrorHandler(getErrorHandler());
             return xmlReader;
@@ -83,17 +77,7 @@ public class SAXParser {
     }
 
     protected Schema createSchema(Source[] schemaSources) {
-        try {
-            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            schemaFactory.setResourceResolver(new CatalogResourceResolver(
-                    new HashMap<URI, URL>() {{
-                        put(XML_SCHEMA_NAMESPACE, XML_SCHEMA_RESOURCE);
-                    }}
-            ));
-            return schemaFactory.newSchema(schemaSources);
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
-        }
+        return XMLComponentCache.getSchema(schemaSources);
     }
 
     protected Source[] getSchemaSources() {
@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.xml;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Shares JAXP components, so parsing and printing XML doesn't look up a factory implementation every time.
+ * <p>
+ * JAXP factories, transformers and compiled XPath expressions are not thread-safe, they are kept for each
+ * thread. Compiled schemas are thread-safe and shared by all threads, if all their sources have a system
+ * identifier.
+ * </p>
+ * <p>
+ * The factories returned by this class are configured once and must not be modified by callers.
+ * </p>
+ */
+public class XMLComponentCache {
+
+    // Compiled expressions kept for each thread, XPath instances are usually bound to a document
+    public static final int MAX_XPATH_INSTANCES = 16;
+    public static final int MAX_XPATH_EXPRESSIONS = 256;
+
+    // Validating factories kept for each thread, by schema
+    public static final int MAX_VALIDATING_FACTORIES = 16;
+
+    final private static ThreadLocal<Components> components = new ThreadLocal<Components>() {
+        @Override
+        protected Components initialValue() {
+            return new Components();
+        }
+    };
+
+    final private static ConcurrentMap<String, Schema> schemas = new ConcurrentHashMap<>();
+
+    /**
+     * @return A namespace-aware, non-validating factory of the calling thread.
+     */
+    public static DocumentBuilderFactory getDocumentBuilderFactory() {
+        Components c = components.get();
+        if (c.documentBuilderFactory == null) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            c.documentBuilderFactory = factory;
+        }
+        return c.documentBuilderFactory;
+    }
+
+    /**
+     * @return A namespace-aware, non-validating factory of the calling thread.
+     */
+    public static SAXParserFactory getSAXParserFactory() {
+        Components c = components.get();
+        if (c.saxParserFactory == null) {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            c.saxParserFactory = factory;
+        }
+        return c.saxParserFactory;
+    }
+
+    /**
+     * @return A namespace-aware factory of the calling thread, which validates with the given schema. Schemas
+     *         returned by {@link #getSchema(Source[])} are shared, so there is one factory for every schema.
+     */
+    public static SAXParserFactory getSAXParserFactory(Schema schema) {
+        Map<Schema, SAXParserFactory> factories = components.get().validatingSAXParserFactories;
+        SAXParserFactory factory = factories.get(schema);
+        if (factory == null) {
+            factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setSchema(schema);
+            factories.put(schema, factory);
+        }
+        return factory;
+    }
+
+    /**
+     * @return The factory of the calling thread, callers may set its attributes before creating a transformer.
+     */
+    public static TransformerFactory getTransformerFactory() {
+        Components c = components.get();
+        if (c.transformerFactory == null) {
+            c.transformerFactory = TransformerFactory.newInstance();
+        }
+        return c.transformerFactory;
+    }
+
+    public static XPathFactory getXPathFactory() {
+        Components c = components.get();
+        if (c.xpathFactory == null) {
+            c.xpathFactory = XPathFactory.newInstance();
+        }
+        return c.xpathFactory;
+    }
+
+    /**
+     * Takes a transformer out of the pool of the calling thread.
+     *
+     * @param key The output configuration of the transformer, e.g. method and indentation.
+     * @return A transformer which has been released with the same key, or <code>null</code>.
+     */
+    public static Transformer pollTransformer(String key) {
+        return components.get().transformers.remove(key);
+    }
+
+    /**
+     * Returns a transformer to the pool of the calling thread, after it transformed a document successfully.
+     * Its output properties are not reset.
+     */
+    public static void releaseTransformer(String key, Transformer transformer) {
+        transformer.clearParameters();
+        components.get().transformers.put(key, transformer);
+    }
+
+    /**
+     * Compiles the expression once for every thread and XPath instance.
+     * <p>
+     * An expression is compiled with the namespace context and resolvers of the given XPath.
+     * </p>
+     */
+    public static XPathExpression getXPathExpression(XPath xpath, String expr) throws XPathExpressionException {
+        Map<String, XPathExpression> expressions = components.get().getExpressions(xpath);
+        XPathExpression expression = expressions.get(expr);
+        if (expression == null) {
+            expression = xpath.compile(expr);
+            expressions.put(expr, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * Compiles a W3C XML schema, the XML namespace schema is resolved from the classpath.
+     * <p>
+     * The schema is compiled once if every source has a system identifier.
+     * </p>
+     *
+     * @param schemaSources The schema sources, or <code>null</code> for a schema which only uses the hints in
+     *                      validated documents.
+     */
+    public static Schema getSchema(Source[] schemaSources) {
+        String key = getSchemaKey(schemaSources);
+        Schema schema = key != null ? schemas.get(key) : null;
+        if (schema == null) {
+            schema = createSchema(schemaSources);
+            if (key != null) {
+                Schema existing = schemas.putIfAbsent(key, schema);
+                if (existing != null) {
+                    schema = existing;
+                }
+            }
+        }
+        return schema;
+    }
+
+    protected static Schema createSchema(Source[] schemaSources) {
+        // TODO: http://stackoverflow.com/questions/3129934/schemafactory-doesnt-support-w3c-xml-schema-in-platform-level-8
+        try {
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            schemaFactory.setResourceResolver(new CatalogResourceResolver(
+                    new HashMap<URI, URL>() {{
+                        put(DOM.XML_SCHEMA_NAMESPACE, DOMParser.XML_SCHEMA_RESOURCE);
+                    }}
+            ));
+            return schemaSources != null ? schemaFactory.newSchema(schemaSources) : schemaFactory.newSchema();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    protected static String getSchemaKey(Source[] schemaSources) {
+        if (schemaSources == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        for (Source source : schemaSources) {
+            if (source == null || source.getSystemId() == null) {
+                return null;
+            }
+            key.append(source.getSystemId()).append(' ');
+        }
+        return key.toString();
+    }
+
+    /**
+     * The components of a thread.
+     */
+    static class Components {
+
+        DocumentBuilderFactory documentBuilderFactory;
+        SAXParserFactory saxParserFactory;
+        TransformerFactory transformerFactory;
+        XPathFactory xpathFactory;
+
+        // The schemas used most recently, schemas which are not shared are compiled for every parser
+        final Map<Schema, SAXParserFactory> validatingSAXParserFactories =
+                new LinkedHashMap<Schema, SAXParserFactory>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Schema, SAXParserFactory> eldest) {
+                        return size() > MAX_VALIDATING_FACTORIES;
+                    }
+                };
+
+        final Map<String, Transformer> transformers = new HashMap<>();
+
+        // The XPath instances used most recently, and their compiled expressions
+        final Map<XPath, Map<String, XPathExpression>> expressions =
+                new LinkedHashMap<XPath, Map<String, XPathExpression>>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<XPath, Map<String, XPathExpression>> eldest) {
+                        return size() > MAX_XPATH_INSTANCES;
+                    }
+                };
+
+        Map<String, XPathExpression> getExpressions(XPath xpath) {
+            Map<String, XPathExpression> map = expressions.get(xpath);
+            if (map == null || map.size() >= MAX_XPATH_EXPRESSIONS) {
+                map = new HashMap<>();
+                expressions.put(xpath, map);
+            }
+            return map;
+        }
+    }
+}
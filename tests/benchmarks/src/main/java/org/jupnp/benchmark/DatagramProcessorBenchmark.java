@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.benchmark;
+
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.model.message.IncomingDatagramMessage;
+import org.jupnp.model.message.discovery.OutgoingSearchRequest;
+import org.jupnp.model.message.header.STAllHeader;
+import org.jupnp.transport.impl.DatagramProcessorImpl;
+import org.jupnp.transport.spi.DatagramProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading received SSDP datagrams and writing outgoing ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatagramProcessorBenchmark {
+
+    public static final String NOTIFY_ALIVE = "NOTIFY * HTTP/1.1\r\n"
+            + "HOST: 239.255.255.250:1900\r\n"
+            + "CACHE-CONTROL: max-age=1800\r\n"
+            + "LOCATION: http://192.168.1.10:8080/dev/MY-DEVICE-123/desc\r\n"
+            + "NT: urn:schemas-upnp-org:service:SwitchPower:1\r\n"
+            + "NTS: ssdp:alive\r\n"
+            + "SERVER: Linux/3.10 UPnP/1.0 jUPnP/2.4\r\n"
+            + "USN: uuid:MY-DEVICE-123::urn:schemas-upnp-org:service:SwitchPower:1\r\n"
+            + "\r\n";
+
+    public static final String SEARCH_RESPONSE = "HTTP/1.1 200 OK\r\n"
+            + "CACHE-CONTROL: max-age=1800\r\n"
+            + "DATE: Mon, 19 Oct 2026 12:00:00 GMT\r\n"
+            + "EXT:\r\n"
+            + "LOCATION: http://192.168.1.10:8080/dev/MY-DEVICE-123/desc\r\n"
+            + "SERVER: Linux/3.10 UPnP/1.0 jUPnP/2.4\r\n"
+            + "ST: upnp:rootdevice\r\n"
+            + "USN: uuid:MY-DEVICE-123::upnp:rootdevice\r\n"
+            + "\r\n";
+
+    DatagramProcessor processor;
+    InetAddress receivedOnAddress;
+    DatagramPacket notifyPacket;
+    DatagramPacket searchResponsePacket;
+    OutgoingSearchRequest searchRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        processor = new DatagramProcessorImpl();
+        receivedOnAddress = InetAddress.getByName("192.168.1.2");
+        InetAddress sender = InetAddress.getByName("192.168.1.10");
+        notifyPacket = createPacket(NOTIFY_ALIVE, sender);
+        searchResponsePacket = createPacket(SEARCH_RESPONSE, sender);
+        searchRequest = new OutgoingSearchRequest(new STAllHeader(), 3);
+    }
+
+    @Benchmark
+    public IncomingDatagramMessage readNotification() throws Exception {
+        return processor.read(receivedOnAddress, notifyPacket);
+    }
+
+    @Benchmark
+    public IncomingDatagramMessage readSearchResponse() throws Exception {
+        return processor.read(receivedOnAddress, searchResponsePacket);
+    }
+
+    @Benchmark
+    public DatagramPacket writeSearchRequest() throws Exception {
+        return processor.write(searchRequest);
+    }
+
+    static DatagramPacket createPacket(String message, InetAddress sender) throws Exception {
+        byte[] data = message.getBytes("US-ASCII");
+        return new DatagramPacket(data, data.length, sender, 1900);
+    }
+}
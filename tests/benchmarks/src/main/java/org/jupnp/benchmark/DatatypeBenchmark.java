@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.model.types.Datatype;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converting state variable and argument values of the built-in UPnP datatypes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatatypeBenchmark {
+
+    static final Map<Datatype.Builtin, String> SAMPLE_VALUES = new HashMap<>();
+
+    static {
+        SAMPLE_VALUES.put(Datatype.Builtin.UI1, "255");
+        SAMPLE_VALUES.put(Datatype.Builtin.UI2, "65535");
+        SAMPLE_VALUES.put(Datatype.Builtin.UI4, "4294967295");
+        SAMPLE_VALUES.put(Datatype.Builtin.I4, "-2147483648");
+        SAMPLE_VALUES.put(Datatype.Builtin.R8, "3.141592653589793");
+        SAMPLE_VALUES.put(Datatype.Builtin.BOOLEAN, "true");
+        SAMPLE_VALUES.put(Datatype.Builtin.STRING, "Hello & <World>");
+        SAMPLE_VALUES.put(Datatype.Builtin.DATE, "2026-10-19");
+        SAMPLE_VALUES.put(Datatype.Builtin.DATETIME, "2026-10-19T12:34:56");
+        SAMPLE_VALUES.put(Datatype.Builtin.TIME, "12:34:56");
+        SAMPLE_VALUES.put(Datatype.Builtin.BIN_BASE64, "SGVsbG8gV29ybGQsIHRoaXMgaXMgalVQblAu");
+        SAMPLE_VALUES.put(Datatype.Builtin.BIN_HEX, "48656c6c6f20576f726c64");
+        SAMPLE_VALUES.put(Datatype.Builtin.URI, "http://192.168.1.10:8080/dev/MY-DEVICE-123/desc");
+    }
+
+    @Param({"UI1", "UI2", "UI4", "I4", "R8", "BOOLEAN", "STRING", "DATE", "DATETIME", "TIME", "BIN_BASE64", "BIN_HEX", "URI"})
+    public String builtin;
+
+    Datatype datatype;
+    String string;
+    Object value;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        Datatype.Builtin type = Datatype.Builtin.valueOf(builtin);
+        datatype = type.getDatatype();
+        string = SAMPLE_VALUES.get(type);
+        value = datatype.valueOf(string);
+    }
+
+    @Benchmark
+    public Object valueOf() throws Exception {
+        return datatype.valueOf(string);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String getString() throws Exception {
+        return datatype.getString(value);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.binding.xml.DeviceDescriptorBinder;
+import org.jupnp.binding.xml.UDA10DeviceDescriptorBinderImpl;
+import org.jupnp.binding.xml.UDA10DeviceDescriptorBinderSAXImpl;
+import org.jupnp.model.Namespace;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.profile.RemoteClientInfo;
+import org.jupnp.test.data.SampleData;
+import org.jupnp.util.io.IO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hydrating a remote device from the sample UDA 1.0 descriptor and generating a descriptor,
+ * with the DOM and the SAX binder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceDescriptorBinderBenchmark {
+
+    @Param({"DOM", "SAX"})
+    public String binderType;
+
+    DeviceDescriptorBinder binder;
+    String descriptorXml;
+    RemoteDevice device;
+    Namespace namespace;
+
+    @Setup
+    public void setup() throws Exception {
+        binder = "SAX".equals(binderType)
+                ? new UDA10DeviceDescriptorBinderSAXImpl()
+                : new UDA10DeviceDescriptorBinderImpl();
+        descriptorXml = IO.readLines(getClass().getResourceAsStream("/descriptors/device/uda10.xml"));
+        device = SampleData.createRemoteDevice();
+        namespace = new Namespace();
+    }
+
+    @Benchmark
+    public RemoteDevice describe() throws Exception {
+        return binder.describe(new RemoteDevice(SampleData.createRemoteDeviceIdentity()), descriptorXml);
+    }
+
+    @Benchmark
+    public String generate() throws Exception {
+        return binder.generate(device, new RemoteClientInfo(), namespace);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.benchmark;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.model.gena.CancelReason;
+import org.jupnp.model.gena.LocalGENASubscription;
+import org.jupnp.model.message.StreamRequestMessage;
+import org.jupnp.model.message.gena.IncomingEventRequestMessage;
+import org.jupnp.model.message.gena.OutgoingEventRequestMessage;
+import org.jupnp.model.meta.LocalDevice;
+import org.jupnp.model.meta.LocalService;
+import org.jupnp.model.meta.RemoteService;
+import org.jupnp.test.data.SampleData;
+import org.jupnp.test.gena.GenaSampleData;
+import org.jupnp.transport.impl.GENAEventProcessorImpl;
+import org.jupnp.transport.spi.GENAEventProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing and reading the property set of an event message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GENAEventProcessorBenchmark {
+
+    GENAEventProcessor processor;
+    LocalGENASubscription subscription;
+    StreamRequestMessage incomingStream;
+    RemoteService remoteService;
+
+    @Setup
+    public void setup() throws Exception {
+        processor = new GENAEventProcessorImpl();
+
+        LocalDevice localDevice = GenaSampleData.createTestDevice(GenaSampleData.LocalTestService.class);
+        LocalService localService = localDevice.getServices()[0];
+        List<URL> urls = new ArrayList<>();
+        urls.add(SampleData.getLocalBaseURL());
+        subscription = new LocalGENASubscription(localService, 1800, urls) {
+            public void failed(Exception ex) {
+            }
+
+            public void ended(CancelReason reason) {
+            }
+
+            public void established() {
+            }
+
+            public void eventReceived() {
+            }
+        };
+
+        OutgoingEventRequestMessage outgoingEvent = writeBody();
+        incomingStream = new StreamRequestMessage(outgoingEvent);
+        remoteService = SampleData.getFirstService(SampleData.createRemoteDevice());
+    }
+
+    @Benchmark
+    public OutgoingEventRequestMessage writeBody() throws Exception {
+        OutgoingEventRequestMessage message =
+                new OutgoingEventRequestMessage(subscription, subscription.getCallbackURLs().get(0));
+        processor.writeBody(message);
+        return message;
+    }
+
+    @Benchmark
+    public IncomingEventRequestMessage readBody() throws Exception {
+        IncomingEventRequestMessage message = new IncomingEventRequestMessage(incomingStream, remoteService);
+        processor.readBody(message);
+        return message;
+    }
+}
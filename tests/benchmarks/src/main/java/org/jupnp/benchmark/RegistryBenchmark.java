@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.benchmark;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.binding.xml.DeviceDescriptorBinder;
+import org.jupnp.binding.xml.UDA10DeviceDescriptorBinderImpl;
+import org.jupnp.mock.MockUpnpService;
+import org.jupnp.model.meta.Device;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.meta.RemoteDeviceIdentity;
+import org.jupnp.model.resource.Resource;
+import org.jupnp.model.types.UDN;
+import org.jupnp.registry.Registry;
+import org.jupnp.test.data.SampleData;
+import org.jupnp.util.io.IO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups in a registry holding the given number of remote devices, each with an embedded
+ * device and services like the sample UDA 1.0 descriptor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int deviceCount;
+
+    MockUpnpService upnpService;
+    Registry registry;
+
+    UDN rootUDN;
+    UDN embeddedUDN;
+    RemoteDeviceIdentity identity;
+    URI callbackPath;
+    URI unknownPath;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // Without registry maintenance, the devices must not expire during the benchmark
+        upnpService = new MockUpnpService(false, false);
+        upnpService.startup();
+        registry = upnpService.getRegistry();
+
+        DeviceDescriptorBinder binder = new UDA10DeviceDescriptorBinderImpl();
+        String descriptorXml = IO.readLines(getClass().getResourceAsStream("/descriptors/device/uda10.xml"));
+
+        RemoteDevice last = null;
+        for (int i = 0; i < deviceCount; i++) {
+            String prefix = "uuid:BENCH-" + i + "-";
+            RemoteDeviceIdentity deviceIdentity = new RemoteDeviceIdentity(
+                    new UDN("BENCH-" + i + "-MY-DEVICE-123"),
+                    1800,
+                    new URL("http://192.168.1." + (i % 250 + 1) + ":8080/dev/" + i + "/desc"),
+                    null,
+                    SampleData.getLocalBaseAddress()
+            );
+            last = binder.describe(
+                    new RemoteDevice(deviceIdentity),
+                    descriptorXml.replace("uuid:", prefix)
+            );
+            registry.addDevice(last);
+        }
+
+        // Look up the device added last, the worst case for a scan
+        rootUDN = last.getIdentity().getUdn();
+        embeddedUDN = last.getEmbeddedDevices()[0].getIdentity().getUdn();
+        identity = last.getIdentity();
+        callbackPath = upnpService.getConfiguration().getNamespace().getEventCallbackPath(
+                last.getEmbeddedDevices()[0].getServices()[0]
+        );
+        unknownPath = URI.create("/dev/unknown/svc/upnp-org/unknown/event/cb");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        upnpService.shutdown();
+    }
+
+    @Benchmark
+    public Device getRootDevice() {
+        return registry.getDevice(rootUDN, true);
+    }
+
+    @Benchmark
+    public Device getEmbeddedDevice() {
+        return registry.getDevice(embeddedUDN, false);
+    }
+
+    @Benchmark
+    public RemoteDevice getRemoteDevice() {
+        return registry.getRemoteDevice(rootUDN, false);
+    }
+
+    @Benchmark
+    public Resource getResource() {
+        return registry.getResource(callbackPath);
+    }
+
+    @Benchmark
+    public Resource getUnknownResource() {
+        return registry.getResource(unknownPath);
+    }
+
+    @Benchmark
+    public boolean update() {
+        // A repeated ALIVE notification or search response of a known device
+        return registry.update(identity);
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.model.action.ActionInvocation;
+import org.jupnp.model.message.StreamRequestMessage;
+import org.jupnp.model.message.control.IncomingActionRequestMessage;
+import org.jupnp.model.message.control.OutgoingActionRequestMessage;
+import org.jupnp.model.meta.Action;
+import org.jupnp.model.meta.LocalDevice;
+import org.jupnp.model.meta.LocalService;
+import org.jupnp.test.control.ActionSampleData;
+import org.jupnp.test.data.SampleData;
+import org.jupnp.transport.impl.SOAPActionProcessorImpl;
+import org.jupnp.transport.spi.SOAPActionProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing and reading the SOAP body of an action request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SOAPActionProcessorBenchmark {
+
+    SOAPActionProcessor processor;
+    Action action;
+    ActionInvocation invocation;
+    IncomingActionRequestMessage incomingRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        processor = new SOAPActionProcessorImpl();
+
+        LocalDevice device = ActionSampleData.createTestDevice(ActionSampleData.LocalTestServiceExtended.class);
+        LocalService service = device.getServices()[0];
+        action = service.getAction("SetTarget");
+        invocation = new ActionInvocation(action);
+        invocation.setInput("NewTargetValue", true);
+
+        OutgoingActionRequestMessage outgoingRequest =
+                new OutgoingActionRequestMessage(invocation, SampleData.getLocalBaseURL());
+        processor.writeBody(outgoingRequest, invocation);
+        incomingRequest = new IncomingActionRequestMessage(new StreamRequestMessage(outgoingRequest), service);
+    }
+
+    @Benchmark
+    public OutgoingActionRequestMessage writeBody() throws Exception {
+        OutgoingActionRequestMessage message = new OutgoingActionRequestMessage(invocation, SampleData.getLocalBaseURL());
+        processor.writeBody(message, invocation);
+        return message;
+    }
+
+    @Benchmark
+    public ActionInvocation readBody() throws Exception {
+        ActionInvocation actionInvocation = new ActionInvocation(action);
+        processor.readBody(incomingRequest, actionInvocation);
+        return actionInvocation;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.model.message.UpnpHeaders;
+import org.jupnp.model.message.header.UpnpHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading the header block of a message and parsing the typed headers the protocols ask for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpnpHeadersBenchmark {
+
+    byte[] headerBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        String message = DatagramProcessorBenchmark.NOTIFY_ALIVE;
+        // Only the header block, without the start line
+        headerBytes = message.substring(message.indexOf("\r\n") + 2).getBytes("US-ASCII");
+    }
+
+    @Benchmark
+    public UpnpHeaders readRaw() {
+        return new UpnpHeaders(new ByteArrayInputStream(headerBytes));
+    }
+
+    @Benchmark
+    public void readTyped(Blackhole blackhole) {
+        UpnpHeaders headers = new UpnpHeaders(new ByteArrayInputStream(headerBytes));
+        blackhole.consume(headers.getFirstHeader(UpnpHeader.Type.USN));
+        blackhole.consume(headers.getFirstHeader(UpnpHeader.Type.NT));
+        blackhole.consume(headers.getFirstHeader(UpnpHeader.Type.NTS));
+        blackhole.consume(headers.getFirstHeader(UpnpHeader.Type.LOCATION));
+        blackhole.consume(headers.getFirstHeader(UpnpHeader.Type.MAX_AGE));
+    }
+
+    @Benchmark
+    public void readTypedRepeatedly(Blackhole blackhole) {
+        UpnpHeaders headers = new UpnpHeaders(new ByteArrayInputStream(headerBytes));
+        // Several protocol steps asking for the same header
+        for (int i = 0; i < 4; i++) {
+            blackhole.consume(headers.getFirstHeader(UpnpHeader.Type.USN));
+        }
+    }
+}
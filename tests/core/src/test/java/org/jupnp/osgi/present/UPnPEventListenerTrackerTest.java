@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.osgi.present;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.MonitoredThreadPoolExecutor;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.upnp.UPnPEventListener;
+import org.testng.annotations.Test;
+
+public class UPnPEventListenerTrackerTest {
+
+    @Test
+    public void indexSimpleFilter() throws Exception {
+        assertIndexKey("(UPnP.device.UDN=uuid:1)", "UPnP.device.UDN", "uuid:1");
+        assertIndexKey("(UPnP.service.id=urn:upnp-org:serviceId:SwitchPower)",
+            "UPnP.service.id", "urn:upnp-org:serviceId:SwitchPower");
+
+        // The attribute as written in the filter, matched without case
+        assertIndexKey("(upnp.device.udn=uuid:1)", "upnp.device.udn", "uuid:1");
+
+        // Not one of the indexed attributes
+        assertNull(getIndexKey("(objectClass=org.osgi.service.upnp.UPnPEventListener)"));
+        assertNull(UPnPEventListenerTracker.getIndexKey(null));
+    }
+
+    @Test
+    public void indexConjunction() throws Exception {
+        // The UDN is preferred over the other indexed attributes
+        assertIndexKey(
+            "(&(UPnP.service.id=urn:upnp-org:serviceId:SwitchPower)(UPnP.device.UDN=uuid:1))",
+            "UPnP.device.UDN", "uuid:1"
+        );
+        assertIndexKey(
+            "(&(objectClass=org.osgi.service.upnp.UPnPEventListener)(UPnP.device.type=urn:schemas-upnp-org:device:BinaryLight:1))",
+            "UPnP.device.type", "urn:schemas-upnp-org:device:BinaryLight:1"
+        );
+
+        // Only the direct terms of the conjunction are required
+        assertIndexKey(
+            "(&(|(UPnP.device.UDN=uuid:1)(UPnP.device.UDN=uuid:2))(UPnP.service.type=urn:schemas-upnp-org:service:SwitchPower:1))",
+            "UPnP.service.type", "urn:schemas-upnp-org:service:SwitchPower:1"
+        );
+        assertNull(getIndexKey("(&(objectClass=foo)(&(UPnP.device.UDN=uuid:1)(UPnP.service.id=bar)))"));
+    }
+
+    @Test
+    public void skipDisjunctionAndNegation() throws Exception {
+        assertNull(getIndexKey("(|(UPnP.device.UDN=uuid:1)(UPnP.device.UDN=uuid:2))"));
+        assertNull(getIndexKey("(|(UPnP.device.UDN=uuid:1)(&(UPnP.device.UDN=uuid:2)(UPnP.service.id=foo)))"));
+        assertNull(getIndexKey("(!(UPnP.device.UDN=uuid:1))"));
+        assertIndexKey(
+            "(&(!(UPnP.device.UDN=uuid:1))(UPnP.service.id=foo))",
+            "UPnP.service.id", "foo"
+        );
+    }
+
+    @Test
+    public void skipEscapedValues() throws Exception {
+        // Escaped characters and wildcards are left to the filter
+        assertNull(getIndexKey("(UPnP.device.UDN=uuid:\\(1\\))"));
+        assertNull(getIndexKey("(UPnP.device.UDN=uuid:\\*)"));
+        assertNull(getIndexKey("(UPnP.device.UDN=uuid:*)"));
+
+        // An escaped parenthesis doesn't end a term of the conjunction
+        assertIndexKey(
+            "(&(UPnP.device.type=a\\)b)(UPnP.service.id=foo))",
+            "UPnP.service.id", "foo"
+        );
+        assertIndexKey(
+            "(&(UPnP.device.type=a\\(b)(UPnP.service.id=foo))",
+            "UPnP.service.id", "foo"
+        );
+    }
+
+    @Test
+    public void parseEqualityTerm() throws Exception {
+        String[] term = UPnPEventListenerTracker.getEqualityTerm("(UPnP.device.UDN=uuid:1)");
+        assertEquals(term[0], "UPnP.device.UDN");
+        assertEquals(term[1], "uuid:1");
+
+        term = UPnPEventListenerTracker.getEqualityTerm("(a=b=c)");
+        assertEquals(term[0], "a");
+        assertEquals(term[1], "b=c");
+
+        // Not a simple equality term
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("UPnP.device.UDN=uuid:1"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(a=)"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(=b)"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(a~=b)"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(a>=b)"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(a<=b)"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(a=*)"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(a=b\\)c)"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(!(a=b))"));
+        assertNull(UPnPEventListenerTracker.getEqualityTerm("(&(a=b)(c=d))"));
+    }
+
+    @Test
+    public void deliverWhenSaturated() throws Exception {
+        // A single busy thread and a full queue, other rejected tasks are discarded
+        MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("test-upnp-events", 1, 1);
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                busy.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        executor.execute(new Runnable() {
+            public void run() {
+            }
+        });
+
+        // The tracker is not opened, its bundle context is never called
+        BundleContext context = (BundleContext) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{BundleContext.class}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        );
+        UPnPEventListenerTracker tracker = new UPnPEventListenerTracker(
+            context, FrameworkUtil.createFilter("(objectClass=org.osgi.service.upnp.UPnPEventListener)"), executor
+        );
+        final List<String> notified = new ArrayList<String>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        UPnPEventListenerTracker.Delivery delivery = tracker.new Delivery(new UPnPEventListener() {
+            public void notifyUPnPEvent(String deviceId, String serviceId, Dictionary events) {
+                notified.add(deviceId);
+                threads.add(Thread.currentThread());
+            }
+        });
+
+        // The rejected delivery runs on the calling thread, nothing is left waiting
+        delivery.enqueue("uuid:1", "urn:upnp-org:serviceId:SwitchPower", new Hashtable());
+        delivery.enqueue("uuid:2", "urn:upnp-org:serviceId:SwitchPower", new Hashtable());
+        assertEquals(notified.toString(), "[uuid:1, uuid:2]");
+        assertEquals(threads.get(0), Thread.currentThread());
+        assertEquals(threads.get(1), Thread.currentThread());
+        assertEquals(tracker.getRejectedCount(), 2);
+        assertTrue(delivery.pending.isEmpty());
+        assertFalse(delivery.scheduled.get());
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    protected String[] getIndexKey(String filter) throws Exception {
+        return UPnPEventListenerTracker.getIndexKey(FrameworkUtil.createFilter(filter));
+    }
+
+    protected void assertIndexKey(String filter, String attribute, String value) throws Exception {
+        String[] key = getIndexKey(filter);
+        assertEquals(key.length, 2);
+        assertEquals(key[0], attribute);
+        assertEquals(key[1], value);
+    }
+}
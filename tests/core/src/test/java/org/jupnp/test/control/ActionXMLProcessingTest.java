@@ -17,12 +17,23 @@ package org.jupnp.test.control;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.net.URI;
-
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.jupnp.binding.annotations.UpnpAction;
+import org.jupnp.binding.annotations.UpnpInputArgument;
+import org.jupnp.binding.annotations.UpnpOutputArgument;
+import org.jupnp.binding.annotations.UpnpServiceId;
+import org.jupnp.binding.annotations.UpnpServiceType;
+import org.jupnp.binding.annotations.UpnpStateVariable;
 import org.jupnp.mock.MockUpnpService;
 import org.jupnp.mock.MockUpnpServiceConfiguration;
 import org.jupnp.model.action.ActionException;
 import org.jupnp.model.action.ActionInvocation;
+import org.jupnp.model.message.StreamBody;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.StreamResponseMessage;
 import org.jupnp.model.message.UpnpMessage;
@@ -43,6 +54,7 @@ import org.jupnp.model.types.SoapActionType;
 import org.jupnp.transport.impl.SOAPActionProcessorImpl;
 import org.jupnp.transport.spi.SOAPActionProcessor;
 import org.jupnp.test.data.SampleData;
+import org.jupnp.util.io.Base64Coder;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -277,4 +289,81 @@ public class ActionXMLProcessingTest {
         // Note that quotes are not encoded because this text is not an XML attribute value!
         assertTrue(response.getBodyString().contains("<SomeValue>This is decoded: &amp;&lt;&gt;'\"</SomeValue>"));
     }
+
+    @Test(dataProvider = "processors")
+    public void writeReadStreamedBinary(final SOAPActionProcessor processor) throws Exception {
+
+        LocalDevice ld = ActionSampleData.createTestDevice(BinaryTransferService.class);
+        LocalService svc = ld.getServices()[0];
+
+        MockUpnpService upnpService = new MockUpnpService(new MockUpnpServiceConfiguration() {
+            @Override
+            public SOAPActionProcessor getSoapActionProcessor() {
+                return processor;
+            }
+        });
+
+        byte[] data = new byte[100000];
+        new Random(42).nextBytes(data);
+        String encoded = Base64Coder.encodeBytes(data);
+
+        // A large request argument is encoded while the body is written
+        Action action = svc.getAction("SetData");
+        ActionInvocation actionInvocation = new ActionInvocation(action);
+        actionInvocation.setInput("Data", ByteBuffer.wrap(data));
+        OutgoingActionRequestMessage outgoingCall = new OutgoingActionRequestMessage(actionInvocation, SampleData.getLocalBaseURL());
+        upnpService.getConfiguration().getSoapActionProcessor().writeBody(outgoingCall, actionInvocation);
+
+        assertEquals(outgoingCall.getBodyType(), UpnpMessage.BodyType.STREAM);
+        String body = outgoingCall.getBodyString();
+        assertEquals(outgoingCall.getBodyStream().getContentLength(), body.getBytes("UTF-8").length);
+        assertTrue(body.contains("<Data>" + encoded + "</Data>"));
+
+        StreamRequestMessage incomingStream = new StreamRequestMessage(outgoingCall);
+        incomingStream.setBody(body);
+        IncomingActionRequestMessage incomingCall = new IncomingActionRequestMessage(incomingStream, svc);
+        actionInvocation = new ActionInvocation(incomingCall.getAction());
+        upnpService.getConfiguration().getSoapActionProcessor().readBody(incomingCall, actionInvocation);
+        assert Arrays.equals((byte[]) actionInvocation.getInput("Data").getValue(), data);
+
+        // A stream of unknown length is written with chunked encoding
+        action = svc.getAction("GetData");
+        actionInvocation = new ActionInvocation(action);
+        actionInvocation.setOutput("Data", StreamBody.fromInputStream(new ByteArrayInputStream(data), -1));
+        OutgoingActionResponseMessage response = new OutgoingActionResponseMessage(action);
+        upnpService.getConfiguration().getSoapActionProcessor().writeBody(response, actionInvocation);
+
+        assertEquals(response.getBodyType(), UpnpMessage.BodyType.STREAM);
+        assertEquals(response.getBodyStream().getContentLength(), -1);
+        assertTrue(response.getBodyString().contains("<Data>" + encoded + "</Data>"));
+
+        // Small arrays are written into the document
+        actionInvocation = new ActionInvocation(action);
+        actionInvocation.setOutput("Data", new byte[]{107, 86, -10});
+        response = new OutgoingActionResponseMessage(action);
+        upnpService.getConfiguration().getSoapActionProcessor().writeBody(response, actionInvocation);
+
+        assertEquals(response.getBodyType(), UpnpMessage.BodyType.STRING);
+        assertTrue(response.getBodyString().contains("<Data>a1b2</Data>"));
+    }
+
+    @org.jupnp.binding.annotations.UpnpService(
+            serviceId = @UpnpServiceId("BinaryTransfer"),
+            serviceType = @UpnpServiceType(value = "BinaryTransfer", version = 1)
+    )
+    public static class BinaryTransferService {
+
+        @UpnpStateVariable(datatype = "bin.base64", sendEvents = false)
+        private byte[] data;
+
+        @UpnpAction
+        public void setData(@UpnpInputArgument(name = "Data", stateVariable = "Data") byte[] data) {
+            this.data = data;
+        }
+
+        @UpnpAction(out = @UpnpOutputArgument(name = "Data", stateVariable = "Data"))
+        public byte[] getData() {
+            return data;
+        }
+    }
 }
@@ -14,6 +14,9 @@
 
 package org.jupnp.test.model;
 
+import org.jupnp.model.VariableValue;
+import org.jupnp.model.message.StreamBody;
+import org.jupnp.model.types.AbstractBinaryDatatype;
 import org.jupnp.model.types.Base64Datatype;
 import org.jupnp.model.types.DLNADoc;
 import org.jupnp.model.types.Datatype;
@@ -22,20 +25,28 @@ import org.jupnp.model.types.DoubleDatatype;
 import org.jupnp.model.types.FloatDatatype;
 import org.jupnp.model.types.IntegerDatatype;
 import org.jupnp.model.types.InvalidValueException;
+import org.jupnp.model.types.NumericDatatype;
+import org.jupnp.model.types.UnsignedIntegerFourBytes;
 import org.jupnp.model.types.UnsignedIntegerFourBytesDatatype;
 import org.jupnp.model.types.UnsignedIntegerOneByteDatatype;
 import org.jupnp.model.types.UnsignedIntegerTwoBytesDatatype;
 import org.jupnp.model.types.csv.CSVBoolean;
 import org.jupnp.model.types.csv.CSVString;
+import org.jupnp.util.io.IO;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
 
 
 public class DatatypesTest {
@@ -218,6 +229,94 @@ public class DatatypesTest {
 
     }
 
+    @Test
+    public void dateAndTimeConcurrent() throws Exception {
+        final DateTimeDatatype type = (DateTimeDatatype) Datatype.Builtin.DATETIME_TZ.getDatatype();
+        final String[] values = {"2010-11-03T08:09:10+0100", "1999-01-31T23:59:59-0500", "2021-06-15T12:00:00+0000"};
+        final long[] instants = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            instants[i] = type.valueOf(values[i]).getTimeInMillis();
+        }
+        assertEquals(type.valueOf("2010-11-03").get(Calendar.DAY_OF_MONTH), 3);
+
+        // The datatypes are shared, every thread must parse and format its own values
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        int index = (i + offset) % values.length;
+                        Calendar parsed = type.valueOf(values[index]);
+                        if (parsed.getTimeInMillis() != instants[index]
+                            || type.valueOf(type.getString(parsed)).getTimeInMillis() != instants[index]) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(failures.get(), 0);
+    }
+
+    @Test
+    public void numericPrimitives() {
+        NumericDatatype<Integer> i2 = (NumericDatatype<Integer>) Datatype.Builtin.I2.getDatatype();
+        assertEquals(i2.parseLong(" -257 "), -257);
+        assertEquals(i2.parseLong("NOT_IMPLEMENTED"), Short.MAX_VALUE);
+        assertEquals(i2.toLong(i2.valueOf("123")), 123);
+        assertEquals(i2.format(-257), "-257");
+        assertEquals(i2.format(12.0), "12");
+        assertInvalid(i2, "32768");
+        assertInvalid(i2, "12a");
+        assertInvalid(i2, "");
+
+        NumericDatatype<UnsignedIntegerFourBytes> ui4 =
+            (NumericDatatype<UnsignedIntegerFourBytes>) Datatype.Builtin.UI4.getDatatype();
+        assertEquals(ui4.parseLong("4294967295"), 4294967295L);
+        assertEquals(ui4.parseLong("-1"), 0); // Twonky
+        assertEquals(ui4.toLong(new UnsignedIntegerFourBytes(4294967295L)), 4294967295L);
+        assertEquals(ui4.format(4294967295L), "4294967295");
+        assertInvalid(ui4, "4294967296");
+        assertInvalid(ui4, "99999999999999999999");
+
+        NumericDatatype<Double> r8 = (NumericDatatype<Double>) Datatype.Builtin.R8.getDatatype();
+        assertEquals(r8.parseDouble("1.5"), 1.5);
+        assertEquals(r8.parseLong("1.5"), 1);
+        assertEquals(r8.format(1.5), r8.getString(1.5));
+        assertEquals(r8.format(2), r8.getString(2.0));
+
+        VariableValue value = new VariableValue(Datatype.Builtin.UI2.getDatatype(), "65535");
+        assertEquals(value.getLongValue(), 65535);
+        assertEquals(value.getDoubleValue(), 65535.0);
+        value = new VariableValue(Datatype.Builtin.STRING.getDatatype(), "42");
+        assertEquals(value.getLongValue(), 42);
+    }
+
+    protected void assertInvalid(NumericDatatype<?> type, String s) {
+        try {
+            type.parseLong(s);
+            fail("Expected invalid value: " + s);
+        } catch (InvalidValueException ex) {
+            // Expected
+        }
+        assert !isParsable(type, s);
+    }
+
+    protected boolean isParsable(Datatype<?> type, String s) {
+        try {
+            return type.valueOf(s) != null;
+        } catch (InvalidValueException ex) {
+            return false;
+        }
+    }
+
     @Test
     public void base64() {
         Base64Datatype type = (Base64Datatype) Datatype.Builtin.BIN_BASE64.getDatatype();
@@ -225,6 +324,51 @@ public class DatatypesTest {
         assert type.getString(new byte[]{107, 86, -10}).equals("a1b2");
     }
 
+    @Test
+    public void binaryStreaming() throws Exception {
+        AbstractBinaryDatatype[] types = new AbstractBinaryDatatype[]{
+                (AbstractBinaryDatatype) Datatype.Builtin.BIN_BASE64.getDatatype(),
+                (AbstractBinaryDatatype) Datatype.Builtin.BIN_HEX.getDatatype()
+        };
+        Random random = new Random(42);
+        for (AbstractBinaryDatatype type : types) {
+            for (int length : new int[]{0, 1, 2, 3, 4, AbstractBinaryDatatype.CHUNK_SIZE, AbstractBinaryDatatype.CHUNK_SIZE * 2 + 1}) {
+                byte[] data = new byte[length];
+                random.nextBytes(data);
+                String encoded = type.getString(data);
+
+                assertEquals(type.getEncodedLength(length), encoded.length());
+                assertEquals(type.toEncodedString(ByteBuffer.wrap(data)), encoded);
+                assertEquals(type.toEncodedString(StreamBody.fromInputStream(new ByteArrayInputStream(data), -1)), encoded);
+                assertEquals(new String(IO.readBytes(type.openEncodedStream(data)), "US-ASCII"), encoded);
+                if (length > 0) {
+                    assert Arrays.equals(type.valueOf(encoded), data);
+                    assert Arrays.equals(type.decode(new StringBuilder(encoded)), data);
+                }
+
+                // The value isn't encoded and the buffer isn't consumed when the argument is created
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                VariableValue value = new VariableValue(type, buffer);
+                assertEquals(value.toString(), encoded);
+                assertEquals(buffer.remaining(), length);
+            }
+        }
+
+        Base64Datatype base64 = (Base64Datatype) types[0];
+        assert Arrays.equals(base64.valueOf(" a1b2\n YQ== "), new byte[]{107, 86, -10, 97});
+        try {
+            base64.valueOf("a1b!");
+            fail("Invalid character should be rejected");
+        } catch (InvalidValueException ex) {
+            // Expected
+        }
+        // Decoding stops at padding, and ignores an incomplete quartet
+        assert Arrays.equals(base64.valueOf("YQ==a1b2"), new byte[]{97});
+        assert Arrays.equals(base64.valueOf("a1b2a1b2="), new byte[]{107, 86, -10, 107, 86, -10});
+        assertEquals(types[1].valueOf("6b56F6"), new byte[]{107, 86, -10});
+        assertEquals(types[1].valueOf("6b5"), null);
+    }
+
     @Test
     public void simpleCSV() {
         List<String> csv = new CSVString("foo,bar,baz");
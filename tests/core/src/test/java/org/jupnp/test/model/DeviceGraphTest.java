@@ -18,6 +18,8 @@ import org.jupnp.model.meta.LocalDevice;
 import org.jupnp.model.meta.RemoteDevice;
 import org.jupnp.model.meta.Service;
 import org.jupnp.model.types.ServiceType;
+import org.jupnp.model.types.UDADeviceType;
+import org.jupnp.model.types.UDN;
 import org.jupnp.test.data.SampleData;
 import org.jupnp.test.data.SampleDeviceEmbeddedOne;
 import org.jupnp.test.data.SampleDeviceEmbeddedTwo;
@@ -25,6 +27,8 @@ import org.jupnp.test.data.SampleDeviceRootLocal;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 
 /**
  * @author Christian Bauer
@@ -219,4 +223,65 @@ public class DeviceGraphTest {
         assert haveThree;
 
     }
+
+    @Test
+    public void findDeviceByUDN() throws Exception {
+        LocalDevice ld = SampleData.createLocalDevice();
+        LocalDevice one = ld.getEmbeddedDevices()[0];
+        LocalDevice two = one.getEmbeddedDevices()[0];
+
+        assertSame(ld.findDevice(ld.getIdentity().getUdn()), ld);
+        assertSame(ld.findDevice(two.getIdentity().getUdn()), two);
+        assertSame(one.findDevice(two.getIdentity().getUdn()), two);
+        assertNull(two.findDevice(one.getIdentity().getUdn()));
+        assertNull(ld.findDevice(new UDN("UNKNOWN")));
+    }
+
+    @Test
+    public void findEmbeddedDevicesOfEmbedded() throws Exception {
+        LocalDevice ld = SampleData.createLocalDevice();
+        LocalDevice one = ld.getEmbeddedDevices()[0];
+
+        // An embedded device is part of its own embedded devices
+        LocalDevice[] embedded = one.findEmbeddedDevices();
+        assertEquals(embedded.length, 2);
+        assertSame(embedded[0], one);
+        assertSame(embedded[1], one.getEmbeddedDevices()[0]);
+    }
+
+    @Test
+    public void findCompatibleVersions() throws Exception {
+        LocalDevice ld = SampleData.createLocalDevice();
+        LocalDevice two = ld.getEmbeddedDevices()[0].getEmbeddedDevices()[0];
+
+        // The device implements version 3, searching for version 2 finds it
+        LocalDevice[] devices = ld.findDevices(new UDADeviceType("MY-DEVICE-TYPE-THREE", 2));
+        assertEquals(devices.length, 1);
+        assertSame(devices[0], two);
+        assertEquals(ld.findDevices(new UDADeviceType("MY-DEVICE-TYPE-THREE", 4)).length, 0);
+
+        ServiceType serviceType = two.getServices()[0].getServiceType();
+        ServiceType newer = new ServiceType(
+            serviceType.getNamespace(), serviceType.getType(), serviceType.getVersion() + 1
+        );
+        assertEquals(ld.findServices(serviceType).length, 1);
+        assertEquals(ld.findServices(newer).length, 0);
+        assertEquals(ld.findDevices(serviceType)[0], two);
+        assertNull(ld.findService(newer));
+    }
+
+    @Test
+    public void findResultsAreShared() throws Exception {
+        RemoteDevice rd = SampleData.createRemoteDevice();
+        ServiceType serviceType = rd.getServices()[0].getServiceType();
+
+        assertSame(rd.findEmbeddedDevices(), rd.findEmbeddedDevices());
+        assertSame(rd.findServices(), rd.findServices());
+        assertSame(rd.findServices(serviceType), rd.findServices(serviceType));
+        assertSame(rd.findServiceTypes(), rd.findServiceTypes());
+        assertEquals(rd.findServices().length, 3);
+        assertEquals(rd.findIcons().length, rd.getIcons().length
+            + rd.getEmbeddedDevices()[0].getIcons().length
+            + rd.getEmbeddedDevices()[0].getEmbeddedDevices()[0].getIcons().length);
+    }
 }
@@ -16,10 +16,12 @@ package org.jupnp.test.model;
 
 import org.jupnp.model.Constants;
 import org.jupnp.model.ServerClientTokens;
+import org.jupnp.model.message.UpnpHeaders;
 import org.jupnp.model.message.header.*;
 import org.jupnp.model.types.DeviceType;
 import org.jupnp.model.types.NamedDeviceType;
 import org.jupnp.model.types.NamedServiceType;
+import org.jupnp.model.types.NotificationSubtype;
 import org.jupnp.model.types.ServiceType;
 import org.jupnp.model.types.UDADeviceType;
 import org.jupnp.model.types.UDAServiceType;
@@ -27,9 +29,15 @@ import org.jupnp.util.MimeType;
 import org.testng.annotations.Test;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 
 
 public class HeaderParsingTest {
@@ -529,4 +537,99 @@ public class HeaderParsingTest {
         assertEquals(header.getValue().getValue(),"value");
         assertEquals(header.getString(), "token=\"value\"");
     }
+
+    @Test
+    public void parseUpnpHeadersPerType() {
+        UpnpHeaders headers = new UpnpHeaders();
+        headers.add("nt", "upnp:rootdevice");
+        headers.add("Cache-Control", "max-age=1800");
+        headers.add("X-Unknown", "foo");
+
+        NTSHeader nts = new NTSHeader(NotificationSubtype.ALIVE);
+        headers.add(UpnpHeader.Type.NTS, nts);
+        assertSame(headers.getFirstHeader(UpnpHeader.Type.NTS), nts);
+
+        MaxAgeHeader maxAge = headers.getFirstHeader(UpnpHeader.Type.MAX_AGE, MaxAgeHeader.class);
+        assertEquals(maxAge.getValue(), Integer.valueOf(1800));
+        assertEquals(headers.getFirstHeader(UpnpHeader.Type.NT).getClass(), RootDeviceHeader.class);
+
+        // Changing a header only discards the parsed values of its own type
+        headers.set("CACHE-CONTROL", "max-age=60");
+        assertSame(headers.getFirstHeader(UpnpHeader.Type.NTS), nts);
+        assertEquals(headers.getFirstHeader(UpnpHeader.Type.MAX_AGE).getValue(), Integer.valueOf(60));
+
+        headers.remove(UpnpHeader.Type.NT);
+        assertNull(headers.getFirstHeader(UpnpHeader.Type.NT));
+        assertNull(headers.get(UpnpHeader.Type.NT));
+        assertEquals(headers.getAsArray(UpnpHeader.Type.NT).length, 0);
+        assertEquals(headers.getFirstHeader("x-unknown"), "foo");
+
+        // Without normalization all spellings of a header are parsed
+        UpnpHeaders raw = new UpnpHeaders(false);
+        raw.add("mx", "3");
+        raw.add(UpnpHeader.Type.MX, new MXHeader(5));
+        assertEquals(raw.getAsArray(UpnpHeader.Type.MX).length, 2);
+    }
+
+    @Test
+    public void subclassParsedHeaders() {
+        LegacyUpnpHeaders headers = new LegacyUpnpHeaders();
+        headers.add("nt", "upnp:rootdevice");
+        headers.add("mx", "3");
+
+        // Only the accessed type is parsed
+        assertEquals(headers.getFirstHeader(UpnpHeader.Type.NT).getClass(), RootDeviceHeader.class);
+        assertEquals(headers.added.size(), 1);
+
+        Map<UpnpHeader.Type, List<UpnpHeader>> parsed = headers.parseAll();
+        assertEquals(parsed.size(), 2);
+        assertEquals(parsed.get(UpnpHeader.Type.MX).size(), 1);
+        assertEquals(headers.added.size(), 3);
+
+        // Discarding all parsed headers, as subclasses of earlier versions did
+        headers.discardParsedHeaders();
+        assertEquals(headers.getFirstHeader(UpnpHeader.Type.MX).getValue(), Integer.valueOf(3));
+        assertEquals(headers.added.size(), 4);
+    }
+
+    @Test
+    public void reuseParsedHeaderValues() {
+        String usn = "uuid:MY-DEVICE-123::urn:schemas-upnp-org:service:MY-SERVICE-TYPE:1";
+        UpnpHeader first = UpnpHeader.newInstance(UpnpHeader.Type.USN, usn);
+        UpnpHeader second = UpnpHeader.newInstance(UpnpHeader.Type.USN, usn);
+        assertEquals(first.getClass(), ServiceUSNHeader.class);
+        assertEquals(second.getClass(), ServiceUSNHeader.class);
+        assertNotSame(first, second);
+        assertSame(first.getValue(), second.getValue());
+        assertEquals(second.getString(), usn);
+
+        // Mutable values are never shared
+        UpnpHeader host = UpnpHeader.newInstance(UpnpHeader.Type.HOST, "foo.bar:1234");
+        assertNotSame(UpnpHeader.newInstance(UpnpHeader.Type.HOST, "foo.bar:1234").getValue(), host.getValue());
+
+        // Values no header subtype can parse are remembered as well
+        assertNull(UpnpHeader.newInstance(UpnpHeader.Type.NTS, "ssdp:foo"));
+        assertNull(UpnpHeader.newInstance(UpnpHeader.Type.NTS, "ssdp:foo"));
+    }
+
+    // Uses the protected hooks of UpnpHeaders like subclasses written for earlier versions
+    static class LegacyUpnpHeaders extends UpnpHeaders {
+
+        final List<UpnpHeader> added = new ArrayList<UpnpHeader>();
+
+        @Override
+        protected void addParsedValue(UpnpHeader.Type type, UpnpHeader value) {
+            added.add(value);
+            super.addParsedValue(type, value);
+        }
+
+        Map<UpnpHeader.Type, List<UpnpHeader>> parseAll() {
+            parseHeaders();
+            return parsedHeaders;
+        }
+
+        void discardParsedHeaders() {
+            parsedHeaders = null;
+        }
+    }
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.jupnp.model.message.StreamBody;
+import org.jupnp.model.message.StreamResponseMessage;
+import org.jupnp.model.message.UpnpMessage;
+import org.jupnp.util.io.IO;
+import org.testng.annotations.Test;
+
+public class StreamBodyTest {
+
+    @Test
+    public void writeBuffers() throws Exception {
+        StreamBody body = StreamBody.fromBuffers(Arrays.asList(
+                ByteBuffer.wrap("Hello ".getBytes("UTF-8")),
+                ByteBuffer.allocate(0),
+                ByteBuffer.wrap("World".getBytes("UTF-8"))
+        ));
+        assertEquals(body.getContentLength(), 11);
+
+        // Repeatable, the buffers are not consumed
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            body.writeTo(os);
+            assertEquals(os.toString("UTF-8"), "Hello World");
+        }
+        assertEquals(new String(body.toBytes(), "UTF-8"), "Hello World");
+    }
+
+    @Test
+    public void writeFileRegion() throws Exception {
+        File file = File.createTempFile("jupnp-streambody", ".txt");
+        try {
+            IO.writeUTF8(file, "0123456789");
+
+            StreamBody region = StreamBody.fromFile(file, 2, 5);
+            assertEquals(region.getContentLength(), 5);
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            region.writeTo(os);
+            assertEquals(os.toString("UTF-8"), "23456");
+            assertEquals(new String(region.toBytes(), "UTF-8"), "23456");
+
+            StreamBody whole = StreamBody.fromFile(file);
+            assertEquals(whole.getContentLength(), 10);
+            assertEquals(new String(whole.toBytes(), "UTF-8"), "0123456789");
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void readInputStreamOnce() throws Exception {
+        StreamBody body = StreamBody.fromInputStream(new ByteArrayInputStream("abcdef".getBytes("UTF-8")), 3);
+        assertFalse(body.isRepeatable());
+        assertEquals(new String(body.toBytes(), "UTF-8"), "abc");
+        try {
+            body.openStream();
+            fail("Stream body can only be read once");
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void messageBody() throws Exception {
+        StreamResponseMessage msg = new StreamResponseMessage(StreamBody.fromBytes("<root/>".getBytes("UTF-8")));
+        assertEquals(msg.getBodyType(), UpnpMessage.BodyType.STREAM);
+        assertTrue(msg.hasBody());
+        assertEquals(msg.getBodyString(), "<root/>");
+        assertEquals(msg.getBodyStream().getContentLength(), 7);
+
+        StreamResponseMessage stringMsg = new StreamResponseMessage("<root/>");
+        assertEquals(new String(stringMsg.getBodyStream().toBytes(), "UTF-8"), "<root/>");
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.test.network;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.MonitoredThreadPoolExecutor;
+import org.jupnp.transport.impl.DatagramSendQueue;
+import org.testng.annotations.Test;
+
+public class DatagramSendQueueTest {
+
+    @Test
+    public void sendInOrder() throws Exception {
+        final List<DatagramPacket> sent = new CopyOnWriteArrayList<DatagramPacket>();
+        DatagramSendQueue queue = new DatagramSendQueue(1000) {
+            @Override
+            protected void transmit(DatagramPacket packet) {
+                sent.add(packet);
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        queue.start(executor);
+
+        DatagramPacket[] packets = new DatagramPacket[500];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = createPacket(i);
+            assertTrue(queue.offer(packets[i]));
+        }
+        queue.stop(5000);
+
+        assertEquals(sent.size(), packets.length);
+        for (int i = 0; i < packets.length; i++) {
+            assertEquals(sent.get(i), packets[i]);
+        }
+        assertEquals(queue.getSentCount(), packets.length);
+        assertEquals(queue.getDroppedCount(), 0);
+        assertEquals(queue.getQueuedCount(), 0);
+
+        // Stopped, the writer returned its thread to the executor
+        assertFalse(queue.offer(createPacket(0)));
+        assertEquals(queue.getDroppedCount(), 1);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dropWhenFull() throws Exception {
+        final CountDownLatch transmitting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        DatagramSendQueue queue = new DatagramSendQueue(10) {
+            @Override
+            protected void transmit(DatagramPacket packet) {
+                transmitting.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        queue.start(executor);
+
+        // The writer takes the first packet and blocks
+        assertTrue(queue.offer(createPacket(0)));
+        assertTrue(transmitting.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(createPacket(i)));
+        }
+        assertFalse(queue.offer(createPacket(11)));
+        assertFalse(queue.offer(createPacket(12)));
+        assertEquals(queue.getQueuedCount(), 10);
+        assertEquals(queue.getDroppedCount(), 2);
+
+        release.countDown();
+        queue.stop(5000);
+        assertEquals(queue.getSentCount(), 11);
+        assertEquals(queue.getQueuedCount(), 0);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stopBeforeStart() throws Exception {
+        final List<DatagramPacket> sent = new CopyOnWriteArrayList<DatagramPacket>();
+        DatagramSendQueue queue = new DatagramSendQueue(10) {
+            @Override
+            protected void transmit(DatagramPacket packet) {
+                sent.add(packet);
+            }
+        };
+        assertTrue(queue.offer(createPacket(0)));
+
+        // The executor didn't run the writer yet, stopping doesn't wait for it forever
+        queue.stop(100);
+        assertFalse(queue.offer(createPacket(1)));
+
+        // Queued packets are still written when the writer runs
+        queue.run();
+        assertEquals(sent.size(), 1);
+        assertEquals(queue.getQueuedCount(), 0);
+    }
+
+    @Test
+    public void startRejected() throws Exception {
+        final List<DatagramPacket> sent = new CopyOnWriteArrayList<DatagramPacket>();
+        DatagramSendQueue queue = new DatagramSendQueue(10) {
+            @Override
+            protected void transmit(DatagramPacket packet) {
+                sent.add(packet);
+            }
+        };
+        assertTrue(queue.offer(createPacket(0)));
+
+        // A saturated pool doesn't discard the writer silently
+        MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("test-datagram-io", 1, 1);
+        executor.shutdown();
+        assertFalse(queue.start(executor));
+        assertEquals(executor.getRejectedTaskCount(), 1);
+
+        // Packets queued before are written by the caller, the queue doesn't accept more
+        assertEquals(sent.size(), 1);
+        assertFalse(queue.offer(createPacket(1)));
+        queue.stop(5000);
+    }
+
+    protected DatagramPacket createPacket(int i) throws Exception {
+        byte[] data = ("packet " + i).getBytes("UTF-8");
+        return new DatagramPacket(data, data.length, InetAddress.getByName("127.0.0.1"), 1900);
+    }
+}
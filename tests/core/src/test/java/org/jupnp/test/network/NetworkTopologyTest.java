@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.network;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jupnp.transport.impl.NetworkTopology;
+import org.testng.annotations.Test;
+
+public class NetworkTopologyTest {
+
+    @Test
+    public void sameNetwork() throws Exception {
+        NetworkTopology topology = createTopology(
+            new String[]{"eth0", "wlan0"},
+            address("192.168.1.10", 24, true),
+            address("192.168.2.10", 24, true)
+        );
+
+        assertTrue(topology.isSameNetwork(topology));
+
+        // Order of addresses doesn't matter
+        assertTrue(topology.isSameNetwork(createTopology(
+            new String[]{"eth0", "wlan0"},
+            address("192.168.2.10", 24, true),
+            address("192.168.1.10", 24, true)
+        )));
+
+        // Non-bind addresses are ignored
+        assertTrue(topology.isSameNetwork(createTopology(
+            new String[]{"eth0", "wlan0"},
+            address("192.168.1.10", 24, true),
+            address("192.168.2.10", 24, true),
+            address("10.0.0.1", 8, false)
+        )));
+    }
+
+    @Test
+    public void changedNetwork() throws Exception {
+        NetworkTopology topology = createTopology(
+            new String[]{"eth0", "wlan0"},
+            address("192.168.1.10", 24, true),
+            address("192.168.2.10", 24, true)
+        );
+
+        assertFalse(topology.isSameNetwork(null));
+
+        // Interface gone
+        assertFalse(topology.isSameNetwork(createTopology(
+            new String[]{"eth0"},
+            address("192.168.1.10", 24, true),
+            address("192.168.2.10", 24, true)
+        )));
+
+        // Address changed
+        assertFalse(topology.isSameNetwork(createTopology(
+            new String[]{"eth0", "wlan0"},
+            address("192.168.1.10", 24, true),
+            address("192.168.2.11", 24, true)
+        )));
+
+        // Address no longer bound
+        assertFalse(topology.isSameNetwork(createTopology(
+            new String[]{"eth0", "wlan0"},
+            address("192.168.1.10", 24, true),
+            address("192.168.2.10", 24, false)
+        )));
+
+        // Additional address
+        assertFalse(topology.isSameNetwork(createTopology(
+            new String[]{"eth0", "wlan0"},
+            address("192.168.1.10", 24, true),
+            address("192.168.2.10", 24, true),
+            address("192.168.3.10", 24, true)
+        )));
+
+        // Network prefix changed
+        assertFalse(topology.isSameNetwork(createTopology(
+            new String[]{"eth0", "wlan0"},
+            address("192.168.1.10", 16, true),
+            address("192.168.2.10", 24, true)
+        )));
+    }
+
+    protected NetworkTopology createTopology(String[] interfaceNames, NetworkTopology.Address... addresses) {
+        Map<String, List<InetAddress>> interfaceAddresses = new LinkedHashMap<String, List<InetAddress>>();
+        for (String interfaceName : interfaceNames) {
+            interfaceAddresses.put(interfaceName, new ArrayList<InetAddress>());
+        }
+        return new NetworkTopology(Arrays.asList(addresses), interfaceAddresses);
+    }
+
+    protected NetworkTopology.Address address(String address, int prefix, boolean bindAddress) throws Exception {
+        return new NetworkTopology.Address(
+            null, InetAddress.getByName(address), (short) prefix, null, null, bindAddress
+        );
+    }
+}
@@ -0,0 +1,401 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.network;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.DatagramPacket;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jupnp.mock.MockUpnpServiceConfiguration;
+import org.jupnp.model.message.OutgoingDatagramMessage;
+import org.jupnp.transport.Router;
+import org.jupnp.transport.RouterImpl;
+import org.jupnp.transport.impl.NetworkAddressFactoryImpl;
+import org.jupnp.transport.spi.DatagramIO;
+import org.jupnp.transport.spi.DatagramIOConfiguration;
+import org.jupnp.transport.spi.DatagramProcessor;
+import org.jupnp.transport.spi.InitializationException;
+import org.jupnp.transport.spi.MulticastReceiver;
+import org.jupnp.transport.spi.MulticastReceiverConfiguration;
+import org.jupnp.transport.spi.NetworkAddressFactory;
+import org.jupnp.transport.spi.StreamClient;
+import org.jupnp.transport.spi.StreamServer;
+import org.jupnp.transport.spi.StreamServerConfiguration;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+public class NetworkUpdateTest {
+
+    @Test
+    public void updateTransports() throws Exception {
+        NetworkInterface loopback = getLoopbackInterface();
+        InetAddress firstAddress = InetAddress.getByName("127.0.0.1");
+        InetAddress secondAddress = InetAddress.getByName("127.0.0.2");
+
+        TestNetworkAddressFactory networkAddressFactory = new TestNetworkAddressFactory();
+        networkAddressFactory.networkInterfaces.add(loopback);
+        networkAddressFactory.bindAddresses.add(firstAddress);
+
+        TestConfiguration configuration = new TestConfiguration(networkAddressFactory);
+        TestRouter router = new TestRouter(configuration);
+        assertTrue(router.enable());
+
+        assertEquals(configuration.multicastReceivers.size(), 1);
+        assertEquals(configuration.streamServers.size(), 1);
+        assertEquals(configuration.datagramIOs.size(), 1);
+        TestMulticastReceiver multicastReceiver = configuration.multicastReceivers.get(0);
+        TestStreamServer firstStreamServer = configuration.streamServers.get(0);
+        TestDatagramIO firstDatagramIO = configuration.datagramIOs.get(0);
+        assertEquals(firstStreamServer.bindAddress, firstAddress);
+        assertEquals(firstDatagramIO.bindAddress, firstAddress);
+
+        // Nothing changed, nothing to do
+        assertFalse(router.updateNetwork());
+        assertEquals(configuration.streamServers.size(), 1);
+
+        // Address changed on the same interface
+        networkAddressFactory.bindAddresses.clear();
+        networkAddressFactory.bindAddresses.add(secondAddress);
+        networkAddressFactory.changed = true;
+        assertTrue(router.updateNetwork());
+
+        assertTrue(firstStreamServer.stopped);
+        assertTrue(firstDatagramIO.stopped);
+        assertEquals(configuration.streamServers.size(), 2);
+        assertEquals(configuration.datagramIOs.size(), 2);
+        assertEquals(configuration.streamServers.get(1).bindAddress, secondAddress);
+        assertEquals(configuration.datagramIOs.get(1).bindAddress, secondAddress);
+        assertFalse(configuration.streamServers.get(1).stopped);
+
+        // The interface didn't change, its receiver keeps running
+        assertEquals(configuration.multicastReceivers.size(), 1);
+        assertFalse(multicastReceiver.stopped);
+
+        router.disable();
+        assertTrue(multicastReceiver.stopped);
+        assertTrue(configuration.streamServers.get(1).stopped);
+        assertTrue(configuration.datagramIOs.get(1).stopped);
+    }
+
+    @Test
+    public void stopRemovedTransports() throws Exception {
+        NetworkInterface loopback = getLoopbackInterface();
+        InetAddress firstAddress = InetAddress.getByName("127.0.0.1");
+        InetAddress secondAddress = InetAddress.getByName("127.0.0.2");
+
+        TestNetworkAddressFactory networkAddressFactory = new TestNetworkAddressFactory();
+        networkAddressFactory.networkInterfaces.add(loopback);
+        networkAddressFactory.bindAddresses.addAll(Arrays.asList(firstAddress, secondAddress));
+
+        TestConfiguration configuration = new TestConfiguration(networkAddressFactory);
+        TestRouter router = new TestRouter(configuration);
+        assertTrue(router.enable());
+        assertEquals(configuration.streamServers.size(), 2);
+
+        // Only the transports of the removed address are stopped
+        networkAddressFactory.bindAddresses.remove(firstAddress);
+        router.stopRemovedTransports();
+        assertTrue(configuration.streamServers.get(0).stopped);
+        assertTrue(configuration.datagramIOs.get(0).stopped);
+        assertFalse(configuration.streamServers.get(1).stopped);
+        assertFalse(configuration.datagramIOs.get(1).stopped);
+        assertFalse(configuration.multicastReceivers.get(0).stopped);
+
+        // Interface gone
+        networkAddressFactory.networkInterfaces.clear();
+        networkAddressFactory.bindAddresses.clear();
+        router.stopRemovedTransports();
+        assertTrue(configuration.multicastReceivers.get(0).stopped);
+        assertTrue(configuration.streamServers.get(1).stopped);
+        assertTrue(configuration.datagramIOs.get(1).stopped);
+
+        router.disable();
+    }
+
+    @Test
+    public void keepNetworkOnFailedRefresh() throws Exception {
+        final boolean[] failing = new boolean[1];
+        NetworkAddressFactoryImpl networkAddressFactory = new NetworkAddressFactoryImpl() {
+            @Override
+            protected boolean isUsableNetworkInterface(NetworkInterface iface) throws Exception {
+                if (failing[0]) {
+                    throw new Exception("Interface vanished while analyzing it");
+                }
+                return iface.isLoopback();
+            }
+
+            @Override
+            protected boolean isUsableAddress(NetworkInterface networkInterface, InetAddress address) {
+                return address.isLoopbackAddress() && address instanceof Inet4Address;
+            }
+        };
+        assertTrue(networkAddressFactory.hasUsableNetwork());
+        assertFalse(networkAddressFactory.refresh());
+
+        failing[0] = true;
+        try {
+            networkAddressFactory.refresh();
+            fail("Refresh should fail");
+        } catch (InitializationException ex) {
+            // Expected
+        }
+
+        // Still the interfaces and addresses of the last successful discovery
+        assertTrue(networkAddressFactory.hasUsableNetwork());
+        assertTrue(networkAddressFactory.getNetworkInterfaces().next().isLoopback());
+        assertTrue(networkAddressFactory.getBindAddresses().next().isLoopbackAddress());
+    }
+
+    @Test
+    public void refreshWithDiscoveryHooks() throws Exception {
+        final InetAddress loopbackAddress = InetAddress.getByName("127.0.0.1");
+        final int[] discoveries = new int[1];
+        NetworkAddressFactoryImpl networkAddressFactory = new NetworkAddressFactoryImpl() {
+            @Override
+            protected boolean isUsableNetworkInterface(NetworkInterface iface) throws Exception {
+                return iface.isLoopback();
+            }
+
+            @Override
+            protected boolean isUsableAddress(NetworkInterface networkInterface, InetAddress address) {
+                return address.isLoopbackAddress();
+            }
+
+            @Override
+            protected void discoverBindAddresses() throws InitializationException {
+                super.discoverBindAddresses();
+                bindAddresses.retainAll(Arrays.asList(loopbackAddress));
+                discoveries[0]++;
+            }
+        };
+        if (!networkAddressFactory.hasUsableNetwork()) {
+            throw new SkipException("No usable loopback address available");
+        }
+        assertEquals(discoveries[0], 1);
+
+        // The overridden discovery also filters on refresh
+        assertFalse(networkAddressFactory.refresh());
+        assertEquals(discoveries[0], 2);
+        Iterator<InetAddress> it = networkAddressFactory.getBindAddresses();
+        assertEquals(it.next(), loopbackAddress);
+        assertFalse(it.hasNext());
+    }
+
+    protected NetworkInterface getLoopbackInterface() throws Exception {
+        NetworkInterface loopback = NetworkInterface.getByInetAddress(InetAddress.getByName("127.0.0.1"));
+        if (loopback == null) {
+            throw new SkipException("No loopback network interface available");
+        }
+        return loopback;
+    }
+
+    static class TestRouter extends RouterImpl {
+
+        TestRouter(TestConfiguration configuration) {
+            super(configuration, null);
+        }
+
+        @Override
+        public void stopRemovedTransports() {
+            super.stopRemovedTransports();
+        }
+    }
+
+    static class TestConfiguration extends MockUpnpServiceConfiguration {
+
+        final NetworkAddressFactory networkAddressFactory;
+        final List<TestMulticastReceiver> multicastReceivers = new ArrayList<TestMulticastReceiver>();
+        final List<TestStreamServer> streamServers = new ArrayList<TestStreamServer>();
+        final List<TestDatagramIO> datagramIOs = new ArrayList<TestDatagramIO>();
+
+        TestConfiguration(NetworkAddressFactory networkAddressFactory) {
+            this.networkAddressFactory = networkAddressFactory;
+        }
+
+        @Override
+        public NetworkAddressFactory createNetworkAddressFactory() {
+            return networkAddressFactory;
+        }
+
+        @Override
+        public StreamClient createStreamClient() {
+            return null;
+        }
+
+        @Override
+        public MulticastReceiver createMulticastReceiver(NetworkAddressFactory networkAddressFactory) {
+            TestMulticastReceiver multicastReceiver = new TestMulticastReceiver();
+            multicastReceivers.add(multicastReceiver);
+            return multicastReceiver;
+        }
+
+        @Override
+        public StreamServer createStreamServer(NetworkAddressFactory networkAddressFactory) {
+            TestStreamServer streamServer = new TestStreamServer();
+            streamServers.add(streamServer);
+            return streamServer;
+        }
+
+        @Override
+        public DatagramIO createDatagramIO(NetworkAddressFactory networkAddressFactory) {
+            TestDatagramIO datagramIO = new TestDatagramIO();
+            datagramIOs.add(datagramIO);
+            return datagramIO;
+        }
+    }
+
+    static class TestNetworkAddressFactory implements NetworkAddressFactory {
+
+        final List<NetworkInterface> networkInterfaces = new ArrayList<NetworkInterface>();
+        final List<InetAddress> bindAddresses = new ArrayList<InetAddress>();
+        boolean changed;
+
+        public InetAddress getMulticastGroup() {
+            return null;
+        }
+
+        public int getMulticastPort() {
+            return 0;
+        }
+
+        public int getMulticastResponsePort() {
+            return 0;
+        }
+
+        public int getStreamListenPort() {
+            return 0;
+        }
+
+        public Iterator<NetworkInterface> getNetworkInterfaces() {
+            return new ArrayList<NetworkInterface>(networkInterfaces).iterator();
+        }
+
+        public Iterator<InetAddress> getBindAddresses() {
+            return new ArrayList<InetAddress>(bindAddresses).iterator();
+        }
+
+        public boolean hasUsableNetwork() {
+            return !networkInterfaces.isEmpty() && !bindAddresses.isEmpty();
+        }
+
+        public boolean refresh() {
+            boolean result = changed;
+            changed = false;
+            return result;
+        }
+
+        public Short getAddressNetworkPrefixLength(InetAddress inetAddress) {
+            return null;
+        }
+
+        public byte[] getHardwareAddress(InetAddress inetAddress) {
+            return null;
+        }
+
+        public InetAddress getBroadcastAddress(InetAddress inetAddress) {
+            return null;
+        }
+
+        public InetAddress getLocalAddress(NetworkInterface networkInterface, boolean isIPv6, InetAddress remoteAddress) {
+            return bindAddresses.isEmpty() ? null : bindAddresses.get(0);
+        }
+
+        public void logInterfaceInformation() {
+        }
+    }
+
+    static class TestMulticastReceiver implements MulticastReceiver {
+
+        NetworkInterface networkInterface;
+        volatile boolean stopped;
+
+        public void init(NetworkInterface networkInterface, Router router,
+                         NetworkAddressFactory networkAddressFactory, DatagramProcessor datagramProcessor) {
+            this.networkInterface = networkInterface;
+        }
+
+        public void stop() {
+            stopped = true;
+        }
+
+        public MulticastReceiverConfiguration getConfiguration() {
+            return null;
+        }
+
+        public void run() {
+        }
+    }
+
+    static class TestStreamServer implements StreamServer {
+
+        InetAddress bindAddress;
+        volatile boolean stopped;
+
+        public void init(InetAddress bindAddress, Router router) {
+            this.bindAddress = bindAddress;
+        }
+
+        public int getPort() {
+            return 0;
+        }
+
+        public void stop() {
+            stopped = true;
+        }
+
+        public StreamServerConfiguration getConfiguration() {
+            return null;
+        }
+
+        public void run() {
+        }
+    }
+
+    static class TestDatagramIO implements DatagramIO {
+
+        InetAddress bindAddress;
+        volatile boolean stopped;
+
+        public void init(InetAddress bindAddress, int bindPort, Router router, DatagramProcessor datagramProcessor) {
+            this.bindAddress = bindAddress;
+        }
+
+        public void stop() {
+            stopped = true;
+        }
+
+        public DatagramIOConfiguration getConfiguration() {
+            return null;
+        }
+
+        public void send(OutgoingDatagramMessage message) {
+        }
+
+        public void send(DatagramPacket datagram) {
+        }
+
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.protocol;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jupnp.mock.MockRouter;
+import org.jupnp.mock.MockUpnpService;
+import org.jupnp.model.message.StreamResponseMessage;
+import org.jupnp.model.message.header.ContentTypeHeader;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.meta.RemoteDeviceIdentity;
+import org.jupnp.model.meta.RemoteService;
+import org.jupnp.model.profile.RemoteClientInfo;
+import org.jupnp.protocol.DescriptorRetrievalCoordinator;
+import org.jupnp.protocol.RetrieveRemoteDescriptors;
+import org.jupnp.test.data.SampleData;
+import org.jupnp.test.data.SampleDeviceEmbeddedOne;
+import org.jupnp.test.data.SampleDeviceRoot;
+import org.testng.annotations.Test;
+
+public class DescriptorRetrievalCoordinatorTest {
+
+    @Test
+    public void singleFlight() throws Exception {
+        DescriptorRetrievalCoordinator coordinator = new DescriptorRetrievalCoordinator();
+        URL url = new URL("http://10.0.0.1:8080/desc.xml");
+
+        assertTrue(coordinator.start(url));
+        assertFalse(coordinator.start(url));
+        assertTrue(coordinator.start(new URL("http://10.0.0.2:8080/desc.xml")));
+        assertEquals(coordinator.getInFlightCount(), 2);
+        assertEquals(coordinator.getSkippedCount(), 1);
+
+        coordinator.finish(url, true);
+        assertEquals(coordinator.getInFlightCount(), 1);
+        assertTrue(coordinator.start(url));
+    }
+
+    @Test
+    public void backoff() throws Exception {
+        DescriptorRetrievalCoordinator coordinator = new DescriptorRetrievalCoordinator(4, 100, 1000);
+        URL url = new URL("http://10.0.0.1:8080/desc.xml");
+
+        assertTrue(coordinator.start(url));
+        coordinator.finish(url, false);
+        assertEquals(coordinator.getFailures(url), 1);
+        assertEquals(coordinator.getFailedCount(), 1);
+        assertEquals(coordinator.getBackingOffCount(), 1);
+        assertFalse(coordinator.start(url));
+
+        Thread.sleep(150);
+        assertTrue(coordinator.start(url));
+        coordinator.finish(url, false);
+        assertEquals(coordinator.getFailures(url), 2);
+
+        // Doubled backoff
+        Thread.sleep(150);
+        assertFalse(coordinator.start(url));
+        Thread.sleep(100);
+        assertTrue(coordinator.start(url));
+        coordinator.finish(url, true);
+        assertEquals(coordinator.getFailures(url), 0);
+        assertEquals(coordinator.getBackingOffCount(), 0);
+    }
+
+    @Test
+    public void limitConcurrentRetrievals() throws Exception {
+        DescriptorRetrievalCoordinator coordinator = new DescriptorRetrievalCoordinator(1, 100, 1000);
+        URL url = new URL("http://10.0.0.1:8080/desc.xml");
+        URL otherURL = new URL("http://10.0.0.2:8080/desc.xml");
+
+        assertTrue(coordinator.start(url));
+        // Skipped without waiting for a permit, and without backing off
+        assertFalse(coordinator.start(otherURL));
+        assertEquals(coordinator.getSkippedCount(), 1);
+        assertEquals(coordinator.getInFlightCount(), 1);
+        assertEquals(coordinator.getBackingOffCount(), 0);
+
+        coordinator.finish(url, true);
+        assertTrue(coordinator.start(otherURL));
+        assertEquals(coordinator.getFailures(otherURL), 0);
+    }
+
+    @Test
+    public void embeddedDeviceRetrieval() throws Exception {
+        final RemoteDevice hydratedDevice = SampleData.createRemoteDevice();
+
+        MockUpnpService upnpService = new MockUpnpService() {
+            @Override
+            protected MockRouter createRouter() {
+                return new MockRouter(getConfiguration(), getProtocolFactory()) {
+                    @Override
+                    public StreamResponseMessage[] getStreamResponseMessages() {
+                        try {
+                            List<StreamResponseMessage> responses = new ArrayList<StreamResponseMessage>();
+                            responses.add(new StreamResponseMessage(
+                                getConfiguration().getDeviceDescriptorBinderUDA10().generate(
+                                    hydratedDevice, new RemoteClientInfo(), getConfiguration().getNamespace()
+                                ),
+                                ContentTypeHeader.DEFAULT_CONTENT_TYPE_UTF8
+                            ));
+                            for (RemoteService service : hydratedDevice.findServices()) {
+                                responses.add(new StreamResponseMessage(
+                                    getConfiguration().getServiceDescriptorBinderUDA10().generate(service),
+                                    ContentTypeHeader.DEFAULT_CONTENT_TYPE_UTF8
+                                ));
+                            }
+                            return responses.toArray(new StreamResponseMessage[responses.size()]);
+                        } catch (Exception ex) {
+                            throw new RuntimeException(ex);
+                        }
+                    }
+                };
+            }
+        };
+        upnpService.startup();
+
+        // The notification of an embedded device triggers the retrieval of the root device's descriptor
+        RemoteDeviceIdentity identity = new RemoteDeviceIdentity(
+            SampleDeviceEmbeddedOne.getEmbeddedOneUDN(), SampleData.createRemoteDeviceIdentity()
+        );
+        DescriptorRetrievalCoordinator coordinator = new DescriptorRetrievalCoordinator();
+        new RetrieveRemoteDescriptors(upnpService, new RemoteDevice(identity), coordinator).run();
+
+        assertNotNull(upnpService.getRegistry().getRemoteDevice(SampleDeviceRoot.getRootUDN(), true));
+        assertEquals(coordinator.getFailures(identity.getDescriptorURL()), 0);
+        assertEquals(coordinator.getFailedCount(), 0);
+        assertEquals(coordinator.getBackingOffCount(), 0);
+    }
+}
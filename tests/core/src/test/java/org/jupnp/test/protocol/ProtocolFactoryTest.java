@@ -18,8 +18,13 @@ import org.jupnp.mock.MockUpnpService;
 import org.jupnp.model.Namespace;
 import org.jupnp.model.message.StreamRequestMessage;
 import org.jupnp.model.message.UpnpRequest;
+import org.jupnp.model.message.UpnpResponse;
+import org.jupnp.model.resource.ServiceEventCallbackResource;
 import org.jupnp.protocol.ReceivingSync;
+import org.jupnp.protocol.UnroutableRequestException;
 import org.jupnp.protocol.sync.ReceivingEvent;
+import org.jupnp.protocol.sync.ReceivingRetrieval;
+import org.jupnp.test.data.SampleData;
 import org.testng.annotations.Test;
 
 import java.net.URI;
@@ -50,9 +55,14 @@ public class ProtocolFactoryTest {
         MockUpnpService upnpService = new MockUpnpService();
         upnpService.startup();
 
+        URI callbackURI = URI.create("/dev/1234/upnp-org/SwitchPower" + Namespace.EVENTS + Namespace.CALLBACK_FILE);
+        upnpService.getRegistry().addResource(
+            new ServiceEventCallbackResource(callbackURI, SampleData.createRemoteDevice().getServices()[0])
+        );
+
         StreamRequestMessage message = new StreamRequestMessage(
             UpnpRequest.Method.NOTIFY,
-            URI.create("/dev/1234/upnp-org/SwitchPower" + Namespace.EVENTS + Namespace.CALLBACK_FILE),
+            callbackURI,
             ""
         );
         ReceivingSync protocol = upnpService.getProtocolFactory().createReceivingSync(message);
@@ -69,4 +79,46 @@ public class ProtocolFactoryTest {
         assertTrue(protocol instanceof ReceivingEvent);
 
     }
+
+    @Test
+    public void unroutableRequest() throws Exception {
+        MockUpnpService upnpService = new MockUpnpService();
+        upnpService.startup();
+
+        URI callbackURI = URI.create("/dev/1234/upnp-org/SwitchPower" + Namespace.EVENTS + Namespace.CALLBACK_FILE);
+        upnpService.getRegistry().addResource(
+            new ServiceEventCallbackResource(callbackURI, SampleData.createRemoteDevice().getServices()[0])
+        );
+
+        // Unregistered callback path
+        try {
+            upnpService.getProtocolFactory().createReceivingSync(
+                new StreamRequestMessage(
+                    UpnpRequest.Method.NOTIFY,
+                    URI.create("/dev/5678/upnp-org/SwitchPower" + Namespace.EVENTS + Namespace.CALLBACK_FILE),
+                    ""
+                )
+            );
+            fail("Expected exception");
+        } catch (UnroutableRequestException ex) {
+            assertEquals(ex.getResponseStatus(), UpnpResponse.Status.NOT_FOUND);
+        }
+
+        // Registered path, wrong method
+        try {
+            upnpService.getProtocolFactory().createReceivingSync(
+                new StreamRequestMessage(UpnpRequest.Method.POST, callbackURI, "")
+            );
+            fail("Expected exception");
+        } catch (UnroutableRequestException ex) {
+            assertEquals(ex.getResponseStatus(), UpnpResponse.Status.METHOD_NOT_SUPPORTED);
+        }
+
+        // Retrieval handles its own lookups
+        assertTrue(
+            upnpService.getProtocolFactory().createReceivingSync(
+                new StreamRequestMessage(UpnpRequest.Method.GET, URI.create("/some/unknown/path"))
+            ) instanceof ReceivingRetrieval
+        );
+    }
 }
\ No newline at end of file
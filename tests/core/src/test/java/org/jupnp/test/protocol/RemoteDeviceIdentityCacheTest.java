@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.test.protocol;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.net.InetAddress;
+
+import org.jupnp.model.message.IncomingDatagramMessage;
+import org.jupnp.model.message.UpnpRequest;
+import org.jupnp.model.message.discovery.IncomingNotificationRequest;
+import org.jupnp.model.message.header.UpnpHeader;
+import org.jupnp.model.meta.RemoteDeviceIdentity;
+import org.jupnp.model.types.NotificationSubtype;
+import org.jupnp.model.types.UDN;
+import org.jupnp.protocol.RemoteDeviceIdentityCache;
+import org.testng.annotations.Test;
+
+public class RemoteDeviceIdentityCacheTest {
+
+    public static final String UDN_STRING = "uuid:11111111-2222-3333-4444-555555555555";
+    public static final String LOCATION = "http://some.unresolvable.host.invalid:8080/dev/desc.xml";
+
+    @Test
+    public void shareIdentities() throws Exception {
+        RemoteDeviceIdentityCache cache = new RemoteDeviceIdentityCache();
+
+        RemoteDeviceIdentity identity = cache.get(createNotification(UDN_STRING + "::upnp:rootdevice", LOCATION));
+        assertEquals(identity.getUdn(), UDN.valueOf(UDN_STRING));
+        assertEquals(identity.getMaxAgeSeconds(), Integer.valueOf(1800));
+        assertEquals(identity.getDescriptorURL().toString(), LOCATION);
+
+        // Repeated announcement
+        assertSame(cache.get(createNotification(UDN_STRING + "::upnp:rootdevice", LOCATION)), identity);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+
+        // Another USN of the same device shares the descriptor URL
+        RemoteDeviceIdentity serviceIdentity =
+            cache.get(createNotification(UDN_STRING + "::urn:schemas-upnp-org:service:SwitchPower:1", LOCATION));
+        assertNotSame(serviceIdentity, identity);
+        assertEquals(serviceIdentity.getUdn(), identity.getUdn());
+        assertSame(serviceIdentity.getDescriptorURL(), identity.getDescriptorURL());
+
+        // A new location is a new identity
+        RemoteDeviceIdentity moved =
+            cache.get(createNotification(UDN_STRING + "::upnp:rootdevice", "http://127.0.0.1:8081/dev/desc.xml"));
+        assertNotSame(moved, identity);
+        assertEquals(moved.getDescriptorURL().getPort(), 8081);
+
+        // Invalid messages are not cached
+        assertNull(cache.get(createNotification(null, LOCATION)));
+        assertNull(cache.get(createNotification(UDN_STRING, "not a URL")).getDescriptorURL());
+        assertEquals(cache.getSize(), 4);
+    }
+
+    @Test
+    public void clearWhenFull() throws Exception {
+        RemoteDeviceIdentityCache cache = new RemoteDeviceIdentityCache(2);
+        for (int i = 0; i < 5; i++) {
+            cache.get(createNotification("uuid:device-" + i + "::upnp:rootdevice", LOCATION));
+            assert cache.getSize() <= 2;
+        }
+        assertEquals(cache.getMissCount(), 5);
+    }
+
+    protected IncomingNotificationRequest createNotification(String usn, String location) throws Exception {
+        IncomingDatagramMessage<UpnpRequest> msg = new IncomingDatagramMessage<UpnpRequest>(
+            new UpnpRequest(UpnpRequest.Method.NOTIFY),
+            InetAddress.getByName("127.0.0.1"),
+            1900,
+            InetAddress.getByName("127.0.0.1")
+        );
+        if (usn != null) {
+            msg.getHeaders().add(UpnpHeader.Type.USN.getHttpName(), usn);
+        }
+        msg.getHeaders().add(UpnpHeader.Type.NTS.getHttpName(), NotificationSubtype.ALIVE.getHeaderString());
+        msg.getHeaders().add(UpnpHeader.Type.LOCATION.getHttpName(), location);
+        msg.getHeaders().add(UpnpHeader.Type.MAX_AGE.getHttpName(), "max-age=1800");
+        return new IncomingNotificationRequest(msg);
+    }
+}
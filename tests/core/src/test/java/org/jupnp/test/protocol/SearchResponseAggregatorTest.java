@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.jupnp.test.protocol;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.mock.MockUpnpService;
+import org.jupnp.model.message.IncomingDatagramMessage;
+import org.jupnp.model.message.UpnpResponse;
+import org.jupnp.model.message.discovery.OutgoingSearchRequest;
+import org.jupnp.model.message.header.RootDeviceHeader;
+import org.jupnp.model.message.header.STAllHeader;
+import org.jupnp.model.message.header.UpnpHeader;
+import org.jupnp.model.types.UDN;
+import org.jupnp.protocol.ReceivingAsync;
+import org.jupnp.protocol.SearchResponseAggregator;
+import org.jupnp.protocol.async.SendingSearch;
+import org.jupnp.transport.RouterException;
+import org.testng.annotations.Test;
+
+public class SearchResponseAggregatorTest {
+
+    @Test
+    public void collapseResponses() throws Exception {
+        SearchResponseAggregator aggregator = new SearchResponseAggregator();
+
+        String udn = "uuid:11111111-2222-3333-4444-555555555555";
+
+        // No search running
+        assertTrue(aggregator.admit(createResponse(udn + "::upnp:rootdevice")));
+        assertTrue(aggregator.admit(createResponse(udn + "::upnp:rootdevice")));
+
+        SearchResponseAggregator.Window window = aggregator.open(new STAllHeader(), 60000);
+        IncomingDatagramMessage<UpnpResponse> response = createResponse(udn + "::upnp:rootdevice");
+        assertTrue(aggregator.admit(response));
+        aggregator.confirm(response);
+        assertFalse(aggregator.admit(createResponse(udn)));
+        assertFalse(aggregator.admit(createResponse(udn + "::urn:schemas-upnp-org:service:SwitchPower:1")));
+        response = createResponse("uuid:other::upnp:rootdevice");
+        assertTrue(aggregator.admit(response));
+        aggregator.confirm(response);
+        assertFalse(aggregator.admit(createResponse("uuid:other::upnp:rootdevice")));
+        aggregator.close(window);
+
+        assertEquals(window.getResponseCount(), 5);
+        assertEquals(window.getCollapsedCount(), 3);
+        assertEquals(window.getDeviceUDNs().size(), 2);
+        Iterator<UDN> it = window.getDeviceUDNs().iterator();
+        assertEquals(it.next(), UDN.valueOf(udn));
+        assertEquals(it.next(), UDN.valueOf("uuid:other"));
+        assertEquals(aggregator.getCollapsedCount(), 3);
+
+        // Search completed
+        assertEquals(aggregator.getOpenWindowCount(), 0);
+        assertTrue(aggregator.admit(createResponse(udn + "::upnp:rootdevice")));
+    }
+
+    @Test
+    public void expireWindow() throws Exception {
+        SearchResponseAggregator aggregator = new SearchResponseAggregator();
+
+        String usn = "uuid:11111111-2222-3333-4444-555555555555::upnp:rootdevice";
+        aggregator.open(new STAllHeader(), 50);
+        IncomingDatagramMessage<UpnpResponse> response = createResponse(usn);
+        assertTrue(aggregator.admit(response));
+        aggregator.confirm(response);
+        assertFalse(aggregator.admit(createResponse(usn)));
+        Thread.sleep(100);
+        assertTrue(aggregator.admit(createResponse(usn)));
+        assertEquals(aggregator.getOpenWindowCount(), 0);
+    }
+
+    @Test
+    public void dropCollapsedResponses() throws Exception {
+        MockUpnpService upnpService = new MockUpnpService();
+        upnpService.startup();
+
+        SearchResponseAggregator aggregator =
+            ((MockUpnpService.MockProtocolFactory) upnpService.getProtocolFactory()).getSearchResponseAggregator();
+        SearchResponseAggregator.Window window = aggregator.open(new STAllHeader(), 60000);
+
+        String udn = "uuid:11111111-2222-3333-4444-555555555555";
+        assertNotNull(upnpService.getProtocolFactory().createReceivingAsync(createResponse(udn + "::upnp:rootdevice")));
+        assertNull(upnpService.getProtocolFactory().createReceivingAsync(createResponse(udn)));
+
+        aggregator.close(window);
+        assertEquals(window.getCollapsedCount(), 1);
+    }
+
+    @Test
+    public void releaseInvalidResponses() throws Exception {
+        SearchResponseAggregator aggregator = new SearchResponseAggregator();
+        SearchResponseAggregator.Window window = aggregator.open(new STAllHeader(), 60000);
+
+        String udn = "uuid:11111111-2222-3333-4444-555555555555";
+
+        // Claimed while its protocol runs
+        IncomingDatagramMessage<UpnpResponse> response = createResponse(udn + "::upnp:rootdevice");
+        assertTrue(aggregator.admit(response));
+        assertFalse(aggregator.admit(createResponse(udn)));
+
+        // Invalid, the next response of the device is processed
+        aggregator.release(response);
+        response = createResponse(udn);
+        assertTrue(aggregator.admit(response));
+        aggregator.confirm(response);
+        assertFalse(aggregator.admit(createResponse(udn + "::upnp:rootdevice")));
+
+        aggregator.close(window);
+        assertEquals(window.getDeviceUDNs().size(), 1);
+        assertEquals(window.getDeviceUDNs().iterator().next(), UDN.valueOf(udn));
+    }
+
+    @Test
+    public void invalidFirstResponse() throws Exception {
+        MockUpnpService upnpService = new MockUpnpService();
+        upnpService.startup();
+
+        SearchResponseAggregator aggregator =
+            ((MockUpnpService.MockProtocolFactory) upnpService.getProtocolFactory()).getSearchResponseAggregator();
+        SearchResponseAggregator.Window window = aggregator.open(new STAllHeader(), 60000);
+
+        String udn = "uuid:11111111-2222-3333-4444-555555555555";
+        IncomingDatagramMessage<UpnpResponse> invalid = createResponse(udn + "::upnp:rootdevice");
+        invalid.getHeaders().remove(UpnpHeader.Type.LOCATION.getHttpName());
+        ReceivingAsync protocol = upnpService.getProtocolFactory().createReceivingAsync(invalid);
+        assertNotNull(protocol);
+        protocol.run();
+
+        // The valid response of the same device is not hidden by the invalid one
+        protocol = upnpService.getProtocolFactory().createReceivingAsync(createResponse(udn));
+        assertNotNull(protocol);
+        protocol.run();
+        assertNull(upnpService.getProtocolFactory().createReceivingAsync(createResponse(udn)));
+
+        aggregator.close(window);
+        assertEquals(window.getDeviceUDNs().size(), 1);
+        assertEquals(window.getCollapsedCount(), 1);
+        upnpService.shutdown();
+    }
+
+    @Test
+    public void completeFailedSearch() throws Exception {
+        MockUpnpService upnpService = new MockUpnpService();
+        upnpService.startup();
+
+        SearchResponseAggregator aggregator = new SearchResponseAggregator();
+        final List<SearchResponseAggregator.Window> completed = new ArrayList<SearchResponseAggregator.Window>();
+        SendingSearch search = new SendingSearch(upnpService, new STAllHeader(), 1, aggregator,
+            new SearchResponseAggregator.Callback() {
+                public void searchCompleted(SearchResponseAggregator.Window window) {
+                    completed.add(window);
+                }
+            }) {
+            @Override
+            protected void sendSearchRequests(OutgoingSearchRequest msg) throws RouterException {
+                throw new RouterException("Sending failed");
+            }
+        };
+
+        try {
+            search.run();
+            fail("Search should fail");
+        } catch (RuntimeException ex) {
+            // Expected
+        }
+
+        // The window was closed and the callback notified
+        assertEquals(completed.size(), 1);
+        assertEquals(aggregator.getOpenWindowCount(), 0);
+        upnpService.shutdown();
+    }
+
+    @Test
+    public void overlappingSearches() throws Exception {
+        SearchResponseAggregator aggregator = new SearchResponseAggregator();
+        String udn = "uuid:11111111-2222-3333-4444-555555555555";
+
+        SearchResponseAggregator.Window all = aggregator.open(new STAllHeader(), 60000);
+        IncomingDatagramMessage<UpnpResponse> response = createResponse(udn + "::upnp:rootdevice", "upnp:rootdevice");
+        assertTrue(aggregator.admit(response));
+        aggregator.confirm(response);
+
+        // The device answers the second search, although it has been processed for the first one
+        SearchResponseAggregator.Window rootDevices = aggregator.open(new RootDeviceHeader(), 60000);
+        response = createResponse(udn + "::upnp:rootdevice", "upnp:rootdevice");
+        assertTrue(aggregator.admit(response));
+        aggregator.confirm(response);
+        assertFalse(aggregator.admit(createResponse(udn + "::upnp:rootdevice", "upnp:rootdevice")));
+
+        // Only answers the first search
+        assertFalse(aggregator.admit(
+            createResponse(udn + "::urn:schemas-upnp-org:service:SwitchPower:1", "urn:schemas-upnp-org:service:SwitchPower:1")
+        ));
+
+        aggregator.close(rootDevices);
+        aggregator.close(all);
+        assertEquals(rootDevices.getDeviceUDNs().size(), 1);
+        assertEquals(rootDevices.getResponseCount(), 2);
+        assertEquals(rootDevices.getCollapsedCount(), 1);
+        assertEquals(all.getDeviceUDNs().size(), 1);
+        assertEquals(all.getResponseCount(), 4);
+        assertEquals(all.getCollapsedCount(), 3);
+        assertEquals(aggregator.getCollapsedCount(), 2);
+    }
+
+    @Test
+    public void completeSearchWithTimer() throws Exception {
+        MockUpnpService upnpService = new MockUpnpService();
+        upnpService.startup();
+
+        SearchResponseAggregator aggregator = new SearchResponseAggregator();
+        final List<SearchResponseAggregator.Window> completed = new ArrayList<SearchResponseAggregator.Window>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        SendingSearch search = new SendingSearch(upnpService, new STAllHeader(), 1, aggregator,
+            new SearchResponseAggregator.Callback() {
+                public void searchCompleted(SearchResponseAggregator.Window window) {
+                    completed.add(window);
+                    latch.countDown();
+                }
+            }) {
+            @Override
+            public int getBulkIntervalMilliseconds() {
+                return 0;
+            }
+        };
+
+        // The protocol doesn't wait for the responses
+        search.run();
+        assertEquals(completed.size(), 0);
+        assertEquals(aggregator.getOpenWindowCount(), 1);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(aggregator.getOpenWindowCount(), 0);
+
+        // Only notified once
+        aggregator.close(completed.get(0));
+        assertEquals(completed.size(), 1);
+        upnpService.shutdown();
+    }
+
+    protected IncomingDatagramMessage<UpnpResponse> createResponse(String usn) throws Exception {
+        return createResponse(usn, "ssdp:all");
+    }
+
+    protected IncomingDatagramMessage<UpnpResponse> createResponse(String usn, String st) throws Exception {
+        IncomingDatagramMessage<UpnpResponse> msg = new IncomingDatagramMessage<UpnpResponse>(
+            new UpnpResponse(UpnpResponse.Status.OK),
+            InetAddress.getByName("127.0.0.1"),
+            1900,
+            InetAddress.getByName("127.0.0.1")
+        );
+        msg.getHeaders().add(UpnpHeader.Type.USN.getHttpName(), usn);
+        msg.getHeaders().add(UpnpHeader.Type.ST.getHttpName(), st);
+        msg.getHeaders().add(UpnpHeader.Type.EXT.getHttpName(), "");
+        msg.getHeaders().add(UpnpHeader.Type.LOCATION.getHttpName(), "http://127.0.0.1:8080/dev/desc.xml");
+        msg.getHeaders().add(UpnpHeader.Type.MAX_AGE.getHttpName(), "max-age=1800");
+        return msg;
+    }
+}
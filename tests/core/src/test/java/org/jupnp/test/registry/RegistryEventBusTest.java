@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.test.registry;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.MonitoredThreadPoolExecutor;
+import org.jupnp.mock.MockUpnpService;
+import org.jupnp.mock.MockUpnpServiceConfiguration;
+import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.registry.BatchRegistryListener;
+import org.jupnp.registry.DefaultRegistryListener;
+import org.jupnp.registry.Registry;
+import org.jupnp.registry.RegistryChange;
+import org.jupnp.registry.RegistryEventBus;
+import org.jupnp.registry.RegistryImpl;
+import org.jupnp.test.data.SampleData;
+import org.testng.annotations.Test;
+
+public class RegistryEventBusTest {
+
+    @Test
+    public void coalesceQueuedChanges() throws Exception {
+        QueueingExecutor executor = new QueueingExecutor();
+        MockUpnpService upnpService = createUpnpService(executor);
+        RegistryEventBus eventBus = ((RegistryImpl) upnpService.getRegistry()).getEventBus();
+
+        RecordingListener listener = new RecordingListener();
+        upnpService.getRegistry().addListener(listener);
+
+        RemoteDevice rd = SampleData.createRemoteDevice();
+        upnpService.getRegistry().addDevice(rd);
+        upnpService.getRegistry().update(rd.getIdentity());
+        assertEquals(eventBus.getQueuedCount(listener), 1);
+        assertEquals(executor.tasks.size(), 1);
+
+        executor.runAll();
+        assertEquals(listener.events.toString(), "[REMOTE_ADDED]");
+
+        // Repeated updates are delivered once, by a single task
+        for (int i = 0; i < 5; i++) {
+            upnpService.getRegistry().update(rd.getIdentity());
+        }
+        assertEquals(executor.tasks.size(), 1);
+        executor.runAll();
+        assertEquals(listener.events.toString(), "[REMOTE_ADDED, REMOTE_UPDATED]");
+
+        // Waiting updates are dropped on removal
+        upnpService.getRegistry().update(rd.getIdentity());
+        upnpService.getRegistry().removeDevice(rd);
+        executor.runAll();
+        assertEquals(listener.events.toString(), "[REMOTE_ADDED, REMOTE_UPDATED, REMOTE_REMOVED]");
+
+        // An addition and removal which are both waiting cancel each other
+        upnpService.getRegistry().addDevice(rd);
+        upnpService.getRegistry().update(rd.getIdentity());
+        upnpService.getRegistry().removeDevice(rd);
+        assertEquals(eventBus.getQueuedCount(listener), 0);
+        executor.runAll();
+        assertEquals(listener.events.size(), 3);
+
+        assertEquals(eventBus.getDeliveredCount(), 3);
+        assertEquals(eventBus.getCoalescedCount(), 9);
+        assertEquals(eventBus.getMaxQueuedCount(), 1);
+
+        upnpService.shutdown();
+    }
+
+    @Test
+    public void deliverBatches() throws Exception {
+        QueueingExecutor executor = new QueueingExecutor();
+        MockUpnpService upnpService = createUpnpService(executor);
+
+        final List<List<RegistryChange>> batches = new ArrayList<List<RegistryChange>>();
+        upnpService.getRegistry().addListener(new BatchListener() {
+            @Override
+            public void remoteDevicesChanged(Registry registry, List<RegistryChange> changes) {
+                batches.add(changes);
+            }
+        });
+
+        RemoteDevice rd = SampleData.createRemoteDevice();
+        upnpService.getRegistry().notifyDiscoveryStart(rd);
+        upnpService.getRegistry().addDevice(rd);
+        executor.runAll();
+        upnpService.getRegistry().removeDevice(rd);
+        executor.runAll();
+
+        assertEquals(batches.size(), 2);
+        assertEquals(batches.get(0).size(), 2);
+        assertEquals(batches.get(0).get(0).getType(), RegistryChange.Type.REMOTE_DISCOVERY_STARTED);
+        assertEquals(batches.get(0).get(1).getType(), RegistryChange.Type.REMOTE_ADDED);
+        assertEquals(batches.get(1).size(), 1);
+        assertEquals(batches.get(1).get(0).getType(), RegistryChange.Type.REMOTE_REMOVED);
+        assertEquals(batches.get(1).get(0).getDevice(), rd);
+
+        upnpService.shutdown();
+    }
+
+    @Test
+    public void deliverWhenSaturated() throws Exception {
+        // A single busy thread and a full queue, other rejected tasks are discarded
+        MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("test-listener", 1, 1);
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                busy.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        executor.execute(new Runnable() {
+            public void run() {
+            }
+        });
+        executor.execute(new Runnable() {
+            public void run() {
+            }
+        });
+        assertEquals(executor.getRejectedTaskCount(), 1);
+
+        MockUpnpService upnpService = createUpnpService(executor);
+        RegistryEventBus eventBus = ((RegistryImpl) upnpService.getRegistry()).getEventBus();
+        final List<Thread> threads = new ArrayList<Thread>();
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void remoteDeviceAdded(Registry registry, RemoteDevice device) {
+                threads.add(Thread.currentThread());
+                super.remoteDeviceAdded(registry, device);
+            }
+        };
+        upnpService.getRegistry().addListener(listener);
+
+        // The rejected task is run on the calling thread, nothing is left waiting
+        RemoteDevice rd = SampleData.createRemoteDevice();
+        upnpService.getRegistry().addDevice(rd);
+        assertEquals(listener.events.toString(), "[REMOTE_ADDED]");
+        assertEquals(threads.get(0), Thread.currentThread());
+        assertEquals(eventBus.getQueuedCount(listener), 0);
+        assertEquals(eventBus.getRejectedCount(), 1);
+
+        // The queue is scheduled again for the next change
+        upnpService.getRegistry().removeDevice(rd);
+        assertEquals(listener.events.toString(), "[REMOTE_ADDED, REMOTE_REMOVED]");
+        assertEquals(eventBus.getRejectedCount(), 2);
+        assertEquals(executor.getRejectedTaskCount(), 3);
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        upnpService.shutdown();
+    }
+
+    protected MockUpnpService createUpnpService(final Executor listenerExecutor) {
+        MockUpnpService upnpService = new MockUpnpService(new MockUpnpServiceConfiguration() {
+            @Override
+            public Executor getRegistryListenerExecutor() {
+                return listenerExecutor;
+            }
+        });
+        upnpService.startup();
+        return upnpService;
+    }
+
+    protected static class QueueingExecutor implements Executor {
+
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    protected static class RecordingListener extends DefaultRegistryListener {
+
+        final List<RegistryChange.Type> events = new ArrayList<RegistryChange.Type>();
+
+        @Override
+        public void remoteDeviceAdded(Registry registry, RemoteDevice device) {
+            events.add(RegistryChange.Type.REMOTE_ADDED);
+        }
+
+        @Override
+        public void remoteDeviceUpdated(Registry registry, RemoteDevice device) {
+            events.add(RegistryChange.Type.REMOTE_UPDATED);
+        }
+
+        @Override
+        public void remoteDeviceRemoved(Registry registry, RemoteDevice device) {
+            events.add(RegistryChange.Type.REMOTE_REMOVED);
+        }
+    }
+
+    protected abstract static class BatchListener extends DefaultRegistryListener implements BatchRegistryListener {
+    }
+}
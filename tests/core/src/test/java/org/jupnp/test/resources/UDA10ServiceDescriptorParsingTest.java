@@ -15,15 +15,24 @@
 package org.jupnp.test.resources;
 
 import org.jupnp.binding.xml.ServiceDescriptorBinder;
+import org.jupnp.binding.xml.SharedServiceDescriptorBinder;
 import org.jupnp.binding.xml.UDA10ServiceDescriptorBinderImpl;
 import org.jupnp.binding.xml.UDA10ServiceDescriptorBinderSAXImpl;
+import org.jupnp.model.meta.ModelMemoryReport;
 import org.jupnp.model.meta.RemoteDevice;
 import org.jupnp.model.meta.RemoteService;
 import org.jupnp.test.data.SampleData;
+import org.jupnp.test.data.SampleDeviceRoot;
 import org.jupnp.test.data.SampleServiceOne;
 import org.jupnp.util.io.IO;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
 
 public class UDA10ServiceDescriptorParsingTest {
 
@@ -71,4 +80,50 @@ public class UDA10ServiceDescriptorParsingTest {
         SampleServiceOne.assertMatch(service, SampleData.getFirstService(rd));
     }
 
+    @Test
+    public void readSharedUDA10Descriptor() throws Exception {
+
+        SharedServiceDescriptorBinder binder = new SharedServiceDescriptorBinder(new UDA10ServiceDescriptorBinderSAXImpl());
+        String descriptorXml = IO.readLines(getClass().getResourceAsStream("/descriptors/service/uda10.xml"));
+
+        RemoteService first = binder.describe(SampleData.createUndescribedRemoteService(), descriptorXml);
+        RemoteService second = binder.describe(SampleData.createUndescribedRemoteService(), descriptorXml);
+
+        RemoteService expected = SampleData.getFirstService(SampleData.createRemoteDevice());
+        SampleServiceOne.assertMatch(first, expected);
+        SampleServiceOne.assertMatch(second, expected);
+        assertEquals(binder.getDescribedCount(), 2);
+        assertEquals(binder.getSharedCount(), 1);
+        assertEquals(binder.getSharedDescriptorCount(), 1);
+
+        // Every service has its own actions and state variables, with the same metadata
+        assertNotSame(second.getActions()[0], first.getActions()[0]);
+        assertSame(second.getActions()[0].getService(), second);
+        assertSame(second.getActions()[0].getName(), first.getActions()[0].getName());
+        assertSame(second.getStateVariables()[0].getService(), second);
+        assertSame(second.getStateVariables()[0].getTypeDetails(), first.getStateVariables()[0].getTypeDetails());
+
+        RemoteDevice[] devices = new RemoteDevice[2];
+        for (int i = 0; i < devices.length; i++) {
+            devices[i] = new SampleDeviceRoot(
+                SampleData.createRemoteDeviceIdentity(), i == 0 ? first : second, null
+            ).newInstance(SampleData.getRemoteDeviceConstructor());
+        }
+        ModelMemoryReport report = ModelMemoryReport.of(Arrays.asList(devices));
+        assertEquals(report.getServiceCount(), 2);
+        assertEquals(report.getStateVariableCount(), first.getStateVariables().length * 2);
+        assertEquals(report.getDistinctTypeDetailsCount(), first.getStateVariables().length);
+        assert report.getDistinctStringCount() < report.getStringCount();
+        assert report.getEstimatedBytes() < ModelMemoryReport.of(
+            Arrays.asList(SampleData.createRemoteDevice(), SampleData.createRemoteDevice())
+        ).getEstimatedBytes();
+
+        // A different descriptor isn't shared
+        String otherXml = descriptorXml.replace("<scpd ", "<scpd  ");
+        RemoteService third = binder.describe(SampleData.createUndescribedRemoteService(), otherXml);
+        SampleServiceOne.assertMatch(third, expected);
+        assertEquals(binder.getSharedCount(), 1);
+        assertEquals(binder.getSharedDescriptorCount(), 2);
+    }
+
 }
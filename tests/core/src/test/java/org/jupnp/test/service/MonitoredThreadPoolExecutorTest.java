@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.service;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.DefaultUpnpServiceConfiguration;
+import org.jupnp.ExecutionStage;
+import org.jupnp.MonitoredThreadPoolExecutor;
+import org.testng.annotations.Test;
+
+public class MonitoredThreadPoolExecutorTest {
+
+    @Test
+    public void threadsBeforeQueue() throws Exception {
+        MonitoredThreadPoolExecutor pool = new MonitoredThreadPoolExecutor("test-threads", 3, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            pool.execute(new BlockingTask(release));
+        }
+        assertEquals(pool.getPoolSize(), 3);
+        assertEquals(pool.getQueue().size(), 2);
+
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(pool.getCompletedTaskCount(), 5);
+    }
+
+    @Test
+    public void countRejections() throws Exception {
+        MonitoredThreadPoolExecutor pool = new MonitoredThreadPoolExecutor("test-rejected", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            pool.execute(new BlockingTask(release));
+        }
+        MonitoredThreadPoolExecutor.Statistics statistics = pool.getStatistics();
+        assertEquals(statistics.getActiveCount(), 1);
+        assertEquals(statistics.getQueuedCount(), 1);
+        assertEquals(statistics.getRejectedCount(), 3);
+
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(pool.getStatistics().getCompletedCount(), 2);
+    }
+
+    @Test
+    public void taskTimePercentile() throws Exception {
+        MonitoredThreadPoolExecutor pool = new MonitoredThreadPoolExecutor("test-percentile", 1, 100);
+        assertEquals(pool.getTaskTimePercentile(99), 0d);
+        for (int i = 0; i < 10; i++) {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException ex) {
+                        // Ignore
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(pool.getTaskTimePercentile(99) >= 10d);
+        assertTrue(pool.getTaskTimePercentile(50) <= pool.getTaskTimePercentile(99));
+    }
+
+    @Test
+    public void separateStages() throws Exception {
+        DefaultUpnpServiceConfiguration configuration = new DefaultUpnpServiceConfiguration();
+        try {
+            assertTrue(configuration.getAsyncProtocolExecutor() != configuration.getSyncProtocolExecutorService());
+            assertTrue(configuration.getRegistryListenerExecutor() != configuration.getSyncProtocolExecutorService());
+
+            Map<ExecutionStage, MonitoredThreadPoolExecutor.Statistics> statistics =
+                configuration.getExecutorStatistics();
+            assertEquals(statistics.size(), ExecutionStage.values().length);
+            assertEquals(
+                statistics.get(ExecutionStage.ASYNC_PROTOCOL).getName(),
+                ExecutionStage.ASYNC_PROTOCOL.getThreadNamePrefix()
+            );
+        } finally {
+            configuration.shutdown();
+        }
+    }
+
+    static class BlockingTask implements Runnable {
+
+        final CountDownLatch release;
+
+        BlockingTask(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void run() {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                // Ignore
+            }
+        }
+    }
+}
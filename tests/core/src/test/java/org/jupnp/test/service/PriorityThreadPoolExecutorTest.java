@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.service;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.PriorityThreadPoolExecutor;
+import org.jupnp.PriorityThreadPoolExecutor.Priority;
+import org.jupnp.test.service.MonitoredThreadPoolExecutorTest.BlockingTask;
+import org.testng.annotations.Test;
+
+public class PriorityThreadPoolExecutorTest {
+
+    @Test
+    public void highestLaneFirst() throws Exception {
+        PriorityThreadPoolExecutor pool = new PriorityThreadPoolExecutor("test-lanes", 1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(new BlockingTask(release));
+
+        List<String> executed = new CopyOnWriteArrayList<String>();
+        pool.execute(new PrioritizedTask(executed, "low-1", Priority.LOW));
+        pool.execute(new PrioritizedTask(executed, "normal-1", Priority.NORMAL));
+        pool.execute(new PrioritizedTask(executed, "high-1", Priority.HIGH));
+        pool.execute(new PrioritizedTask(executed, "low-2", Priority.LOW));
+        Future<?> future = pool.submit(new PrioritizedTask(executed, "high-2", Priority.HIGH));
+
+        assertEquals(pool.getQueuedTaskCount(Priority.HIGH), 2);
+        assertEquals(pool.getQueuedTaskCount(Priority.NORMAL), 1);
+        assertEquals(pool.getQueuedTaskCount(Priority.LOW), 2);
+        assertEquals(pool.getQueue().size(), 5);
+
+        release.countDown();
+        future.get(5, TimeUnit.SECONDS);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(executed.toString(), "[high-1, high-2, normal-1, low-1, low-2]");
+    }
+
+    @Test
+    public void boundedLanes() throws Exception {
+        PriorityThreadPoolExecutor pool = new PriorityThreadPoolExecutor("test-bounded", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(new BlockingTask(release));
+
+        List<String> executed = new CopyOnWriteArrayList<String>();
+        pool.execute(new PrioritizedTask(executed, "low-1", Priority.LOW));
+        pool.execute(new PrioritizedTask(executed, "low-2", Priority.LOW));
+        pool.execute(new PrioritizedTask(executed, "high-1", Priority.HIGH));
+
+        // A full discovery lane does not reject control tasks
+        assertEquals(pool.getRejectedTaskCount(), 1);
+
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(executed.toString(), "[high-1, low-1]");
+    }
+
+    static class PrioritizedTask implements Runnable, PriorityThreadPoolExecutor.Prioritized {
+
+        final List<String> executed;
+        final String name;
+        final Priority priority;
+
+        PrioritizedTask(List<String> executed, String name, Priority priority) {
+            this.executed = executed;
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public Priority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public void run() {
+            executed.add(name);
+        }
+    }
+}
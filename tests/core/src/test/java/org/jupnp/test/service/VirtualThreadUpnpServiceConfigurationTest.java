@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.service;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.jupnp.ExecutionStage;
+import org.jupnp.VirtualThreadUpnpServiceConfiguration;
+import org.testng.annotations.Test;
+
+public class VirtualThreadUpnpServiceConfigurationTest {
+
+    @Test
+    public void executeStages() throws Exception {
+        VirtualThreadUpnpServiceConfiguration configuration = new VirtualThreadUpnpServiceConfiguration();
+        try {
+            String threadName = configuration.getSyncProtocolExecutorService().submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return Thread.currentThread().getName();
+                }
+            }).get(5, TimeUnit.SECONDS);
+            assertTrue(threadName.startsWith(ExecutionStage.SYNC_PROTOCOL.getThreadNamePrefix() + "-"));
+
+            // Statistics are only available for thread pools
+            assertEquals(
+                configuration.getExecutorStatistics().isEmpty(),
+                VirtualThreadUpnpServiceConfiguration.isVirtualThreadsSupported()
+            );
+        } finally {
+            configuration.shutdown();
+        }
+    }
+}
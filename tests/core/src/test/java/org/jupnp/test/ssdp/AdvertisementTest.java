@@ -14,6 +14,9 @@
 
 package org.jupnp.test.ssdp;
 
+import java.net.InetAddress;
+import java.util.Arrays;
+
 import org.jupnp.mock.MockUpnpService;
 import org.jupnp.model.ServerClientTokens;
 import org.jupnp.model.message.OutgoingDatagramMessage;
@@ -29,6 +32,7 @@ import org.jupnp.test.data.SampleUSNHeaders;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 
 public class AdvertisementTest {
@@ -55,6 +59,31 @@ public class AdvertisementTest {
             rootDevice, embeddedDevice, UpnpHeader.Type.NT);
     }
 
+    @Test
+    public void sendAliveMessagesOnAddresses() throws Exception {
+
+        MockUpnpService upnpService = new MockUpnpService();
+        upnpService.startup();
+
+        LocalDevice rootDevice = SampleData.createLocalDevice();
+
+        // Not an address of an active stream server, nothing to announce
+        SendingNotificationAlive prot = new SendingNotificationAlive(
+            upnpService, rootDevice, Arrays.asList(InetAddress.getByName("10.0.0.1"))
+        );
+        prot.run();
+        assertEquals(upnpService.getRouter().getOutgoingDatagramMessages().size(), 0);
+
+        prot = new SendingNotificationAlive(
+            upnpService, rootDevice, Arrays.asList(InetAddress.getByName("127.0.0.1"))
+        );
+        prot.run();
+        assertTrue(upnpService.getRouter().getOutgoingDatagramMessages().size() > 0);
+        for (OutgoingDatagramMessage msg : upnpService.getRouter().getOutgoingDatagramMessages()) {
+            assertAliveMsgBasics(msg);
+        }
+    }
+
     @Test
     public void sendByebyeMessages() throws Exception {
 
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.ssdp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.concurrent.ExecutorService;
+
+import org.jupnp.MonitoredThreadPoolExecutor;
+import org.jupnp.mock.MockUpnpService;
+import org.jupnp.mock.MockUpnpServiceConfiguration;
+import org.jupnp.model.Constants;
+import org.jupnp.model.message.IncomingDatagramMessage;
+import org.jupnp.model.message.UpnpRequest;
+import org.jupnp.model.message.header.UpnpHeader;
+import org.jupnp.transport.DuplicateNotificationFilter;
+import org.jupnp.transport.RouterImpl;
+import org.testng.annotations.Test;
+
+public class DuplicateNotificationFilterTest {
+
+    @Test
+    public void suppressRepeats() throws Exception {
+        DuplicateNotificationFilter filter = new DuplicateNotificationFilter(60000);
+
+        String udn = "uuid:11111111-2222-3333-4444-555555555555";
+        assertFalse(receive(filter, createNotification(udn + "::upnp:rootdevice", "ssdp:alive", "1")));
+        assertTrue(receive(filter, createNotification(udn + "::upnp:rootdevice", "ssdp:alive", "1")));
+        // Another notification type of the same device
+        assertTrue(receive(filter, createNotification(udn, "ssdp:alive", "1")));
+        // Rebooted
+        assertFalse(receive(filter, createNotification(udn, "ssdp:alive", "2")));
+        // Gone and back again
+        assertFalse(receive(filter, createNotification(udn, "ssdp:byebye", "2")));
+        assertFalse(receive(filter, createNotification(udn, "ssdp:alive", "2")));
+        // Embedded device
+        assertFalse(receive(filter, createNotification("uuid:embedded::upnp:rootdevice", "ssdp:alive", "2")));
+
+        assertEquals(filter.getReceivedCount(), 7);
+        assertEquals(filter.getSuppressedCount(), 2);
+    }
+
+    @Test
+    public void expireWindow() throws Exception {
+        DuplicateNotificationFilter filter = new DuplicateNotificationFilter(50);
+
+        String usn = "uuid:11111111-2222-3333-4444-555555555555::upnp:rootdevice";
+        assertFalse(receive(filter, createNotification(usn, "ssdp:alive", null)));
+        assertTrue(receive(filter, createNotification(usn, "ssdp:alive", null)));
+        Thread.sleep(100);
+        assertFalse(receive(filter, createNotification(usn, "ssdp:alive", null)));
+    }
+
+    @Test
+    public void recordAcceptedOnly() throws Exception {
+        DuplicateNotificationFilter filter = new DuplicateNotificationFilter(60000);
+
+        String usn = "uuid:11111111-2222-3333-4444-555555555555::upnp:rootdevice";
+        // Not handed to a protocol, e.g. the executor was shut down
+        assertFalse(filter.isDuplicate(createNotification(usn, "ssdp:alive", "1")));
+        assertFalse(filter.isDuplicate(createNotification(usn, "ssdp:alive", "1")));
+
+        filter.accepted(createNotification(usn, "ssdp:alive", "1"));
+        assertTrue(filter.isDuplicate(createNotification(usn, "ssdp:alive", "1")));
+        assertEquals(filter.getSuppressedCount(), 1);
+    }
+
+    @Test
+    public void recordQueuedOnly() throws Exception {
+        final MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("test-async", 1, 1);
+        executor.shutdown();
+        MockUpnpService upnpService = new MockUpnpService(new MockUpnpServiceConfiguration() {
+            @Override
+            public ExecutorService getAsyncProtocolExecutor() {
+                return executor;
+            }
+        });
+        upnpService.startup();
+        RouterImpl router = new RouterImpl(upnpService.getConfiguration(), upnpService.getProtocolFactory()) {
+            {
+                enabled = true;
+            }
+        };
+        DuplicateNotificationFilter filter = router.getDuplicateNotificationFilter();
+
+        String usn = "uuid:11111111-2222-3333-4444-555555555555::upnp:rootdevice";
+        // Rejected by the executor, the repeat is not a duplicate
+        router.received(createNotification(usn, "ssdp:alive", "1"));
+        assertFalse(filter.isDuplicate(createNotification(usn, "ssdp:alive", "1")));
+        assertEquals(filter.getSuppressedCount(), 0);
+        assertEquals(executor.getRejectedTaskCount(), 1);
+
+        upnpService.shutdown();
+    }
+
+    @Test
+    public void configureWindow() throws Exception {
+        RouterImpl router = new RouterImpl(new MockUpnpServiceConfiguration(), null);
+        assertNotNull(router.getDuplicateNotificationFilter());
+
+        router = new RouterImpl(new MockUpnpServiceConfiguration() {
+            @Override
+            public int getDuplicateNotificationWindowMillis() {
+                return 0;
+            }
+        }, null);
+        assertNull(router.getDuplicateNotificationFilter());
+    }
+
+    // As the router does, only notifications which are processed are recorded
+    protected boolean receive(DuplicateNotificationFilter filter, IncomingDatagramMessage<UpnpRequest> msg) {
+        if (filter.isDuplicate(msg)) {
+            return true;
+        }
+        filter.accepted(msg);
+        return false;
+    }
+
+    protected IncomingDatagramMessage<UpnpRequest> createNotification(String usn, String nts, String bootId)
+        throws Exception {
+        IncomingDatagramMessage<UpnpRequest> msg = new IncomingDatagramMessage<UpnpRequest>(
+            new UpnpRequest(UpnpRequest.Method.NOTIFY),
+            InetAddress.getByName("127.0.0.1"),
+            Constants.UPNP_MULTICAST_PORT,
+            InetAddress.getByName("127.0.0.1")
+        );
+        msg.getHeaders().add(UpnpHeader.Type.USN.getHttpName(), usn);
+        msg.getHeaders().add(UpnpHeader.Type.NTS.getHttpName(), nts);
+        msg.getHeaders().add(UpnpHeader.Type.LOCATION.getHttpName(), "http://127.0.0.1:8080/dev/desc.xml");
+        if (bootId != null) {
+            msg.getHeaders().add(DuplicateNotificationFilter.BOOTID_HEADER, bootId);
+        }
+        return msg;
+    }
+}
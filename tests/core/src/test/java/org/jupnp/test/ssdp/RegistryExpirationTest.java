@@ -18,7 +18,11 @@ import org.jupnp.mock.MockUpnpService;
 import org.jupnp.mock.MockUpnpServiceConfiguration;
 import org.jupnp.model.ExpirationDetails;
 import org.jupnp.model.meta.RemoteDevice;
+import org.jupnp.model.meta.RemoteDeviceIdentity;
 import org.jupnp.model.resource.Resource;
+import org.jupnp.registry.DefaultRegistryListener;
+import org.jupnp.registry.MaterialUpdateRegistryListener;
+import org.jupnp.registry.Registry;
 import org.jupnp.test.data.SampleData;
 import org.testng.annotations.Test;
 
@@ -119,6 +123,49 @@ public class RegistryExpirationTest {
         upnpService.shutdown();
     }
 
+    @Test
+    public void updateUnchangedAndChanged() throws Exception {
+
+        MockUpnpService upnpService = new MockUpnpService();
+        upnpService.startup();
+
+        RemoteDevice rd = SampleData.createRemoteDevice(
+                SampleData.createRemoteDeviceIdentity(1800)
+        );
+        upnpService.getRegistry().addDevice(rd);
+
+        UpdateCounter allUpdates = new UpdateCounter();
+        MaterialUpdateCounter materialUpdates = new MaterialUpdateCounter();
+        upnpService.getRegistry().addListener(allUpdates);
+        upnpService.getRegistry().addListener(materialUpdates);
+
+        // Repeated announcements of the root and an embedded device, only the expiration is updated
+        assertEquals(upnpService.getRegistry().update(SampleData.createRemoteDeviceIdentity(1800)), true);
+        RemoteDevice embeddedDevice = rd.getEmbeddedDevices()[0];
+        assertEquals(upnpService.getRegistry().update(embeddedDevice.getIdentity()), true);
+        assertEquals(allUpdates.count, 2);
+        assertEquals(materialUpdates.count, 0);
+
+        // The maximum age changed
+        assertEquals(upnpService.getRegistry().update(SampleData.createRemoteDeviceIdentity(900)), true);
+        assertEquals(allUpdates.count, 3);
+        assertEquals(materialUpdates.count, 1);
+
+        // And is repeated
+        assertEquals(upnpService.getRegistry().update(SampleData.createRemoteDeviceIdentity(900)), true);
+        assertEquals(allUpdates.count, 4);
+        assertEquals(materialUpdates.count, 1);
+
+        // Unknown after removal
+        upnpService.getRegistry().removeDevice(rd);
+        RemoteDeviceIdentity identity = SampleData.createRemoteDeviceIdentity(900);
+        assertEquals(upnpService.getRegistry().update(identity), false);
+        assertEquals(upnpService.getRegistry().update(embeddedDevice.getIdentity()), false);
+        assertEquals(allUpdates.count, 4);
+
+        upnpService.shutdown();
+    }
+
     @Test
     public void addResourceAndExpire() throws Exception {
 
@@ -164,6 +211,18 @@ public class RegistryExpirationTest {
         upnpService.shutdown();
     }
 
+    protected class UpdateCounter extends DefaultRegistryListener {
+        int count;
+
+        @Override
+        public void remoteDeviceUpdated(Registry registry, RemoteDevice device) {
+            count++;
+        }
+    }
+
+    protected class MaterialUpdateCounter extends UpdateCounter implements MaterialUpdateRegistryListener {
+    }
+
     protected class TestRunnable implements Runnable {
         boolean wasExecuted = false;
 
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.jupnp.test.ssdp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.concurrent.ExecutorService;
+
+import org.jupnp.MonitoredThreadPoolExecutor;
+import org.jupnp.mock.MockUpnpService;
+import org.jupnp.mock.MockUpnpServiceConfiguration;
+import org.jupnp.model.Constants;
+import org.jupnp.model.message.IncomingDatagramMessage;
+import org.jupnp.model.message.UpnpRequest;
+import org.jupnp.model.message.header.MANHeader;
+import org.jupnp.model.message.header.MXHeader;
+import org.jupnp.model.message.header.STAllHeader;
+import org.jupnp.model.message.header.UpnpHeader;
+import org.jupnp.model.types.NotificationSubtype;
+import org.jupnp.protocol.ProtocolFactoryImpl;
+import org.jupnp.protocol.ReceivingAsync;
+import org.jupnp.protocol.SearchAdmissionControl;
+import org.jupnp.transport.RouterImpl;
+import org.testng.annotations.Test;
+
+public class SearchAdmissionControlTest {
+
+    @Test
+    public void coalescePendingSearches() throws Exception {
+        SearchAdmissionControl admission = new SearchAdmissionControl(0, 0);
+        InetAddress source = InetAddress.getByName("10.0.0.1");
+
+        assertTrue(admission.admit(source, 1900, "ssdp:all"));
+        assertFalse(admission.admit(source, 1900, "ssdp:all"));
+        assertTrue(admission.admit(source, 1900, "upnp:rootdevice"));
+        assertTrue(admission.admit(InetAddress.getByName("10.0.0.2"), 1900, "ssdp:all"));
+        assertEquals(admission.getCoalescedCount(), 1);
+
+        admission.finish(source, 1900, "ssdp:all");
+        assertTrue(admission.admit(source, 1900, "ssdp:all"));
+        assertEquals(admission.getAdmittedCount(), 4);
+        assertEquals(admission.getRateLimitedCount(), 0);
+    }
+
+    @Test
+    public void coalescePerSourcePort() throws Exception {
+        SearchAdmissionControl admission = new SearchAdmissionControl(2, 600);
+        InetAddress source = InetAddress.getByName("10.0.0.1");
+
+        // Two control points on the same host
+        assertTrue(admission.admit(source, 50000, "ssdp:all"));
+        assertTrue(admission.admit(source, 50001, "ssdp:all"));
+        assertFalse(admission.admit(source, 50001, "ssdp:all"));
+        assertEquals(admission.getCoalescedCount(), 1);
+
+        // They share the rate limit of their host
+        admission.finish(source, 50000, "ssdp:all");
+        assertFalse(admission.admit(source, 50000, "ssdp:all"));
+        assertEquals(admission.getRateLimitedCount(), 1);
+    }
+
+    @Test
+    public void rateLimitSource() throws Exception {
+        SearchAdmissionControl admission = new SearchAdmissionControl(2, 600);
+        InetAddress source = InetAddress.getByName("10.0.0.1");
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(admission.admit(source, 1900, "ssdp:all"));
+            admission.finish(source, 1900, "ssdp:all");
+        }
+        assertFalse(admission.admit(source, 1900, "ssdp:all"));
+        assertEquals(admission.getRateLimitedCount(), 1);
+
+        // Other sources have their own bucket
+        assertTrue(admission.admit(InetAddress.getByName("10.0.0.2"), 1900, "ssdp:all"));
+
+        // One token every 100 milliseconds
+        Thread.sleep(150);
+        assertTrue(admission.admit(source, 1900, "ssdp:all"));
+        admission.finish(source, 1900, "ssdp:all");
+        assertFalse(admission.admit(source, 1900, "ssdp:all"));
+    }
+
+    @Test
+    public void dropBeforeProtocolCreation() throws Exception {
+        MockUpnpService upnpService = new MockUpnpService();
+        upnpService.startup();
+        ProtocolFactoryImpl protocolFactory = new ProtocolFactoryImpl(upnpService);
+
+        ReceivingAsync first = protocolFactory.createReceivingAsync(createSearchMessage());
+        assertNotNull(first);
+        assertNull(protocolFactory.createReceivingAsync(createSearchMessage()));
+        assertEquals(protocolFactory.getSearchAdmissionControl().getCoalescedCount(), 1);
+
+        first.run();
+        assertNotNull(protocolFactory.createReceivingAsync(createSearchMessage()));
+        upnpService.shutdown();
+    }
+
+    @Test
+    public void expirePendingSearchAfterMX() throws Exception {
+        SearchAdmissionControl admission = new SearchAdmissionControl(0, 0) {
+            @Override
+            protected long getPendingTimeoutMillis(int mxSeconds) {
+                assertEquals(super.getPendingTimeoutMillis(mxSeconds),
+                        (mxSeconds == 1 ? 1000 : 3000) + RESPONSE_TIME_MILLIS);
+                return mxSeconds * 50;
+            }
+        };
+        InetAddress source = InetAddress.getByName("10.0.0.1");
+
+        assertTrue(admission.admit(source, 1900, "ssdp:all", 1));
+        assertFalse(admission.admit(source, 1900, "ssdp:all", 1));
+        Thread.sleep(100);
+        assertTrue(admission.admit(source, 1900, "ssdp:all", 1));
+
+        // Invalid MX is replaced with the default
+        assertTrue(admission.admit(source, 1900, "upnp:rootdevice", 0));
+        assertTrue(admission.admit(source, 1901, "upnp:rootdevice", 121));
+    }
+
+    @Test
+    public void finishRejectedSearch() throws Exception {
+        final MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("test-async", 1, 1);
+        executor.shutdown();
+        MockUpnpService upnpService = new MockUpnpService(new MockUpnpServiceConfiguration() {
+            @Override
+            public ExecutorService getAsyncProtocolExecutor() {
+                return executor;
+            }
+        });
+        upnpService.startup();
+        ProtocolFactoryImpl protocolFactory = new ProtocolFactoryImpl(upnpService);
+        RouterImpl router = new RouterImpl(upnpService.getConfiguration(), protocolFactory) {
+            {
+                enabled = true;
+            }
+        };
+
+        // Not coalesced with the rejected search
+        router.received(createSearchMessage());
+        router.received(createSearchMessage());
+        assertEquals(executor.getRejectedTaskCount(), 2);
+        assertEquals(protocolFactory.getSearchAdmissionControl().getAdmittedCount(), 2);
+        assertEquals(protocolFactory.getSearchAdmissionControl().getCoalescedCount(), 0);
+        upnpService.shutdown();
+    }
+
+    protected IncomingDatagramMessage<UpnpRequest> createSearchMessage() throws Exception {
+        IncomingDatagramMessage<UpnpRequest> msg = new IncomingDatagramMessage<UpnpRequest>(
+                new UpnpRequest(UpnpRequest.Method.MSEARCH),
+                InetAddress.getByName("127.0.0.1"),
+                Constants.UPNP_MULTICAST_PORT,
+                InetAddress.getByName("127.0.0.1")
+        );
+        msg.getHeaders().add(UpnpHeader.Type.MAN, new MANHeader(NotificationSubtype.DISCOVER.getHeaderString()));
+        msg.getHeaders().add(UpnpHeader.Type.MX, new MXHeader(1));
+        msg.getHeaders().add(UpnpHeader.Type.ST, new STAllHeader());
+        return msg;
+    }
+}
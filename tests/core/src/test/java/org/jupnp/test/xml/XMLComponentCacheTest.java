@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014 4th Line GmbH, Switzerland and others
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+
+package org.jupnp.test.xml;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.io.StringReader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+
+import org.jupnp.xml.ParserException;
+import org.jupnp.xml.SAXParser;
+import org.jupnp.xml.XMLComponentCache;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+public class XMLComponentCacheTest {
+
+    public static final String SCHEMA =
+        "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" +
+        "<xs:element name=\"foo\" type=\"xs:string\"/>" +
+        "</xs:schema>";
+
+    @Test
+    public void shareFactoriesPerThread() throws Exception {
+        final DocumentBuilderFactory factory = XMLComponentCache.getDocumentBuilderFactory();
+        assertSame(XMLComponentCache.getDocumentBuilderFactory(), factory);
+        assertEquals(factory.isNamespaceAware(), true);
+        assertEquals(XMLComponentCache.getSAXParserFactory().isNamespaceAware(), true);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DocumentBuilderFactory other = executor.submit(new Callable<DocumentBuilderFactory>() {
+                public DocumentBuilderFactory call() {
+                    return XMLComponentCache.getDocumentBuilderFactory();
+                }
+            }).get();
+            assertNotSame(other, factory);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void compileXPathOnce() throws Exception {
+        Document document = XMLComponentCache.getDocumentBuilderFactory().newDocumentBuilder().parse(
+            new InputSource(new StringReader("<root><foo>a</foo><foo>b</foo></root>"))
+        );
+        XPath xpath = XMLComponentCache.getXPathFactory().newXPath();
+
+        XPathExpression expression = XMLComponentCache.getXPathExpression(xpath, "count(/root/foo)");
+        assertSame(XMLComponentCache.getXPathExpression(xpath, "count(/root/foo)"), expression);
+        assertEquals(expression.evaluate(document, XPathConstants.NUMBER), 2d);
+
+        // Another XPath instance might have another namespace context
+        XPath otherXPath = XMLComponentCache.getXPathFactory().newXPath();
+        assertNotSame(XMLComponentCache.getXPathExpression(otherXPath, "count(/root/foo)"), expression);
+    }
+
+    @Test
+    public void shareSchemas() throws Exception {
+        assertSame(
+            XMLComponentCache.getSchema(new Source[]{createSchemaSource("urn:test:schema")}),
+            XMLComponentCache.getSchema(new Source[]{createSchemaSource("urn:test:schema")})
+        );
+
+        // Without a system identifier the schema can't be identified
+        assertNotSame(
+            XMLComponentCache.getSchema(new Source[]{createSchemaSource(null)}),
+            XMLComponentCache.getSchema(new Source[]{createSchemaSource(null)})
+        );
+    }
+
+    @Test
+    public void shareValidatingFactories() throws Exception {
+        Schema schema = XMLComponentCache.getSchema(new Source[]{createSchemaSource("urn:test:schema")});
+        SAXParserFactory factory = XMLComponentCache.getSAXParserFactory(schema);
+        assertSame(XMLComponentCache.getSAXParserFactory(schema), factory);
+        assertSame(factory.getSchema(), schema);
+        assertEquals(factory.isNamespaceAware(), true);
+        assertNotSame(factory, XMLComponentCache.getSAXParserFactory());
+
+        Schema otherSchema = XMLComponentCache.getSchema(new Source[]{createSchemaSource("urn:test:other")});
+        assertNotSame(XMLComponentCache.getSAXParserFactory(otherSchema), factory);
+
+        // A parser of the schema validates
+        SAXParser parser = new SAXParser() {
+            @Override
+            protected Source[] getSchemaSources() {
+                return new Source[]{createSchemaSource("urn:test:schema")};
+            }
+        };
+        parser.parse(new InputSource(new StringReader("<foo>a</foo>")));
+        try {
+            parser.parse(new InputSource(new StringReader("<bar>a</bar>")));
+            fail("Document should be invalid");
+        } catch (ParserException ex) {
+            // Expected
+        }
+    }
+
+    protected Source createSchemaSource(String systemId) {
+        StreamSource source = new StreamSource(new StringReader(SCHEMA));
+        source.setSystemId(systemId);
+        return source;
+    }
+}